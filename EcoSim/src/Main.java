@@ -1,8 +1,13 @@
 import controller.EcoController;
 import model.EcoModel;
+import model.EcsModel;
+import model.IEcoModel;
 import view.EcoView;
 import processing.core.PApplet;
 
+import java.io.IOException;
+import java.nio.file.Path;
+
 /**
  * Main class that serves as starting point of the Ecosystem Simulation program, connecting the model,
  * view and controller elements conforming to the MVC (Model-View-Controller) design pattern.
@@ -40,12 +45,20 @@ public class Main{
 
         var view = new EcoView();
         var controller = new EcoController();
-        var model = new EcoModel(width, height);
+        // -Decosim.engine=ecs simulates with the entity-component-system engine (see model.EcsModel), which gives the same simulation faster
+        IEcoModel model = "ecs".equals(System.getProperty("ecosim.engine")) ? new EcsModel(width, height) : new EcoModel(width, height);
 
         view.setController(controller);
         controller.setView(view);
         controller.setModel(model);
 
+        // -Decosim.export=<file> mirrors the running world into a file for other processes (see model.WorldExportReader)
+        String export = System.getProperty("ecosim.export");
+        if(export != null && model instanceof EcoModel ecoModel) {
+            try {ecoModel.exportTo(Path.of(export));}
+            catch (IOException e) {System.err.println("The world can't be exported: " + e.getMessage());}
+        }
+
         PApplet.runSketch(new String[]{"EcoView"},view);
     }
 }
\ No newline at end of file
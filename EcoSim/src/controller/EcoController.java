@@ -2,6 +2,7 @@ package controller;
 
 
 import model.IEcoModel;
+import model.PositionSnapshot;
 import view.IEcoView;
 
 /**
@@ -16,7 +17,6 @@ import view.IEcoView;
  * var controller = new EcoController();
  * // 2. Now the methods of the EcoController class can be used to, handle the information of the Logic and process it to data for the view to display.
  * public void draw(){
- *  background(75,139,59);
  *  controller.nextFrame();
  * }
  * }</pre>
@@ -30,8 +30,14 @@ public class EcoController implements IEcoController{
     private final int RIGHT = 1, LEFT = 0;
     private int savedId = -1;
     private Float clickX, clickY;
-    private boolean paused, clickedAnimalOnce;
+    private boolean paused, clickedAnimalOnce, showPerformance, performanceChanged;
+    private final PerformanceMonitor performance = new PerformanceMonitor();
+    private String[] performanceLines;
     private int counterForPopUp;
+    // drawing information of every animal, filled in handleAnimals()
+    private float[] animalX = new float[0], animalY = new float[0];
+    private int[] animalDirection = new int[0];
+    private boolean[] animalHerbivore = new boolean[0], animalInMotion = new boolean[0];
 
 
     /**
@@ -63,27 +69,42 @@ public class EcoController implements IEcoController{
      */
     @Override
     public void nextFrame() {
+        // the frames are measured on every screen, the model and the JVM are only read once per second
+        if(performance.frame(System.nanoTime())){
+            performanceLines = performance.sample(System.nanoTime(), model.getTimedTicks(), model.getTickTimePercentile(99), model.getSimulationSpeed());
+            performanceChanged = true;
+        }
+
         switch(state){
             case START -> view.drawStart();
             case SETTINGS -> view.drawSettingsMenu();
             case INFORMATION -> view.drawInfoScreen();
             case RUNNING -> {
-                checkClickOnAnimal();
+                // every part of the frame reads the same snapshot, so the marking stays on its animal
+                PositionSnapshot snapshot = model.getPositionSnapshot();
+                // a paused simulation shows the animals where they are, instead of where they were a tick before
+                float fraction = snapshot == null || paused ? 1 : snapshot.fractionAt(System.nanoTime());
+                checkClickOnAnimal(snapshot);
 
                 handleResources();
-                handleBunny();
-                handleFox();
+                handleAnimals(snapshot, fraction);
 
-                handleAnimalParameterInfo();
+                handleAnimalParameterInfo(snapshot, fraction);
 
                 view.drawRunningSimulation();
-                view.drawAnimalCounter(model.getAnimalCountOf(false), model.getAnimalCountOf(true));
+                if(snapshot != null) view.drawAnimalCounter(snapshot.getAnimalCountOf(false), snapshot.getAnimalCountOf(true));
                 if(!clickedAnimalOnce){
                     view.popUpMessage();
                     counterForPopUp++;
                 }
                 if(counterForPopUp > 250) clickedAnimalOnce = true;
 
+                if(showPerformance){
+                    if(performanceChanged) view.updatePerformanceHud(performanceLines, performance.getFrameMillis());
+                    performanceChanged = false;
+                    view.drawPerformanceHud();
+                }
+
             }
         }
     }
@@ -111,6 +132,7 @@ public class EcoController implements IEcoController{
     public void changeToStart(){
         pauseSimulation();
         model.clearOldSim();
+        view.clearResourceLayer();
         state = ProgramState.START;
     }
 
@@ -152,6 +174,16 @@ public class EcoController implements IEcoController{
         model.playEcoSimulationThread(true);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void togglePerformanceHud() {
+        showPerformance = !showPerformance;
+        // the overlay may show values from before it was hidden
+        performanceChanged = true;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -173,131 +205,94 @@ public class EcoController implements IEcoController{
     }
 
     /**
-     * (private) Checks if a click has been saved in {@link #clickX} and {@link #clickY}, if so all the animals positions will be compared to that position,
-     * and if the position of the click matches the position of any animal its id will be saved to {@link #savedId}, the temporarily saved click position will be overwritten with null and the method will be left with return.
-     * If the method wasn't left with return, that means no animal was found and the click was misplaced by the user and the temporarily saved click position will be overwritten with null.
+     * (private) Checks if a click has been saved in {@link #clickX} and {@link #clickY}, if so the first animal of the snapshot within 20 units of that position is looked up
+     * in the grid of the snapshot (see {@link PositionSnapshot#indexAt(float, float, float)}) and its id will be saved to {@link #savedId}.
+     * Either way the temporarily saved click position will be overwritten with null, so a misplaced click doesn't select animals walking over its position later.
      */
-    private void checkClickOnAnimal(){
+    private void checkClickOnAnimal(PositionSnapshot snapshot){
         if(clickX != null && clickY != null){
-
-            for(int i = 0; i < model.getAnimalList().size(); i++){
-                var animalGet = model.animalAttributes(model.getAnimalList().get(i));
-                var distanceToAnimal = Math.hypot(animalGet.x() - clickX, animalGet.y() - clickY);
-
-                if(distanceToAnimal <= 20){
-                    savedId = animalGet.id();
-                    clickedAnimalOnce = true;
-                    clickX = null;
-                    clickY = null;
-                    return;
-                }
+            int index = snapshot == null ? -1 : snapshot.indexAt(clickX, clickY, 20);
+            if(index >= 0){
+                savedId = snapshot.getId(index);
+                clickedAnimalOnce = true;
             }
-            // if no position has been found to avoid animals walking over the saved position and getting selected.
-
             clickX = null;
             clickY = null;
         }
     }
 
     /**
-     * (private) Checks if the {@link #savedId} is currently in the animal list, if so it will invoke the view method to draw the parameters of an animal and to draw the marking around the selected animal.
+     * (private) Looks up the {@link #savedId} in the snapshot, if it is there it will invoke the view method to draw the parameters of an animal and to draw the marking around the selected animal
+     * at the position the animal is drawn at, otherwise the selection is cleared.
      */
-    private void handleAnimalParameterInfo(){
+    private void handleAnimalParameterInfo(PositionSnapshot snapshot, float fraction){
         // base value for not drawing
-        if(savedId != -1) {
-            boolean idIsContainedInList = false;
-
-            for (int i = 0; i < model.getAnimalList().size(); i++) {
-                var animalGet = model.animalAttributes(model.getAnimalList().get(i));
-
-                if(savedId == animalGet.id()){
-                    if(animalGet.herbivore()){
-                        view.drawBunnyParameters((int)animalGet.hunger(), (int)animalGet.thirst());
-                        view.drawSelectMarking(animalGet.x(), animalGet.y(),40);
-                    }else{
-                        view.drawFoxParameters((int)animalGet.hunger(), (int)animalGet.thirst());
-                        view.drawSelectMarking(animalGet.x(), animalGet.y(),50);
-                    }
-                    // to say the id was found
-                    idIsContainedInList = true;
-                }
-            }
-            // basically says stop drawing for the first line of this method
-            if(!idIsContainedInList) savedId = -1;
-        }
-    }
+        if(savedId == -1) return;
 
-    /**
-     * (private) Converts the model data to drawing information for the view to draw the fox.
-     */
-    private void handleFox(){
-        for(int i = 0; i < model.getAnimalList().size(); i++) {
-            if (!model.animalAttributes(model.getAnimalList().get(i)).herbivore()) {
-                var foxGet = model.animalAttributes(model.getAnimalList().get(i));
-
-                int currentDirection = 0;
-                boolean inMotion = true;
-
-                if(foxGet.vx() > 0){
-                    inMotion = true;
-                    currentDirection = RIGHT;
-                }else if(foxGet.vx() < 0){
-                    inMotion = true;
-                    currentDirection = LEFT;
-                }
-
-                if(foxGet.vy() < 0 || foxGet.vy() > 0){
-                    inMotion = true;
-                }
-
-                if(paused || (foxGet.vx() == 0 && foxGet.vy() == 0)) inMotion = false;
+        int index = snapshot == null ? -1 : snapshot.indexOf(savedId);
+        // basically says stop drawing for the first line of this method
+        if(index < 0){
+            savedId = -1;
+            return;
+        }
 
-                view.drawFox(foxGet.x(), foxGet.y(), currentDirection, inMotion);
-            }
+        if(snapshot.isHerbivore(index)){
+            view.drawBunnyParameters((int) snapshot.getHunger(index), (int) snapshot.getThirst(index));
+            view.drawSelectMarking(snapshot.getX(index, fraction), snapshot.getY(index, fraction), 40);
+        }else{
+            view.drawFoxParameters((int) snapshot.getHunger(index), (int) snapshot.getThirst(index));
+            view.drawSelectMarking(snapshot.getX(index, fraction), snapshot.getY(index, fraction), 50);
         }
     }
 
     /**
-     * (private) Converts the model data to drawing information for the view to draw the bunny.
+     * (private) Converts the model data to drawing information for the view to draw every bunny and fox at once, so the view can choose how detailed they are drawn.
+     * The positions are read from the {@link PositionSnapshot} of the last tick and interpolated by the time passed since then,
+     * so the animals move smoothly even if the simulation ticks slower or faster than the frames are drawn.
+     * <p>
+     * Note: The arrays are kept between frames and only grow, the view only reads the first entries (as many as there are animals).
      */
-    private void handleBunny(){
-        for(int i = 0; i < model.getAnimalList().size(); i++) {
-            if (model.animalAttributes(model.getAnimalList().get(i)).herbivore()) {
-                var bunnyGet = model.animalAttributes(model.getAnimalList().get(i));
-
-                int currentDirection = 1;
-                boolean inMotion = true;
-
-                if(bunnyGet.vx() > 0){
-                    inMotion = true;
-                    currentDirection = RIGHT;
-                }else if(bunnyGet.vx() < 0){
-                    inMotion = true;
-                    currentDirection = LEFT;
-                }
+    private void handleAnimals(PositionSnapshot snapshot, float fraction){
+        if(snapshot == null) return;
+        if(animalX.length < snapshot.size()){
+            int capacity = Math.max(snapshot.size(), animalX.length * 2);
+            animalX = new float[capacity];
+            animalY = new float[capacity];
+            animalDirection = new int[capacity];
+            animalHerbivore = new boolean[capacity];
+            animalInMotion = new boolean[capacity];
+        }
 
-                if(paused || (bunnyGet.vx() == 0 && bunnyGet.vy() == 0) || bunnyGet.thinking()) inMotion = false;
+        for(int i = 0; i < snapshot.size(); i++) {
+            float vx = snapshot.getVx(i), vy = snapshot.getVy(i);
 
-                view.drawBunny(bunnyGet.x(), bunnyGet.y(), currentDirection, inMotion);
-            }
+            // bunnies face right and foxes face left, until they move
+            int currentDirection = snapshot.isHerbivore(i) ? RIGHT : LEFT;
+            if(vx > 0) currentDirection = RIGHT;
+            else if(vx < 0) currentDirection = LEFT;
+
+            boolean inMotion = !(paused || (vx == 0 && vy == 0) || (snapshot.isHerbivore(i) && snapshot.isThinking(i)));
+
+            animalX[i] = snapshot.getX(i, fraction);
+            animalY[i] = snapshot.getY(i, fraction);
+            animalDirection[i] = currentDirection;
+            animalHerbivore[i] = snapshot.isHerbivore(i);
+            animalInMotion[i] = inMotion;
         }
+        view.drawAnimals(animalX, animalY, animalDirection, animalHerbivore, animalInMotion, snapshot.size());
     }
 
     /**
      * (private) Converts the model data to drawing information for the view to draw the correct resource.
+     * <p>
+     * Note: The resources are passed to the cached layer of the view, which only draws the resources again whose alpha value changed visibly.
      */
     private void handleResources(){
-        for(int i = 0; i < model.getResourceList().size(); i++){
-            var fluid = model.resourceAttributes(model.getResourceList().get(i)).resourceTypeWater();
-
-
-            if(!fluid){
-                var grassGet = model.resourceAttributes(model.getResourceList().get(i));
-                view.drawGrass(grassGet.x(), grassGet.y(), grassGet.remainingPercentage() * 2.55);
-            }else{
-                var waterGet = model.resourceAttributes(model.getResourceList().get(i));
-                view.drawWater(waterGet.x(), waterGet.y(), waterGet.remainingPercentage() * 2.55);
-            }
+        var resources = model.getResourceList();
+        for(int i = 0; i < resources.size(); i++){
+            var resourceGet = model.resourceAttributes(resources.get(i));
+            view.updateResource(i, resourceGet.x(), resourceGet.y(), resourceGet.resourceTypeWater(), resourceGet.remainingPercentage() * 2.55);
         }
+        view.drawResourceLayer();
     }
 }
\ No newline at end of file
@@ -49,6 +49,11 @@ public interface IEcoController {
      */
     void playSimulation();
 
+    /**
+     * Shows or hides the overlay with the frame rate, the tick rate and the memory use of the running simulation.
+     */
+    void togglePerformanceHud();
+
     /**
      * Informs the model that the simulation speed needs to change to the specified speed in milliseconds.
      * @param speedInMillis The simulation speed in milliseconds.
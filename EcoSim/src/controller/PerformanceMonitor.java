@@ -0,0 +1,108 @@
+package controller;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * (package-private) Class that measures the frames drawn and, once per {@link #SAMPLE_NANOS}, turns them and the metrics of the model and the JVM into the lines of a performance overlay.
+ * <p>
+ * Every frame only stores its duration, the management beans and the model are read when a sample is taken, so the overlay costs almost nothing per frame.
+ * The last line names the bottleneck: the simulation if it reaches less than {@value #BOTTLENECK_SHARE} of its target tick rate,
+ * the rendering if the frames do.
+ */
+class PerformanceMonitor {
+    static final long SAMPLE_NANOS = 1_000_000_000L;
+    static final int FRAME_HISTORY = 120;
+    // the frame rate processing aims for, unless the sketch sets another one
+    static final int TARGET_FRAME_RATE = 60;
+    static final double BOTTLENECK_SHARE = 0.9;
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final float[] frameMillis = new float[FRAME_HISTORY];
+    private long frames, lastFrame, lastSample, framesAtSample, ticksAtSample, allocatedAtSample;
+
+    /**
+     * (package-private) Records a frame drawn at the passed time.
+     * @param now The time of the frame (see {@link System#nanoTime()}).
+     * @return True if a second passed since the last sample, so the next one should be taken.
+     */
+    boolean frame(long now){
+        if(lastFrame != 0) frameMillis[(int) (frames % FRAME_HISTORY)] = (now - lastFrame) / 1e6f;
+        if(lastFrame != 0) frames++;
+        lastFrame = now;
+        return now - lastSample >= SAMPLE_NANOS;
+    }
+
+    /**
+     * (package-private) Takes a sample of the frames since the last sample, the simulation and the JVM.
+     * @param now The current time (see {@link System#nanoTime()}).
+     * @param ticks The number of ticks the simulation thread simulated so far.
+     * @param tickMillisP99 The 99th percentile of the last tick times in milliseconds.
+     * @param simulationSpeed The pause between two ticks in milliseconds, which sets the target tick rate.
+     * @return The lines of the overlay.
+     */
+    String[] sample(long now, long ticks, double tickMillisP99, int simulationSpeed){
+        double seconds = lastSample == 0 ? 0 : (now - lastSample) / 1e9;
+        double frameRate = seconds == 0 ? 0 : (frames - framesAtSample) / seconds;
+        double tickRate = seconds == 0 ? 0 : Math.max(0, ticks - ticksAtSample) / seconds;
+        double targetTickRate = 1000.0 / Math.max(1, simulationSpeed);
+        long allocated = allocatedBytes();
+        double allocationRate = seconds == 0 || allocated < 0 ? 0 : Math.max(0, allocated - allocatedAtSample) / seconds / (1 << 20);
+
+        long collections = 0, collectionMillis = 0;
+        for(GarbageCollectorMXBean collector : collectors){
+            collections += Math.max(0, collector.getCollectionCount());
+            collectionMillis += Math.max(0, collector.getCollectionTime());
+        }
+
+        String bottleneck = "none";
+        if(seconds > 0 && tickRate < targetTickRate * BOTTLENECK_SHARE) bottleneck = "simulation";
+        if(seconds > 0 && frameRate < TARGET_FRAME_RATE * BOTTLENECK_SHARE) bottleneck = bottleneck.equals("none") ? "rendering" : "simulation + rendering";
+
+        lastSample = now;
+        framesAtSample = frames;
+        ticksAtSample = ticks;
+        allocatedAtSample = allocated;
+        return new String[]{
+                format("render: %.1f fps", frameRate),
+                format("ticks: %.1f/s of %.1f/s", tickRate, targetTickRate),
+                format("tick p99: %.2f ms", tickMillisP99),
+                allocated < 0 ? "allocation: n/a" : format("allocation: %.1f MB/s", allocationRate),
+                format("heap: %d of %d MB", memory.getHeapMemoryUsage().getUsed() >> 20, memory.getHeapMemoryUsage().getCommitted() >> 20),
+                format("gc: %d (%d ms)", collections, collectionMillis),
+                "bottleneck: " + bottleneck
+        };
+    }
+
+    /**
+     * (package-private) Returns the durations of the last frames, the oldest first.
+     * @return The frame times in milliseconds, at most {@value #FRAME_HISTORY}.
+     */
+    float[] getFrameMillis(){
+        int size = (int) Math.min(frames, FRAME_HISTORY);
+        float[] ordered = new float[size];
+        for(int i = 0; i < size; i++) ordered[i] = frameMillis[(int) ((frames - size + i) % FRAME_HISTORY)];
+        return ordered;
+    }
+
+    /**
+     * (private) Sums the bytes allocated by the live threads, the threads which ended are missing, so the sum can shrink.
+     * @return The allocated bytes, or -1 if the JVM doesn't measure them.
+     */
+    private long allocatedBytes(){
+        if(!(threads instanceof com.sun.management.ThreadMXBean allocations) || !allocations.isThreadAllocatedMemoryEnabled()) return -1;
+        long sum = 0;
+        for(long bytes : allocations.getThreadAllocatedBytes(threads.getAllThreadIds())) sum += Math.max(0, bytes);
+        return sum;
+    }
+
+    /**
+     * (private) Formats independent of the default locale, so the numbers always use a decimal point.
+     */
+    private static String format(String format, Object... args){return String.format(Locale.ROOT, format, args);}
+}
@@ -5,6 +5,7 @@
  *
  * <ul>Class summary:
  *     <li>{@link controller.EcoController}</li>
+ *     <li>{@link controller.PerformanceMonitor}</li> class measuring the frames and sampling the performance overlay once per second.
  * </ul>
  *
  *
@@ -1,7 +1,11 @@
 package model;
 
 
+import java.nio.ByteBuffer;
+import java.util.List;
 import java.util.Random;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
 
 /**
  * Abstract class, which is the base of animals within the simulation.
@@ -9,19 +13,32 @@ import java.util.Random;
  * <p>
  * The class acts as a data container to the controller and is read-only outside the model to avoid changes from the outside.
  * <p>
+ * Animals refer to each other (e.g. a mate) by the object together with its handle at that time (see {@link #getHandle()}).
+ * Dead animals are recycled by their {@link AnimalPool}, which changes their handle, so a reference to an animal which is gone can be recognized in O(1).
+ * <p>
  * Note: According to the guidelines set by Prof. Dr. Martin Weigel in the javadoc for the class <a href="https://moodle.thm.de/course/view.php?id=10282#section-4">'Pokemon.java' from 'Evolis Adventure' (Final Edition)</a>, this class is intentionally made public.
  * @author Sleman Kakar
  */
 public abstract class Animal{
     private float x, y, vx, vy;
     private double hunger, thirst, matingUrge, sightRange;
-    private Random random = new Random();
+    private final Random random;
     private AnimalState state;
     private boolean dead, eating, drinking, objectiveInSight, thinking, mating, pregnant;
-    private final boolean herbivore;
+    // what the animal eats and how fast its needs change, only recycling gives an animal another species (of the same class)
+    private Species species;
     private Resource usingThisResource;
+    // remembers that no resource was in sight, so the lookups can be skipped until that may have changed
+    private final ResourceCache resourceCache = new ResourceCache();
     private Animal usingThisMate;
-    private final int id;
+    // the handle the mate had when it was chosen, the mate is gone once its handle differs (see getHandle())
+    private long mateHandle;
+    private int id;
+    // see getHandle(): the slot of this animal in its AnimalPool (-1 outside of a pool), how often the slot was reused and the position in the animal list
+    private int slot = -1, generation, index = -1;
+    // see park(): the tick of the last turn taken or replayed, the tick of the last turn skipped, the wake-up tick and the size of the ecosystem while parked
+    private long parkedAt = -1, skippedUntil, wakeTick;
+    private int parkedWidth, parkedHeight;
 
 
     /**
@@ -30,13 +47,27 @@ public abstract class Animal{
      * @param sightRange Assigns the range an animal can "look". Should be a positive value.
      * @param x Assigns the initial spawn position on the x-axis.
      * @param y Assigns the initial spawn position on the y-axis.
-     * @param isHerbivore Assigns if an animal is a Herbivore or not.
+     * @param species Assigns the species of an animal, which decides if it is a herbivore or not.
+     */
+    Animal(int id, double sightRange, float x, float y, Species species) {this(id, sightRange, x, y, species, new Random());}
+
+    /**
+     * (package-private) Constructor for new Animal with specified parameters and its own source of randomness, also sets the initial direction randomly.
+     * <p>
+     * Note: Passing a seeded {@link Random} makes every random decision of this animal reproducible, which is needed for headless runs (see {@link SweepRunner}).
+     * @param id Assigns ID number, which should be unique.
+     * @param sightRange Assigns the range an animal can "look". Should be a positive value.
+     * @param x Assigns the initial spawn position on the x-axis.
+     * @param y Assigns the initial spawn position on the y-axis.
+     * @param species Assigns the species of an animal, which decides if it is a herbivore or not.
+     * @param random The source of randomness used for every random decision of this animal.
      */
-    Animal(int id, double sightRange, float x, float y, boolean isHerbivore) {
+    Animal(int id, double sightRange, float x, float y, Species species, Random random) {
         this.id = id;
+        this.random = random;
 
         this.sightRange = sightRange;
-        this.herbivore = isHerbivore;
+        this.species = species;
 
         this.x = x;
         this.y = y;
@@ -46,6 +77,37 @@ public abstract class Animal{
         setRandomDirection();
     }
 
+    /**
+     * (package-private) Turns this animal, which died and was released by its {@link AnimalPool}, into a new animal, as if it was created with the passed parameters
+     * and a {@link SimRandom} with the passed seed.
+     * @param species Assigns the species, which has to eat the same as the species before (see {@link Species#grazes()}).
+     * @param id Assigns ID number, which should be unique.
+     * @param sightRange Assigns the range an animal can "look". Should be a positive value.
+     * @param x Assigns the initial spawn position on the x-axis.
+     * @param y Assigns the initial spawn position on the y-axis.
+     * @param seed The seed of its source of randomness.
+     */
+    void reset(Species species, int id, double sightRange, float x, float y, long seed){
+        if(species.grazes() != this.species.grazes()) throw new IllegalArgumentException("a recycled animal can't change between eating grass and hunting");
+        this.species = species;
+        this.id = id;
+        random.setSeed(seed);
+        this.sightRange = sightRange;
+        this.x = x;
+        this.y = y;
+        hunger = thirst = matingUrge = 0;
+        state = AnimalState.NEWBORN;
+        dead = eating = drinking = objectiveInSight = thinking = mating = pregnant = false;
+        usingThisResource = null;
+        resourceCache.clear();
+        setUsingThisMate(null);
+        parkedAt = -1;
+        skippedUntil = wakeTick = 0;
+        parkedWidth = parkedHeight = 0;
+
+        setRandomDirection();
+    }
+
     /**
      * (package-private) Sets random, positive or negative, direction in the x- and y-axis.
      */
@@ -61,45 +123,38 @@ public abstract class Animal{
      * @param height Indicates the height of the simulation.
      */
     void wallCollision(int width, int height){
-        vx = (x <= 0 || x >= width) ? -vx : vx;
-        vy = (y <= 0 || y >= height) ? -vy : vy;
+        vx = AnimalRules.bounce(vx, x, width);
+        vy = AnimalRules.bounce(vy, y, height);
     }
 
     /**
-     * (private) Updates hunger based on if animal is currently eating or not.
+     * (private) Updates hunger based on if animal is currently eating or not, by the rates of its {@link Species}.
      * <p>
      * Note: hunger is not updated if the Animal is currently drinking or mating.
      */
-    private void hungerUpdater(){if(!drinking && !mating) hunger = (hunger >= 0) ? hunger + ((eating) ? -0.1 : 0.05) : 0;}
+    private void hungerUpdater(){hunger = AnimalRules.hunger(hunger, species, eating, drinking, mating);}
 
     /**
-     * (private) Updates thirst based on if animal is currently drinking or not.
+     * (private) Updates thirst based on if animal is currently drinking or not, by the rates of its {@link Species}.
      * <p>
      * Note: thirst is not updated if the Animal is currently eating or mating.
      */
-    private void thirstUpdater(){if(!eating && !mating) thirst = (thirst >= 0) ? thirst + ((drinking) ? -0.1 : 0.1) : 0;}
+    private void thirstUpdater(){thirst = AnimalRules.thirst(thirst, species, eating, drinking, mating);}
 
     /**
-     * (private) Updates matingUrge based on if animal is currently mating or not.
+     * (private) Updates matingUrge based on if animal is currently mating or not, by the rates of its {@link Species}.
      * <p>
      * Note: matingUrge is not updated if the Animal is currently eating or drinking.
      */
-    private void matingUrgeUpdater(){matingUrge = (matingUrge >= 0 && matingUrge <= 100) ? matingUrge + (mating ? -0.5 : 0.3) : (matingUrge <= 0) ? 0 : 100;}
+    private void matingUrgeUpdater(){matingUrge = AnimalRules.matingUrge(matingUrge, species, mating);}
 
 
     /**
-     * (package-private) Decides the {@link AnimalState} of an animal based on its hunger, thirst and current state.
+     * (package-private) Decides the {@link AnimalState} of an animal based on its hunger, thirst and current state (see {@link AnimalRules#nextState(AnimalState, double, double)}).
      */
     void decideState(){
-        dead = (hunger >= 100) || (thirst >= 100);
-
-        if(state == AnimalState.NEWBORN) state = (hunger >= 50 || thirst >= 50) ? (hunger >= thirst ? AnimalState.HUNGRY : AnimalState.THIRSTY) : AnimalState.NEWBORN;
-
-        if(state == AnimalState.IDLE)state = (hunger >= 50 || thirst >= 50) ? (hunger >= thirst ? AnimalState.HUNGRY : AnimalState.THIRSTY) : AnimalState.IDLE;
-
-        else if(state == AnimalState.THIRSTY) state = (thirst <= 0) ? AnimalState.IDLE : AnimalState.THIRSTY;
-
-        else if(state == AnimalState.HUNGRY) state = (hunger <= 0) ? AnimalState.IDLE : AnimalState.HUNGRY;
+        dead = AnimalRules.dies(hunger, thirst);
+        state = AnimalRules.nextState(state, hunger, thirst);
     }
 
     /**
@@ -110,17 +165,10 @@ public abstract class Animal{
      * @param y1 Indicates the y-position of destination point.
      */
     void moveTo(float x1, float y1){
-        //calculates the slope between this animal and the destination
-        float m = Math.abs((y1 - y) / (x1 - x));
-        //calculates the vxUpdate value based on the slope
-        float vxUpdate = Math.abs(vx) / Math.abs(m);
-
-        //decides if the distance between the x's or the y's is higher, based on that it assigns the vx value with 'one' or the local vxUpdate variable.
-        vx = ((Math.abs(x1 - x)) > (Math.abs(y1 - y))) ? ((x <= x1) ? 1 : -1) : ((x <= x1) ? vxUpdate : -vxUpdate) ;
-        //decides if the distance between the x's or the y's is higher, based on that it assigns the vy value with 'one' or the local m variable.
-        vy = ((Math.abs(x1 - x)) > (Math.abs(y1 - y))) ? ((y <= y1) ? m : -m) : ((y <= y1) ? 1 : -1);
-
-        //the distance between the x's and the distance between the y's is important, because otherwise an animal would "shoot up" to its destination, which doesn't look good
+        //decides if the distance between the x's or the y's is higher, based on that it assigns 'one' or a value scaled by the slope (see AnimalRules)
+        float vxNext = AnimalRules.moveToVx(x, y, vx, x1, y1);
+        vy = AnimalRules.moveToVy(x, y, x1, y1);
+        vx = vxNext;
     }
 
     /**
@@ -139,6 +187,82 @@ public abstract class Animal{
         }
     }
 
+    /**
+     * (package-private) Counts the coming ticks in which this animal would only rest: eating, drinking or mating on the spot, until its hunger, thirst or mating urge is used up.
+     * In these ticks a turn only runs {@link #replayTick(int, int)}, so the animal can be parked (see {@link #park(long, long, int, int)}) and skip the rest of them.
+     * <p>
+     * Note: The count is derived from the linear updaters and rounded down, so the last rest tick is left out rather than the tick in which the animal stops resting.
+     * Mating animals are only counted once their mating urge is below 50, because other animals decide to mate with them by it.
+     * @return The number of coming rest ticks, 0 if the animal isn't resting.
+     */
+    int quietTicks(){
+        if(dead || pregnant || thinking || vx != 0 || vy != 0) return 0;
+        if(eating && !drinking && !mating && state == AnimalState.HUNGRY && usingThisMate == null) return Math.max(0, (int) Math.floor(hunger / species.eatingRate()) - 1);
+        if(drinking && !eating && !mating && state == AnimalState.THIRSTY && usingThisMate == null) return Math.max(0, (int) Math.floor(thirst / species.drinkingRate()) - 1);
+        if(mating && !eating && !drinking && state == AnimalState.IDLE && matingUrge < 50 && usingThisMate != null && usingThisMate.usingThisMate == this)
+            return Math.max(0, (int) Math.floor(matingUrge / species.matingRate()) - 1);
+        return 0;
+    }
+
+    /**
+     * (package-private) Does everything a turn of a resting animal changes on the animal itself, which is moving (on the spot) and updating its needs and the wall collision.
+     * @param width Indicates the width of the simulation.
+     * @param height Indicates the height of the simulation.
+     */
+    void replayTick(int width, int height){
+        movement();
+        wallCollision(width, height);
+    }
+
+    /**
+     * (package-private) Parks this animal after its turn, so it skips its turns until the passed wake-up tick (see {@link #skipTurn(long)}),
+     * which is either in the wake-up tick or earlier if another animal interacts with it.
+     * @param tick The tick of the turn this animal just took.
+     * @param wakeTick The tick in which this animal takes its turns again.
+     * @param width Indicates the width of the simulation.
+     * @param height Indicates the height of the simulation.
+     */
+    void park(long tick, long wakeTick, int width, int height){
+        parkedAt = skippedUntil = tick;
+        this.wakeTick = wakeTick;
+        parkedWidth = width;
+        parkedHeight = height;
+    }
+
+    /**
+     * (package-private) Lets this animal skip its turn of the passed tick, the turn is replayed once the animal is read or wakes up (see {@link #catchUp()}).
+     * @param tick The tick of the skipped turn.
+     */
+    void skipTurn(long tick){skippedUntil = tick;}
+
+    /**
+     * (package-private) Replays every turn this animal skipped since it was parked or last caught up, so its needs are up to date, and leaves it parked.
+     * <p>
+     * Note: The turns are replayed one by one with {@link #replayTick(int, int)} instead of in closed form, since adding a rate n times
+     * doesn't give the same double as adding n times the rate, and the runs have to stay the same whether animals are parked or not.
+     * Only the animals which are read pay for this, e.g. by {@link EcoModel#getAnimalList()}, the snapshots and the exports.
+     */
+    void catchUp(){
+        if(parkedAt < 0) return;
+        for(long skipped = parkedAt + 1; skipped <= skippedUntil; skipped++) replayTick(parkedWidth, parkedHeight);
+        parkedAt = skippedUntil;
+    }
+
+    /**
+     * (package-private) Wakes this animal up, if it is parked, by replaying every turn it skipped (see {@link #catchUp()}). Afterwards it takes its turns again.
+     * <p>
+     * Note: Every method changing another animal calls this method first, so nobody changes a parked animal with outdated values.
+     */
+    void wake(){
+        catchUp();
+        parkedAt = -1;
+    }
+
+    boolean isParked(){return parkedAt >= 0;}
+    long getWakeTick(){return this.wakeTick;}
+    //getter for tests, the number of skipped turns which weren't replayed yet
+    long getSkippedTurns(){return parkedAt < 0 ? 0 : skippedUntil - parkedAt;}
+
     /**
      * (package-private) Handles what an animal should do with a {@link Resource}, if it should move towards a resource and use it or leave it.
      * @param resource The resource to be handled.
@@ -149,28 +273,33 @@ public abstract class Animal{
         if(resource.getResourceAttributes().resourceTypeWater() == handleWater && !resource.getUnusable()){
             double distanceToResource = Math.hypot(resource.getResourceAttributes().x() - x, resource.getResourceAttributes().y() - y);
 
-            //checks if the resource is within the animals sight and...
-            if(findResource(resource, distanceToResource) != null && !resource.getResourceAttributes().currentlyInUse() && !resource.getUnusable()){
+            //checks if the resource is within the animals sight and reserves it, the animal waits for it if another animal reserved it first
+            if(findResource(resource, distanceToResource) != null){
                 objectiveInSight = true;
                 moveTo(usingThisResource.getResourceAttributes().x(), usingThisResource.getResourceAttributes().y());
             }
 
-            //checks if the animal 'thinks' it is currently using a resource, but is not, based on that values will be reset
-            if(usingThisResource != null && usingThisResource.getResourceAttributes().currentlyInUse() && (!drinking && resource.getResourceAttributes().resourceTypeWater()) ^ (!eating && !resource.getResourceAttributes().resourceTypeWater())) {
-                usingThisResource = null;
-                objectiveInSight = false;
-                setRandomDirection();
+            //checks if the animal 'thinks' it is currently using a resource, but is not, based on that values will be reset (an animal waiting for the resource keeps waiting)
+            if(usingThisResource != null && usingThisResource.getResourceAttributes().currentlyInUse() && (!drinking && resource.getResourceAttributes().resourceTypeWater()) ^ (!eating && !resource.getResourceAttributes().resourceTypeWater())
+                    && !usingThisResource.isWaiting(id)) {
+                giveUpResource();
             }
 
-            //checks if the animal is at the location of the saved resource and starts eating/drinking and stops its movement
-            if(usingThisResource != null && objectiveInSight && Math.hypot(usingThisResource.getResourceAttributes().x() - x, resource.getResourceAttributes().y() - y ) <= 1 && !resource.getResourceAttributes().currentlyInUse()){
-                stopMoving();
+            //checks if the animal is at the location of the saved resource and starts eating/drinking and stops its movement, an animal waiting for the resource only stops
+            if(usingThisResource != null && objectiveInSight && Math.hypot(usingThisResource.getResourceAttributes().x() - x, resource.getResourceAttributes().y() - y ) <= 1){
+                if(!resource.getResourceAttributes().currentlyInUse() && usingThisResource.isReservedBy(id)){
+                    stopMoving();
 
-                if(usingThisResource.getResourceAttributes().resourceTypeWater()) drinking = true;
-                else eating = true;
-                usingThisResource.setCurrentlyInUse(true);
+                    if(usingThisResource.getResourceAttributes().resourceTypeWater()) drinking = true;
+                    else eating = true;
+                    usingThisResource.setCurrentlyInUse(true);
+                }
+                else if(usingThisResource.isWaiting(id)) stopMoving();
             }
+            if(usingThisResource != null && usingThisResource.isWaiting(id)) usingThisResource.getReservation().waited();
         }
+        // a depleted resource the animal only reserved can't be used until it regenerated, so the animal gives it up and looks for another one
+        else if(resource == usingThisResource && resource.isWater() == handleWater && !drinking && !eating) giveUpResource();
     }
 
     /**
@@ -180,12 +309,35 @@ public abstract class Animal{
     void handleThirst(Resource resource) {handleResource(resource, true);}
 
     /**
-     * (package-private) Checks if resource is in sight, if it is, the sighted resource gets saved to 'usingThisResource' and will be also returned.
+     * (package-private) Checks if resource is in sight, if it is, the sighted resource is reserved (see {@link Resource#reserve(int)}), gets saved to 'usingThisResource' and will be also returned.
      * @param resource The resource to be handled.
      * @param distanceToPotentialResource The distance to the resource being handled. It should be calculated beforehand.
-     * @return The sighted resource, or null if no resource is in sight.
+     * @return The sighted resource, or null if no resource is in sight or it can't be reserved.
      */
-    Resource findResource(Resource resource, double distanceToPotentialResource) { return (sightRange > distanceToPotentialResource && !objectiveInSight && !resource.getUnusable() && !resource.getResourceAttributes().currentlyInUse()) ? usingThisResource = resource : null; }
+    Resource findResource(Resource resource, double distanceToPotentialResource) { return (sightRange > distanceToPotentialResource && !objectiveInSight && !resource.getUnusable() && resource.reserve(id)) ? usingThisResource = resource : null; }
+
+    /**
+     * (package-private) Lets this animal stop using its resource and give up its reservation, so the first animal waiting for the resource gets it.
+     * <p>
+     * Note: This method is also called for dead animals before they are recycled, so they don't keep their resource.
+     */
+    void leaveResource(){
+        if(usingThisResource == null) return;
+        // a resource the animal only went to might be used by another animal (e.g. a fox, which caught a bunny on its way to water)
+        if(usingThisResource.isWater() ? drinking : eating) usingThisResource.setCurrentlyInUse(false);
+        usingThisResource.release(id);
+        usingThisResource = null;
+    }
+
+    /**
+     * (private) Lets this animal give up the resource it goes to and wander off in a random direction.
+     */
+    private void giveUpResource(){
+        usingThisResource.release(id);
+        usingThisResource = null;
+        objectiveInSight = false;
+        setRandomDirection();
+    }
 
 
     /**
@@ -194,8 +346,7 @@ public abstract class Animal{
      */
     void stopUsingResource(){
         if (usingThisResource != null && ((state == AnimalState.HUNGRY && hunger <= 0) || (state == AnimalState.THIRSTY && thirst <= 0))){
-            usingThisResource.setCurrentlyInUse(false);
-            usingThisResource = null;
+            leaveResource();
             drinking = eating = objectiveInSight = thinking = false;
             setRandomDirection();
         }
@@ -203,64 +354,97 @@ public abstract class Animal{
 
 
     /**
-     * (package-private) Abstract method since animals need to implement the ability to mate, but only with their own kind.
-     * With this method the animals can get seperated in their implementation of this method.
-     * <p>
-     * @param other Another animal available for mating.
-     * @implNote Subclasses should override this method to provide mating behavior for a specific animal type, it should call {@link #matingHelper(Animal)} and restrict it to activate, so only animals of the same type can be passed to {@link #matingHelper(Animal)}
+     * (package-private) Finds the nearest living animal of the passed species within the sight range of this animal, like a query of a {@link NearestIndex} (ties are broken by the lower index).
+     * @param others The animals which could be in sight of this animal, ordered by their index.
+     * @param species The bits of the species to look for, e.g. the prey or the predators of the species of this animal (see {@link Species#prey()}).
+     * @return The nearest animal, or null if none is in sight.
      */
-    abstract void handleMating(Animal other);
+    Animal nearestOf(List<Animal> others, long species){
+        Animal nearest = null;
+        double nearestDistance = sightRange * sightRange;
+        for(Animal other : others){
+            if((species & 1L << other.species.id()) == 0 || other.dead) continue;
+            double dx = other.x - x, dy = other.y - y;
+            double distance = dx * dx + dy * dy;
+            if(distance < nearestDistance || (distance == nearestDistance && nearest == null)){
+                nearest = other;
+                nearestDistance = distance;
+            }
+        }
+        return nearest;
+    }
 
     /**
-     * (package-private) Handles mating behavior, furthermore checks if a mate is in animals sight and both are in the condition to mate. <br>
-     * Conditions for mating for both animals:
+     * (package-private) Checks if this animal is ready to be paired by {@link MatePairing}. Conditions for mating:
      * <ul>
-     *      <li>They need to be in {@link AnimalState} idle</li>
-     *      <li>Their urge to mate needs to be high enough</li>
+     *      <li>It needs to be in {@link AnimalState} idle and to have no mate and no objective</li>
+     *      <li>Its urge to mate needs to be high enough</li>
+     *      <li>It may neither be too hungry nor too thirsty</li>
      * </ul>
-     * @param other Another animal, should be of the same type (handled by {@link #handleMating(Animal)}).
-     */
-    void matingHelper(Animal other){
-        //checks the animal state, mating urge, hunger and thirst of both animals
-        if(state == AnimalState.IDLE && other.state == AnimalState.IDLE && matingUrge >= 50 && other.matingUrge >= 50 && this.hunger <= 40 && other.hunger <= 40 && this.thirst <= 40 && other.thirst <= 40 ){
-            double distanceToMate = Math.hypot(other.x - this.x, other.y - this.y);
-            //finds a mate for this animal and links them with decidePairs
-            if(findMate(other, distanceToMate) != null) decidePairs(other);
-        }
-        //checks if two animals are paired and proceeds with actions (see below)
-        if((usingThisMate != null && usingThisMate.usingThisMate != null) && (usingThisMate.equals(other) && other.usingThisMate.equals(this)) && !mating && !usingThisMate.mating){
-
-            objectiveInSight = true;
-            thinking = false;
-            moveTo(usingThisMate.x, usingThisMate.y);
-
-            // checks if the pair has reached each other and proceeds with actions (see below)
-            if(objectiveInSight && (Math.hypot(usingThisMate.x - this.x, usingThisMate.y - this.y) <= 10 || Math.hypot(this.x - usingThisMate.x, this.y - usingThisMate.y) <= 10 )){
-                stopMoving();
-                usingThisMate.stopMoving();
-                mating = usingThisMate.mating = true;
-            }
+     * @return True if the animal can be paired.
+     */
+    boolean canPair(){return AnimalRules.canPair(dead, state, matingUrge, hunger, thirst, objectiveInSight || getUsingThisMate() != null);}
+
+    /**
+     * (package-private) Pairs this animal with the passed animal, which was matched to it by {@link MatePairing}, so both move to each other in their turns (see {@link #courtMate()}).
+     * @param mate The animal to be paired with this animal, should be of the same species.
+     */
+    void pairWith(Animal mate){
+        wake();
+        mate.wake();
+        setUsingThisMate(mate);
+        mate.setUsingThisMate(this);
+    }
+
+    /**
+     * (package-private) Handles mating behavior with the mate this animal was paired with: it moves to its mate and both start mating, once they reached each other.
+     * Nothing happens if the animal has no mate, its mate doesn't have it as mate (see {@link #hasOneSidedMate()}) or one of both is already mating.
+     */
+    void courtMate(){
+        Animal mate = getUsingThisMate();
+        if(mate == null || mate.usingThisMate != this || mating || mate.mating) return;
+
+        objectiveInSight = true;
+        thinking = false;
+        moveTo(mate.x, mate.y);
+
+        // checks if the pair has reached each other and proceeds with actions (see below)
+        if(Math.hypot(mate.x - this.x, mate.y - this.y) <= 10){
+            stopMoving();
+            mate.wake();
+            mate.stopMoving();
+            mating = mate.mating = true;
         }
     }
 
-    //similar to findResource
-    private Animal findMate(Animal mate, double distanceToAnimal) {return (sightRange > distanceToAnimal && !objectiveInSight) ? usingThisMate = mate : null;}
+    /**
+     * (package-private) Checks if the mate of this animal left it, e.g. because it is running away from a fox.
+     * @return True if the animal has a mate, which doesn't have this animal as mate.
+     */
+    boolean hasOneSidedMate(){
+        Animal mate = getUsingThisMate();
+        return mate != null && mate.getUsingThisMate() != this;
+    }
 
     /**
-     * (private) Lock found mate to this animal, so it doesn't go to another animal.
-     * <p>
-     * Furthermore, letting this animal lose its mate, if its mate found another mate.
-     * @param mate The potential mate to be paired with this animal.
+     * (package-private) Lets this animal forget its mate, like a mate which is gone (see {@link #forgetGonePartners()}).
      */
-    private void decidePairs(Animal mate) {
-        if(usingThisMate.equals(mate) && mate.usingThisMate == null) mate.usingThisMate = this;
-        else if(usingThisMate.equals(mate) && !mate.usingThisMate.equals(this)) usingThisMate = null;
+    void leaveMate(){
+        setUsingThisMate(null);
+        mating = false;
+        // an animal using a resource keeps standing at it
+        if(usingThisResource == null){
+            objectiveInSight = false;
+            setRandomDirection();
+        }
     }
 
     //similar to stopUsingResource
     void stopMating(Animal other){
         if (matingUrge <= 0 && usingThisMate != null){
-            usingThisMate = other.usingThisMate = null;
+            other.wake();
+            setUsingThisMate(null);
+            other.setUsingThisMate(null);
             mating = objectiveInSight = other.mating = other.objectiveInSight = false;
             matingUrge = 0;
             pregnant = true;
@@ -269,6 +453,91 @@ public abstract class Animal{
         }
     }
 
+    /**
+     * (package-private) Writes everything of this animal, which can change during a tick, into the passed buffer (see {@link WorldCodec} for the layout).
+     * The animals and resources it refers to are written as their ids and indices.
+     * <p>
+     * Note: Only animals with a {@link SimRandom} can be written, since the state of their randomness has to be written as well.
+     * @param buffer The buffer to write into.
+     * @param resourceIndex Gives the index of a resource in the resource list.
+     */
+    void writeState(ByteBuffer buffer, ToIntFunction<Resource> resourceIndex){
+        buffer.putInt(id).putFloat(x).putFloat(y).putFloat(vx).putFloat(vy).putDouble(hunger).putDouble(thirst).putDouble(matingUrge);
+        buffer.put((byte) state.ordinal());
+        buffer.put((byte) ((dead ? 1 : 0) | (eating ? 2 : 0) | (drinking ? 4 : 0) | (objectiveInSight ? 8 : 0) | (thinking ? 16 : 0) | (mating ? 32 : 0) | (pregnant ? 64 : 0)));
+        buffer.putInt(usingThisResource == null ? -1 : resourceIndex.applyAsInt(usingThisResource));
+        buffer.putInt(idOf(getUsingThisMate()));
+        buffer.putLong(((SimRandom) random).getState());
+    }
+
+    /**
+     * (package-private) Reads what {@link #writeState(ByteBuffer, ToIntFunction)} wrote, the id has already been read to find this animal.
+     * @param buffer The buffer to read from.
+     * @param animals Gives the animal with an id.
+     * @param resources Gives the resource with an index.
+     */
+    void readState(ByteBuffer buffer, IntFunction<Animal> animals, IntFunction<Resource> resources){
+        x = buffer.getFloat();
+        y = buffer.getFloat();
+        vx = buffer.getFloat();
+        vy = buffer.getFloat();
+        hunger = buffer.getDouble();
+        thirst = buffer.getDouble();
+        matingUrge = buffer.getDouble();
+        state = AnimalState.values()[buffer.get()];
+        byte flags = buffer.get();
+        dead = (flags & 1) != 0;
+        eating = (flags & 2) != 0;
+        drinking = (flags & 4) != 0;
+        objectiveInSight = (flags & 8) != 0;
+        thinking = (flags & 16) != 0;
+        mating = (flags & 32) != 0;
+        pregnant = (flags & 64) != 0;
+        int resource = buffer.getInt(), mate = buffer.getInt();
+        usingThisResource = resource < 0 ? null : resources.apply(resource);
+        setUsingThisMate(resolve(getUsingThisMate(), mate, animals));
+        ((SimRandom) random).setState(buffer.getLong());
+    }
+
+    /**
+     * (package-private) Checks if an animal this animal refers to is gone, because it died and was recycled (see {@link AnimalPool}).
+     * @return True if {@link #forgetGonePartners()} would change this animal.
+     */
+    boolean hasGonePartner(){return usingThisMate != null && usingThisMate.getHandle() != mateHandle;}
+
+    /**
+     * (package-private) Drops the references to animals which are gone and stops what this animal did with them, the mate is dropped like at the end of mating but without a newborn.
+     * <p>
+     * Note: This method has to be called for every animal after dead animals were recycled, before the turns of a tick, so no animal acts on a recycled animal.
+     * A parked animal has to be woken up first (see {@link #wake()}), since this changes its direction.
+     */
+    void forgetGonePartners(){
+        if(usingThisMate != null && usingThisMate.getHandle() != mateHandle) leaveMate();
+    }
+
+    /**
+     * (package-private) Returns the referenced animal, if it is still the animal with the passed handle.
+     * @param animal The referenced animal, or null.
+     * @param handle The handle it had when the reference was set.
+     * @return The animal, or null if it is gone.
+     */
+    static <T extends Animal> T ifPresent(T animal, long handle){return animal == null || animal.getHandle() != handle ? null : animal;}
+
+    // the handle of no animal
+    static long handleOf(Animal animal){return animal == null ? 0 : animal.getHandle();}
+
+    // -1 stands for no animal
+    static int idOf(Animal animal){return animal == null ? -1 : animal.id;}
+
+    /**
+     * (package-private) Finds the animal a read reference points to. An unchanged reference is kept, so it can point to an animal which died ticks ago and isn't known by id anymore.
+     * @param current The animal the reference points to before reading.
+     * @param id The id which was read, -1 for no animal.
+     * @param animals Gives the animal with an id.
+     * @return The animal the reference points to after reading.
+     */
+    static Animal resolve(Animal current, int id, IntFunction<Animal> animals){return id < 0 ? null : idOf(current) == id ? current : animals.apply(id);}
+
     // package getter for almost all values of an animal, this was done to reduce LOC
     // in my opinion the LOC were more important than losing a little performance power
     // but the garbage collector should take care of the unnecessary objects whilst using this
@@ -287,11 +556,16 @@ public abstract class Animal{
      * The garbage collector is expected to handle the disposal of unnecessary objects during usage.
      * @return A new instance of {@link AnimalAttributes} with the current values of this animal.
      */
-    AnimalAttributes getAnimalAttributes(){return new AnimalAttributes(this.dead, this.eating, this.drinking, this.objectiveInSight, this.thinking, this.mating, this.pregnant, this.herbivore, this.state, this.usingThisResource, this.usingThisMate, this.x, this.y, this.vx, this.vy, this.hunger, this.thirst, this.sightRange, this.id);}
+    AnimalAttributes getAnimalAttributes(){return new AnimalAttributes(this.dead, this.eating, this.drinking, this.objectiveInSight, this.thinking, this.mating, this.pregnant, species.grazes(), this.state, this.usingThisResource, getUsingThisMate(), this.x, this.y, this.vx, this.vy, this.hunger, this.thirst, this.sightRange, this.id);}
 
     //Setters, some combined because they would use up too much LOC
-    void setDead() {this.dead = true;}
+    void setDead() {
+        wake();
+        this.dead = true;
+    }
     void setEating(boolean eating){this.eating = eating;}
+    void setDrinking(boolean drinking){this.drinking = drinking;}
+    void setMating(boolean mating){this.mating = mating;}
     void setObjectiveInSight(boolean objectiveInSight){this.objectiveInSight = objectiveInSight;}
     void setThinking(boolean thinking){this.thinking = thinking;}
     void setPregnant(boolean pregnant){this.pregnant = pregnant;}
@@ -302,7 +576,10 @@ public abstract class Animal{
      */
     void setActivityBooleans(boolean activity){mating = thinking = drinking = eating = activity;}
     void setUsingThisResource(Resource resource){this.usingThisResource = resource;}
-    void setUsingThisMate(Animal mate){this.usingThisMate = mate;}
+    void setUsingThisMate(Animal mate){
+        this.usingThisMate = mate;
+        this.mateHandle = handleOf(mate);
+    }
     void setVxAndVy(float vx, float vy){
         this.vx = vx;
         this.vy = vy;
@@ -313,5 +590,41 @@ public abstract class Animal{
     void setMatingUrge(double matingUrge){this.matingUrge = matingUrge;}
     void setState(AnimalState newState){this.state = newState;}
 
-    boolean isHerbivore(){return this.herbivore;}
+    boolean isHerbivore(){return species.grazes();}
+    Species getSpecies(){return this.species;}
+    Random getRandom(){return this.random;}
+
+    // plain getters for the hot paths of the simulation loop, which would otherwise create an AnimalAttributes record per access
+    float getX(){return this.x;}
+    float getY(){return this.y;}
+    float getVx(){return this.vx;}
+    float getVy(){return this.vy;}
+    boolean isThinking(){return this.thinking;}
+    boolean isEating(){return this.eating;}
+    boolean isDrinking(){return this.drinking;}
+    boolean isMating(){return this.mating;}
+    boolean isPregnant(){return this.pregnant;}
+    double getHunger(){return this.hunger;}
+    double getThirst(){return this.thirst;}
+    int getId(){return this.id;}
+
+    /**
+     * (package-private) Getter for the handle of this animal, which combines its slot in the {@link AnimalPool} with the number of times the slot was reused.
+     * The handle changes when the animal is recycled, so a stored handle tells if a referenced object is still the same animal.
+     * @return The generation in the upper and the slot in the lower 32 bits.
+     */
+    long getHandle(){return (long) generation << 32 | (slot & 0xFFFFFFFFL);}
+    int getSlot(){return this.slot;}
+    int getIndex(){return this.index;}
+    void setSlot(int slot){this.slot = slot;}
+    void setIndex(int index){this.index = index;}
+    // see AnimalPool: every release invalidates the handles pointing to this animal
+    void nextGeneration(){generation++;}
+    boolean isDead(){return this.dead;}
+    double getSightRange(){return this.sightRange;}
+    double getMatingUrge(){return this.matingUrge;}
+    Animal getUsingThisMate(){return ifPresent(this.usingThisMate, this.mateHandle);}
+    AnimalState getState(){return this.state;}
+    Resource getUsingThisResource(){return this.usingThisResource;}
+    ResourceCache getResourceCache(){return this.resourceCache;}
 }
\ No newline at end of file
@@ -0,0 +1,303 @@
+package model;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * (package-private) Class that stores the animals of a simulation and recycles the dead ones, so births don't create new objects.
+ * <p>
+ * Every animal gets a slot when it is created, which it keeps while it is recycled. A dead animal is put onto a free list of its species
+ * and its generation is increased, which changes its handle (see {@link Animal#getHandle()}), so every reference to it is known to be gone.
+ * A newborn takes the last released animal of its species, if there is one, and is reset to a new animal.
+ * <p>
+ * The animal list is the order in which the animals take their turns. It is split into one batch per {@link Species}, in the order of their ids,
+ * so the simulation loop can go through the animals of one species after another (see {@link #start(int)}). Dead animals are removed by moving the last animal
+ * of their batch into their place (swap-remove) and an animal is added at the end of its batch. The batches behind it only move their first or last animal,
+ * so adding or removing moves at most one animal per species, and every animal knows its index in the list.
+ * <pre>
+ * species 0        species 1     species 2
+ * [b b b b b b b | f f f f f f | w w w]
+ *  0             ^ end(0)      ^ end(1)  ^ end(2) = size
+ * </pre>
+ * Births and deaths swap animals, so the list loses any relation to the positions of the animals over time. {@link #sortByMorton(float)} sorts every batch along a Z-order curve again,
+ * so animals following each other in the list stand close to each other and their turns touch the same neighbors. Sorting only changes the indices, never the slots or ids.
+ */
+class AnimalPool {
+    private final ArrayList<Animal> animals = new ArrayList<>();
+    private final ArrayDeque<Bunny> freeBunnies = new ArrayDeque<>();
+    private final ArrayDeque<Fox> freeFoxes = new ArrayDeque<>();
+    // the index behind the last animal of every species
+    private int[] ends = new int[SpeciesRegistry.STANDARD.size()];
+    private int slots, recycled;
+
+    /**
+     * (package-private) Gets a bunny with the passed values, which is a released bunny if there is one, otherwise a new one.
+     * @param id Assigns ID number, which should be unique.
+     * @param sightRange Assigns the range a bunny can "look". Should be a positive value.
+     * @param x Assigns the initial spawn position on the x-axis.
+     * @param y Assigns the initial spawn position on the y-axis.
+     * @param seed The seed of the {@link SimRandom} of the bunny.
+     * @return The bunny, which isn't in the animal list yet (see {@link #add(Animal)}).
+     */
+    Bunny bunny(int id, double sightRange, float x, float y, long seed){return (Bunny) animal(Species.BUNNY, id, sightRange, x, y, seed);}
+
+    /**
+     * (package-private) Gets a fox with the passed values, which is a released fox if there is one, otherwise a new one.
+     * @param id Assigns ID number, which should be unique.
+     * @param sightRange Assigns the range a fox can "look". Should be a positive value.
+     * @param x Assigns the initial spawn position on the x-axis.
+     * @param y Assigns the initial spawn position on the y-axis.
+     * @param seed The seed of the {@link SimRandom} of the fox.
+     * @return The fox, which isn't in the animal list yet (see {@link #add(Animal)}).
+     */
+    Fox fox(int id, double sightRange, float x, float y, long seed){return (Fox) animal(Species.FOX, id, sightRange, x, y, seed);}
+
+    /**
+     * (package-private) Gets an animal of the passed species with the passed values, which is a released animal of the same class (see {@link Species#grazes()}) if there is one, otherwise a new one.
+     * @param species The species of the animal.
+     * @param id Assigns ID number, which should be unique.
+     * @param sightRange Assigns the range the animal can "look", usually the sight range of its species. Should be a positive value.
+     * @param x Assigns the initial spawn position on the x-axis.
+     * @param y Assigns the initial spawn position on the y-axis.
+     * @param seed The seed of the {@link SimRandom} of the animal.
+     * @return The animal, which isn't in the animal list yet (see {@link #add(Animal, Consumer)}).
+     */
+    Animal animal(Species species, int id, double sightRange, float x, float y, long seed){
+        if(species.id() >= ends.length) throw new IllegalArgumentException(species.name() + " isn't a species of this pool");
+        Animal animal = species.grazes() ? freeBunnies.poll() : freeFoxes.poll();
+        if(animal == null) return created(species.grazes() ? new Bunny(species, id, sightRange, x, y, new SimRandom(seed)) : new Fox(species, id, sightRange, x, y, new SimRandom(seed)));
+        animal.reset(species, id, sightRange, x, y, seed);
+        recycled++;
+        return animal;
+    }
+
+    /**
+     * (package-private) Adds the passed animal at the end of the batch of its species, an animal created outside of this pool gets a slot as well.
+     * @param animal The animal to be added.
+     */
+    void add(Animal animal){add(animal, moved -> {});}
+
+    /**
+     * (package-private) Adds the passed animal at the end of the batch of its species, the first animal of every later batch moves to the end of its batch to make room.
+     * An animal created outside of this pool gets a slot as well.
+     * @param animal The animal to be added.
+     * @param moved Is called for every animal which was moved to another index.
+     */
+    void add(Animal animal, Consumer<Animal> moved){
+        int species = animal.getSpecies().id();
+        if(species >= ends.length) throw new IllegalArgumentException(animal.getSpecies().name() + " isn't a species of this pool");
+        if(animal.getSlot() < 0) created(animal);
+
+        animals.add(animal);
+        int free = animals.size() - 1;
+        for(int later = ends.length - 1; later > species; later--){
+            // an empty batch has nothing to move, the free index is its start as well
+            int first = ends[later - 1];
+            if(first < ends[later]){
+                place(animals.get(first), free, moved);
+                free = first;
+            }
+            ends[later]++;
+        }
+        animals.set(free, animal);
+        animal.setIndex(free);
+        ends[species]++;
+    }
+
+    /**
+     * (package-private) Removes every dead animal from the animal list by moving the last animal of its batch into its place, and releases it afterwards.
+     * The last animal of every later batch moves to the start of its batch, which closes the gap.
+     * @param removed Is called for every dead animal before it is released.
+     * @param moved Is called for every animal which was moved to another index.
+     */
+    void removeDead(Consumer<Animal> removed, Consumer<Animal> moved){
+        int i = 0;
+        while(i < animals.size()){
+            Animal animal = animals.get(i);
+            if(!animal.isDead()){
+                i++;
+                continue;
+            }
+            removed.accept(animal);
+            // the animal moved to i is checked in the next iteration, since it could be dead as well, the other moved animals are behind i
+            int free = i;
+            for(int species = animal.getSpecies().id(); species < ends.length; species++){
+                int last = --ends[species];
+                if(last != free) place(animals.get(last), free, moved);
+                free = last;
+            }
+            animals.remove(animals.size() - 1);
+            release(animal);
+        }
+    }
+
+    /**
+     * (private) Moves the passed animal to the passed index.
+     */
+    private void place(Animal animal, int index, Consumer<Animal> moved){
+        animals.set(index, animal);
+        animal.setIndex(index);
+        moved.accept(animal);
+    }
+
+    /**
+     * (package-private) Sorts every batch of the animal list by the Morton code (Z-order) of the grid cell of every animal, animals of the same cell keep their order.
+     * <p>
+     * Note: The grid has 2^15 cells along each axis starting at 0, positions outside of it are put into the nearest cell, so the codes stay positive.
+     * @param cellSize The size of the grid cells. Should be a positive value.
+     */
+    void sortByMorton(float cellSize){
+        if(cellSize <= 0) throw new IllegalArgumentException("cellSize needs to be positive");
+        int size = animals.size();
+        // the Morton code in the upper and the current index in the lower 32 bits, so sorting the primitives is stable
+        long[] keys = new long[size];
+        for(int i = 0; i < size; i++) keys[i] = mortonKey(animals.get(i).getX(), animals.get(i).getY(), cellSize, i);
+        // every batch is sorted on its own, so the animals stay in their batch
+        for(int species = 0; species < ends.length; species++) Arrays.sort(keys, start(species), ends[species]);
+
+        Animal[] before = animals.toArray(new Animal[0]);
+        for(int i = 0; i < size; i++){
+            Animal animal = before[(int) keys[i]];
+            animals.set(i, animal);
+            animal.setIndex(i);
+        }
+    }
+
+    /**
+     * (package-private) Measures how far the animal list is from the positions of the animals, by the mean distance (along both axes) between animals following each other in the list.
+     * @return The mean distance, 0 for fewer than two animals.
+     */
+    double meanGap(){
+        float[] x = new float[animals.size()], y = new float[animals.size()];
+        for(int i = 0; i < animals.size(); i++){
+            x[i] = animals.get(i).getX();
+            y[i] = animals.get(i).getY();
+        }
+        return meanGap(x, y);
+    }
+
+    /**
+     * (package-private) Measures the mean distance like {@link #meanGap()} for the passed positions, which are in the order of an animal list.
+     * @param x The positions along the x-axis.
+     * @param y The positions along the y-axis.
+     * @return The mean distance, 0 for fewer than two positions.
+     */
+    static double meanGap(float[] x, float[] y){
+        if(x.length < 2) return 0;
+        double sum = 0;
+        for(int i = 1; i < x.length; i++) sum += Math.abs(x[i] - x[i - 1]) + Math.abs(y[i] - y[i - 1]);
+        return sum / (x.length - 1);
+    }
+
+    /**
+     * (package-private) Gives the key {@link #sortByMorton(float)} sorts an animal by: the Morton code of its grid cell in the upper and its index in the lower 32 bits.
+     * @param x The position of the animal along the x-axis.
+     * @param y The position of the animal along the y-axis.
+     * @param cellSize The size of the grid cells. Should be a positive value.
+     * @param index The index of the animal.
+     * @return The key, which is positive.
+     */
+    static long mortonKey(float x, float y, float cellSize, int index){return (long) morton(cell(x, cellSize), cell(y, cellSize)) << 32 | index;}
+
+    /**
+     * (package-private) Interleaves the bits of two cell coordinates, the bits of the column take the even and the bits of the row the odd positions.
+     * @param column The column of the cell, only the lower 15 bits are used.
+     * @param row The row of the cell, only the lower 15 bits are used.
+     * @return The Morton code, which is positive.
+     */
+    static int morton(int column, int row){return spread(column) | spread(row) << 1;}
+
+    /**
+     * (private) Moves the lower 15 bits of the passed value to the even bit positions.
+     */
+    private static int spread(int value){
+        value &= 0x7FFF;
+        value = (value | value << 8) & 0x00FF00FF;
+        value = (value | value << 4) & 0x0F0F0F0F;
+        value = (value | value << 2) & 0x33333333;
+        return (value | value << 1) & 0x55555555;
+    }
+
+    private static int cell(float position, float cellSize){return (int) Math.max(0, Math.min(0x7FFF, position / cellSize));}
+
+    /**
+     * (package-private) Releases every animal and empties the animal list, the animals are reused by the next simulation.
+     */
+    void clear(){
+        for(Animal animal : animals) release(animal);
+        animals.clear();
+        Arrays.fill(ends, 0);
+    }
+
+    /**
+     * (package-private) Replaces the animal list by the passed animals and releases the animals of the old list which aren't among them,
+     * for a part of a world whose animals come and go in other ways than by births and deaths (see {@link WorldPart}).
+     * @param kept The animals of the new list, sorted into the batches of their species.
+     */
+    void replace(List<Animal> kept){
+        Set<Animal> keeps = Collections.newSetFromMap(new IdentityHashMap<>());
+        keeps.addAll(kept);
+        for(Animal animal : animals) if(!keeps.contains(animal)) release(animal);
+        animals.clear();
+        Arrays.fill(ends, 0);
+        for(Animal animal : kept){
+            int species = animal.getSpecies().id();
+            if(species >= ends.length) throw new IllegalArgumentException(animal.getSpecies().name() + " isn't a species of this pool");
+            if(ends[species] < animals.size()) throw new IllegalArgumentException("the animals aren't sorted into the batches of their species");
+            if(animal.getSlot() < 0) created(animal);
+            animal.setIndex(animals.size());
+            animals.add(animal);
+            for(int later = species; later < ends.length; later++) ends[later] = animals.size();
+        }
+    }
+
+    /**
+     * (package-private) Sets the number of species, so the animal list is split into this many batches.
+     * @param species The number of species (see {@link SpeciesRegistry#size()}).
+     * @throws IllegalStateException If there are animals in the animal list.
+     */
+    void setSpeciesCount(int species){
+        if(!animals.isEmpty()) throw new IllegalStateException("the species can only be changed without animals");
+        if(species <= 0) throw new IllegalArgumentException("species needs to be positive");
+        ends = new int[species];
+    }
+
+    /**
+     * (private) Puts the passed animal onto the free list of its species, which makes every handle pointing to it outdated.
+     */
+    private void release(Animal animal){
+        animal.nextGeneration();
+        animal.setIndex(-1);
+        if(animal instanceof Bunny bunny) freeBunnies.push(bunny);
+        else if(animal instanceof Fox fox) freeFoxes.push(fox);
+    }
+
+    /**
+     * (private) Gives a new animal the next slot.
+     */
+    private <T extends Animal> T created(T animal){
+        animal.setSlot(slots++);
+        return animal;
+    }
+
+    //getter for the animal list, in the order of the turns
+    ArrayList<Animal> animals(){return this.animals;}
+    //getter for the index of the first animal of the species with the passed id
+    int start(int species){return species == 0 ? 0 : this.ends[species - 1];}
+    //getter for the index behind the last animal of the species with the passed id
+    int end(int species){return this.ends[species];}
+    //getter for the number of animals of the species with the passed id, without going through them
+    int count(int species){return end(species) - start(species);}
+    //getter for tests and benchmarks, the number of animals created by this pool
+    int getSlots(){return this.slots;}
+    //getter for tests and benchmarks, the number of animals which were reused
+    int getRecycled(){return this.recycled;}
+    //getter for tests and benchmarks
+    int getFree(){return freeBunnies.size() + freeFoxes.size();}
+}
@@ -0,0 +1,125 @@
+package model;
+
+/**
+ * (package-private) Class with the rules for the movement, the needs and the state of an animal, by the rates of its {@link Species}.
+ * Every engine and layout of the animals applies the same rules (see {@link Animal}, {@link EcsSystems} and {@link OffHeapPopulation}), so they can't drift apart.
+ */
+final class AnimalRules {
+    private AnimalRules(){}
+
+    /**
+     * (package-private) Updates the hunger of an animal moving on, it rises unless the animal eats and stays the same while it drinks or mates.
+     * @param hunger The hunger before.
+     * @param species The species of the animal.
+     * @param eating True if the animal eats.
+     * @param drinking True if the animal drinks.
+     * @param mating True if the animal mates.
+     * @return The hunger after.
+     */
+    static double hunger(double hunger, Species species, boolean eating, boolean drinking, boolean mating){
+        if(drinking || mating) return hunger;
+        return (hunger >= 0) ? hunger + (eating ? -species.eatingRate() : species.hungerRate()) : 0;
+    }
+
+    /**
+     * (package-private) Updates the thirst of an animal moving on, it rises unless the animal drinks and stays the same while it eats or mates.
+     * @param thirst The thirst before.
+     * @param species The species of the animal.
+     * @param eating True if the animal eats.
+     * @param drinking True if the animal drinks.
+     * @param mating True if the animal mates.
+     * @return The thirst after.
+     */
+    static double thirst(double thirst, Species species, boolean eating, boolean drinking, boolean mating){
+        if(eating || mating) return thirst;
+        return (thirst >= 0) ? thirst + (drinking ? -species.drinkingRate() : species.thirstRate()) : 0;
+    }
+
+    /**
+     * (package-private) Updates the mating urge of an animal moving on, it rises unless the animal mates and is brought back between 0 and 100.
+     * @param matingUrge The mating urge before.
+     * @param species The species of the animal.
+     * @param mating True if the animal mates.
+     * @return The mating urge after.
+     */
+    static double matingUrge(double matingUrge, Species species, boolean mating){
+        return (matingUrge >= 0 && matingUrge <= 100) ? matingUrge + (mating ? -species.matingRate() : species.matingUrgeRate()) : (matingUrge <= 0) ? 0 : 100;
+    }
+
+    /**
+     * (package-private) Checks if an animal dies of its hunger or thirst.
+     * @param hunger The hunger of the animal.
+     * @param thirst The thirst of the animal.
+     * @return True if the animal dies.
+     */
+    static boolean dies(double hunger, double thirst){return hunger >= 100 || thirst >= 100;}
+
+    /**
+     * (package-private) Decides the next {@link AnimalState} of an animal: a newborn or idle animal gets hungry or thirsty by its larger need,
+     * and a hungry or thirsty animal becomes idle once the need is gone.
+     * @param state The state before.
+     * @param hunger The hunger of the animal.
+     * @param thirst The thirst of the animal.
+     * @return The state after.
+     */
+    static AnimalState nextState(AnimalState state, double hunger, double thirst){
+        if(state == AnimalState.NEWBORN) state = (hunger >= 50 || thirst >= 50) ? (hunger >= thirst ? AnimalState.HUNGRY : AnimalState.THIRSTY) : AnimalState.NEWBORN;
+
+        if(state == AnimalState.IDLE) return (hunger >= 50 || thirst >= 50) ? (hunger >= thirst ? AnimalState.HUNGRY : AnimalState.THIRSTY) : AnimalState.IDLE;
+        else if(state == AnimalState.THIRSTY) return (thirst <= 0) ? AnimalState.IDLE : AnimalState.THIRSTY;
+        else if(state == AnimalState.HUNGRY) return (hunger <= 0) ? AnimalState.IDLE : AnimalState.HUNGRY;
+        return state;
+    }
+
+    /**
+     * (package-private) Checks if an animal is ready to be paired with a mate: idle, alive, with a strong mating urge and few other needs, and with no mate or other objective.
+     * @param dead True if the animal is dead.
+     * @param state The state of the animal.
+     * @param matingUrge The mating urge of the animal.
+     * @param hunger The hunger of the animal.
+     * @param thirst The thirst of the animal.
+     * @param busy True if the animal has an objective in sight or a mate.
+     * @return True if the animal can be paired.
+     */
+    static boolean canPair(boolean dead, AnimalState state, double matingUrge, double hunger, double thirst, boolean busy){
+        return !dead && state == AnimalState.IDLE && matingUrge >= 50 && hunger <= 40 && thirst <= 40 && !busy;
+    }
+
+    /**
+     * (package-private) Turns the speed of an animal around along one axis, if it reached a wall.
+     * @param speed The speed along the axis.
+     * @param position The position along the axis.
+     * @param size The size of the ecosystem along the axis.
+     * @return The speed after the collision.
+     */
+    static float bounce(float speed, float position, int size){return (position <= 0 || position >= size) ? -speed : speed;}
+
+    /**
+     * (package-private) Gives the speed along the x-axis of an animal moving to the passed point: 'one' if the point is further away along the x-axis,
+     * otherwise the current speed scaled by the slope, so an animal doesn't "shoot up" to its destination.
+     * @param x The x-position of the animal.
+     * @param y The y-position of the animal.
+     * @param vx The current speed of the animal along the x-axis.
+     * @param x1 The x-position of the destination.
+     * @param y1 The y-position of the destination.
+     * @return The new speed along the x-axis.
+     */
+    static float moveToVx(float x, float y, float vx, float x1, float y1){
+        float m = Math.abs((y1 - y) / (x1 - x));
+        float vxUpdate = Math.abs(vx) / Math.abs(m);
+        return ((Math.abs(x1 - x)) > (Math.abs(y1 - y))) ? ((x <= x1) ? 1 : -1) : ((x <= x1) ? vxUpdate : -vxUpdate);
+    }
+
+    /**
+     * (package-private) Gives the speed along the y-axis of an animal moving to the passed point: the slope if the point is further away along the x-axis, otherwise 'one'.
+     * @param x The x-position of the animal.
+     * @param y The y-position of the animal.
+     * @param x1 The x-position of the destination.
+     * @param y1 The y-position of the destination.
+     * @return The new speed along the y-axis.
+     */
+    static float moveToVy(float x, float y, float x1, float y1){
+        float m = Math.abs((y1 - y) / (x1 - x));
+        return ((Math.abs(x1 - x)) > (Math.abs(y1 - y))) ? ((y <= y1) ? m : -m) : ((y <= y1) ? 1 : -1);
+    }
+}
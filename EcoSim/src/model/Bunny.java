@@ -1,34 +1,59 @@
 package model;
 
+import java.nio.ByteBuffer;
 import java.util.Random;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
 /**
  * (package-private) Class that represents a Bunny, a specific implementation of {@link Animal}.
+ * <p>
+ * Every {@link Species} eating grass is simulated as a bunny, which flees from the species hunting it.
  */
 class Bunny extends Animal {
-    private Random random = new Random();
     private int ponder;
     private Fox runningAwayFromThisFox;
+    private long foxHandle;
 
     /**
-     * (package-private) Constructor for a new Bunny with the specified parameters, furthermore sets its herbivore flag true.
+     * (package-private) Constructor for a new Bunny with the specified parameters, furthermore sets its species to {@link Species#BUNNY}.
      * @param id Assigns ID number, which should be unique.
      * @param sightRange Assigns the range a bunny can "look". Should be a positive value.
      * @param x Assigns the initial spawn position on the x-axis.
      * @param y Assigns the initial spawn position on the y-axis.
      */
-    Bunny(int id, double sightRange, float x, float y) {super(id, sightRange, x, y, true);}
+    Bunny(int id, double sightRange, float x, float y) {super(id, sightRange, x, y, Species.BUNNY);}
 
+    /**
+     * (package-private) Constructor for a new Bunny with the specified parameters and its own source of randomness, furthermore sets its species to {@link Species#BUNNY}.
+     * @param id Assigns ID number, which should be unique.
+     * @param sightRange Assigns the range a bunny can "look". Should be a positive value.
+     * @param x Assigns the initial spawn position on the x-axis.
+     * @param y Assigns the initial spawn position on the y-axis.
+     * @param random The source of randomness used for every random decision of this bunny.
+     */
+    Bunny(int id, double sightRange, float x, float y, Random random) {super(id, sightRange, x, y, Species.BUNNY, random);}
 
     /**
-     * (package-private) Handles hunger of a bunny by invoking the {@link #handleResource(Resource, boolean)} function and setting its boolean handleWater false.
-     * @param resource The resource to be handled.
+     * (package-private) Constructor for a new animal of the passed species, which eats grass, with its own source of randomness.
+     * @param species The species of the animal. Should be a species eating grass (see {@link Species#grazes()}).
+     * @param id Assigns ID number, which should be unique.
+     * @param sightRange Assigns the range the animal can "look", usually the sight range of its species. Should be a positive value.
+     * @param x Assigns the initial spawn position on the x-axis.
+     * @param y Assigns the initial spawn position on the y-axis.
+     * @param random The source of randomness used for every random decision of this animal.
      */
-    void handleHunger(Resource resource) {handleResource(resource, false);}
+    Bunny(Species species, int id, double sightRange, float x, float y, Random random) {
+        super(id, sightRange, x, y, species, random);
+        if(!species.grazes()) throw new IllegalArgumentException(species.name() + " doesn't eat grass");
+    }
+
 
     /**
-     * {@inheritDoc}
+     * (package-private) Handles hunger of a bunny by invoking the {@link #handleResource(Resource, boolean)} function and setting its boolean handleWater false.
+     * @param resource The resource to be handled.
      */
-    @Override void handleMating(Animal other) {if(other.getAnimalAttributes().herbivore() && !this.equals(other)) matingHelper(other);}
+    void handleHunger(Resource resource) {handleResource(resource, false);}
 
 
     /**
@@ -39,7 +64,7 @@ class Bunny extends Animal {
      */
     private void ponderingBunny(){
         // if ponder counter, or rather the bunny stood long enough around it can start moving again and the counter is reset
-        if(ponder >= random.nextInt(200,250)){
+        if(ponder >= getRandom().nextInt(200,250)){
             setThinking(false);
             ponder = 0;
         }
@@ -48,6 +73,41 @@ class Bunny extends Animal {
     }
 
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * A bunny also rests while pondering, which lasts until {@link #ponderingBunny()} draws a value not above its ponder counter.
+     * These draws are made in advance with the {@link SimRandom} of the bunny and taken back afterwards, since they are drawn again in the skipped turns.
+     */
+    @Override
+    int quietTicks(){
+        if(runningAwayFromThisFox != null) return 0;
+        var attributes = getAnimalAttributes();
+        boolean pondering = attributes.thinking() && !attributes.eating() && !attributes.drinking() && !attributes.mating();
+        if(!pondering) return super.quietTicks();
+
+        // pondering bunnies don't update their needs, so they stay idle or newborn, and they can't be chosen as mate (newborns never mate)
+        boolean resting = (attributes.state() == AnimalState.NEWBORN || (attributes.state() == AnimalState.IDLE && getMatingUrge() < 50)) && !attributes.objectiveInSight()
+                && !attributes.pregnant() && !attributes.dead() && attributes.usingThisResource() == null && attributes.usingThisMate() == null;
+        if(!resting || !(getRandom() instanceof SimRandom random)) return 0;
+
+        long state = random.getState();
+        int quiet = 0;
+        for(int counter = ponder; counter < random.nextInt(200, 250); counter++) quiet++;
+        random.setState(state);
+        return quiet;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    void replayTick(int width, int height){
+        super.replayTick(width, height);
+        // like randomBunnyMovement, without the direction change a thinking bunny can't do
+        if(!getAnimalAttributes().eating() && !getAnimalAttributes().drinking() && !getAnimalAttributes().mating()) ponderingBunny();
+    }
+
     /**
      * (private) Randomly changes the direction of a bunny and sets the flag thinking to true, which causes the bunny to stop moving.
      * @param changeDirectionProbability Indicates the probability of this method to work. A Value from '0.0' to '1.0' should be chosen, with '0.0' being a 0% and '1.0' being a 100% chance.
@@ -55,12 +115,12 @@ class Bunny extends Animal {
     private void randomDirectionChange(double changeDirectionProbability) {
 
         //trying to change vx direction
-        if (!getAnimalAttributes().objectiveInSight() && !getAnimalAttributes().thinking() && random.nextDouble(0,1) < changeDirectionProbability ){
+        if (!getAnimalAttributes().objectiveInSight() && !getAnimalAttributes().thinking() && getRandom().nextDouble(0,1) < changeDirectionProbability ){
             setThinking(true);
             setVxAndVy(getAnimalAttributes().vx() * -1, getAnimalAttributes().vy());
 
         //trying to change vx direction
-        }else if (!getAnimalAttributes().objectiveInSight() && !getAnimalAttributes().thinking() && random.nextDouble(0,1) < changeDirectionProbability){
+        }else if (!getAnimalAttributes().objectiveInSight() && !getAnimalAttributes().thinking() && getRandom().nextDouble(0,1) < changeDirectionProbability){
             setThinking(true);
             setVxAndVy(getAnimalAttributes().vx(), getAnimalAttributes().vy() * -1);
         }
@@ -81,37 +141,104 @@ class Bunny extends Animal {
 
 
     /**
-     * (package-private) Handles escaping behavior, if a potential predator {@link Animal}, identified as a {@link Fox}, is in sight of the bunny.
-     * The Method also allows to reset its values, once the threat is outside its sight range.
-     * @param potentialPredator Any animal which is decided upon internally to be counted as predator or not.
+     * (package-private) Handles escaping behavior, if the nearest predator, identified by the predators of its {@link Species}, is in sight of the bunny:
+     * the bunny runs directly away from it. The Method also allows to reset its values, once the threat is outside its sight range.
+     * @param nearest The nearest living predator of the bunny (see {@link NearestIndex}), or null if there is none.
      */
-    void dodgeFox(Animal potentialPredator){
-        double distanceToFox = Math.hypot(potentialPredator.getAnimalAttributes().x() - getAnimalAttributes().x(), potentialPredator.getAnimalAttributes().y() - getAnimalAttributes().y());
+    void dodgeFox(Fox nearest){
+        // check if the fox the bunny is running away from is not in sight anymore to return to "normal"
+        Fox fox = getRunningAwayFromThisFox();
+        if(fox != null && getSightRange() < Math.hypot(fox.getX() - getX(), fox.getY() - getY())){
+            forgetFox();
+            fox = null;
+        }
 
-        // check if fox is in sight and not currently running away from another fox
-        if(potentialPredator instanceof Fox fox && getAnimalAttributes().sightRange() > distanceToFox && runningAwayFromThisFox == null){
-            runningAwayFromThisFox = fox;
+        // check if the nearest fox is in sight and the bunny is not currently running away from another fox
+        if(fox == null && nearest != null && getSightRange() > Math.hypot(nearest.getX() - getX(), nearest.getY() - getY())){
+            setRunningAwayFromThisFox(nearest);
             setState(AnimalState.HUNTED);
             setObjectiveInSight(true);
             stopEveryAction();
-            setRandomDirection();
-
-        // check if fox is not in sight anymore to return to "normal"
-        }else if(runningAwayFromThisFox != null && getAnimalAttributes().sightRange() < Math.hypot(runningAwayFromThisFox.getAnimalAttributes().x() - getAnimalAttributes().x(), runningAwayFromThisFox.getAnimalAttributes().y() - getAnimalAttributes().y())){
-            setRandomDirection();
-            runningAwayFromThisFox = null;
-            setObjectiveInSight(false);
-            setState(AnimalState.IDLE);
+            runAwayFrom(nearest);
         }
     }
 
+    /**
+     * (private) Lets the bunny move directly away from the passed fox, or in a random direction if the fox stands on it.
+     */
+    private void runAwayFrom(Fox fox){
+        float awayX = getX() - fox.getX(), awayY = getY() - fox.getY();
+        if(awayX == 0 && awayY == 0) setRandomDirection();
+        else moveTo(getX() + awayX, getY() + awayY);
+    }
+
+    /**
+     * (private) Stops running away, once the fox is out of sight or gone.
+     */
+    private void forgetFox(){
+        setRandomDirection();
+        setRunningAwayFromThisFox(null);
+        setObjectiveInSight(false);
+        setState(AnimalState.IDLE);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override boolean hasGonePartner(){return super.hasGonePartner() || (runningAwayFromThisFox != null && runningAwayFromThisFox.getHandle() != foxHandle);}
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * A bunny whose fox is gone stops running away, like when the fox is out of sight.
+     */
+    @Override
+    void forgetGonePartners(){
+        super.forgetGonePartners();
+        if(runningAwayFromThisFox != null && runningAwayFromThisFox.getHandle() != foxHandle) forgetFox();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    void reset(Species species, int id, double sightRange, float x, float y, long seed){
+        ponder = 0;
+        setRunningAwayFromThisFox(null);
+        super.reset(species, id, sightRange, x, y, seed);
+    }
+
     /**
      * (private) Stops every action a bunny could be occupied with.
      */
     private void stopEveryAction(){
-        if(getAnimalAttributes().eating() || getAnimalAttributes().drinking()) getAnimalAttributes().usingThisResource().setCurrentlyInUse(false);
+        leaveResource();
         setUsingThisMate(null);
-        setUsingThisResource(null);
         setActivityBooleans(false);
     }
-}
\ No newline at end of file
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    void writeState(ByteBuffer buffer, ToIntFunction<Resource> resourceIndex){
+        super.writeState(buffer, resourceIndex);
+        buffer.putInt(ponder).putInt(idOf(getRunningAwayFromThisFox()));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    void readState(ByteBuffer buffer, IntFunction<Animal> animals, IntFunction<Resource> resources){
+        super.readState(buffer, animals, resources);
+        ponder = buffer.getInt();
+        setRunningAwayFromThisFox((Fox) resolve(getRunningAwayFromThisFox(), buffer.getInt(), animals));
+    }
+
+    private void setRunningAwayFromThisFox(Fox fox){
+        this.runningAwayFromThisFox = fox;
+        this.foxHandle = handleOf(fox);
+    }
+    Fox getRunningAwayFromThisFox(){return ifPresent(this.runningAwayFromThisFox, this.foxHandle);}
+}
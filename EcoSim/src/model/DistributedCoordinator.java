@@ -0,0 +1,242 @@
+package model;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class that runs one simulation spread across several processes, each one a {@link DistributedWorker} connected through a socket.
+ * <p>
+ * The coordinator creates the world like an {@link EcoModel} with the same seed, splits it into one strip of columns per worker (see {@link WorkerStrips})
+ * and sends every worker only the animals and resources of its strip. A worker takes the turns of the animals in its strip, as soon as the turns they wait for are taken (see {@link ShardedWorld}),
+ * and holds the ghosts around its strip its turns can see. The workers exchange what they changed in rounds, and the coordinator routes every part only to the worker it was written for,
+ * which are the workers of the neighbouring strips as long as the strips are wider than the reach of a turn.
+ * The ticks run in lockstep and at the end of every tick the workers send a checksum of their strip, which add up to the checksum of the whole world.
+ * <p>
+ * The simulation is the same as the simulation in a single process with the same seed, for every number of workers.
+ * <p>
+ * Example usage:
+ * <pre>{@code
+ * // 1. Wait for two workers on a free port of this machine and start a 2000x2000 ecosystem.
+ * try(var coordinator = new DistributedCoordinator(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 2)){
+ *     // 2. Start the workers, e.g. in their own JVMs: java model.DistributedWorker localhost <port>
+ *     coordinator.getPort();
+ *     coordinator.start(2000, 2000, 1L, 2000, 200, 100, 100);
+ *
+ *     // 3. Run ticks, each returns the bytes exchanged in it.
+ *     long bytes = coordinator.tick();
+ * }
+ * }</pre>
+ * @author Sleman Kakar
+ */
+public class DistributedCoordinator implements AutoCloseable {
+    private final ServerSocketChannel server;
+    private final int workers;
+    private final List<SocketChannel> channels = new ArrayList<>();
+    // the bytes of the parts every worker sent to every other worker so far
+    private final long[][] routedBytes;
+    private long checksum;
+    private int animalCount, heldAnimals;
+
+    /**
+     * Constructs a new DistributedCoordinator listening on the specified address.
+     * @param address The address workers connect to, port 0 chooses a free port.
+     * @param workers The number of workers the simulation is spread across. Should be a positive value.
+     * @throws IOException If the address can't be bound.
+     */
+    public DistributedCoordinator(InetSocketAddress address, int workers) throws IOException {
+        if(workers <= 0) throw new IllegalArgumentException("workers needs to be positive");
+        this.workers = workers;
+        this.routedBytes = new long[workers][workers];
+        this.server = ServerSocketChannel.open().bind(address);
+    }
+
+    /**
+     * Creates the world with the specified values, waits until every worker connected and sends every worker its strip of the world.
+     * @param width The width of the ecosystem.
+     * @param height The height of the ecosystem.
+     * @param seed The seed every random decision of the simulation is derived from.
+     * @param bunnies The initial number of bunnies.
+     * @param foxes The initial number of foxes.
+     * @param waterSources The number of water sources.
+     * @param grassSources The number of grass sources.
+     * @throws IOException If a worker can't be reached.
+     */
+    public void start(int width, int height, long seed, int bunnies, int foxes, int waterSources, int grassSources) throws IOException {
+        var world = new EcoModel(width, height, seed);
+        world.startNewSim(bunnies, foxes, waterSources, grassSources);
+        List<Animal> animals = world.getPool().animals();
+        List<Resource> resources = world.getResourceList();
+        double maxSightRange = animals.stream().mapToDouble(Animal::getSightRange).max().orElse(0);
+        var codec = new WorldCodec(resources);
+        var strips = new WorkerStrips(width, workers, maxSightRange);
+        var registry = SpeciesRegistry.STANDARD;
+
+        for(int worker = 0; worker < workers; worker++){
+            int strip = worker;
+            var ownAnimals = animals.stream().filter(animal -> strips.owner(animal.getX()) == strip).toList();
+            var ownResources = resources.stream().filter(resource -> strips.owner(resource.getX()) == strip).toList();
+            int bytes = 52 + 4 * registry.size() + ownResources.size() * WorldCodec.NEW_RESOURCE_BYTES;
+            for(Animal animal : ownAnimals) bytes += 13 + WorldCodec.animalBytes(animal.getSpecies());
+            ByteBuffer config = ByteBuffer.allocate(bytes).putInt(worker).putInt(workers).putInt(width).putInt(height).putLong(seed)
+                    .putDouble(maxSightRange).putInt(resources.size()).putInt(animals.size()).putInt(registry.size());
+            for(int species = 0; species < registry.size(); species++) config.putInt(world.getPool().end(species));
+            config.putInt(ownAnimals.size());
+            for(Animal animal : ownAnimals) codec.writeNew(config, animal.getIndex(), animal);
+            config.putInt(ownResources.size());
+            for(Resource resource : ownResources) codec.writeNew(config, resource);
+
+            SocketChannel channel = server.accept();
+            // the ticks wait for every message, so they shouldn't be delayed to be sent together with later ones
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            channels.add(channel);
+            DistributedProtocol.send(channel, DistributedProtocol.CONFIG, config.flip());
+        }
+    }
+
+    /**
+     * Lets the workers simulate one tick together.
+     * @return The number of bytes the coordinator sent and received in this tick.
+     * @throws IOException If a worker can't be reached or doesn't follow the protocol.
+     */
+    public long tick() throws IOException {
+        long bytes = 0;
+        for(SocketChannel channel : channels) bytes += DistributedProtocol.send(channel, DistributedProtocol.TICK, ByteBuffer.allocate(0));
+
+        // every worker takes part in every round of the tick, so the workers send their DONE together after the last one
+        while(true){
+            var messages = new ArrayList<DistributedProtocol.Message>();
+            for(SocketChannel channel : channels){
+                DistributedProtocol.Message message = DistributedProtocol.receive(channel);
+                bytes += DistributedProtocol.HEADER_BYTES + message.payload().remaining();
+                messages.add(message);
+            }
+            if(messages.stream().allMatch(message -> message.type() == DistributedProtocol.DONE)){
+                done(messages);
+                return bytes;
+            }
+            if(messages.stream().anyMatch(message -> message.type() != DistributedProtocol.ROUND)) throw new IOException("The workers are in different stages of the tick");
+            bytes += relay(messages);
+        }
+    }
+
+    /**
+     * (private) Sends every worker what every worker gathered and the parts written for it (see {@link DistributedProtocol} for ROUND).
+     * @return The number of bytes sent.
+     */
+    private long relay(List<DistributedProtocol.Message> rounds) throws IOException {
+        boolean finished = true;
+        var gathered = new ArrayList<ByteBuffer>();
+        var parts = new ArrayList<List<ByteBuffer>>();
+        var senders = new ArrayList<List<Integer>>();
+        for(int worker = 0; worker < workers; worker++){
+            parts.add(new ArrayList<>());
+            senders.add(new ArrayList<>());
+        }
+        int gatheredBytes = 0;
+        for(int worker = 0; worker < workers; worker++){
+            ByteBuffer round = rounds.get(worker).payload();
+            finished &= round.get() != 0;
+            int length = round.getInt();
+            gathered.add(round.slice(round.position(), length));
+            round.position(round.position() + length);
+            gatheredBytes += 4 + length;
+            for(int count = round.getInt(); count > 0; count--){
+                int to = round.getInt();
+                length = round.getInt();
+                if(to < 0 || to >= workers || to == worker) throw new IOException("Worker " + worker + " sent a part to worker " + to);
+                parts.get(to).add(round.slice(round.position(), length));
+                senders.get(to).add(worker);
+                round.position(round.position() + length);
+                routedBytes[worker][to] += length;
+            }
+        }
+
+        long bytes = 0;
+        for(int worker = 0; worker < workers; worker++){
+            int length = 5 + gatheredBytes;
+            for(ByteBuffer part : parts.get(worker)) length += 8 + part.remaining();
+            ByteBuffer relayed = ByteBuffer.allocate(length).put((byte) (finished ? 1 : 0));
+            for(ByteBuffer all : gathered) relayed.putInt(all.remaining()).put(all.duplicate());
+            relayed.putInt(parts.get(worker).size());
+            for(int i = 0; i < parts.get(worker).size(); i++){
+                ByteBuffer part = parts.get(worker).get(i);
+                relayed.putInt(senders.get(worker).get(i)).putInt(part.remaining()).put(part);
+            }
+            bytes += DistributedProtocol.send(channels.get(worker), DistributedProtocol.ROUND, relayed.flip());
+        }
+        return bytes;
+    }
+
+    /**
+     * (private) Adds up the checksums and animals of the strips of the workers (see {@link DistributedProtocol} for DONE).
+     */
+    private void done(List<DistributedProtocol.Message> done){
+        checksum = 0;
+        animalCount = 0;
+        for(DistributedProtocol.Message message : done){
+            ByteBuffer payload = message.payload();
+            checksum += payload.getLong();
+            animalCount += payload.getInt();
+            heldAnimals = Math.max(heldAnimals, payload.getInt());
+        }
+    }
+
+    /**
+     * Stops every worker and closes all connections, a worker which is already gone doesn't need to be stopped.
+     * @throws IOException If a worker couldn't be stopped or a connection couldn't be closed, after every connection was closed.
+     */
+    @Override
+    public void close() throws IOException {
+        IOException failed = null;
+        for(SocketChannel channel : channels){
+            try (channel) {
+                DistributedProtocol.send(channel, DistributedProtocol.STOP, ByteBuffer.allocate(0));
+            } catch (IOException e) {
+                if(failed == null) failed = e;
+                else failed.addSuppressed(e);
+            }
+        }
+        try {
+            server.close();
+        } catch (IOException e) {
+            if(failed == null) failed = e;
+            else failed.addSuppressed(e);
+        }
+        if(failed != null) throw failed;
+    }
+
+    /**
+     * Getter for the port workers connect to, useful if the coordinator was bound to port 0.
+     * @return The local port.
+     * @throws IOException If the address can't be read.
+     */
+    public int getPort() throws IOException {return ((InetSocketAddress) server.getLocalAddress()).getPort();}
+    /**
+     * Getter for the checksum of the animals and resources of all strips after the last tick, see {@link WorldCodec#sumChecksum(Iterable, Iterable)}.
+     * @return The checksum of the world.
+     */
+    public long getChecksum(){return this.checksum;}
+    /**
+     * Getter for the number of animals after the last tick.
+     * @return The number of animals, including those which died in the last tick.
+     */
+    public int getAnimalCount(){return this.animalCount;}
+    /**
+     * Getter for the most animals a worker held at the end of a tick, the animals of its strip and its ghosts.
+     * @return The number of animals.
+     */
+    public int getHeldAnimals(){return this.heldAnimals;}
+    /**
+     * Getter for the bytes of the parts the coordinator routed from one worker to another so far, the rounds every worker gets aren't counted.
+     * @param from The number of the sending worker.
+     * @param to The number of the receiving worker.
+     * @return The number of bytes.
+     */
+    public long getRoutedBytes(int from, int to){return this.routedBytes[from][to];}
+}
@@ -0,0 +1,97 @@
+package model;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * (package-private) Class that describes the messages between the {@link DistributedCoordinator} and its {@link DistributedWorker}s.
+ * <p>
+ * Every message is framed by an int with the number of following bytes and a byte with its type. The payloads are (see {@link WorldCodec} for new animals and resources):
+ * <pre>
+ * CONFIG  coordinator to worker: int worker, workers, width, height, long seed, double largest sight range, int resources of the world, int id of the next newborn,
+ *         int species, the end of every batch of the animal list, int animals, the new animals of its strip, int resources, the new resources of its strip
+ * TICK    coordinator to worker: empty, starts the next tick
+ * ROUND   worker to coordinator, whenever it has to wait for the other workers (see {@link WorldPart}): byte 1 if it took all of its turns of the batch,
+ *         int length, what every worker gets, int parts, every part for a single worker as int worker, int length, the part
+ * ROUND   coordinator to worker, when every worker sent its ROUND: byte 1 if every worker took all of its turns of the batch,
+ *         for every worker int length, what it sent to every worker, int parts, every part sent to this worker as int worker, int length, the part
+ * DONE    worker to coordinator: long checksum of its strip (see {@link WorldCodec#sumChecksum(Iterable, Iterable)}), int animals of its strip, int animals it holds
+ * STOP    coordinator to worker: empty, ends the worker
+ * </pre>
+ */
+final class DistributedProtocol {
+    static final byte CONFIG = 1, TICK = 2, ROUND = 3, DONE = 4, STOP = 5;
+    static final int HEADER_BYTES = 5;
+
+    /**
+     * (package-private) A received message.
+     * @param type The type of the message.
+     * @param payload The payload of the message.
+     */
+    record Message(byte type, ByteBuffer payload){}
+
+    private DistributedProtocol(){}
+
+    /**
+     * (package-private) Sends a message through the passed channel.
+     * @param channel The channel to write to, it has to be blocking.
+     * @param type The type of the message.
+     * @param payload The payload between its position and limit.
+     * @return The number of bytes sent, including the frame.
+     * @throws IOException If the channel can't be written.
+     */
+    static int send(SocketChannel channel, byte type, ByteBuffer payload) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(payload.remaining() + 1).put(type).flip();
+        int bytes = HEADER_BYTES + payload.remaining();
+        while(header.hasRemaining() || payload.hasRemaining()) channel.write(new ByteBuffer[]{header, payload});
+        return bytes;
+    }
+
+    /**
+     * (package-private) Receives the next message from the passed channel.
+     * @param channel The channel to read from, it has to be blocking.
+     * @param type The expected type of the message.
+     * @return The payload of the message.
+     * @throws IOException If the channel can't be read, is closed or the message has another type.
+     */
+    static ByteBuffer receive(SocketChannel channel, byte type) throws IOException {
+        Message message = receive(channel);
+        if(message.type() != type) throw new IOException("Expected message " + type + " but received " + message.type());
+        return message.payload();
+    }
+
+    /**
+     * (package-private) Receives the next message from the passed channel, whatever its type.
+     * @param channel The channel to read from, it has to be blocking.
+     * @return The message.
+     * @throws IOException If the channel can't be read or is closed.
+     */
+    static Message receive(SocketChannel channel) throws IOException {
+        ByteBuffer header = readFully(channel, HEADER_BYTES);
+        int length = header.getInt();
+        return new Message(header.get(), readFully(channel, length - 1));
+    }
+
+    /**
+     * (package-private) Receives the next message from the passed channel, which has to be one without payload (TICK or STOP).
+     * @param channel The channel to read from, it has to be blocking.
+     * @return The type of the message.
+     * @throws IOException If the channel can't be read, is closed or the message has a payload.
+     */
+    static byte receiveSignal(SocketChannel channel) throws IOException {
+        ByteBuffer header = readFully(channel, HEADER_BYTES);
+        if(header.getInt() != 1) throw new IOException("Expected a message without payload");
+        return header.get();
+    }
+
+    /**
+     * (private) Reads exactly the passed number of bytes.
+     */
+    private static ByteBuffer readFully(SocketChannel channel, int bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(bytes);
+        while(buffer.hasRemaining()) if(channel.read(buffer) < 0) throw new EOFException("The connection was closed");
+        return buffer.flip();
+    }
+}
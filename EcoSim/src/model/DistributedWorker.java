@@ -0,0 +1,102 @@
+package model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Class that takes the turns of the animals in one strip of columns of a simulation spread across several processes, it is started by a {@link DistributedCoordinator}.
+ * <p>
+ * A worker only holds its strip and the ghosts around it (see {@link WorldPart}), and takes the turns of the animals starting them in its strip (see {@link ShardedWorld.Partition}).
+ * Whenever it has to wait for turns of the other workers, it sends the turns it took with the animals and resources they could have changed to the workers they can matter to,
+ * and reads the turns taken by the other workers, until every turn of the batch was taken. The coordinator routes every part to its worker.
+ * <p>
+ * Example usage:
+ * <pre>{@code
+ * // starts a worker in its own JVM, which connects to a coordinator listening on port 4711 of this machine
+ * java model.DistributedWorker localhost 4711
+ * }</pre>
+ * @author Sleman Kakar
+ */
+public class DistributedWorker {
+    private final SocketChannel channel;
+
+    /**
+     * Constructs a new DistributedWorker connected to the coordinator at the specified address.
+     * @param address The address of the coordinator.
+     * @throws IOException If the coordinator can't be reached.
+     */
+    public DistributedWorker(InetSocketAddress address) throws IOException {
+        channel = SocketChannel.open(address);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+    }
+
+    /**
+     * Starts a worker, which runs until its coordinator stops it.
+     * @param args The host and the port of the coordinator.
+     * @throws IOException If the coordinator can't be reached.
+     */
+    public static void main(String[] args) throws IOException {
+        if(args.length != 2) throw new IllegalArgumentException("Usage: java model.DistributedWorker <host> <port>");
+        new DistributedWorker(new InetSocketAddress(args[0], Integer.parseInt(args[1]))).run();
+    }
+
+    /**
+     * Creates the part of the world sent by the coordinator and simulates ticks until the coordinator stops this worker.
+     * @throws IOException If the coordinator can't be reached.
+     */
+    public void run() throws IOException {
+        try(channel){
+            var part = new WorldPart(DistributedProtocol.receive(channel, DistributedProtocol.CONFIG), this::round);
+            while(DistributedProtocol.receiveSignal(channel) == DistributedProtocol.TICK){
+                part.tick();
+                ByteBuffer done = ByteBuffer.allocate(16).putLong(part.checksum()).putInt(part.getOwnAnimals()).putInt(part.getHeldAnimals()).flip();
+                DistributedProtocol.send(channel, DistributedProtocol.DONE, done);
+            }
+        }catch (UncheckedIOException e){
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * (private) Sends a ROUND to the coordinator and reads the ROUND it relays back (see {@link DistributedProtocol}).
+     */
+    private WorldPart.Received round(boolean finished, ByteBuffer gathered, ByteBuffer[] parts){
+        try {
+            int length = 9 + gathered.remaining(), count = 0;
+            for(ByteBuffer part : parts) if(part != null){
+                length += 8 + part.remaining();
+                count++;
+            }
+            ByteBuffer round = ByteBuffer.allocate(length).put((byte) (finished ? 1 : 0)).putInt(gathered.remaining()).put(gathered).putInt(count);
+            for(int worker = 0; worker < parts.length; worker++) if(parts[worker] != null) round.putInt(worker).putInt(parts[worker].remaining()).put(parts[worker]);
+            DistributedProtocol.send(channel, DistributedProtocol.ROUND, round.flip());
+
+            ByteBuffer relayed = DistributedProtocol.receive(channel, DistributedProtocol.ROUND);
+            boolean allFinished = relayed.get() != 0;
+            var allGathered = new ByteBuffer[parts.length];
+            for(int worker = 0; worker < parts.length; worker++) allGathered[worker] = slice(relayed);
+            var received = new ByteBuffer[parts.length];
+            for(int sent = relayed.getInt(); sent > 0; sent--){
+                int from = relayed.getInt();
+                received[from] = slice(relayed);
+            }
+            return new WorldPart.Received(allFinished, allGathered, received);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * (private) Reads a length and cuts as many following bytes out of the passed buffer.
+     */
+    private static ByteBuffer slice(ByteBuffer buffer){
+        int length = buffer.getInt();
+        ByteBuffer slice = buffer.slice(buffer.position(), length);
+        buffer.position(buffer.position() + length);
+        return slice;
+    }
+}
@@ -1,7 +1,14 @@
 package model;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Random;
+import java.util.function.IntPredicate;
 
 /**
  * Class that serves as the central hub connecting all components within the {@link model} package.
@@ -38,23 +45,93 @@ import java.util.Random;
  * @author Sleman Kakar
  */
 public class EcoModel implements IEcoModel, Runnable{
-    private Random random = new Random();
-    private ArrayList<Animal> animals = new ArrayList<>();
+    /**
+     * Version of the simulation rules, it has to be increased whenever a change lets the same seed produce a different run,
+     * because stored runs (see {@link ResultCache}) are only reused for the same version.
+     * <p>
+     * Note: The tests pin the run of one seed to this version, so a change of the rules without a new version fails them.
+     */
+    public static final int ENGINE_VERSION = 10;
+    // animals move about one unit per tick, so a skin of 20 lets the neighbor lists last about ten ticks
+    private static final float NEIGHBOR_SKIN = 20;
+    // parking an animal for only a few ticks saves less than scheduling it costs
+    private static final int MIN_PARKED_TICKS = 8;
+    // the tick time percentiles are taken over the last second at the fastest speed
+    private static final int TIMED_TICKS = 1000;
+    // every REORDER_INTERVAL ticks the animal list is sorted along a Z-order curve, if the animals following each other drifted REORDER_GROWTH times as far apart as after the last sort
+    static final int REORDER_INTERVAL = 100;
+    static final double REORDER_GROWTH = 2;
+    // about the distance an animal moves in ten ticks, so the animals of a cell mostly share their neighbors
+    static final float MORTON_CELL = 8;
+    // a fox finds its nearest prey within a few cells, the predators of a bunny are indexed in cells as big as the largest sight range instead
+    private static final float PREY_CELL = 25;
+    private final long seed;
+    private final Random random;
+    // recycles dead animals for newborns, its animal list is the order of the turns
+    private final AnimalPool pool = new AnimalPool();
+    // the species of the animals, which is also the order of the batches of the animal list
+    private SpeciesRegistry registry = SpeciesRegistry.STANDARD;
+    private final ArrayList<Animal> animals = pool.animals();
     private final ArrayList<Resource> resources = new ArrayList<>();
+    // the resources which aren't idle, the others don't change when they regenerate (a set, since released resources can be idle until the next regeneration)
+    private final LinkedHashSet<Resource> regenerating = new LinkedHashSet<>();
+    // a part of a distributed world can hold no resources while the whole world has some (see WorldPart)
+    private boolean worldHasResources;
     private final int width, height;
     private ArrayList<Animal> newAnimals = new ArrayList<>();
-    private final Thread ecoSimulationThread = new Thread(this);
-    private boolean runSim, inPerformance;
+    // the mother of each animal in newAnimals, at the same index
+    private final ArrayList<Animal> mothers = new ArrayList<>();
+    private NeighborList neighbors = new NeighborList(NEIGHBOR_SKIN);
+    private ResourceField resourceField;
+    private boolean useResourceField = true, useReordering = true, useResourceCache = true;
+    // the lookups of a resource in the resource field, and the ones skipped by the cache of the animal
+    private long resourceLookups, resourceCacheHits;
+    // the turns of living animals (parked or not) and the regenerations of resources, which used to happen once per turn
+    private long turns, resourceUpdates;
+    // the mean gap of the animal list after the last sort, negative before the first sort (see AnimalPool.meanGap)
+    private double sortedGap = -1;
+    private int reorders;
+    private TimingWheel<Animal> parked = new TimingWheel<>(0);
+    // the prey of the hunting species and the predators of the grazing species taking their turns, null if the animals look through the animals around them
+    private NearestIndex preyIndex, predatorIndex;
+    private boolean usePredatorIndex = true;
+    private final IntPredicate dead = index -> animals.get(index).isDead();
+    private int[] indexedIds = new int[0];
+    private float[] indexedX = new float[0], indexedY = new float[0];
+    private ShardedWorld shards;
+    private int shardWorkers;
+    // created when it is started, so no other thread sees this model before its constructor finished
+    private Thread ecoSimulationThread;
+    private boolean runSim, inPerformance, publishSnapshots;
+    // replaced after every tick of the simulation thread, the reference is the only state shared with the drawing thread
+    private volatile PositionSnapshot positionSnapshot;
+    // mirrors the animals into a memory-mapped file after every tick, null if the world isn't exported
+    private WorldExporter exporter;
+    private final TickTimes tickTimes = new TickTimes(TIMED_TICKS);
     private int simulationSpeed = 10, animalId;
+    private long tick;
 
     /**
      * Constructs a new EcoModel with the specified width and height for the ecosystem.
      * @param width The width of the ecosystem.
      * @param height The height of the ecosystem.
      */
-    public EcoModel(int width, int height){
+    public EcoModel(int width, int height){this(width, height, new Random().nextLong());}
+
+    /**
+     * Constructs a new EcoModel with the specified width and height for the ecosystem, whose randomness is derived from the passed seed.
+     * <p>
+     * Note: Two models with the same size and seed, which are started with the same values and advanced the same number of ticks with {@link #simulateTick()}, end up in the same state.
+     * @param width The width of the ecosystem.
+     * @param height The height of the ecosystem.
+     * @param seed The seed every random decision of this simulation is derived from.
+     */
+    public EcoModel(int width, int height, long seed){
         this.width = width;
         this.height = height;
+        this.seed = seed;
+        this.random = new Random(seed);
+        this.preyIndex = new NearestIndex(width, height, PREY_CELL);
     }
 
     /**
@@ -62,17 +139,50 @@ public class EcoModel implements IEcoModel, Runnable{
      */
     @Override
     public void startNewSim(int initialBunnies, int initialFoxes, int initialWaterSources, int initialGrassSources){
-        for(int i = 0; i < initialBunnies; i++) {
-            animals.add(new Bunny(animalId, 100, random.nextInt(10, width - 10), random.nextInt(10, height - 10)));
-            animalId++;
-        }
-        for(int i = 0; i < initialFoxes; i++) {
-            animals.add(new Fox(animalId, 150, random.nextInt(10, width - 10), random.nextInt(10, height - 10)));
-            animalId++;
+        // the bunnies are the first and the foxes the second species of the registry, further species start without animals
+        int[] initialAnimals = new int[registry.size()];
+        initialAnimals[0] = initialBunnies;
+        if(initialAnimals.length > 1) initialAnimals[1] = initialFoxes;
+        startNewSim(initialAnimals, initialWaterSources, initialGrassSources);
+    }
+
+    /**
+     * (package-private) Initializes a new simulation with the passed number of animals of every species of the registry (see {@link #setSpecies(SpeciesRegistry)}).
+     * @param initialAnimals The number of animals of every species, in the order of their ids.
+     * @param initialWaterSources The number of water sources.
+     * @param initialGrassSources The number of grass sources.
+     */
+    void startNewSim(int[] initialAnimals, int initialWaterSources, int initialGrassSources){
+        if(initialAnimals.length != registry.size()) throw new IllegalArgumentException("initialAnimals needs a number for each of the " + registry.size() + " species");
+        for(int species = 0; species < initialAnimals.length; species++){
+            Species spawned = registry.get(species);
+            for(int i = 0; i < initialAnimals[species]; i++) {
+                pool.add(pool.animal(spawned, animalId, spawned.sightRange(), random.nextInt(10, width - 10), random.nextInt(10, height - 10), seedFor(animalId)));
+                animalId++;
+            }
         }
 
-        for(int i = 0; i < initialWaterSources; i++) resources.add(new Resource(true, width, height));
-        for(int i = 0; i < initialGrassSources; i++) resources.add(new Resource(false, width, height));
+        for(int i = 0; i < initialWaterSources; i++) resources.add(new Resource(true, width, height, random));
+        for(int i = 0; i < initialGrassSources; i++) resources.add(new Resource(false, width, height, random));
+        // new resources aren't idle yet, they become idle after regenerating once
+        regenerating.addAll(resources);
+        worldHasResources = !resources.isEmpty();
+
+        // newborns have the same sight range as their mothers, so the largest sight range can't grow later
+        double maxSightRange = animals.stream().mapToDouble(Animal::getSightRange).max().orElse(0);
+        if(shardWorkers > 0){
+            // the workers use resources at the same time
+            resources.forEach(resource -> resource.watchUse(used -> {synchronized(regenerating){regenerating.add(used);}}));
+            resourceField = new ResourceField(resources, width, height, maxSightRange);
+            shards = new ShardedWorld(width, height, maxSightRange, shardWorkers);
+            shards.start(resources);
+        }else{
+            resources.forEach(resource -> resource.watchUse(regenerating::add));
+            if(useResourceField) resourceField = new ResourceField(resources, width, height, maxSightRange);
+        }
+        // a bunny only has to look at the nine cells around it
+        if(usePredatorIndex && shards == null) predatorIndex = new NearestIndex(width, height, (float) Math.max(1, maxSightRange));
+        publishSnapshot();
     }
 
     /**
@@ -83,9 +193,19 @@ public class EcoModel implements IEcoModel, Runnable{
         boolean cleared = false;
         while (!cleared){
             if(!inPerformance){
-                animals.clear();
+                pool.clear();
                 resources.clear();
+                regenerating.clear();
                 newAnimals.clear();
+                mothers.clear();
+                resourceField = null;
+                if(shards != null) shards.close();
+                shards = null;
+                if(neighbors != null) neighbors = new NeighborList(NEIGHBOR_SKIN);
+                tick = 0;
+                sortedGap = -1;
+                positionSnapshot = null;
+                if(parked != null) parked = new TimingWheel<>(0);
                 runSim = false;
                 simulationSpeed = 10;
                 cleared = true;
@@ -94,60 +214,292 @@ public class EcoModel implements IEcoModel, Runnable{
     }
 
     /**
-     * (private) This method invokes almost all the methods provided by the {@link model} package, updating lists, states of specific objects and letting objects interact with each other.
+     * (private) Advances the simulation by one tick, if the simulation is currently running.
      * <p>
      * Note: This method is the "main" simulation loop it should be called iteratively to ensure the progression of the simulation.
      */
     private void nextPerformance(){
-        if(runSim){
+        if(!runSim) return;
+        long start = System.nanoTime();
+        simulateTick();
+        tickTimes.record(System.nanoTime() - start);
+    }
 
-            // boolean to ensure the simulation is not running while trying to modify any lists, to prevent "ConcurrentModificationException"
-            inPerformance = true;
+    /**
+     * (package-private) This method invokes almost all the methods provided by the {@link model} package, updating lists, states of specific objects and letting objects interact with each other.
+     * <p>
+     * A tick runs in stages, and every stage handles each animal or resource once: the newborns are added and the dead recycled, the mates are paired,
+     * every living animal takes its turn (moving, handling its needs, deciding its state once, fleeing or hunting and mating) and at last every resource regenerates and is used once.
+     * <p>
+     * Note: The resources used to regenerate and be used once per turn of an animal, parked or not, so they filled up and were drained faster in crowded ecosystems.
+     * Now a resource loses (or regains) 0.1 percent per tick, whatever the number of animals, and the animals later in the list no longer see it change within the tick.
+     * <p>
+     * Note: Unlike {@link #nextPerformance()} this method ignores the running flag, so headless runs (see {@link SweepRunner}) can advance the simulation without starting its thread.
+     */
+    void simulateTick(){
+        // boolean to ensure the simulation is not running while trying to modify any lists, to prevent "ConcurrentModificationException"
+        inPerformance = true;
 
-            // all animals flagged as dead will be removed
-            animals.removeIf(animal -> animal.getAnimalAttributes().dead());
+        // all animals will be added which were received in the previous iteration of the simulation loop, at the end of the batch of their species
+        for(Animal newborn : newAnimals) pool.add(newborn, animal -> {if(neighbors != null) neighbors.moved(animal);});
 
-            // all animals will be added which were received in the previous iteration of the simulation loop
-            animals.addAll(newAnimals);
-            newAnimals.clear();
+        // newborns are put into the neighbor lists before the dead are taken out, so their mothers are still there
+        // (newborns whose mother isn't in the lists are picked up by the rebuild in update)
+        if(neighbors != null) for(int i = 0; i < newAnimals.size(); i++) neighbors.addNewborn(newAnimals.get(i), mothers.get(i));
+        newAnimals.clear();
+        mothers.clear();
 
+        // all animals flagged as dead will be recycled, the last animal of their batch takes the place of each of them
+        // (they give up their resources first, so the animals waiting for them get them)
+        pool.removeDead(animal -> {
+            animal.leaveResource();
+            if(neighbors != null) neighbors.remove(animal);
+        }, animal -> {if(neighbors != null) neighbors.moved(animal);});
+        forgetGonePartners();
+        if(useReordering && tick % REORDER_INTERVAL == 0) reorder();
 
-            for(Animal animal : animals){
-                // to ensure that dead animals will be skipped
-                if(animal.getAnimalAttributes().dead())continue;
+        if(neighbors != null) neighbors.update(animals);
 
-                animal.movement();
-                animal.wallCollision(width, height);
-                animal.stopUsingResource();
+        // parked animals whose wake-up tick has come take their turns again (animals woken earlier are ignored)
+        if(parked != null) for(Animal animal : parked.advance(tick)) if(animal.getWakeTick() == tick) animal.wake();
+        // the animals ready to mate are paired once for the whole tick, before any of them moves
+        pairMates();
 
-                if (animal.getAnimalAttributes().pregnant()) addNewAnimal(animal);
+        // the species take their turns one after another, so every batch only goes through animals of one class
+        for(int species = 0; species < registry.size(); species++){
+            if(shards != null) takeShardedTurns(pool.start(species), pool.end(species));
+            else if(registry.get(species).grazes()) takeGrazerTurns(pool.start(species), pool.end(species));
+            else takeHunterTurns(pool.start(species), pool.end(species));
+        }
+        // the resources change once per tick, after every animal took its turn
+        regenerateResources();
+        tick++;
+        if(publishSnapshots) publishSnapshot();
+        if(exporter != null) export();
+        // let other functions know the iteration is done and modifications can happen now, to prevent "ConcurrentModificationException"
+        inPerformance = false;
+    }
 
+    /**
+     * (private) Lets the animals between the passed indices take their turns, which all eat grass.
+     * <p>
+     * Note: This loop and {@link #takeHunterTurns(int, int)} only differ in the class of the animals, so every call site within them only sees one class.
+     * @param from The index of the first animal.
+     * @param to The index behind the last animal.
+     */
+    private void takeGrazerTurns(int from, int to){
+        if(predatorIndex != null && from < to) buildIndex(predatorIndex, animals.get(from).getSpecies().predators());
+        for(int i = from; i < to; i++){
+            Bunny bunny = (Bunny) animals.get(i);
+            List<Animal> others = startTurn(bunny);
+            if(others == null) continue;
+            interactAsGrazer(bunny, others, predatorIndex != null);
+            if(parked != null) park(bunny);
+        }
+    }
 
-                resources.forEach(resource -> { handleStates(animal, resource);
-                                                resource.regenerate();
-                                                resource.usage();
-                });
+    /**
+     * (private) Lets the animals between the passed indices take their turns, which all hunt.
+     * @param from The index of the first animal.
+     * @param to The index behind the last animal.
+     */
+    private void takeHunterTurns(int from, int to){
+        if(preyIndex != null && from < to) buildIndex(preyIndex, animals.get(from).getSpecies().prey());
+        for(int i = from; i < to; i++){
+            Fox fox = (Fox) animals.get(i);
+            List<Animal> others = startTurn(fox);
+            if(others == null) continue;
+            interactAsHunter(fox, others, preyIndex != null);
+            if(parked != null) park(fox);
+        }
+    }
 
-                if(animal instanceof Bunny bunny){
-                    bunny.randomBunnyMovement(0.002);
+    /**
+     * (private) Does everything of a turn which is the same for every species: moving, giving birth and handling hunger and thirst.
+     * @param animal The animal taking its turn.
+     * @return The animals which could be in sight of the animal, or null if the animal skips its turn (because it is dead or parked).
+     */
+    private List<Animal> startTurn(Animal animal){
+        // to ensure that dead animals will be skipped
+        if(animal.isDead()) return null;
+        turns++;
 
-                    animals.forEach(other -> {  bunny.dodgeFox(other);
-                                                bunny.handleMating(other);
-                                                bunny.stopMating(bunny.getAnimalAttributes().usingThisMate());
-                    });
-                }
+        // a parked animal only skips its turn
+        if(animal.isParked()){
+            animal.skipTurn(tick);
+            return null;
+        }
 
-                if(animal instanceof Fox fox){
-                    fox.stopHunting();
-                    animals.forEach(other ->{ if(other instanceof Bunny bunny && fox.getAnimalAttributes().state() == AnimalState.HUNGRY) fox.handleHunger(bunny);
-                                              fox.handleMating(other);
-                                              fox.stopMating(fox.getAnimalAttributes().usingThisMate());
-                    });
-                }
+        // only the animals which could be in sight are compared with this animal
+        List<Animal> others = neighbors == null ? animals : neighbors.of(animal);
+
+        animal.movement();
+        animal.wallCollision(width, height);
+        if(parked != null && !animal.getSpecies().grazes()) wakePreyInSight(animal, others);
+        animal.stopUsingResource();
+
+        if (animal.isPregnant()) addNewAnimal(animal);
+
+
+        if(resourceField == null){
+            // the animal is compared with every resource, but its state is only decided once, after the last one
+            resources.forEach(resource -> handleNeeds(animal, resource));
+            if(!resources.isEmpty()) animal.decideState();
+        }else{
+            // the resource is looked up in the field, instead of comparing the animal with every resource
+            // (without any resources the state isn't decided either, like above)
+            if(!resources.isEmpty()) handleStates(animal, resourceFor(animal));
+        }
+        return others;
+    }
+
+    /**
+     * (private) Lets the animals between the passed indices take their turns on the workers of the {@link #shards}, with the same result as {@link #takeGrazerTurns(int, int)} and {@link #takeHunterTurns(int, int)}.
+     * <p>
+     * Note: The newborns are created after the batch, in the order of their mothers in the animal list, so they get the same ids as in a turn.
+     * @param from The index of the first animal.
+     * @param to The index behind the last animal.
+     */
+    private void takeShardedTurns(int from, int to){
+        for(int i = from; i < to; i++) if(!animals.get(i).isDead()) turns++;
+        for(Animal mother : shards.takeTurns(animals, from, to, this::takeShardedTurn)) addNewAnimal(mother);
+    }
+
+    /**
+     * (package-private) Lets the passed animal take its turn like in {@link #startTurn(Animal)} and {@link #interact(Animal, List, boolean)}, while other animals take theirs at the same time
+     * (in this process, or in other processes which hold other parts of the world, see {@link WorldPart}).
+     * @param animal The animal taking its turn.
+     * @param others The animals which could be in sight of the animal.
+     * @return True if the animal is pregnant, its newborns are added after the batch.
+     */
+    boolean takeShardedTurn(Animal animal, List<Animal> others){
+        animal.movement();
+        animal.wallCollision(width, height);
+        animal.stopUsingResource();
+
+        // the workers don't create newborns, since their ids have to be handed out in the order of the turns
+        boolean pregnant = animal.getAnimalAttributes().pregnant();
+        if(pregnant) animal.setPregnant(false);
+
+        if(worldHasResources) handleStates(animal, resourceFor(animal));
+        // the indices would be queried by all workers at the same time, the animals around are looked through instead
+        interact(animal, others, false);
+        return pregnant;
+    }
+
+    /**
+     * (package-private) Lets every animal forget the animals it refers to which were recycled since the last tick, a parked animal is woken up first.
+     * <p>
+     * Note: Every animal is checked, parked or not, so parking doesn't change when an animal notices that its mate, prey or fox is gone.
+     */
+    void forgetGonePartners(){
+        for(Animal animal : animals){
+            if(!animal.hasGonePartner()) continue;
+            animal.wake();
+            animal.forgetGonePartners();
+        }
+    }
+
+    /**
+     * (private) Pairs the animals which are ready to mate (see {@link MatePairing}), after every animal whose mate left it forgot its mate (see {@link #mateCandidates()}).
+     * <p>
+     * Note: The candidates are passed in the order of the animal list, so {@link EcsModel} gets the same pairs.
+     */
+    private void pairMates(){
+        var candidates = mateCandidates();
+        int count = candidates.size();
+        int[] species = new int[count];
+        float[] x = new float[count], y = new float[count];
+        double[] sightRange = new double[count];
+        for(int i = 0; i < count; i++){
+            Animal candidate = candidates.get(i);
+            species[i] = candidate.getSpecies().id();
+            x[i] = candidate.getX();
+            y[i] = candidate.getY();
+            sightRange[i] = candidate.getSightRange();
+        }
+        int[] partner = MatePairing.match(count, species, x, y, sightRange);
+        for(int i = 0; i < count; i++) if(partner[i] > i) candidates.get(i).pairWith(candidates.get(partner[i]));
+    }
+
+    /**
+     * (package-private) Lets every animal whose mate left it forget its mate and collects the animals which are ready to mate, the first step of {@link #pairMates()}.
+     * @return The animals which are ready to mate, in the order of the animal list.
+     */
+    ArrayList<Animal> mateCandidates(){
+        var candidates = new ArrayList<Animal>();
+        for(Animal animal : animals){
+            if(animal.hasOneSidedMate()){
+                animal.wake();
+                animal.leaveMate();
             }
-            // let other functions know the iteration is done and modifications can happen now, to prevent "ConcurrentModificationException"
-            inPerformance = false;
+            if(animal.canPair()) candidates.add(animal);
         }
+        return candidates;
+    }
+
+    /**
+     * (private) Sorts the animal list along a Z-order curve (see {@link AnimalPool#sortByMorton(float)}), if it never was sorted or lost too much of its order since the last sort.
+     * The turns are taken in the new order from now on, so this is done in every run with the same seed at the same ticks.
+     */
+    private void reorder(){
+        if(sortedGap >= 0 && pool.meanGap() <= REORDER_GROWTH * sortedGap) return;
+        pool.sortByMorton(MORTON_CELL);
+        if(neighbors != null) neighbors.reordered();
+        sortedGap = pool.meanGap();
+        reorders++;
+    }
+
+    /**
+     * Mirrors the animals into the specified file after every tick from now on, so other processes can read the running simulation (see {@link WorldExportReader}).
+     * The current animals are written right away. A file exported to before is closed and keeps its last frame.
+     * <p>
+     * Note: The file is written by the simulation thread, so this method should be called before the thread is started or while the simulation is paused.
+     * @param file The file to write, which is created or replaced.
+     * @throws IOException If the file can't be created.
+     */
+    public void exportTo(Path file) throws IOException {
+        stopExport();
+        // room for a doubled population, so the file rarely has to grow
+        exporter = new WorldExporter(file, width, height, Math.max(1024, 2 * animals.size()));
+        export();
+    }
+
+    /**
+     * Stops mirroring the animals into the file passed to {@link #exportTo(Path)}, the file keeps its last frame.
+     * @throws IOException If the file can't be closed.
+     */
+    public void stopExport() throws IOException {
+        if(exporter == null) return;
+        exporter.close();
+        exporter = null;
+    }
+
+    /**
+     * (private) Writes the animals after the current tick into the export file.
+     */
+    private void export(){
+        catchUpParked();
+        try {exporter.write(animals, tick);}
+        catch (IOException e) {throw new UncheckedIOException("The world can't be exported", e);}
+    }
+
+    /**
+     * (package-private) Publishes the positions of the animals after the current tick, the previous snapshot becomes the start of the interpolation.
+     */
+    void publishSnapshot(){
+        catchUpParked();
+        positionSnapshot = new PositionSnapshot(animals, tick, System.nanoTime(), positionSnapshot);
+    }
+
+    /**
+     * (private) Replays the skipped turns of every parked animal (see {@link Animal#catchUp()}), before the animals are read from outside of the simulation.
+     * <p>
+     * Note: Parked animals only skip their turns without replaying them, so the saving of parking is only kept while nobody reads the animals.
+     * A run publishing a snapshot every tick replays every skipped turn in the tick it was skipped.
+     */
+    private void catchUpParked(){
+        if(parked != null) for(Animal animal : animals) animal.catchUp();
     }
 
     /**
@@ -158,6 +510,8 @@ public class EcoModel implements IEcoModel, Runnable{
     @Override
     public void run() {
         runSim = true;
+        // only a simulation which is drawn needs the snapshots, headless runs skip them
+        publishSnapshots = true;
 
         while (true){
             nextPerformance();
@@ -169,21 +523,187 @@ public class EcoModel implements IEcoModel, Runnable{
 
     //getter for tests
     boolean isRunSim(){return this.runSim; }
-    //getter for tests
-    int getSimulationSpeed(){return this.simulationSpeed;}
+    //getter for headless runs
+    long getTick(){return this.tick;}
+    //getter for headless runs
+    long getSeed(){return this.seed;}
+    //getter for tests and benchmarks
+    AnimalPool getPool(){return this.pool;}
+    //getter for tests and benchmarks
+    int getReorders(){return this.reorders;}
+
+    /**
+     * (package-private) Switches sorting the animal list along a Z-order curve on or off, which is kept for benchmarks.
+     * <p>
+     * Note: The turns are taken in the order of the animal list, so this changes the run.
+     * @param useReordering True to sort the animal list from time to time, false to keep the order of births and deaths.
+     */
+    void setUseReordering(boolean useReordering){this.useReordering = useReordering;}
+
+    /**
+     * (package-private) Sets the species of the animals, the animal list is split into one batch per species (see {@link AnimalPool}).
+     * <p>
+     * Note: This method has to be called before {@link #startNewSim(int[], int, int)}.
+     * @param registry The species, by default bunnies and foxes ({@link SpeciesRegistry#STANDARD}).
+     */
+    void setSpecies(SpeciesRegistry registry){
+        pool.setSpeciesCount(registry.size());
+        this.registry = registry;
+    }
+
+    /**
+     * (package-private) Counts the animals of the passed species, without going through them.
+     * @param species The species, which has to be in the registry of this model.
+     * @return The number of animals, including the animals which died during the last tick.
+     */
+    int getAnimalCountOf(Species species){return pool.count(species.id());}
+    //getter for benchmarks
+    int getNeighborListRebuilds(){return neighbors == null ? 0 : neighbors.getRebuilds();}
+
+    /**
+     * (package-private) Switches between neighbor lists and comparing every animal with every other animal, which is kept for benchmarks.
+     * @param useNeighborLists True to use neighbor lists, false to compare every animal with every other animal.
+     */
+    void setUseNeighborLists(boolean useNeighborLists){neighbors = useNeighborLists ? new NeighborList(NEIGHBOR_SKIN) : null;}
+
+    /**
+     * (package-private) Switches between the {@link ResourceField} and comparing every animal with every resource, which is kept for benchmarks.
+     * <p>
+     * Note: This method has to be called before {@link #startNewSim(int, int, int, int)}.
+     * @param useResourceField True to use the field, false to compare every animal with every resource.
+     */
+    void setUseResourceField(boolean useResourceField){this.useResourceField = useResourceField;}
+
+    /**
+     * (package-private) Switches parking resting animals in a {@link TimingWheel} on or off, which gives the same simulation and is kept for tests and benchmarks.
+     * <p>
+     * Note: This method has to be called before {@link #startNewSim(int, int, int, int)}.
+     * @param useTimingWheel True to park resting animals, false to let every animal take every turn.
+     */
+    void setUseTimingWheel(boolean useTimingWheel){parked = useTimingWheel ? new TimingWheel<>(tick) : null;}
+
+    /**
+     * (package-private) Switches between the {@link NearestIndex} of the prey and every fox looking through the animals around it for its nearest prey, which gives the same simulation and is kept for tests and benchmarks.
+     * @param usePreyIndex True to look the prey up in the index, false to look through the animals around every fox.
+     */
+    void setUsePreyIndex(boolean usePreyIndex){preyIndex = usePreyIndex ? new NearestIndex(width, height, PREY_CELL) : null;}
+
+    /**
+     * (package-private) Switches between an index of the predators and every bunny looking through the animals around it for its nearest predator, which gives the same simulation and is kept for tests and benchmarks.
+     * <p>
+     * Note: This method has to be called before {@link #startNewSim(int, int, int, int)}.
+     * @param usePredatorIndex True to look the predators up in the index, false to look through the animals around every bunny.
+     */
+    void setUsePredatorIndex(boolean usePredatorIndex){this.usePredatorIndex = usePredatorIndex;}
+    //getter for benchmarks, the number of predators compared with a bunny since the start (0 without the predator index)
+    long getPredatorVisits(){return predatorIndex == null ? 0 : predatorIndex.getVisited();}
+    //getter for benchmarks, the number of prey compared with a fox since the start (0 without the prey index)
+    long getPreyVisits(){return preyIndex == null ? 0 : preyIndex.getVisited();}
+    //getter for benchmarks, the number of foxes which looked up their prey since the start (0 without the prey index)
+    long getPreyQueries(){return preyIndex == null ? 0 : preyIndex.getQueries();}
+
+    /**
+     * (package-private) Switches the {@link ResourceCache} of the animals on or off, which gives the same simulation and is kept for tests and benchmarks.
+     * @param useResourceCache True to skip the lookups while nothing changed since an animal found no resource in sight, false to look up every resource.
+     */
+    void setUseResourceCache(boolean useResourceCache){this.useResourceCache = useResourceCache;}
+    //getter for benchmarks, the number of resources looked up in the resource field since the start
+    long getResourceLookups(){return this.resourceLookups;}
+    //getter for benchmarks, the number of lookups skipped by the caches of the animals since the start
+    long getResourceCacheHits(){return this.resourceCacheHits;}
+    //getter for benchmarks, the number of turns of living animals since the start, parked turns included
+    long getTurns(){return this.turns;}
+    //getter for benchmarks, the number of times a resource regenerated and was used since the start
+    long getResourceUpdates(){return this.resourceUpdates;}
+
+    //getter for benchmarks, the number of resources claimed by an animal since the start (including claims handed on to a waiting animal)
+    long getResourceClaims(){return resources.stream().mapToLong(resource -> resource.getReservation().getClaims()).sum();}
+    //getter for benchmarks, the number of reservations which found another animal holding the resource
+    long getResourceConflicts(){return resources.stream().mapToLong(resource -> resource.getReservation().getConflicts()).sum();}
+    //getter for benchmarks, the number of turns animals waited for a reserved resource
+    long getResourceWaitTicks(){return resources.stream().mapToLong(resource -> resource.getReservation().getWaitTicks()).sum();}
 
+    /**
+     * (package-private) Lets the turns of every batch be taken by the passed number of workers at the same time, as far as they can't see each other's changes (see {@link ShardedWorld}).
+     * The sharded simulation is the same as the unsharded one for every number of workers. It always looks the resources up in the {@link ResourceField}
+     * and doesn't use parking, the neighbor lists, the indices or the resource cache, which all give the same simulation.
+     * <p>
+     * Note: This method has to be called before {@link #startNewSim(int, int, int, int)}.
+     * @param workers The number of workers, 0 simulates unsharded.
+     */
+    void setShards(int workers){
+        if(workers < 0) throw new IllegalArgumentException("workers can't be negative");
+        this.shardWorkers = workers;
+        if(workers == 0) return;
+        parked = null;
+        neighbors = null;
+    }
+    //getter for tests and benchmarks
+    ShardedWorld getShards(){return this.shards;}
+
+    /**
+     * (package-private) Replaces the resources of a model which only holds a part of a distributed simulation (see {@link WorldPart}), whose animals are put into the pool by the caller.
+     * The resources are looked up in a new {@link ResourceField} over them, and the ones which aren't idle regenerate.
+     * @param partResources The resources of the part, in the order of the whole resource list.
+     * @param maxSightRange The largest sight range of any animal of the whole world.
+     * @param worldHasResources True if the whole world has resources, also if the part holds none.
+     */
+    void setPartResources(List<Resource> partResources, double maxSightRange, boolean worldHasResources){
+        resources.clear();
+        resources.addAll(partResources);
+        regenerating.clear();
+        for(Resource resource : resources){
+            if(!resource.isIdle()) regenerating.add(resource);
+            resource.watchUse(regenerating::add);
+        }
+        resourceField = new ResourceField(resources, width, height, maxSightRange);
+        this.worldHasResources = worldHasResources;
+    }
+
+    /**
+     * (package-private) Describes the species and every switch of this model, so runs of differently switched models are never taken for each other (see {@link ResultCache#key}).
+     * <p>
+     * Note: Every switch is part of it, also the switches which give the same simulation, so a switch which stops doing so can't return stale runs.
+     * @return The species and the state of every switch, the same for models switched the same way.
+     */
+    String getEngineOptions(){
+        var species = new StringBuilder();
+        for(int i = 0; i < registry.size(); i++) species.append(registry.get(i)).append(',');
+        return "species=" + species + ";neighborLists=" + (neighbors != null) + ";resourceField=" + useResourceField + ";reordering=" + useReordering
+                + ";timingWheel=" + (parked != null) + ";preyIndex=" + (preyIndex != null) + ";predatorIndex=" + usePredatorIndex
+                + ";resourceCache=" + useResourceCache + ";shards=" + shardWorkers;
+    }
+    //getter for benchmarks
+    int getParkedAnimals(){return parked == null ? 0 : (int) animals.stream().filter(Animal::isParked).count();}
     /**
      * {@inheritDoc}
      */
-    @Override public boolean isEcoSimulationThreadAlive() {return ecoSimulationThread.isAlive();}
+    @Override public int getSimulationSpeed(){return this.simulationSpeed;}
     /**
      * {@inheritDoc}
      */
-    @Override public void startEcoSimulationThread() {if (!ecoSimulationThread.isAlive()) ecoSimulationThread.start();}
+    @Override public long getTimedTicks(){return tickTimes.getCount();}
+    /**
+     * {@inheritDoc}
+     */
+    @Override public double getTickTimePercentile(double percentile){return tickTimes.percentileMillis(percentile);}
+
     /**
      * {@inheritDoc}
      */
-    @Override public void playEcoSimulationThread(boolean runSim) { if (ecoSimulationThread.isAlive()) this.runSim = runSim;}
+    @Override public boolean isEcoSimulationThreadAlive() {return ecoSimulationThread != null && ecoSimulationThread.isAlive();}
+    /**
+     * {@inheritDoc}
+     */
+    @Override public void startEcoSimulationThread() {
+        if (ecoSimulationThread != null) return;
+        ecoSimulationThread = new Thread(this);
+        ecoSimulationThread.start();
+    }
+    /**
+     * {@inheritDoc}
+     */
+    @Override public void playEcoSimulationThread(boolean runSim) { if (isEcoSimulationThreadAlive()) this.runSim = runSim;}
     /**
      * {@inheritDoc}
      */
@@ -192,37 +712,265 @@ public class EcoModel implements IEcoModel, Runnable{
     /**
      * {@inheritDoc}
      */
-    @Override public int getAnimalCountOf(boolean getHerbivore) { return getHerbivore ? getAnimalList().stream().filter(Animal :: isHerbivore).toList().size() : getAnimalList().stream().filter(animal -> !animal.isHerbivore()).toList().size();}
+    @Override public int getAnimalCountOf(boolean getHerbivore) {
+        // the batches know their sizes, so no animal is looked at
+        int count = 0;
+        for(int species = 0; species < registry.size(); species++) if(registry.get(species).grazes() == getHerbivore) count += pool.count(species);
+        return count;
+    }
 
     /**
-     * (private) Checks if passed Animals is an instanceof Bunny or Fox, based on that it adds a new animal to {@link #newAnimals}.
+     * (private) Adds the newborns of the passed mother to {@link #newAnimals}, as many as the litter size of its species.
      * <p>
      * Note: This method should only be called after mating was successful, which is done by checking the pregnant flag for an animal.
      * @param mother The other animal.
      */
     private void addNewAnimal(Animal mother) {
-        if(mother instanceof Bunny) {
-            newAnimals.add(new Bunny(animalId, 100, mother.getAnimalAttributes().x(), mother.getAnimalAttributes().y()));
-            animalId++;
-        }
-        else if(mother instanceof Fox) {
-            newAnimals.add(new Fox(animalId, 150, mother.getAnimalAttributes().x(), mother.getAnimalAttributes().y()));
+        Species species = mother.getSpecies();
+        for(int i = 0; i < species.litterSize(); i++){
+            newAnimals.add(newborn(species, animalId, mother.getX(), mother.getY()));
+            mothers.add(mother);
             animalId++;
         }
         mother.setPregnant(false);
     }
 
     /**
-     * (private) This method invokes other methods, based on the animals state, which handle hunger and thirst.
+     * (package-private) Gets a newborn of the passed species from the pool, which isn't in the animal list yet.
+     * @param species The species of the newborn.
+     * @param id The id of the newborn, its randomness is derived from it.
+     * @param x The position of its mother along the x-axis.
+     * @param y The position of its mother along the y-axis.
+     * @return The newborn.
+     */
+    Animal newborn(Species species, int id, float x, float y){return pool.animal(species, id, species.sightRange(), x, y, seedFor(id));}
+
+    /**
+     * (private) Lets the passed animal interact with the other animals like {@link #interactAsGrazer(Bunny, List, boolean)} or {@link #interactAsHunter(Fox, List, boolean)}, by its species.
+     * @param animal The animal taking its turn.
+     * @param others The animals which could be in sight of the animal, in the order they are compared with it.
+     * @param indexed True if a hunter looks its prey and a grazer its predators up in an index, false if they look through the other animals.
+     */
+    private void interact(Animal animal, List<Animal> others, boolean indexed){
+        if(animal.getSpecies().grazes()) interactAsGrazer((Bunny) animal, others, indexed);
+        else interactAsHunter((Fox) animal, others, indexed);
+    }
+
+    /**
+     * (private) Lets the passed bunny interact with the other animals: it runs away from the nearest animal of the species hunting it and looks for a mate of its species.
+     * @param bunny The bunny taking its turn.
+     * @param others The animals which could be in sight of the bunny, ordered by their index.
+     * @param indexed True if the predator is looked up in the {@link #predatorIndex}, which finds the same predator as looking through others.
+     */
+    private void interactAsGrazer(Bunny bunny, List<Animal> others, boolean indexed){
+        bunny.randomBunnyMovement(0.002);
+
+        // predators are always hunters (see SpeciesRegistry), so the cast can't fail
+        if(bunny.getSpecies().predators() != 0) bunny.dodgeFox((Fox) (indexed ? nearestIn(predatorIndex, bunny) : bunny.nearestOf(others, bunny.getSpecies().predators())));
+        // only the mate the bunny was paired with is courted (see pairMates)
+        bunny.courtMate();
+        bunny.stopMating(bunny.getUsingThisMate());
+    }
+
+    /**
+     * (private) Lets the passed fox interact with the other animals: it hunts the nearest animal of the species it preys on and looks for a mate of its species.
+     * @param fox The fox taking its turn.
+     * @param others The animals which could be in sight of the fox, ordered by their index.
+     * @param indexed True if the prey is looked up in the {@link #preyIndex}, which finds the same prey as looking through others.
+     */
+    private void interactAsHunter(Fox fox, List<Animal> others, boolean indexed){
+        fox.stopHunting();
+        // one query for the nearest prey, instead of comparing the fox with every prey around it
+        if(fox.getAnimalAttributes().state() == AnimalState.HUNGRY) fox.handleHunger((Bunny) (indexed ? nearestIn(preyIndex, fox) : fox.nearestOf(others, fox.getSpecies().prey())));
+        fox.courtMate();
+        fox.stopMating(fox.getUsingThisMate());
+    }
+
+    /**
+     * (private) Sorts the living animals of the passed species into the passed index, in the order of the animal list.
+     * <p>
+     * Note: Only one species takes its turns at a time, so the indexed animals keep their positions until the next species (animals caught in the meantime are skipped by the queries).
+     * @param index The {@link #preyIndex} or the {@link #predatorIndex}.
+     * @param species The bits of the species to be indexed (see {@link Species#prey()}).
+     */
+    private void buildIndex(NearestIndex index, long species){
+        int count = 0;
+        for(int id = 0; id < registry.size(); id++){
+            if((species & 1L << id) == 0) continue;
+            for(int i = pool.start(id); i < pool.end(id); i++){
+                Animal animal = animals.get(i);
+                if(animal.isDead()) continue;
+                if(count == indexedIds.length){
+                    int length = Math.max(64, count * 2);
+                    indexedIds = Arrays.copyOf(indexedIds, length);
+                    indexedX = Arrays.copyOf(indexedX, length);
+                    indexedY = Arrays.copyOf(indexedY, length);
+                }
+                indexedIds[count] = i;
+                indexedX[count] = animal.getX();
+                indexedY[count] = animal.getY();
+                count++;
+            }
+        }
+        index.build(count, indexedIds, indexedX, indexedY);
+    }
+
+    /**
+     * (private) Looks up the nearest living animal in sight of the passed animal in the passed index.
+     * @return The animal, or null if none is in sight.
+     */
+    private Animal nearestIn(NearestIndex index, Animal animal){
+        int nearest = index.nearest(animal.getX(), animal.getY(), animal.getSightRange(), dead);
+        return nearest < 0 ? null : animals.get(nearest);
+    }
+
+    /**
+     * (package-private) Lets every resource regenerate and be used once per tick, skipping the idle resources, which wouldn't change.
+     * <p>
+     * Note: The resources don't depend on each other, so they don't have to be handled in the order of the resource list.
+     */
+    void regenerateResources(){
+        resourceUpdates += regenerating.size();
+        for(Resource resource : regenerating){
+            resource.regenerate();
+            resource.usage();
+        }
+        regenerating.removeIf(Resource::isIdle);
+    }
+
+    /**
+     * (private) Parks the passed animal after its turn, if it rests for a while (see {@link Animal#quietTicks()}).
+     * <p>
+     * Note: A mating pair is parked together by the partner with the higher index, whose turn comes last, until the first of both stops resting,
+     * because the first one to stop mating also changes the other one.
+     * @param animal The animal which just took its turn.
+     */
+    private void park(Animal animal){
+        int quiet = animal.quietTicks();
+        if(quiet < MIN_PARKED_TICKS) return;
+
+        Animal mate = animal.getUsingThisMate();
+        if(animal.getAnimalAttributes().mating()){
+            if(mate.getIndex() > animal.getIndex() || mate.isParked()) return;
+            quiet = Math.min(quiet, mate.quietTicks());
+            // foxes moved since the turn of the mate, which the mate would see in its next turn
+            if(quiet < MIN_PARKED_TICKS || (mate.getSpecies().predators() != 0 && predatorInSight(mate))) return;
+            mate.park(tick, tick + quiet + 1, width, height);
+            parked.schedule(mate, tick + quiet + 1);
+        }
+        animal.park(tick, tick + quiet + 1, width, height);
+        parked.schedule(animal, tick + quiet + 1);
+    }
+
+    /**
+     * (private) Checks if the passed bunny could see an animal of a species hunting it from its position.
+     */
+    private boolean predatorInSight(Animal bunny){
+        for(Animal other : neighbors == null ? animals : neighbors.of(bunny))
+            if(bunny.getSpecies().fears(other.getSpecies()) && Math.hypot(other.getX() - bunny.getX(), other.getY() - bunny.getY()) <= bunny.getSightRange() + 1) return true;
+        return false;
+    }
+
+    /**
+     * (private) Wakes every parked animal up, which the passed hunter preys on and which could see it from its position, so it can dodge the hunter in its next turn.
+     * <p>
+     * Note: A fox only moves during its own turn, which is where this method is called, so every position of a fox a parked bunny could see is checked.
+     * @param fox The fox which just moved.
+     * @param others The animals which could be in sight of the fox.
+     */
+    private void wakePreyInSight(Animal fox, List<Animal> others){
+        for(Animal other : others)
+            if(other.isParked() && fox.getSpecies().hunts(other.getSpecies()) && Math.hypot(other.getX() - fox.getX(), other.getY() - fox.getY()) <= other.getSightRange() + 1) other.wake();
+    }
+
+    /**
+     * (private) Derives the seed of the source of randomness of the animal with the passed id from the {@link #seed} of this simulation.
+     * <p>
+     * Note: The seed and the id are mixed (splitmix64 finalizer), since {@link Random} instances with neighbouring seeds start with similar values.
+     * @param id The id of the animal the randomness is created for.
+     * @return A seed for its {@link SimRandom}, which is unique for this simulation and id.
+     */
+    private long seedFor(int id){return seedFor(seed, id);}
+
+    /**
+     * (package-private) Derives the seed of the source of randomness of an animal like {@link #seedFor(int)}, for engines sharing the randomness of this model (see {@link EcsModel}).
+     * @param seed The seed of the simulation.
+     * @param id The id of the animal.
+     * @return A seed for its {@link SimRandom}.
+     */
+    static long seedFor(long seed, int id){
+        long mixed = seed + (id + 1) * 0x9E3779B97F4A7C15L;
+        mixed = (mixed ^ (mixed >>> 30)) * 0xBF58476D1CE4E5B9L;
+        mixed = (mixed ^ (mixed >>> 27)) * 0x94D049BB133111EBL;
+        return mixed ^ (mixed >>> 31);
+    }
+
+    /**
+     * (private) This method invokes other methods, based on the animals state, which handle hunger and thirst, and decides the state afterwards.
      * @param animal The animal whose state should be handled.
-     * @param resource The resource which is used for handling the animals hunger/thirst.
+     * @param resource The resource which is used for handling the animals hunger/thirst, or null if there is none to handle.
      */
     private void handleStates(Animal animal, Resource resource){
-        if(animal.getAnimalAttributes().state() == AnimalState.HUNGRY && animal instanceof Bunny bunny) bunny.handleHunger(resource);
-        else if(animal.getAnimalAttributes().state() == AnimalState.THIRSTY) animal.handleThirst(resource);
+        handleNeeds(animal, resource);
         animal.decideState();
     }
 
+    /**
+     * (private) Lets the passed animal handle its hunger or thirst with the passed resource, based on its state, without deciding the state.
+     * @param animal The animal whose needs should be handled.
+     * @param resource The resource which is used for handling the animals hunger/thirst, or null if there is none to handle.
+     */
+    private void handleNeeds(Animal animal, Resource resource){
+        // an animal which just stopped using its resource still has the old state, it mustn't take a resource again before the state is decided
+        if(resource != null && animal.getAnimalAttributes().state() == AnimalState.HUNGRY && animal.getSpecies().grazes()){ if(animal.getHunger() > 0) ((Bunny) animal).handleHunger(resource); }
+        else if(resource != null && animal.getAnimalAttributes().state() == AnimalState.THIRSTY && animal.getThirst() > 0) animal.handleThirst(resource);
+    }
+
+    /**
+     * (private) Chooses the one resource the passed animal has to be handled with: the resource it already uses or moves to,
+     * otherwise the nearest resource of the type it needs (see {@link #nearestResource(boolean, Animal)}).
+     * @param animal The animal whose resource is needed.
+     * @return The resource to handle, or null if the animal needs none (or its need is already met) or there is none in range.
+     */
+    private Resource resourceFor(Animal animal){
+        if(animal.getUsingThisResource() != null) return animal.getUsingThisResource();
+
+        // the need is met if the animal just stopped using its resource, until its state is decided
+        if(animal.getState() == AnimalState.HUNGRY && animal.getSpecies().grazes()) return animal.getHunger() > 0 ? nearestResource(false, animal) : null;
+        if(animal.getState() == AnimalState.THIRSTY && animal.getThirst() > 0) return nearestResource(true, animal);
+        return null;
+    }
+
+    /**
+     * (private) Looks up the nearest free resource of the passed type for the passed animal. If there is none in sight, the animal waits for the nearest reserved resource in sight
+     * (see {@link ResourceReservation}), instead of wandering off while the resources around it are only reserved.
+     * <p>
+     * Every animal remembers when nothing was in sight (see {@link ResourceCache}), which lets most of the lookups of thirsty and hungry animals wandering around be skipped.
+     * <p>
+     * Note: The workers of the {@link #shards} change the epochs of the field at the same time, so sharded simulations don't use the cache (which gives the same simulation)
+     * and don't count their lookups.
+     */
+    private Resource nearestResource(boolean water, Animal animal){
+        boolean cached = useResourceCache && shards == null;
+        if(cached && animal.getResourceCache().holds(water, animal, resourceField)){
+            resourceCacheHits++;
+            return null;
+        }
+        if(shards == null) resourceLookups++;
+        if(cached){
+            // nothing the animal could reserve is in sight, the lookup below would only give a resource out of sight, which the animal doesn't handle
+            Resource candidate = resourceField.nearestReservable(water, animal.getX(), animal.getY());
+            if(candidate == null || Math.hypot(candidate.getX() - animal.getX(), candidate.getY() - animal.getY()) >= animal.getSightRange()){
+                animal.getResourceCache().store(water, animal, candidate, resourceField);
+                return null;
+            }
+        }
+        Resource free = resourceField.nearest(water, animal.getX(), animal.getY());
+        if(free != null && Math.hypot(free.getX() - animal.getX(), free.getY() - animal.getY()) < animal.getSightRange()) return free;
+        Resource reserved = resourceField.nearestReserved(water, animal.getX(), animal.getY(), animal.getSightRange());
+        return reserved != null ? reserved : free;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -231,7 +979,14 @@ public class EcoModel implements IEcoModel, Runnable{
     /**
      * {@inheritDoc}
      */
-    @Override public ArrayList<Animal> getAnimalList() {return new ArrayList<>(this.animals);}
+    @Override public ArrayList<Animal> getAnimalList() {
+        catchUpParked();
+        return new ArrayList<>(this.animals);
+    }
+    /**
+     * {@inheritDoc}
+     */
+    @Override public PositionSnapshot getPositionSnapshot() {return this.positionSnapshot;}
     /**
      * {@inheritDoc}
      */
@@ -0,0 +1,248 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Class that simulates the same ecosystem as {@link EcoModel} with an entity-component-system engine: every animal is an entity, whose values are stored
+ * in one dense array per component (see {@link EcsWorld}), and the rules of the animals are systems working on these arrays (see {@link EcsSystems}).
+ * <p>
+ * The engine applies the same rules in the same order with the same randomness, so it gives exactly the same run as an {@link EcoModel} with the same size and seed.
+ * It creates no object per animal or per access (like {@link Animal#getAnimalAttributes()}), and a turn reads the values of its neighbors from a few arrays
+ * instead of from objects spread over the heap, which makes it faster for large populations.
+ * <p>
+ * Example usage:
+ * <pre>{@code
+ * // the controller works with either engine
+ * IEcoModel model = new EcsModel(1000, 1000);
+ * model.startNewSim(25, 5, 100, 100);
+ * model.startEcoSimulationThread();
+ * }</pre>
+ * Note: The engine always uses neighbor lists, the {@link ResourceField} and reordering, the switches of {@link EcoModel} kept for benchmarks aren't supported.
+ * @author Sleman Kakar
+ */
+public class EcsModel implements IEcoModel, Runnable {
+    // the tick time percentiles are taken over the last second at the fastest speed
+    private static final int TIMED_TICKS = 1000;
+    private final EcsSystems systems;
+    private final int width, height;
+    // created when it is started, so no other thread sees this model before its constructor finished
+    private Thread ecoSimulationThread;
+    private boolean runSim, inPerformance, publishSnapshots;
+    // replaced after every tick of the simulation thread, the reference is the only state shared with the drawing thread
+    private volatile PositionSnapshot positionSnapshot;
+    private final TickTimes tickTimes = new TickTimes(TIMED_TICKS);
+    private int simulationSpeed = 10;
+
+    /**
+     * Constructs a new EcsModel with the specified width and height for the ecosystem.
+     * @param width The width of the ecosystem.
+     * @param height The height of the ecosystem.
+     */
+    public EcsModel(int width, int height){this(width, height, new Random().nextLong());}
+
+    /**
+     * Constructs a new EcsModel with the specified width and height for the ecosystem, whose randomness is derived from the passed seed.
+     * <p>
+     * Note: An {@link EcoModel} with the same size and seed, which is started with the same values and advanced the same number of ticks, ends up with the same animals.
+     * @param width The width of the ecosystem.
+     * @param height The height of the ecosystem.
+     * @param seed The seed every random decision of this simulation is derived from.
+     */
+    public EcsModel(int width, int height, long seed){
+        this.width = width;
+        this.height = height;
+        this.systems = new EcsSystems(width, height, seed);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void startNewSim(int initialBunnies, int initialFoxes, int initialWaterSources, int initialGrassSources){
+        // the bunnies are the first and the foxes the second species of the registry, further species start without animals
+        int[] initialAnimals = new int[systems.registry().size()];
+        initialAnimals[0] = initialBunnies;
+        if(initialAnimals.length > 1) initialAnimals[1] = initialFoxes;
+        startNewSim(initialAnimals, initialWaterSources, initialGrassSources);
+    }
+
+    /**
+     * (package-private) Initializes a new simulation with the passed number of animals of every species of the registry (see {@link #setSpecies(SpeciesRegistry)}).
+     * @param initialAnimals The number of animals of every species, in the order of their ids.
+     * @param initialWaterSources The number of water sources.
+     * @param initialGrassSources The number of grass sources.
+     */
+    void startNewSim(int[] initialAnimals, int initialWaterSources, int initialGrassSources){
+        systems.start(initialAnimals, initialWaterSources, initialGrassSources);
+        publishSnapshot();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clearOldSim() {
+        boolean cleared = false;
+        while (!cleared){
+            if(!inPerformance){
+                systems.clear();
+                positionSnapshot = null;
+                runSim = false;
+                simulationSpeed = 10;
+                cleared = true;
+            }
+        }
+    }
+
+    /**
+     * (private) Advances the simulation by one tick, if the simulation is currently running.
+     */
+    private void nextPerformance(){
+        if(!runSim) return;
+        long start = System.nanoTime();
+        simulateTick();
+        tickTimes.record(System.nanoTime() - start);
+    }
+
+    /**
+     * (package-private) Advances the simulation by one tick, like {@link EcoModel#simulateTick()} it ignores the running flag.
+     */
+    void simulateTick(){
+        inPerformance = true;
+        systems.tick();
+        if(publishSnapshots) publishSnapshot();
+        inPerformance = false;
+    }
+
+    /**
+     * (package-private) Publishes the positions of the animals after the current tick, the previous snapshot becomes the start of the interpolation.
+     */
+    void publishSnapshot(){positionSnapshot = new PositionSnapshot(systems.world(), systems.getTick(), System.nanoTime(), positionSnapshot);}
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Note: This thread should invoke a method which, goes through every action animals and resources can make to iteratively work through the simulation (e.g. {@link #nextPerformance()})
+     */
+    @Override
+    public void run() {
+        runSim = true;
+        publishSnapshots = true;
+
+        while (true){
+            nextPerformance();
+            try {Thread.sleep(simulationSpeed);}
+            catch (InterruptedException e) {System.err.println("A thread is currently running" + e.getMessage());}
+        }
+    }
+
+    /**
+     * (package-private) Sets the species of the animals (see {@link EcoModel#setSpecies(SpeciesRegistry)}).
+     * <p>
+     * Note: This method has to be called before {@link #startNewSim(int[], int, int)}.
+     * @param registry The species, by default bunnies and foxes ({@link SpeciesRegistry#STANDARD}).
+     */
+    void setSpecies(SpeciesRegistry registry){systems.setSpecies(registry);}
+
+    //getter for tests and benchmarks
+    EcsWorld getWorld(){return systems.world();}
+    //getter for headless runs
+    long getTick(){return systems.getTick();}
+    //getter for benchmarks
+    int getNeighborListRebuilds(){return systems.world().getRebuilds();}
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override public int getSimulationSpeed(){return this.simulationSpeed;}
+    /**
+     * {@inheritDoc}
+     */
+    @Override public long getTimedTicks(){return tickTimes.getCount();}
+    /**
+     * {@inheritDoc}
+     */
+    @Override public double getTickTimePercentile(double percentile){return tickTimes.percentileMillis(percentile);}
+    /**
+     * {@inheritDoc}
+     */
+    @Override public boolean isEcoSimulationThreadAlive() {return ecoSimulationThread != null && ecoSimulationThread.isAlive();}
+    /**
+     * {@inheritDoc}
+     */
+    @Override public void startEcoSimulationThread() {
+        if (ecoSimulationThread != null) return;
+        ecoSimulationThread = new Thread(this);
+        ecoSimulationThread.start();
+    }
+    /**
+     * {@inheritDoc}
+     */
+    @Override public void playEcoSimulationThread(boolean runSim) { if (isEcoSimulationThreadAlive()) this.runSim = runSim;}
+    /**
+     * {@inheritDoc}
+     */
+    @Override public void setSimulationSpeed(int simulationSpeed){ this.simulationSpeed = simulationSpeed; }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override public int getAnimalCountOf(boolean getHerbivore) {
+        int count = 0;
+        for(int species = 0; species < systems.registry().size(); species++) if(systems.registry().get(species).grazes() == getHerbivore) count += systems.world().count(species);
+        return count;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override public ArrayList<Resource> getResourceList() {return new ArrayList<>(systems.resources());}
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Note: The entities aren't objects, so the list holds copies of them, which aren't changed by later ticks and don't refer to their mates.
+     * Every copy gets the state of the randomness of its entity, so it draws the same values as the entity would.
+     */
+    @Override public ArrayList<Animal> getAnimalList() {
+        EcsWorld world = systems.world();
+        var animals = new ArrayList<Animal>(world.size);
+        for(int i = 0; i < world.size; i++){
+            Species species = world.species[i];
+            var random = new SimRandom(0);
+            Animal copy = species.grazes() ? new Bunny(species, world.id[i], species.sightRange(), world.x[i], world.y[i], random)
+                                           : new Fox(species, world.id[i], species.sightRange(), world.x[i], world.y[i], random);
+            // the constructor draws a direction, afterwards the copy draws what the entity would draw next
+            random.setState(world.random[i]);
+            copy.setVxAndVy(world.vx[i], world.vy[i]);
+            copy.setHunger(world.hunger[i]);
+            copy.setThirst(world.thirst[i]);
+            copy.setMatingUrge(world.matingUrge[i]);
+            copy.setState(world.state[i]);
+            if(world.is(i, EcsWorld.DEAD)) copy.setDead();
+            copy.setEating(world.is(i, EcsWorld.EATING));
+            copy.setDrinking(world.is(i, EcsWorld.DRINKING));
+            copy.setObjectiveInSight(world.is(i, EcsWorld.OBJECTIVE));
+            copy.setThinking(world.is(i, EcsWorld.THINKING));
+            copy.setMating(world.is(i, EcsWorld.MATING));
+            copy.setPregnant(world.is(i, EcsWorld.PREGNANT));
+            copy.setUsingThisResource(world.resource[i]);
+            animals.add(copy);
+        }
+        return animals;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override public PositionSnapshot getPositionSnapshot() {return this.positionSnapshot;}
+    /**
+     * {@inheritDoc}
+     */
+    @Override public int getWidth() {return this.width;}
+    /**
+     * {@inheritDoc}
+     */
+    @Override public int getHeight() {return this.height;}
+}
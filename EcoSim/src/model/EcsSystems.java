@@ -0,0 +1,618 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntPredicate;
+
+import static model.EcsWorld.*;
+
+/**
+ * (package-private) Class that simulates the entities of an {@link EcsWorld} with systems, each of them only reads and writes the components it needs:
+ * <pre>
+ * system      components                                   runs for
+ * Birth       Identity, Position                           the newborns of the last tick, at the start of a tick (and marks them during the turns)
+ * Death       Activity, Perception, every link             the dead entities, at the start of a tick
+ * Perception  Position, Perception                         every entity, at the start of a tick (rebuild only if some entity moved too far)
+ * Movement    Position, Velocity, Activity                 every living entity
+ * NeedsDecay  Needs, Activity                              every living entity
+ * Foraging    Position, Velocity, Needs, ResourceLink      hungry grazers and thirsty entities
+ * Fleeing     Position, Velocity, PreyLink                 the batches of species with predators, with one query of the predator index per grazer
+ * Hunting     Position, Velocity, Needs, PreyLink          the batches of hunting species, with one query of the prey index per hungry hunter
+ * Pairing     Position, Needs, Activity, MateLink          the entities ready to mate, once for all of them at the start of a tick (see {@link MatePairing})
+ * Mating      Position, Velocity, Needs, MateLink          every living entity with a mate
+ * Regrowth    (the resources)                              every resource which isn't idle, once at the end of a tick
+ * </pre>
+ * The systems run per entity in the order of the turns, so an entity sees the entities before it after and the entities behind it before their turn,
+ * like the animals of an {@link EcoModel}. Running every system over all entities before the next system would let every entity see the others
+ * in the middle of the tick, which is a different simulation. The batches of {@link EcsWorld} still let a system skip every entity it doesn't apply to:
+ * the grazer and the hunter turns are separate loops, so hunting is never checked for a grazer and fleeing never for a hunter.
+ * <p>
+ * Every rule is the one of {@link Animal}, {@link Bunny}, {@link Fox} and {@link EcoModel} (with neighbor lists, the {@link ResourceField} and reordering),
+ * applied in the same order with the same draws, so a world gives exactly the same run as an {@link EcoModel} with the same seed.
+ */
+final class EcsSystems {
+    // the same values as in EcoModel, so the same ticks reorder and the neighbor lists are rebuilt at the same ticks
+    private static final float NEIGHBOR_SKIN = 20, MORTON_CELL = 8;
+    private static final int REORDER_INTERVAL = 100;
+    private static final double REORDER_GROWTH = 2;
+    // the same cells as in EcoModel, the cells of the predator index are as big as the largest sight range
+    private static final float PREY_CELL = 25;
+    private final EcsWorld world = new EcsWorld(NEIGHBOR_SKIN);
+    private final int width, height;
+    private final long seed;
+    private final Random random;
+    private SpeciesRegistry registry = SpeciesRegistry.STANDARD;
+    private final ArrayList<Resource> resources = new ArrayList<>();
+    private final LinkedHashSet<Resource> regenerating = new LinkedHashSet<>();
+    private ResourceField resourceField;
+    // the newborns of the current tick, which are added at the start of the next tick
+    private final ArrayList<Newborn> newborns = new ArrayList<>();
+    private double sortedGap = -1;
+    private final NearestIndex preyIndex;
+    private NearestIndex predatorIndex;
+    private final IntPredicate dead = e -> world.is(e, DEAD);
+    private int[] indexedIds = new int[0];
+    private float[] indexedX = new float[0], indexedY = new float[0];
+    private int animalId;
+    private long tick;
+
+    /**
+     * (private) A newborn waiting for the next tick, with the handle of its mother, whose neighbor list it gets.
+     */
+    private record Newborn(Species species, int id, float x, float y, long mother){}
+
+    /**
+     * (package-private) Constructor for the systems of an ecosystem with the specified size, whose randomness is derived from the passed seed like in an {@link EcoModel}.
+     * @param width The width of the ecosystem.
+     * @param height The height of the ecosystem.
+     * @param seed The seed every random decision is derived from.
+     */
+    EcsSystems(int width, int height, long seed){
+        this.width = width;
+        this.height = height;
+        this.seed = seed;
+        this.random = new Random(seed);
+        this.preyIndex = new NearestIndex(width, height, PREY_CELL);
+    }
+
+    /**
+     * (package-private) Spawns the animals and resources of a new simulation like {@link EcoModel#startNewSim(int[], int, int)}.
+     * @param initialAnimals The number of animals of every species, in the order of their ids.
+     * @param initialWaterSources The number of water sources.
+     * @param initialGrassSources The number of grass sources.
+     */
+    void start(int[] initialAnimals, int initialWaterSources, int initialGrassSources){
+        if(initialAnimals.length != registry.size()) throw new IllegalArgumentException("initialAnimals needs a number for each of the " + registry.size() + " species");
+        for(int species = 0; species < initialAnimals.length; species++){
+            Species spawned = registry.get(species);
+            for(int i = 0; i < initialAnimals[species]; i++){
+                world.add(spawned, animalId, random.nextInt(10, width - 10), random.nextInt(10, height - 10), EcoModel.seedFor(seed, animalId));
+                animalId++;
+            }
+        }
+
+        for(int i = 0; i < initialWaterSources; i++) resources.add(new Resource(true, width, height, random));
+        for(int i = 0; i < initialGrassSources; i++) resources.add(new Resource(false, width, height, random));
+        regenerating.addAll(resources);
+        resources.forEach(resource -> resource.watchUse(regenerating::add));
+
+        double maxSightRange = 0;
+        for(int i = 0; i < world.size; i++) maxSightRange = Math.max(maxSightRange, world.species[i].sightRange());
+        resourceField = new ResourceField(resources, width, height, maxSightRange);
+        predatorIndex = new NearestIndex(width, height, (float) Math.max(1, maxSightRange));
+    }
+
+    /**
+     * (package-private) Removes every entity and resource, the next simulation starts at tick 0.
+     */
+    void clear(){
+        world.clear(registry.size());
+        resources.clear();
+        regenerating.clear();
+        newborns.clear();
+        resourceField = null;
+        sortedGap = -1;
+        tick = 0;
+    }
+
+    /**
+     * (package-private) Advances the simulation by one tick, like {@link EcoModel#simulateTick()}.
+     */
+    void tick(){
+        birth();
+        // the dead give up their resources first, so the entities waiting for them get them
+        world.removeDead(this::leaveResource);
+        forgetGonePartners();
+        if(tick % REORDER_INTERVAL == 0) reorder();
+        world.updateNeighbors();
+        pairMates();
+
+        for(int species = 0; species < registry.size(); species++){
+            if(registry.get(species).grazes()) takeGrazerTurns(world.start(species), world.end(species));
+            else takeHunterTurns(world.start(species), world.end(species));
+        }
+        regenerateResources();
+        tick++;
+    }
+
+    /**
+     * (private) Birth: adds the newborns of the last tick at the end of the batches of their species and puts them into the neighbor lists of their mothers.
+     */
+    private void birth(){
+        int[] slots = new int[newborns.size()];
+        for(int i = 0; i < slots.length; i++){
+            Newborn newborn = newborns.get(i);
+            slots[i] = world.add(newborn.species(), newborn.id(), newborn.x(), newborn.y(), EcoModel.seedFor(seed, newborn.id()));
+        }
+        // after all of them are added, since adding one moves the others (the mothers are removed later, if they died)
+        for(int i = 0; i < slots.length; i++) world.addNewborn(world.indexOf(slots[i]), world.resolve(newborns.get(i).mother()));
+        newborns.clear();
+    }
+
+    /**
+     * (private) Death: lets every entity forget the links to entities which were removed, like {@link Animal#forgetGonePartners()} and its overrides.
+     */
+    private void forgetGonePartners(){
+        for(int e = 0; e < world.size; e++){
+            if(world.mate[e] != NONE && world.resolve(world.mate[e]) < 0){
+                world.mate[e] = NONE;
+                world.set(e, MATING, false);
+                if(world.resource[e] == null){
+                    world.set(e, OBJECTIVE, false);
+                    world.setRandomDirection(e);
+                }
+            }
+            if(world.prey[e] == NONE || world.resolve(world.prey[e]) >= 0) continue;
+            if(world.species[e].grazes()) forgetHunter(e);
+            else{
+                world.prey[e] = NONE;
+                if(!world.is(e, EATING)) world.set(e, OBJECTIVE, false);
+            }
+        }
+    }
+
+    /**
+     * (private) Perception: sorts the entities along a Z-order curve, if they lost too much of their order since the last sort (see {@link EcoModel}).
+     */
+    private void reorder(){
+        if(sortedGap >= 0 && world.meanGap() <= REORDER_GROWTH * sortedGap) return;
+        world.sortByMorton(MORTON_CELL);
+        sortedGap = world.meanGap();
+    }
+
+    /**
+     * (private) Lets the grazers between the passed indices take their turns: the systems every entity runs, a random change of direction, fleeing from the nearest hunter and then mating.
+     */
+    private void takeGrazerTurns(int from, int to){
+        long predators = from < to ? world.species[from].predators() : 0;
+        if(predators != 0) buildIndex(predatorIndex, predators);
+        for(int e = from; e < to; e++){
+            if(!startTurn(e)) continue;
+            randomMovement(e, 0.002);
+            if(predators != 0) flee(e, predatorIndex.nearest(world.x[e], world.y[e], world.species[e].sightRange(), dead));
+            courtMate(e);
+            stopMating(e);
+        }
+    }
+
+    /**
+     * (private) Lets the hunters between the passed indices take their turns: the systems every entity runs, hunting the nearest prey and then mating.
+     */
+    private void takeHunterTurns(int from, int to){
+        if(from < to) buildIndex(preyIndex, world.species[from].prey());
+        for(int e = from; e < to; e++){
+            if(!startTurn(e)) continue;
+            stopHunting(e);
+            Species species = world.species[e];
+            if(world.state[e] == AnimalState.HUNGRY) hunt(e, preyIndex.nearest(world.x[e], world.y[e], species.sightRange(), dead));
+            courtMate(e);
+            stopMating(e);
+        }
+    }
+
+    /**
+     * (private) Runs the systems every living entity runs in its turn: Movement, NeedsDecay, Birth and Foraging.
+     * @return False if the entity is dead and skips its turn.
+     */
+    private boolean startTurn(int e){
+        if(world.is(e, DEAD)) return false;
+        if(!world.is(e, THINKING)){
+            move(e);
+            decayNeeds(e);
+        }
+        wallCollision(e);
+        stopUsingResource(e);
+        if(world.is(e, PREGNANT)) giveBirth(e);
+        if(!resources.isEmpty()){
+            forage(e, resourceFor(e));
+            decideState(e);
+        }
+        return true;
+    }
+
+    // Movement
+
+    private void move(int e){
+        world.x[e] += world.vx[e];
+        world.y[e] += world.vy[e];
+    }
+
+    private void wallCollision(int e){
+        world.vx[e] = AnimalRules.bounce(world.vx[e], world.x[e], width);
+        world.vy[e] = AnimalRules.bounce(world.vy[e], world.y[e], height);
+    }
+
+    /**
+     * (private) Sets the speed of the passed entity towards the passed position, like {@link Animal#moveTo(float, float)}.
+     */
+    private void moveTo(int e, float x1, float y1){
+        float x = world.x[e], y = world.y[e];
+        world.vx[e] = AnimalRules.moveToVx(x, y, world.vx[e], x1, y1);
+        world.vy[e] = AnimalRules.moveToVy(x, y, x1, y1);
+    }
+
+    private void stopMoving(int e){world.vx[e] = world.vy[e] = 0;}
+
+    /**
+     * (private) Lets a grazer turn around and stop to ponder from time to time, like {@link Bunny#randomBunnyMovement(double)}.
+     */
+    private void randomMovement(int e, double changeDirectionProbability){
+        if(world.is(e, EATING) || world.is(e, DRINKING) || world.is(e, MATING)) return;
+
+        if(!world.is(e, OBJECTIVE) && !world.is(e, THINKING) && world.nextDouble(e, 0, 1) < changeDirectionProbability){
+            world.set(e, THINKING, true);
+            world.vx[e] = world.vx[e] * -1;
+        }else if(!world.is(e, OBJECTIVE) && !world.is(e, THINKING) && world.nextDouble(e, 0, 1) < changeDirectionProbability){
+            world.set(e, THINKING, true);
+            world.vy[e] = world.vy[e] * -1;
+        }
+
+        if(world.ponder[e] >= world.nextInt(e, 200, 250)){
+            world.set(e, THINKING, false);
+            world.ponder[e] = 0;
+        }
+        if(world.is(e, THINKING)) world.ponder[e]++;
+    }
+
+    // NeedsDecay
+
+    private void decayNeeds(int e){
+        Species species = world.species[e];
+        boolean eating = world.is(e, EATING), drinking = world.is(e, DRINKING), mating = world.is(e, MATING);
+        world.thirst[e] = AnimalRules.thirst(world.thirst[e], species, eating, drinking, mating);
+        world.hunger[e] = AnimalRules.hunger(world.hunger[e], species, eating, drinking, mating);
+        world.matingUrge[e] = AnimalRules.matingUrge(world.matingUrge[e], species, mating);
+    }
+
+    /**
+     * (private) Decides the state and whether the entity died of hunger or thirst, like {@link Animal#decideState()}.
+     */
+    private void decideState(int e){
+        double hunger = world.hunger[e], thirst = world.thirst[e];
+        world.set(e, DEAD, AnimalRules.dies(hunger, thirst));
+        world.state[e] = AnimalRules.nextState(world.state[e], hunger, thirst);
+    }
+
+    // Birth
+
+    /**
+     * (private) Lets a pregnant entity give birth to as many newborns as the litter size of its species, which are added in the next tick.
+     */
+    private void giveBirth(int e){
+        Species species = world.species[e];
+        for(int i = 0; i < species.litterSize(); i++){
+            newborns.add(new Newborn(species, animalId, world.x[e], world.y[e], world.handle(e)));
+            animalId++;
+        }
+        world.set(e, PREGNANT, false);
+    }
+
+    // Foraging
+
+    /**
+     * (private) Chooses the resource the entity has to be handled with, like {@link EcoModel} does with the {@link ResourceField}.
+     */
+    private Resource resourceFor(int e){
+        if(world.resource[e] != null) return world.resource[e];
+        if(world.state[e] == AnimalState.HUNGRY && world.species[e].grazes()) return world.hunger[e] > 0 ? nearestResource(e, false) : null;
+        if(world.state[e] == AnimalState.THIRSTY && world.thirst[e] > 0) return nearestResource(e, true);
+        return null;
+    }
+
+    /**
+     * (private) Looks up the nearest free resource in sight, otherwise the nearest reserved one to wait for, like {@link EcoModel}.
+     */
+    private Resource nearestResource(int e, boolean water){
+        double sightRange = world.species[e].sightRange();
+        Resource free = resourceField.nearest(water, world.x[e], world.y[e]);
+        if(free != null && Math.hypot(free.getX() - world.x[e], free.getY() - world.y[e]) < sightRange) return free;
+        Resource reserved = resourceField.nearestReserved(water, world.x[e], world.y[e], sightRange);
+        return reserved != null ? reserved : free;
+    }
+
+    /**
+     * (private) Lets a hungry grazer or a thirsty entity move to, use or give up the passed resource, like {@link Animal#handleResource(Resource, boolean)}.
+     */
+    private void forage(int e, Resource resource){
+        if(resource == null) return;
+        boolean water;
+        if(world.state[e] == AnimalState.HUNGRY && world.species[e].grazes()) water = false;
+        else if(world.state[e] == AnimalState.THIRSTY) water = true;
+        else return;
+        if(resource.isWater() != water) return;
+        int id = world.id[e];
+        if(resource.getUnusable()){
+            // a depleted resource which is only reserved is given up
+            if(resource == world.resource[e] && !world.is(e, DRINKING) && !world.is(e, EATING)) giveUpResource(e);
+            return;
+        }
+
+        double distanceToResource = Math.hypot(resource.getX() - world.x[e], resource.getY() - world.y[e]);
+        if(world.species[e].sightRange() > distanceToResource && !world.is(e, OBJECTIVE) && resource.reserve(id)){
+            world.resource[e] = resource;
+            world.set(e, OBJECTIVE, true);
+            moveTo(e, resource.getX(), resource.getY());
+        }
+
+        Resource used = world.resource[e];
+        if(used != null && used.isCurrentlyInUse() && (!world.is(e, DRINKING) && resource.isWater()) ^ (!world.is(e, EATING) && !resource.isWater()) && !used.isWaiting(id)) giveUpResource(e);
+
+        used = world.resource[e];
+        if(used != null && world.is(e, OBJECTIVE) && Math.hypot(used.getX() - world.x[e], resource.getY() - world.y[e]) <= 1){
+            if(!resource.isCurrentlyInUse() && used.isReservedBy(id)){
+                stopMoving(e);
+                world.set(e, used.isWater() ? DRINKING : EATING, true);
+                used.setCurrentlyInUse(true);
+            }
+            else if(used.isWaiting(id)) stopMoving(e);
+        }
+        if(used != null && used.isWaiting(id)) used.getReservation().waited();
+    }
+
+    private void giveUpResource(int e){
+        world.resource[e].release(world.id[e]);
+        world.resource[e] = null;
+        world.set(e, OBJECTIVE, false);
+        world.setRandomDirection(e);
+    }
+
+    /**
+     * (private) Lets the entity stop using its resource and give up its reservation, like {@link Animal#leaveResource()}.
+     */
+    private void leaveResource(int e){
+        Resource used = world.resource[e];
+        if(used == null) return;
+        if(world.is(e, used.isWater() ? DRINKING : EATING)) used.setCurrentlyInUse(false);
+        used.release(world.id[e]);
+        world.resource[e] = null;
+    }
+
+    private void stopUsingResource(int e){
+        Resource used = world.resource[e];
+        AnimalState state = world.state[e];
+        if(used != null && ((state == AnimalState.HUNGRY && world.hunger[e] <= 0) || (state == AnimalState.THIRSTY && world.thirst[e] <= 0))){
+            leaveResource(e);
+            world.set(e, DRINKING | EATING | OBJECTIVE | THINKING, false);
+            world.setRandomDirection(e);
+        }
+    }
+
+    /**
+     * (private) Regrowth: lets every resource which isn't idle regenerate and be used once, like in {@link EcoModel}.
+     */
+    private void regenerateResources(){
+        for(Resource resource : regenerating){
+            resource.regenerate();
+            resource.usage();
+        }
+        regenerating.removeIf(Resource::isIdle);
+    }
+
+    // Indices
+
+    /**
+     * (private) Sorts the living entities of the passed species into the passed index, like {@link EcoModel} before the turns of a species.
+     * @param species The bits of the species to be indexed (see {@link Species#prey()}).
+     */
+    private void buildIndex(NearestIndex index, long species){
+        int count = 0;
+        for(int id = 0; id < registry.size(); id++){
+            if((species & 1L << id) == 0) continue;
+            for(int e = world.start(id); e < world.end(id); e++){
+                if(world.is(e, DEAD)) continue;
+                if(count == indexedIds.length){
+                    int length = Math.max(64, count * 2);
+                    indexedIds = Arrays.copyOf(indexedIds, length);
+                    indexedX = Arrays.copyOf(indexedX, length);
+                    indexedY = Arrays.copyOf(indexedY, length);
+                }
+                indexedIds[count] = e;
+                indexedX[count] = world.x[e];
+                indexedY[count] = world.y[e];
+                count++;
+            }
+        }
+        index.build(count, indexedIds, indexedX, indexedY);
+    }
+
+    // Fleeing
+
+    /**
+     * (private) Lets a grazer stop running once its hunter is out of sight and run directly away from the nearest hunter in sight, like {@link Bunny#dodgeFox(Fox)}.
+     * @param nearest The nearest living hunter, -1 if there is none.
+     */
+    private void flee(int e, int nearest){
+        double sightRange = world.species[e].sightRange();
+        int hunter = world.resolve(world.prey[e]);
+        if(hunter >= 0 && sightRange < Math.hypot(world.x[hunter] - world.x[e], world.y[hunter] - world.y[e])){
+            forgetHunter(e);
+            hunter = -1;
+        }
+
+        if(hunter < 0 && nearest >= 0 && sightRange > Math.hypot(world.x[nearest] - world.x[e], world.y[nearest] - world.y[e])){
+            world.prey[e] = world.handle(nearest);
+            world.state[e] = AnimalState.HUNTED;
+            world.set(e, OBJECTIVE, true);
+            // stops every action
+            leaveResource(e);
+            world.mate[e] = NONE;
+            world.set(e, MATING | THINKING | DRINKING | EATING, false);
+            float awayX = world.x[e] - world.x[nearest], awayY = world.y[e] - world.y[nearest];
+            if(awayX == 0 && awayY == 0) world.setRandomDirection(e);
+            else moveTo(e, world.x[e] + awayX, world.y[e] + awayY);
+        }
+    }
+
+    private void forgetHunter(int e){
+        world.setRandomDirection(e);
+        world.prey[e] = NONE;
+        world.set(e, OBJECTIVE, false);
+        world.state[e] = AnimalState.IDLE;
+    }
+
+    // Hunting
+
+    /**
+     * (private) Lets a hunter chase the nearest prey in sight (or the prey it chases, if that is as near) and catch it, like {@link Fox#handleHunger(Bunny)}.
+     * @param nearest The nearest living prey, -1 if there is none.
+     */
+    private void hunt(int e, int nearest){
+        double sightRange = world.species[e].sightRange();
+        int prey = world.resolve(world.prey[e]);
+        double distanceToUsedPrey = prey < 0 ? 0 : Math.hypot(world.x[prey] - world.x[e], world.y[prey] - world.y[e]);
+        if(prey >= 0 && (world.is(prey, DEAD) || sightRange < distanceToUsedPrey)) prey = -1;
+        if(nearest >= 0 && nearest != prey){
+            double distanceToPrey = Math.hypot(world.x[nearest] - world.x[e], world.y[nearest] - world.y[e]);
+            if(sightRange > distanceToPrey && (prey < 0 || distanceToUsedPrey > distanceToPrey)) prey = nearest;
+        }
+        world.prey[e] = prey < 0 ? NONE : world.handle(prey);
+
+        if(prey < 0) return;
+        world.set(e, OBJECTIVE, true);
+        moveTo(e, world.x[prey], world.y[prey]);
+        world.vx[e] = world.vx[e] * 1.1f;
+        world.vy[e] = world.vy[e] * 1.1f;
+        if(world.is(e, OBJECTIVE) && Math.hypot(world.x[prey] - world.x[e], world.y[prey] - world.y[e]) <= 5){
+            world.set(e, EATING, true);
+            world.set(prey, DEAD, true);
+            stopMoving(e);
+        }
+    }
+
+    /**
+     * (private) Lets a hunter which ate enough stop hunting, like {@link Fox#stopHunting()}.
+     */
+    private void stopHunting(int e){
+        if(world.hunger[e] <= 0 && world.is(e, EATING)){
+            world.set(e, EATING, false);
+            world.prey[e] = NONE;
+            world.hunger[e] = -1;
+            world.thirst[e] = world.thirst[e] - 20;
+            world.set(e, OBJECTIVE, false);
+            world.setRandomDirection(e);
+        }
+    }
+
+    // Pairing
+
+    /**
+     * (private) Pairing: lets every entity whose mate left it forget its mate and pairs the entities ready to mate, like {@link EcoModel} before the turns.
+     */
+    private void pairMates(){
+        int[] candidates = new int[world.size];
+        int count = 0;
+        for(int e = 0; e < world.size; e++){
+            int mate = world.resolve(world.mate[e]);
+            if(mate >= 0 && world.resolve(world.mate[mate]) != e){
+                world.mate[e] = NONE;
+                world.set(e, MATING, false);
+                if(world.resource[e] == null){
+                    world.set(e, OBJECTIVE, false);
+                    world.setRandomDirection(e);
+                }
+            }
+            if(canPair(e)) candidates[count++] = e;
+        }
+
+        int[] species = new int[count];
+        float[] x = new float[count], y = new float[count];
+        double[] sightRange = new double[count];
+        for(int i = 0; i < count; i++){
+            int e = candidates[i];
+            species[i] = world.species[e].id();
+            x[i] = world.x[e];
+            y[i] = world.y[e];
+            sightRange[i] = world.species[e].sightRange();
+        }
+        int[] partner = MatePairing.match(count, species, x, y, sightRange);
+        for(int i = 0; i < count; i++){
+            if(partner[i] <= i) continue;
+            world.mate[candidates[i]] = world.handle(candidates[partner[i]]);
+            world.mate[candidates[partner[i]]] = world.handle(candidates[i]);
+        }
+    }
+
+    /**
+     * (private) Checks if the passed entity can be paired, like {@link Animal#canPair()}.
+     */
+    private boolean canPair(int e){
+        return AnimalRules.canPair(world.is(e, DEAD), world.state[e], world.matingUrge[e], world.hunger[e], world.thirst[e], world.is(e, OBJECTIVE) || world.resolve(world.mate[e]) >= 0);
+    }
+
+    // Mating
+
+    /**
+     * (private) Lets an entity move to the mate it was paired with and start mating, once both reached each other, like {@link Animal#courtMate()}.
+     */
+    private void courtMate(int e){
+        int mate = world.resolve(world.mate[e]);
+        if(mate < 0 || world.resolve(world.mate[mate]) != e || world.is(e, MATING) || world.is(mate, MATING)) return;
+        world.set(e, OBJECTIVE, true);
+        world.set(e, THINKING, false);
+        moveTo(e, world.x[mate], world.y[mate]);
+        if(Math.hypot(world.x[mate] - world.x[e], world.y[mate] - world.y[e]) <= 10){
+            stopMoving(e);
+            stopMoving(mate);
+            world.set(e, MATING, true);
+            world.set(mate, MATING, true);
+        }
+    }
+
+    /**
+     * (private) Ends the mating of a pair once the mating urge of the passed entity is used up, which gets pregnant, like {@link Animal#stopMating(Animal)}.
+     */
+    private void stopMating(int e){
+        int mate = world.resolve(world.mate[e]);
+        if(world.matingUrge[e] > 0 || mate < 0) return;
+        world.mate[e] = NONE;
+        world.mate[mate] = NONE;
+        world.set(e, MATING | OBJECTIVE, false);
+        world.set(mate, MATING | OBJECTIVE, false);
+        world.matingUrge[e] = 0;
+        world.set(e, PREGNANT, true);
+        world.setRandomDirection(e);
+        world.setRandomDirection(mate);
+    }
+
+    /**
+     * (package-private) Sets the species of the entities (see {@link EcoModel#setSpecies(SpeciesRegistry)}), which has to be done before {@link #start(int[], int, int)}.
+     * @param registry The species.
+     */
+    void setSpecies(SpeciesRegistry registry){
+        if(world.size > 0) throw new IllegalStateException("the species can only be changed without animals");
+        world.clear(registry.size());
+        this.registry = registry;
+    }
+
+    //getter for the entities
+    EcsWorld world(){return this.world;}
+    //getter for the species
+    SpeciesRegistry registry(){return this.registry;}
+    //getter for the resources
+    List<Resource> resources(){return this.resources;}
+    //getter for the number of ticks simulated so far
+    long getTick(){return this.tick;}
+}
@@ -0,0 +1,509 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.function.IntConsumer;
+
+/**
+ * (package-private) Class that stores the animals of an {@link EcsModel} as entities: every component is a dense array and entity i has its values at index i of every array.
+ * <pre>
+ * component     arrays
+ * Identity      id, species, slot
+ * Position      x, y
+ * Velocity      vx, vy
+ * Needs         hunger, thirst, matingUrge
+ * Activity      state, flags (DEAD ... PREGNANT), ponder, random (the state of the SimRandom of the entity)
+ * MateLink      mate, the handle of the mate or NONE
+ * PreyLink      prey, the handle of the prey of a hunter or of the hunter a grazer runs away from, or NONE
+ * ResourceLink  resource, the resource the entity uses or moves to, or null
+ * Perception    neighbors, neighborCount (Verlet neighbor list of ascending indices), builtX, builtY
+ * </pre>
+ * Like the animal list of {@link AnimalPool}, the entities are split into one contiguous batch per species and are added and removed with the same moves,
+ * so they take their turns in the same order as the animals of an {@link EcoModel}. The neighbor lists are built like the ones of {@link NeighborList},
+ * but hold indices instead of animals, which are replaced whenever an entity moves to another index.
+ * An entity keeps its slot while it moves, so links to other entities are handles (generation and slot, like {@link Animal#getHandle()}).
+ * <p>
+ * Note: The systems (see {@link EcsSystems}) work directly on the arrays, which is why they are package-private fields.
+ */
+final class EcsWorld {
+    // the same bits as the flags of Animal.writeState
+    static final byte DEAD = 1, EATING = 2, DRINKING = 4, OBJECTIVE = 8, THINKING = 16, MATING = 32, PREGNANT = 64;
+    // the handle of no entity
+    static final long NONE = -1;
+    private final float skin;
+    // the index behind the last entity of every species
+    private int[] ends = new int[SpeciesRegistry.STANDARD.size()];
+    // the random source every draw of an entity goes through, loaded with the state of that entity
+    private final SimRandom draws = new SimRandom(0);
+    // the index of every slot (-1 for a free slot), how often it was reused and the free slots
+    private int[] indexOfSlot = new int[0], generation = new int[0], freeSlots = new int[0];
+    private int slots, free, rebuilds;
+    private float cutoff;
+    int size;
+
+    int[] id = new int[0], slot = new int[0], ponder = new int[0], neighborCount = new int[0];
+    Species[] species = new Species[0];
+    float[] x = new float[0], y = new float[0], vx = new float[0], vy = new float[0], builtX = new float[0], builtY = new float[0];
+    double[] hunger = new double[0], thirst = new double[0], matingUrge = new double[0];
+    AnimalState[] state = new AnimalState[0];
+    byte[] flags = new byte[0];
+    long[] random = new long[0], mate = new long[0], prey = new long[0];
+    Resource[] resource = new Resource[0];
+    int[][] neighbors = new int[0][];
+
+    /**
+     * (package-private) Constructor for an empty world, whose neighbor lists have the specified skin.
+     * @param skin The distance added to the sight range for the neighbor lists (see {@link NeighborList}). Should be a positive value.
+     */
+    EcsWorld(float skin){this.skin = skin;}
+
+    /**
+     * (package-private) Adds a new entity at the end of the batch of its species, like {@link AnimalPool#add(Animal)}, the first entity of every later batch moves to the end of its batch.
+     * The entity starts like a new animal: newborn, without needs, links or neighbor list and with a random direction drawn from its seed.
+     * @param species The species of the entity.
+     * @param id The id of the entity, which should be unique.
+     * @param x The x-position.
+     * @param y The y-position.
+     * @param seed The seed of the randomness of the entity.
+     * @return The slot of the entity, which stays the same until the entity is removed.
+     */
+    int add(Species species, int id, float x, float y, long seed){
+        int batch = species.id();
+        if(batch >= ends.length) throw new IllegalArgumentException(species.name() + " isn't a species of this world");
+        ensureCapacity(size + 1);
+        int slot = free > 0 ? freeSlots[--free] : newSlot();
+
+        int at = size++;
+        for(int later = ends.length - 1; later > batch; later--){
+            int first = ends[later - 1];
+            if(first < ends[later]){
+                move(first, at);
+                at = first;
+            }
+            ends[later]++;
+        }
+        ends[batch]++;
+
+        indexOfSlot[slot] = at;
+        this.slot[at] = slot;
+        this.id[at] = id;
+        this.species[at] = species;
+        this.x[at] = x;
+        this.y[at] = y;
+        hunger[at] = thirst[at] = matingUrge[at] = 0;
+        state[at] = AnimalState.NEWBORN;
+        flags[at] = 0;
+        ponder[at] = 0;
+        mate[at] = prey[at] = NONE;
+        resource[at] = null;
+        neighbors[at] = null;
+        draws.setSeed(seed);
+        random[at] = draws.getState();
+        setRandomDirection(at);
+        return slot;
+    }
+
+    /**
+     * (package-private) Removes every dead entity, like {@link AnimalPool#removeDead}: the last entity of its batch and of every later batch move up, and its slot is freed,
+     * which makes every handle pointing to it stale. It is removed from the neighbor lists of its neighbors first.
+     * @param removed Is called with the index of every dead entity before it is removed.
+     */
+    void removeDead(IntConsumer removed){
+        int i = 0;
+        while(i < size){
+            if((flags[i] & DEAD) == 0){
+                i++;
+                continue;
+            }
+            int gone = slot[i];
+            removed.accept(i);
+            removeFromNeighbors(i);
+            // the entity moved to i is checked in the next iteration, since it could be dead as well
+            int free = i;
+            for(int batch = species[i].id(); batch < ends.length; batch++){
+                int last = --ends[batch];
+                if(last != free) move(last, free);
+                free = last;
+            }
+            size--;
+            resource[size] = null;
+            neighbors[size] = null;
+            indexOfSlot[gone] = -1;
+            generation[gone]++;
+            freeSlots[this.free++] = gone;
+        }
+    }
+
+    /**
+     * (private) Moves the entity at index from to index to, which is free, and replaces its index in the neighbor lists (see {@link NeighborList#moved(Animal)}).
+     */
+    private void move(int from, int to){
+        id[to] = id[from];
+        slot[to] = slot[from];
+        species[to] = species[from];
+        x[to] = x[from];
+        y[to] = y[from];
+        vx[to] = vx[from];
+        vy[to] = vy[from];
+        hunger[to] = hunger[from];
+        thirst[to] = thirst[from];
+        matingUrge[to] = matingUrge[from];
+        state[to] = state[from];
+        flags[to] = flags[from];
+        ponder[to] = ponder[from];
+        random[to] = random[from];
+        mate[to] = mate[from];
+        prey[to] = prey[from];
+        resource[to] = resource[from];
+        neighbors[to] = neighbors[from];
+        neighborCount[to] = neighborCount[from];
+        builtX[to] = builtX[from];
+        builtY[to] = builtY[from];
+        neighbors[from] = null;
+        indexOfSlot[slot[to]] = to;
+
+        if(neighbors[to] == null) return;
+        // a copy is iterated, since the entity is one of its own neighbors (still under its old index)
+        for(int neighbor : Arrays.copyOf(neighbors[to], neighborCount[to])){
+            int at = neighbor == from ? to : neighbor;
+            if(neighbors[at] == null) continue;
+            removeNeighbor(at, from);
+            insertNeighbor(at, to);
+        }
+    }
+
+    /**
+     * (package-private) Inserts a newborn, which is standing on its mother's position, into the neighbor lists like {@link NeighborList#addNewborn(Animal, Animal)}.
+     * @param newborn The index of the newborn.
+     * @param mother The index of its mother.
+     * @return True if the newborn was inserted, false if the mother has no neighbor list (and the lists need to be rebuilt).
+     */
+    boolean addNewborn(int newborn, int mother){
+        if(neighbors[mother] == null) return false;
+        int count = neighborCount[mother];
+        // the copy is taken first, since the mother is one of her own neighbors
+        int[] copy = Arrays.copyOf(neighbors[mother], count + 1);
+        for(int i = 0; i < count; i++) insertNeighbor(copy[i], newborn);
+        neighbors[newborn] = copy;
+        neighborCount[newborn] = count;
+        insertNeighbor(newborn, newborn);
+        builtX[newborn] = builtX[mother];
+        builtY[newborn] = builtY[mother];
+        return true;
+    }
+
+    /**
+     * (private) Removes the entity at the passed index from the lists of all its neighbors and drops its own list.
+     */
+    private void removeFromNeighbors(int index){
+        int[] list = neighbors[index];
+        if(list == null) return;
+        neighbors[index] = null;
+        for(int i = 0; i < neighborCount[index]; i++) if(neighbors[list[i]] != null) removeNeighbor(list[i], index);
+    }
+
+    /**
+     * (private) Inserts the passed index into the neighbor list of the entity at the index at, which stays ascending.
+     */
+    private void insertNeighbor(int at, int index){
+        int[] list = neighbors[at];
+        int count = neighborCount[at];
+        int insertAt = Arrays.binarySearch(list, 0, count, index);
+        if(insertAt < 0) insertAt = -insertAt - 1;
+        if(count == list.length) neighbors[at] = list = Arrays.copyOf(list, Math.max(4, count * 2));
+        System.arraycopy(list, insertAt, list, insertAt + 1, count - insertAt);
+        list[insertAt] = index;
+        neighborCount[at] = count + 1;
+    }
+
+    /**
+     * (private) Removes the passed index from the neighbor list of the entity at the index at, if it is in there.
+     */
+    private void removeNeighbor(int at, int index){
+        int[] list = neighbors[at];
+        int count = neighborCount[at];
+        int removeAt = Arrays.binarySearch(list, 0, count, index);
+        if(removeAt < 0) return;
+        System.arraycopy(list, removeAt + 1, list, removeAt, count - removeAt - 1);
+        neighborCount[at] = count - 1;
+    }
+
+    /**
+     * (package-private) Builds all neighbor lists again, if an entity has none or some entity moved further than half the skin since the last build (see {@link NeighborList#update}).
+     */
+    void updateNeighbors(){
+        float maxDisplacement = skin / 2;
+        for(int i = 0; i < size; i++){
+            float dx = x[i] - builtX[i], dy = y[i] - builtY[i];
+            if(neighbors[i] == null || dx * dx + dy * dy > maxDisplacement * maxDisplacement){
+                rebuildNeighbors();
+                return;
+            }
+        }
+    }
+
+    /**
+     * (package-private) Builds the neighbor lists of all entities with a grid, like {@link NeighborList#rebuild}, so every list holds the same entities as the list of the same animal.
+     */
+    void rebuildNeighbors(){
+        rebuilds++;
+        double maxSightRange = 0;
+        for(int i = 0; i < size; i++) maxSightRange = Math.max(maxSightRange, species[i].sightRange());
+        cutoff = (float) maxSightRange + skin;
+
+        var cellLists = new HashMap<Long, ArrayList<Integer>>();
+        for(int i = 0; i < size; i++) cellLists.computeIfAbsent(key((int) Math.floor(x[i] / cutoff), (int) Math.floor(y[i] / cutoff)), cell -> new ArrayList<>()).add(i);
+
+        // the members of every cell with their positions copied next to each other, so they can be screened by RangeScreen.screenInRange
+        var cells = new HashMap<Long, float[][]>();
+        var members = new HashMap<Long, int[]>();
+        int largestCell = 0;
+        for(var cell : cellLists.entrySet()){
+            int[] indices = cell.getValue().stream().mapToInt(Integer::intValue).toArray();
+            float[][] positions = new float[2][indices.length];
+            for(int i = 0; i < indices.length; i++){
+                positions[0][i] = x[indices[i]];
+                positions[1][i] = y[indices[i]];
+            }
+            cells.put(cell.getKey(), positions);
+            members.put(cell.getKey(), indices);
+            largestCell = Math.max(largestCell, indices.length);
+        }
+
+        int[] inRange = new int[largestCell];
+        for(int i = 0; i < size; i++){
+            int[] list = new int[8];
+            int count = 0;
+            int cellX = (int) Math.floor(x[i] / cutoff), cellY = (int) Math.floor(y[i] / cutoff);
+            for(int dx = -1; dx <= 1; dx++)
+                for(int dy = -1; dy <= 1; dy++){
+                    long key = key(cellX + dx, cellY + dy);
+                    float[][] positions = cells.get(key);
+                    if(positions == null) continue;
+                    int[] indices = members.get(key);
+                    int found = RangeScreen.screenInRange(positions[0], positions[1], 0, indices.length, x[i], y[i], cutoff, inRange);
+                    if(count + found > list.length) list = Arrays.copyOf(list, Math.max(list.length * 2, count + found));
+                    for(int k = 0; k < found; k++) list[count++] = indices[inRange[k]];
+                }
+            Arrays.sort(list, 0, count);
+            neighbors[i] = list;
+            neighborCount[i] = count;
+            builtX[i] = x[i];
+            builtY[i] = y[i];
+        }
+    }
+
+    /**
+     * (package-private) Sorts every batch along a Z-order curve like {@link AnimalPool#sortByMorton(float)} and orders the neighbor lists by the new indices.
+     * @param cellSize The edge length of the cells of the curve. Should be a positive value.
+     */
+    void sortByMorton(float cellSize){
+        if(cellSize <= 0) throw new IllegalArgumentException("cellSize needs to be positive");
+        long[] keys = new long[size];
+        for(int i = 0; i < size; i++) keys[i] = (long) AnimalPool.morton(cell(x[i], cellSize), cell(y[i], cellSize)) << 32 | i;
+        for(int batch = 0; batch < ends.length; batch++) Arrays.sort(keys, start(batch), ends[batch]);
+
+        int[] order = new int[size], newIndex = new int[size];
+        for(int i = 0; i < size; i++){
+            order[i] = (int) keys[i];
+            newIndex[order[i]] = i;
+        }
+        id = permute(id, order);
+        slot = permute(slot, order);
+        species = permute(species, order);
+        x = permute(x, order);
+        y = permute(y, order);
+        vx = permute(vx, order);
+        vy = permute(vy, order);
+        hunger = permute(hunger, order);
+        thirst = permute(thirst, order);
+        matingUrge = permute(matingUrge, order);
+        state = permute(state, order);
+        flags = permute(flags, order);
+        ponder = permute(ponder, order);
+        random = permute(random, order);
+        mate = permute(mate, order);
+        prey = permute(prey, order);
+        resource = permute(resource, order);
+        neighbors = permute(neighbors, order);
+        neighborCount = permute(neighborCount, order);
+        builtX = permute(builtX, order);
+        builtY = permute(builtY, order);
+
+        for(int i = 0; i < size; i++){
+            indexOfSlot[slot[i]] = i;
+            if(neighbors[i] == null) continue;
+            for(int k = 0; k < neighborCount[i]; k++) neighbors[i][k] = newIndex[neighbors[i][k]];
+            Arrays.sort(neighbors[i], 0, neighborCount[i]);
+        }
+    }
+
+    /**
+     * (package-private) Calculates the mean distance between entities following each other like {@link AnimalPool#meanGap()}.
+     * @return The mean Manhattan distance between neighbouring indices, 0 for fewer than two entities.
+     */
+    double meanGap(){
+        if(size < 2) return 0;
+        double sum = 0;
+        for(int i = 1; i < size; i++) sum += Math.abs(x[i] - x[i - 1]) + Math.abs(y[i] - y[i - 1]);
+        return sum / (size - 1);
+    }
+
+    /**
+     * (package-private) Removes every entity and sets the number of species, which is the number of batches.
+     * @param species The number of species. Should be a positive value.
+     */
+    void clear(int species){
+        if(species <= 0) throw new IllegalArgumentException("species needs to be positive");
+        Arrays.fill(resource, null);
+        Arrays.fill(neighbors, null);
+        ends = new int[species];
+        size = slots = free = 0;
+    }
+
+    /**
+     * (package-private) Gives the passed entity a random direction like {@link Animal#setRandomDirection()}.
+     * @param entity The index of the entity.
+     */
+    void setRandomDirection(int entity){
+        draws.setState(random[entity]);
+        vx[entity] = (draws.nextFloat() >= 0.5) ? 1 : -1;
+        vy[entity] = (draws.nextFloat() >= 0.5) ? 1 : -1;
+        random[entity] = draws.getState();
+    }
+
+    /**
+     * (package-private) Draws a value from the randomness of the passed entity like {@link java.util.Random#nextDouble(double, double)}.
+     * @param entity The index of the entity.
+     * @param origin The smallest value.
+     * @param bound The bound of the values.
+     * @return The value.
+     */
+    double nextDouble(int entity, double origin, double bound){
+        draws.setState(random[entity]);
+        double value = draws.nextDouble(origin, bound);
+        random[entity] = draws.getState();
+        return value;
+    }
+
+    /**
+     * (package-private) Draws a value from the randomness of the passed entity like {@link java.util.Random#nextInt(int, int)}.
+     * @param entity The index of the entity.
+     * @param origin The smallest value.
+     * @param bound The bound of the values.
+     * @return The value.
+     */
+    int nextInt(int entity, int origin, int bound){
+        draws.setState(random[entity]);
+        int value = draws.nextInt(origin, bound);
+        random[entity] = draws.getState();
+        return value;
+    }
+
+    //getter for whether the passed entity has all passed flags
+    boolean is(int entity, int flag){return (flags[entity] & flag) == flag;}
+    //setter for the passed flags of the passed entity
+    void set(int entity, int flag, boolean on){flags[entity] = (byte) (on ? flags[entity] | flag : flags[entity] & ~flag);}
+    //getter for the handle of the passed entity, which becomes stale once the entity is removed
+    long handle(int entity){return (long) generation[slot[entity]] << 32 | slot[entity];}
+
+    /**
+     * (package-private) Finds the entity a handle points to.
+     * @param handle The handle, or {@link #NONE}.
+     * @return The index of the entity, or -1 for {@link #NONE} or an entity which was removed since the handle was taken.
+     */
+    int resolve(long handle){
+        if(handle == NONE) return -1;
+        int slot = (int) handle;
+        return generation[slot] == (int) (handle >>> 32) ? indexOfSlot[slot] : -1;
+    }
+
+    //getter for the index of the entity in the passed slot, -1 for a free slot
+    int indexOf(int slot){return this.indexOfSlot[slot];}
+    //getter for the index of the first entity of the species with the passed id
+    int start(int species){return species == 0 ? 0 : this.ends[species - 1];}
+    //getter for the index behind the last entity of the species with the passed id
+    int end(int species){return this.ends[species];}
+    //getter for the number of entities of the species with the passed id
+    int count(int species){return end(species) - start(species);}
+    //getter for benchmarks
+    int getRebuilds(){return this.rebuilds;}
+
+    /**
+     * (private) Takes a new slot, the slot arrays grow with the number of slots.
+     */
+    private int newSlot(){
+        if(slots == indexOfSlot.length){
+            int length = Math.max(16, slots * 2);
+            indexOfSlot = Arrays.copyOf(indexOfSlot, length);
+            generation = Arrays.copyOf(generation, length);
+            freeSlots = Arrays.copyOf(freeSlots, length);
+        }
+        return slots++;
+    }
+
+    /**
+     * (private) Lets every component array grow to at least the passed number of entities.
+     */
+    private void ensureCapacity(int entities){
+        if(entities <= x.length) return;
+        int length = Math.max(16, Math.max(entities, x.length * 2));
+        id = Arrays.copyOf(id, length);
+        slot = Arrays.copyOf(slot, length);
+        species = Arrays.copyOf(species, length);
+        x = Arrays.copyOf(x, length);
+        y = Arrays.copyOf(y, length);
+        vx = Arrays.copyOf(vx, length);
+        vy = Arrays.copyOf(vy, length);
+        hunger = Arrays.copyOf(hunger, length);
+        thirst = Arrays.copyOf(thirst, length);
+        matingUrge = Arrays.copyOf(matingUrge, length);
+        state = Arrays.copyOf(state, length);
+        flags = Arrays.copyOf(flags, length);
+        ponder = Arrays.copyOf(ponder, length);
+        random = Arrays.copyOf(random, length);
+        mate = Arrays.copyOf(mate, length);
+        prey = Arrays.copyOf(prey, length);
+        resource = Arrays.copyOf(resource, length);
+        neighbors = Arrays.copyOf(neighbors, length);
+        neighborCount = Arrays.copyOf(neighborCount, length);
+        builtX = Arrays.copyOf(builtX, length);
+        builtY = Arrays.copyOf(builtY, length);
+    }
+
+    // the permutations of sortByMorton, entity i takes the values of entity order[i] (the arrays keep their length)
+    private int[] permute(int[] values, int[] order){
+        int[] sorted = values.clone();
+        for(int i = 0; i < size; i++) sorted[i] = values[order[i]];
+        return sorted;
+    }
+    private long[] permute(long[] values, int[] order){
+        long[] sorted = values.clone();
+        for(int i = 0; i < size; i++) sorted[i] = values[order[i]];
+        return sorted;
+    }
+    private float[] permute(float[] values, int[] order){
+        float[] sorted = values.clone();
+        for(int i = 0; i < size; i++) sorted[i] = values[order[i]];
+        return sorted;
+    }
+    private double[] permute(double[] values, int[] order){
+        double[] sorted = values.clone();
+        for(int i = 0; i < size; i++) sorted[i] = values[order[i]];
+        return sorted;
+    }
+    private byte[] permute(byte[] values, int[] order){
+        byte[] sorted = values.clone();
+        for(int i = 0; i < size; i++) sorted[i] = values[order[i]];
+        return sorted;
+    }
+    private <T> T[] permute(T[] values, int[] order){
+        T[] sorted = values.clone();
+        for(int i = 0; i < size; i++) sorted[i] = values[order[i]];
+        return sorted;
+    }
+
+    private static int cell(float position, float cellSize){return (int) Math.max(0, Math.min(0x7FFF, position / cellSize));}
+    private static long key(int cellX, int cellY){return ((long) cellX << 32) | (cellY & 0xFFFFFFFFL);}
+}
@@ -1,31 +1,61 @@
 package model;
 
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
 /**
  * (package-private) Class that represents a Fox, a specific implementation of {@link Animal}.
+ * <p>
+ * Every {@link Species} hunting other species is simulated as a fox, its prey are always simulated as bunnies.
  */
 class Fox extends Animal {
     private Bunny usingThisPrey;
+    private long preyHandle;
 
     /**
-     * (package-private) Constructor for a new Fox with the specified parameters, furthermore sets its herbivore flag false.
+     * (package-private) Constructor for a new Fox with the specified parameters, furthermore sets its species to {@link Species#FOX}.
      * @param id Assigns ID number, which should be unique.
      * @param sightRange Assigns the range a bunny can "look". Should be a positive value.
      * @param x Assigns the initial spawn position on the x-axis.
      * @param y Assigns the initial spawn position on the y-axis.
      */
-    Fox (int id, double sightRange, float x, float y) {super(id, sightRange, x, y, false);}
+    Fox (int id, double sightRange, float x, float y) {super(id, sightRange, x, y, Species.FOX);}
+
+    /**
+     * (package-private) Constructor for a new Fox with the specified parameters and its own source of randomness, furthermore sets its species to {@link Species#FOX}.
+     * @param id Assigns ID number, which should be unique.
+     * @param sightRange Assigns the range a fox can "look". Should be a positive value.
+     * @param x Assigns the initial spawn position on the x-axis.
+     * @param y Assigns the initial spawn position on the y-axis.
+     * @param random The source of randomness used for every random decision of this fox.
+     */
+    Fox (int id, double sightRange, float x, float y, Random random) {super(id, sightRange, x, y, Species.FOX, random);}
+
+    /**
+     * (package-private) Constructor for a new animal of the passed species, which hunts, with its own source of randomness.
+     * @param species The species of the animal. Should be a species hunting other species (see {@link Species#grazes()}).
+     * @param id Assigns ID number, which should be unique.
+     * @param sightRange Assigns the range the animal can "look", usually the sight range of its species. Should be a positive value.
+     * @param x Assigns the initial spawn position on the x-axis.
+     * @param y Assigns the initial spawn position on the y-axis.
+     * @param random The source of randomness used for every random decision of this animal.
+     */
+    Fox (Species species, int id, double sightRange, float x, float y, Random random) {
+        super(id, sightRange, x, y, species, random);
+        if(species.grazes()) throw new IllegalArgumentException(species.name() + " doesn't hunt");
+    }
 
     /**
-     * (package-private) Handles hunting behavior of a fox, if a {@link Bunny}, is in sight of the fox.
+     * (package-private) Handles hunting behavior of a fox, with the nearest {@link Bunny} in sight of the fox (see {@link NearestIndex}).
      * The Method also contains the eating behavior of the fox, which is activated when the prey is caught.
      * <p>
      * Note: This function should only be called with restrictions based on its {@link AnimalState}, unless the fox should be hunting constantly.
-     * @param bunny The prey to be handled.
+     * @param bunny The nearest living prey of the fox, or null if there is none. It is only hunted if it is in sight of the fox.
      */
     void handleHunger(Bunny bunny){
-        double distanceToPrey = Math.hypot(bunny.getAnimalAttributes().x() - getAnimalAttributes().x(), bunny.getAnimalAttributes().y() - getAnimalAttributes().y());
-
-        findPrey(bunny, distanceToPrey);
+        findPrey(bunny);
 
         // if prey is found try to catch it
         if(usingThisPrey != null){
@@ -53,7 +83,7 @@ class Fox extends Animal {
 
             setEating(false);
 
-            usingThisPrey = null;
+            setUsingThisPrey(null);
             setHunger(-1);
 
             setThirst(getAnimalAttributes().thirst() - 20);
@@ -64,27 +94,77 @@ class Fox extends Animal {
     }
 
     /**
-     * (private) Checks if bunny is in sight, if it is, the sighted bunny gets saved to 'usingThisPrey'.
-     * Furthermore, it changes its "target" to the nearest bunny.
-     * @param prey The bunny to be handled.
-     * @param distanceToPrey The distance to the bunny being handled. It should be calculated beforehand.
+     * (private) Checks if the nearest bunny is in sight, if it is, it gets saved to 'usingThisPrey', unless the current prey is as near.
+     * A current prey which was caught by another fox or ran out of sight is dropped.
+     * @param nearest The nearest living bunny, or null if there is none.
      */
-    private void findPrey(Bunny prey, double distanceToPrey){
-        if(usingThisPrey == null){
-            if (getAnimalAttributes().sightRange() > distanceToPrey)usingThisPrey = prey;
-            else usingThisPrey = null;
+    private void findPrey(Bunny nearest){
+        Bunny prey = getUsingThisPrey();
+        double distanceToUsingThisPrey = prey == null ? 0 : Math.hypot(prey.getX() - getX(), prey.getY() - getY());
+        if(prey != null && (prey.isDead() || getSightRange() < distanceToUsingThisPrey)) prey = null;
+
+        if(nearest != null && nearest != prey){
+            double distanceToPrey = Math.hypot(nearest.getX() - getX(), nearest.getY() - getY());
+            if(getSightRange() > distanceToPrey && (prey == null || distanceToUsingThisPrey > distanceToPrey)) prey = nearest;
+        }
+        setUsingThisPrey(prey);
+    }
 
-        }else{
-            double distanceToUsingThisPrey = Math.hypot(usingThisPrey.getAnimalAttributes().x() - getAnimalAttributes().x(), usingThisPrey.getAnimalAttributes().y() - getAnimalAttributes().y());
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Note: A fox eating its prey is never resting, because it keeps hunting while it eats.
+     */
+    @Override int quietTicks(){return (usingThisPrey != null || getAnimalAttributes().eating()) ? 0 : super.quietTicks();}
 
-            if(getAnimalAttributes().sightRange() > distanceToPrey && distanceToUsingThisPrey > distanceToPrey) usingThisPrey = prey;
-            if(getAnimalAttributes().sightRange() < distanceToUsingThisPrey) usingThisPrey = null;
-        }
+    /**
+     * {@inheritDoc}
+     */
+    @Override boolean hasGonePartner(){return super.hasGonePartner() || (usingThisPrey != null && usingThisPrey.getHandle() != preyHandle);}
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * A fox whose prey is gone (e.g. the bunny it caught) drops it, a fox which is still eating keeps eating until it is full.
+     */
+    @Override
+    void forgetGonePartners(){
+        super.forgetGonePartners();
+        if(usingThisPrey == null || usingThisPrey.getHandle() == preyHandle) return;
+        setUsingThisPrey(null);
+        if(!getAnimalAttributes().eating()) setObjectiveInSight(false);
     }
 
     /**
      * {@inheritDoc}
      */
-    @Override void handleMating(Animal other) { if(!other.getAnimalAttributes().herbivore() && !this.equals(other)) matingHelper(other); }
-    Bunny getUsingThisPrey() {return this.usingThisPrey;}
-}
\ No newline at end of file
+    @Override
+    void reset(Species species, int id, double sightRange, float x, float y, long seed){
+        setUsingThisPrey(null);
+        super.reset(species, id, sightRange, x, y, seed);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    void writeState(ByteBuffer buffer, ToIntFunction<Resource> resourceIndex){
+        super.writeState(buffer, resourceIndex);
+        buffer.putInt(idOf(getUsingThisPrey()));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    void readState(ByteBuffer buffer, IntFunction<Animal> animals, IntFunction<Resource> resources){
+        super.readState(buffer, animals, resources);
+        setUsingThisPrey((Bunny) resolve(getUsingThisPrey(), buffer.getInt(), animals));
+    }
+
+    private void setUsingThisPrey(Bunny prey){
+        this.usingThisPrey = prey;
+        this.preyHandle = handleOf(prey);
+    }
+    Bunny getUsingThisPrey() {return ifPresent(this.usingThisPrey, this.preyHandle);}
+}
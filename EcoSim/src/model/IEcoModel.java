@@ -52,6 +52,28 @@ public interface IEcoModel {
      */
     void setSimulationSpeed(int simulationSpeed);
 
+    /**
+     * Gets the current simulation speed.
+     *
+     * @return The pause between two ticks of the simulation thread in milliseconds.
+     */
+    int getSimulationSpeed();
+
+    /**
+     * Gets the number of ticks the simulation thread has simulated, which can be read while the simulation is running.
+     *
+     * @return The number of ticks since the thread was started, it isn't reset by a new simulation.
+     */
+    long getTimedTicks();
+
+    /**
+     * Gets a percentile of the time the last ticks of the simulation thread took, which can be read while the simulation is running.
+     *
+     * @param percentile The percentile between 0 and 100 (e.g. 99 for the time 99% of the ticks stay below).
+     * @return The percentile in milliseconds, or 0 if no tick was simulated yet.
+     */
+    double getTickTimePercentile(double percentile);
+
     /**
      * Gets the count of herbivores or carnivores currently in the simulation.
      * @param getHerbivore getHerbivore True to get the count of herbivores, false for carnivores.
@@ -87,6 +109,13 @@ public interface IEcoModel {
      */
     ArrayList<Animal> getAnimalList();
 
+    /**
+     * Gets the positions of the animals after the last two ticks, which can be read without locking the running simulation.
+     *
+     * @return The snapshot published after the last tick, or null if no simulation was started.
+     */
+    PositionSnapshot getPositionSnapshot();
+
     /**
      * Default method to get the attributes of an animal.
      *
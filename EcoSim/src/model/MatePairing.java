@@ -0,0 +1,181 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * (package-private) Class that pairs the animals which are ready to mate, once per tick and for all animals at once, instead of every animal trying every other animal in its turn.
+ * <p>
+ * The candidates of every species are sorted into a grid of their own (counting sort, like {@link NearestIndex}), whose cells are as big as the largest sight range of the species,
+ * so every candidate is only compared with the candidates of its species in its own and the eight surrounding cells. Two candidates can pair if each is in sight of the other.
+ * The possible pairs are ordered by distance, ties by their first and then their second candidate, and a pair is taken once it comes first for both of its candidates
+ * among the pairs of candidates which are still free. Following from every free candidate to the first of its pairs, until two candidates come first for each other,
+ * takes every pair without sorting all of them, and takes the same pairs as going through all pairs in their order, nearest first, skipping taken candidates.
+ * The result is the stable matching of the candidates: no two candidates, which could pair, are both nearer to each other than to their partners.
+ * <p>
+ * Note: The matching only depends on the candidates and their order (ties in distance are broken by the order), so both engines ({@link EcoModel} and {@link EcsModel})
+ * get the same pairs by passing the candidates in the order of the turns.
+ */
+final class MatePairing {
+
+    private MatePairing(){}
+
+    /**
+     * (package-private) Pairs the passed candidates, candidate i is at index i of every array.
+     * @param count The number of candidates, every array needs at least this length.
+     * @param species The ids of the species of the candidates, only candidates of the same species are paired.
+     * @param x The x-positions.
+     * @param y The y-positions.
+     * @param sightRange The sight ranges, a pair has to be closer than the sight ranges of both.
+     * @return The partner of every candidate, -1 for a candidate without partner.
+     */
+    static int[] match(int count, int[] species, float[] x, float[] y, double[] sightRange){
+        int[] partner = new int[count];
+        Arrays.fill(partner, -1);
+        if(count < 2) return partner;
+
+        // the candidates grouped by species (counting sort), every group in ascending order
+        int speciesCount = 0;
+        for(int i = 0; i < count; i++) speciesCount = Math.max(speciesCount, species[i] + 1);
+        int[] groupStart = new int[speciesCount + 1];
+        for(int i = 0; i < count; i++) groupStart[species[i] + 1]++;
+        for(int s = 0; s < speciesCount; s++) groupStart[s + 1] += groupStart[s];
+        int[] grouped = new int[count], next = Arrays.copyOf(groupStart, speciesCount);
+        for(int i = 0; i < count; i++) grouped[next[species[i]]++] = i;
+
+        var pairs = new Pairs();
+        for(int s = 0; s < speciesCount; s++) if(groupStart[s + 1] - groupStart[s] > 1) findPairs(grouped, groupStart[s], groupStart[s + 1], x, y, sightRange, pairs);
+
+        // the pairs of every candidate, in both directions
+        int[] pairStart = new int[count + 1];
+        for(int p = 0; p < pairs.size; p++){
+            pairStart[pairs.first[p] + 1]++;
+            pairStart[pairs.second[p] + 1]++;
+        }
+        for(int i = 0; i < count; i++) pairStart[i + 1] += pairStart[i];
+        int[] other = new int[pairStart[count]], at = Arrays.copyOf(pairStart, count);
+        double[] distance = new double[pairStart[count]];
+        for(int p = 0; p < pairs.size; p++){
+            int first = pairs.first[p], second = pairs.second[p];
+            other[at[first]] = second;
+            distance[at[first]++] = pairs.distance[p];
+            other[at[second]] = first;
+            distance[at[second]++] = pairs.distance[p];
+        }
+
+        // every candidate on the stack comes first for the candidate below it, and its first pair is nearer than that one, so the stack never holds a candidate twice
+        int[] stack = new int[count];
+        for(int start = 0; start < count; start++){
+            if(partner[start] >= 0) continue;
+            int top = 0;
+            stack[top++] = start;
+            while(top > 0){
+                int candidate = stack[top - 1];
+                int first = partner[candidate] < 0 ? firstFree(candidate, pairStart, other, distance, partner) : -1;
+                if(first < 0) top--;
+                else if(firstFree(first, pairStart, other, distance, partner) == candidate){
+                    partner[candidate] = first;
+                    partner[first] = candidate;
+                    top--;
+                }
+                else stack[top++] = first;
+            }
+        }
+        return partner;
+    }
+
+    /**
+     * (private) Adds every pair of the candidates grouped[from] to grouped[to - 1], which are of the same species, using a grid with cells as big as their largest sight range.
+     * The grid has at most about the root of the number of candidates cells along each axis, so far apart candidates make the cells bigger instead of the grid.
+     */
+    private static void findPairs(int[] grouped, int from, int to, float[] x, float[] y, double[] sightRange, Pairs pairs){
+        int size = to - from;
+        double cellSize = 0;
+        float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY, maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY;
+        for(int k = from; k < to; k++){
+            int i = grouped[k];
+            cellSize = Math.max(cellSize, sightRange[i]);
+            minX = Math.min(minX, x[i]);
+            minY = Math.min(minY, y[i]);
+            maxX = Math.max(maxX, x[i]);
+            maxY = Math.max(maxY, y[i]);
+        }
+        int limit = 2 + (int) Math.sqrt(size);
+        double cellWidth = Math.max(cellSize, (maxX - minX) / (limit - 1.0)), cellHeight = Math.max(cellSize, (maxY - minY) / (limit - 1.0));
+        int columns = (int) ((maxX - minX) / cellWidth) + 1, rows = (int) ((maxY - minY) / cellHeight) + 1;
+
+        int[] cell = new int[size], cellStart = new int[columns * rows + 1];
+        for(int k = 0; k < size; k++){
+            int i = grouped[from + k];
+            cell[k] = cell(y[i] - minY, cellHeight, rows) * columns + cell(x[i] - minX, cellWidth, columns);
+            cellStart[cell[k] + 1]++;
+        }
+        for(int c = 0; c < columns * rows; c++) cellStart[c + 1] += cellStart[c];
+        int[] members = new int[size], next = Arrays.copyOf(cellStart, columns * rows);
+        // the candidates are grouped in ascending order, so every cell stays sorted
+        for(int k = 0; k < size; k++) members[next[cell[k]]++] = grouped[from + k];
+
+        for(int k = 0; k < size; k++){
+            int i = grouped[from + k], cellX = cell[k] % columns, cellY = cell[k] / columns;
+            for(int row = Math.max(0, cellY - 1); row <= Math.min(rows - 1, cellY + 1); row++)
+                for(int column = Math.max(0, cellX - 1); column <= Math.min(columns - 1, cellX + 1); column++){
+                    int c = row * columns + column;
+                    for(int m = cellStart[c]; m < cellStart[c + 1]; m++){
+                        int other = members[m];
+                        // every pair once, from its first candidate
+                        if(other <= i) continue;
+                        double distance = Math.hypot(x[other] - x[i], y[other] - y[i]);
+                        if(distance < sightRange[i] && distance < sightRange[other]) pairs.add(i, other, distance);
+                    }
+                }
+        }
+    }
+
+    /**
+     * (private) Finds the partner of the first pair of the passed candidate among the candidates which are still free, in the order of the pairs (see class comment).
+     * @return The other candidate of that pair, or -1 if every candidate it can pair with is taken.
+     */
+    private static int firstFree(int candidate, int[] pairStart, int[] other, double[] distance, int[] partner){
+        int best = -1;
+        double bestDistance = 0;
+        for(int p = pairStart[candidate]; p < pairStart[candidate + 1]; p++){
+            int o = other[p];
+            if(partner[o] >= 0) continue;
+            // with the same distance, the pair with the lower first and then the lower second candidate comes first
+            if(best < 0 || distance[p] < bestDistance || (distance[p] == bestDistance && before(candidate, o, best))){
+                best = o;
+                bestDistance = distance[p];
+            }
+        }
+        return best;
+    }
+
+    /**
+     * (private) Checks if the pair of the passed candidate with first comes before its pair with second, when both pairs have the same distance.
+     */
+    private static boolean before(int candidate, int first, int second){
+        int firstLow = Math.min(candidate, first), secondLow = Math.min(candidate, second);
+        return firstLow != secondLow ? firstLow < secondLow : Math.max(candidate, first) < Math.max(candidate, second);
+    }
+
+    private static int cell(double offset, double cellSize, int cells){return Math.min(cells - 1, (int) (offset / cellSize));}
+
+    /**
+     * (private) The pairs found so far in primitive arrays, which double when they are full.
+     */
+    private static final class Pairs {
+        private int[] first = new int[16], second = new int[16];
+        private double[] distance = new double[16];
+        private int size;
+
+        private void add(int first, int second, double distance){
+            if(size == this.first.length){
+                this.first = Arrays.copyOf(this.first, size * 2);
+                this.second = Arrays.copyOf(this.second, size * 2);
+                this.distance = Arrays.copyOf(this.distance, size * 2);
+            }
+            this.first[size] = first;
+            this.second[size] = second;
+            this.distance[size++] = distance;
+        }
+    }
+}
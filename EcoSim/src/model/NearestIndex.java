@@ -0,0 +1,141 @@
+package model;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * (package-private) Class that sorts the animals of some species into a uniform grid, so the animals of another species find the nearest of them with one query,
+ * instead of comparing themselves with every animal around them: the hunters find their prey and the grazers the predators they flee from.
+ * <p>
+ * The index is built before the turns of the searching species (see {@link #build}), when the indexed animals took their turns or still have to take them,
+ * so their positions don't change during these turns. Animals which die during these turns are skipped by the query instead of being removed.
+ * A query searches the cells in rings around the searching animal and stops as soon as no animal outside the searched square can be nearer than the nearest one found.
+ * With cells as big as the range of the queries, most queries only look at the number of animals (see {@link #count}) of the nine cells around them.
+ * <p>
+ * Note: The members are indices chosen by the engine (the index in the animal list or of the entity), ties in distance are broken by the lower member,
+ * so both engines ({@link EcoModel} and {@link EcsModel}) find the same animals.
+ */
+final class NearestIndex {
+    private final float cellSize;
+    private final int columns, rows;
+    // cellStart[c] to cellStart[c + 1] are the animals of cell c, sorted by member within the cell
+    private final int[] cellStart;
+    private int[] members = new int[0];
+    private float[] x = new float[0], y = new float[0];
+    private int size;
+    private long queries, visited;
+
+    /**
+     * (package-private) Constructor for an empty index over an ecosystem with the specified size.
+     * @param width The width of the ecosystem.
+     * @param height The height of the ecosystem.
+     * @param cellSize The edge length of a cell. Should be a positive value.
+     */
+    NearestIndex(int width, int height, float cellSize){
+        this.cellSize = cellSize;
+        columns = Math.max(1, (int) Math.ceil(width / cellSize));
+        rows = Math.max(1, (int) Math.ceil(height / cellSize));
+        cellStart = new int[columns * rows + 1];
+    }
+
+    /**
+     * (package-private) Sorts the passed animals into the grid (counting sort), replacing the animals of the last build.
+     * @param count The number of animals, every array needs at least this length.
+     * @param ids The members, in ascending order.
+     * @param memberX The x-positions.
+     * @param memberY The y-positions.
+     */
+    void build(int count, int[] ids, float[] memberX, float[] memberY){
+        if(members.length < count){
+            members = new int[count];
+            x = new float[count];
+            y = new float[count];
+        }
+        size = count;
+        Arrays.fill(cellStart, 0);
+        int[] cells = new int[count];
+        for(int i = 0; i < count; i++){
+            cells[i] = cellOf(memberX[i], memberY[i]);
+            cellStart[cells[i] + 1]++;
+        }
+        for(int c = 0; c < columns * rows; c++) cellStart[c + 1] += cellStart[c];
+        int[] next = Arrays.copyOf(cellStart, columns * rows);
+        // the animals are passed in ascending order, so every cell stays sorted
+        for(int i = 0; i < count; i++){
+            int at = next[cells[i]]++;
+            members[at] = ids[i];
+            x[at] = memberX[i];
+            y[at] = memberY[i];
+        }
+    }
+
+    /**
+     * (package-private) Finds the nearest animal of the passed position within the passed range.
+     * @param fromX The x-position of the searching animal.
+     * @param fromY The y-position of the searching animal.
+     * @param range The largest distance the animal may have, usually the sight range of the searching animal.
+     * @param gone Tells which members are gone (e.g. prey caught since the build).
+     * @return The member of the nearest animal, or -1 if no animal is within range.
+     */
+    int nearest(float fromX, float fromY, double range, IntPredicate gone){
+        queries++;
+        // a range within one cell can only reach the nine cells around the position
+        if(range <= cellSize && count(fromX, fromY) == 0) return -1;
+        int best = -1;
+        double bestDistance = range * range;
+        int cellX = clamp((int) Math.floor(fromX / cellSize), columns), cellY = clamp((int) Math.floor(fromY / cellSize), rows);
+
+        for(int ring = 0; ; ring++){
+            int left = cellX - ring, right = cellX + ring, top = cellY - ring, bottom = cellY + ring;
+            for(int row = Math.max(0, top); row <= Math.min(rows - 1, bottom); row++){
+                // the inner rows only have the two cells at the edge of the ring
+                int step = row == top || row == bottom ? 1 : Math.max(1, right - left);
+                for(int column = left; column <= right; column += step){
+                    if(column < 0 || column >= columns) continue;
+                    int cell = row * columns + column;
+                    for(int i = cellStart[cell]; i < cellStart[cell + 1]; i++){
+                        visited++;
+                        double dx = x[i] - fromX, dy = y[i] - fromY;
+                        double distance = dx * dx + dy * dy;
+                        if((distance < bestDistance || (distance == bestDistance && (best < 0 || members[i] < best))) && !gone.test(members[i])){
+                            best = members[i];
+                            bestDistance = distance;
+                        }
+                    }
+                }
+            }
+
+            // animals outside the searched square are at least as far away as its nearest side (animals beyond the grid are sorted into its border cells)
+            double outside = Double.POSITIVE_INFINITY;
+            if(left > 0) outside = Math.min(outside, fromX - left * cellSize);
+            if(right < columns - 1) outside = Math.min(outside, (right + 1) * cellSize - fromX);
+            if(top > 0) outside = Math.min(outside, fromY - top * cellSize);
+            if(bottom < rows - 1) outside = Math.min(outside, (bottom + 1) * cellSize - fromY);
+            if(outside == Double.POSITIVE_INFINITY || outside * outside > bestDistance) return best;
+        }
+    }
+
+    //getter for tests
+    int size(){return size;}
+    //getter for benchmarks
+    long getQueries(){return queries;}
+    //getter for benchmarks, the number of animals compared with a searching animal
+    long getVisited(){return visited;}
+
+    /**
+     * (package-private) Counts the animals in the cell containing the passed position and the eight cells around it, without going through them.
+     * @param atX The x-position.
+     * @param atY The y-position.
+     * @return The number of animals, including the animals which are gone since the build.
+     */
+    int count(float atX, float atY){
+        int cellX = clamp((int) Math.floor(atX / cellSize), columns), cellY = clamp((int) Math.floor(atY / cellSize), rows);
+        int count = 0;
+        for(int row = Math.max(0, cellY - 1); row <= Math.min(rows - 1, cellY + 1); row++)
+            count += cellStart[row * columns + Math.min(columns - 1, cellX + 1) + 1] - cellStart[row * columns + Math.max(0, cellX - 1)];
+        return count;
+    }
+
+    private int cellOf(float atX, float atY){return clamp((int) Math.floor(atY / cellSize), rows) * columns + clamp((int) Math.floor(atX / cellSize), columns);}
+    private static int clamp(int cell, int cells){return Math.max(0, Math.min(cells - 1, cell));}
+}
@@ -0,0 +1,227 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * (package-private) Class that caches, for every animal, the animals which could interact with it (Verlet neighbor list).
+ * <p>
+ * Each list holds every animal (including the animal itself) which was closer than the largest sight range plus a skin when the lists were built.
+ * Animals only move about one unit per tick, so the lists stay complete until some animal moved further than half the skin since the last build,
+ * which is when all lists are built again with a uniform grid. Newborns are added to the lists of their mother's neighbors
+ * and dead animals are dropped from the lists of their neighbors, so births and deaths don't force a rebuild.
+ * <p>
+ * Note: Every list is ordered by the index in the animal list of {@link EcoModel}, so animals meet their neighbors in the same order as with a full scan.
+ * Adding and removing animals moves animals to other indices (see {@link AnimalPool}), which are passed to {@link #moved(Animal)}.
+ * Births, deaths and moves only mark the lists they touch, and a marked list drops its dead animals and is sorted once, when it is needed
+ * or in the next {@link #update(List)}. Removing every change right away would cost the length of the list for every neighbor of every changed animal.
+ */
+class NeighborList {
+    private static final Comparator<Animal> BY_INDEX = Comparator.comparingInt(Animal::getIndex);
+    private final float skin;
+    private final IdentityHashMap<Animal, Entry> entries = new IdentityHashMap<>();
+    // the lists marked since they were last cleaned, which may contain dropped animals and may be out of order
+    private final ArrayList<Entry> changed = new ArrayList<>();
+    private float cutoff;
+    private int rebuilds;
+
+    /**
+     * (private) The neighbors of an animal and the position it had when it was put into the lists.
+     */
+    private static final class Entry {
+        private final ArrayList<Animal> neighbors;
+        private final float builtX, builtY;
+        private boolean marked;
+
+        private Entry(ArrayList<Animal> neighbors, float builtX, float builtY){
+            this.neighbors = neighbors;
+            this.builtX = builtX;
+            this.builtY = builtY;
+        }
+    }
+
+    /**
+     * (private) The animals of a grid cell with their positions copied into arrays, so they can be screened by {@link RangeScreen#screenInRange}.
+     */
+    private static final class Cell {
+        private final Animal[] members;
+        private final float[] x, y;
+
+        private Cell(List<Animal> animals){
+            members = animals.toArray(new Animal[0]);
+            x = new float[members.length];
+            y = new float[members.length];
+            for(int i = 0; i < members.length; i++){
+                x[i] = members[i].getX();
+                y[i] = members[i].getY();
+            }
+        }
+    }
+
+    /**
+     * (package-private) Constructor for new neighbor lists with the specified skin.
+     * @param skin The distance added to the sight range. A larger skin means fewer rebuilds but longer lists. Should be a positive value.
+     */
+    NeighborList(float skin){this.skin = skin;}
+
+    /**
+     * (package-private) Builds all lists again, if an animal is missing or some animal moved further than half the skin since the last build, otherwise cleans every marked list.
+     * <p>
+     * Note: Needs to be called after the dead animals were removed and before they are recycled, since a recycled animal would be taken for the dropped one.
+     * @param animals All animals of the simulation.
+     */
+    void update(List<Animal> animals){
+        float maxDisplacement = skin / 2;
+        for(Animal animal : animals){
+            Entry entry = entries.get(animal);
+            if(entry == null || squared(animal.getX() - entry.builtX, animal.getY() - entry.builtY) > maxDisplacement * maxDisplacement){
+                rebuild(animals);
+                return;
+            }
+        }
+        for(Entry entry : changed) clean(entry);
+        changed.clear();
+    }
+
+    /**
+     * (package-private) Builds the lists of all animals, by sorting them into a grid with cells as big as the cutoff and comparing each animal only with the animals of its own and the surrounding cells.
+     * @param animals All animals of the simulation.
+     */
+    void rebuild(List<Animal> animals){
+        entries.clear();
+        changed.clear();
+        rebuilds++;
+
+        double maxSightRange = 0;
+        for(Animal animal : animals) maxSightRange = Math.max(maxSightRange, animal.getSightRange());
+        cutoff = (float) maxSightRange + skin;
+
+        var cellLists = new HashMap<Long, ArrayList<Animal>>();
+        for(Animal animal : animals) cellLists.computeIfAbsent(cellOf(animal.getX(), animal.getY()), cell -> new ArrayList<>()).add(animal);
+
+        var cells = new HashMap<Long, Cell>();
+        int largestCell = 0;
+        for(var cell : cellLists.entrySet()){
+            cells.put(cell.getKey(), new Cell(cell.getValue()));
+            largestCell = Math.max(largestCell, cell.getValue().size());
+        }
+
+        int[] inRange = new int[largestCell];
+        for(Animal animal : animals){
+            var neighbors = new ArrayList<Animal>();
+            int cellX = (int) Math.floor(animal.getX() / cutoff), cellY = (int) Math.floor(animal.getY() / cutoff);
+
+            for(int dx = -1; dx <= 1; dx++)
+                for(int dy = -1; dy <= 1; dy++){
+                    Cell cell = cells.get(key(cellX + dx, cellY + dy));
+                    if(cell == null) continue;
+                    int found = RangeScreen.screenInRange(cell.x, cell.y, 0, cell.members.length, animal.getX(), animal.getY(), cutoff, inRange);
+                    for(int i = 0; i < found; i++) neighbors.add(cell.members[inRange[i]]);
+                }
+            neighbors.sort(BY_INDEX);
+            entries.put(animal, new Entry(neighbors, animal.getX(), animal.getY()));
+        }
+    }
+
+    /**
+     * (package-private) Adds a newborn, which is standing on its mother's position, to the lists.
+     * The newborn gets its mother's list and the position the mother had at the last build, so it is treated as if it had been there since the last build.
+     * <p>
+     * Note: Newborns are added at the end of the batch of their species (see {@link AnimalPool}), so the lists they are added to are marked to be sorted.
+     * @param newborn The newborn to be inserted.
+     * @param mother The mother of the newborn, which needs to be in the lists.
+     * @return True if the newborn was inserted, false if the mother isn't in the lists (and the lists need to be rebuilt).
+     */
+    boolean addNewborn(Animal newborn, Animal mother){
+        Entry motherEntry = entries.get(mother);
+        if(motherEntry == null) return false;
+
+        // cleaned first, so every neighbor copied to the newborn is still in the lists
+        clean(motherEntry);
+        var neighbors = new ArrayList<>(motherEntry.neighbors);
+        // the copy is iterated, since the mother is one of her own neighbors
+        for(Animal neighbor : neighbors) add(entries.get(neighbor), newborn);
+        var entry = new Entry(neighbors, motherEntry.builtX, motherEntry.builtY);
+        entries.put(newborn, entry);
+        add(entry, newborn);
+        return true;
+    }
+
+    /**
+     * (package-private) Drops the list of an animal and marks the lists of all its neighbors, which drop the animal when they are cleaned.
+     * @param animal The animal to be removed.
+     */
+    void remove(Animal animal){
+        Entry entry = entries.remove(animal);
+        if(entry == null) return;
+        // its own list is gone, so it isn't cleaned even if it was marked
+        entry.marked = false;
+        for(Animal neighbor : entry.neighbors) mark(entries.get(neighbor));
+    }
+
+    /**
+     * (package-private) Marks the lists of all neighbors of an animal, whose index in the animal list changed, so they are sorted again when they are cleaned.
+     * @param animal The animal with its new index.
+     */
+    void moved(Animal animal){
+        Entry entry = entries.get(animal);
+        if(entry == null) return;
+        for(Animal neighbor : entry.neighbors) mark(entries.get(neighbor));
+    }
+
+    /**
+     * (private) Appends the passed animal to the passed list and marks it.
+     */
+    private void add(Entry entry, Animal animal){
+        entry.neighbors.add(animal);
+        mark(entry);
+    }
+
+    /**
+     * (private) Marks the passed list to be cleaned, a missing list (of an animal which was removed) is skipped.
+     */
+    private void mark(Entry entry){
+        if(entry == null || entry.marked) return;
+        entry.marked = true;
+        changed.add(entry);
+    }
+
+    /**
+     * (private) Drops every removed animal from the passed list and sorts it by index, if it is marked.
+     */
+    private void clean(Entry entry){
+        if(!entry.marked) return;
+        entry.neighbors.removeIf(neighbor -> !entries.containsKey(neighbor));
+        entry.neighbors.sort(BY_INDEX);
+        entry.marked = false;
+    }
+
+    /**
+     * (package-private) Orders every list again, after the animal list was reordered (see {@link AnimalPool#sortByMorton(float)}). The lists keep their animals.
+     */
+    void reordered(){for(Entry entry : entries.values()) entry.neighbors.sort(BY_INDEX);}
+
+    /**
+     * (package-private) Gets the list of the passed animal, which contains every animal in its sight range (and some more).
+     * @param animal The animal whose neighbors are needed.
+     * @return The neighbors, ordered by their index, including the animal itself.
+     */
+    List<Animal> of(Animal animal){
+        Entry entry = entries.get(animal);
+        clean(entry);
+        return entry.neighbors;
+    }
+
+    //getter for benchmarks
+    int getRebuilds(){return rebuilds;}
+
+    /**
+     * (private) Calculates the key of the grid cell containing the passed position.
+     */
+    private long cellOf(float x, float y){return key((int) Math.floor(x / cutoff), (int) Math.floor(y / cutoff));}
+    private static long key(int cellX, int cellY){return ((long) cellX << 32) | (cellY & 0xFFFFFFFFL);}
+    private static float squared(float dx, float dy){return dx * dx + dy * dy;}
+}
@@ -0,0 +1,251 @@
+package model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * (package-private) Class that keeps the state of a population outside of the Java heap, one fixed record per animal in a single direct buffer,
+ * so millions of animals don't create millions of objects the garbage collector has to mark.
+ * <p>
+ * It simulates the part of a tick every animal does on its own: moving, updating its needs by the rates of its {@link Species}, bouncing off the walls and deciding its state
+ * (see {@link Animal#movement()}, {@link Animal#wallCollision(int, int)} and {@link Animal#decideState()}), by the same {@link AnimalRules} as the animals.
+ * It can also keep its records in a heap buffer, so the benchmarks can tell the cost of objects apart from the cost of the heap.
+ * Dead animals are removed at the end of a tick by copying the last record into their place. The buffer doubles its capacity when it is full.
+ * <p>
+ * Note: This is a prototype of the storage, not an option of {@link EcoModel}: there are no resources, no hunting, no mating and no births,
+ * so it can't replace {@link EcoModel} or {@link EcsModel}. The records are kept in a {@link ByteBuffer} instead of a MemorySegment of an Arena,
+ * because the Foreign Function &amp; Memory API is a preview API in JDK 21 (it needs --enable-preview) and only final from JDK 22 on,
+ * while this project builds with JDK 17. The layout and the checkpoints would stay the same with a MemorySegment.
+ * <p>
+ * The records can be written to a file as they are for checkpoints (see {@link #checkpoint(Path)}), the file is a header followed by the records.
+ * All values are little-endian:
+ * <pre>
+ * header (24 bytes)
+ *   int    magic {@value #MAGIC}, version {@value #VERSION}, record size {@value #RECORD_BYTES}, number of animals
+ *   long   ticks simulated
+ * animal ({@value #RECORD_BYTES} bytes)
+ *   0  int    id
+ *   4  float  x, y, vx, vy
+ *   20 float  sightRange
+ *   24 double hunger, thirst, matingUrge
+ *   48 byte   state, the ordinal of its AnimalState
+ *   49 byte   flags: 1 dead, 2 eating, 4 drinking, 8 objectiveInSight, 16 thinking, 32 mating, 64 pregnant
+ *   50 byte   species, its id in the registry of the population
+ *   51 (5 bytes padding, so the doubles of the next record are aligned)
+ * </pre>
+ * Note: A buffer holds at most 2^31 bytes, which are about 38 million animals.
+ */
+final class OffHeapPopulation {
+    static final int MAGIC = 0x45434F50, VERSION = 2, HEADER_BYTES = 24, RECORD_BYTES = 56;
+    static final int DEAD = 1, EATING = 2, DRINKING = 4, OBJECTIVE_IN_SIGHT = 8, THINKING = 16, MATING = 32, PREGNANT = 64;
+    private static final int ID = 0, X = 4, Y = 8, VX = 12, VY = 16, SIGHT_RANGE = 20, HUNGER = 24, THIRST = 32, MATING_URGE = 40, STATE = 48, FLAGS = 49, SPECIES = 50;
+    private static final AnimalState[] STATES = AnimalState.values();
+    private final SpeciesRegistry registry;
+    private final boolean direct;
+    private ByteBuffer records;
+    private int size;
+    private long tick;
+
+    /**
+     * (package-private) Constructor for an empty population outside of the heap, with room for the passed number of animals before the buffer grows.
+     * @param capacity The initial number of records. Should be a positive value.
+     */
+    OffHeapPopulation(int capacity){this(SpeciesRegistry.STANDARD, capacity, true);}
+
+    /**
+     * (package-private) Constructor for an empty population, with room for the passed number of animals before the buffer grows.
+     * @param registry The species of the animals.
+     * @param capacity The initial number of records. Should be a positive value.
+     * @param direct True to keep the records outside of the heap, false for a heap buffer with the same layout,
+     *               which gives the same population and is kept for tests and benchmarks.
+     */
+    OffHeapPopulation(SpeciesRegistry registry, int capacity, boolean direct){
+        if(capacity <= 0) throw new IllegalArgumentException("capacity needs to be positive");
+        if(registry.size() > 256) throw new IllegalArgumentException("a record holds at most 256 species");
+        this.registry = registry;
+        this.direct = direct;
+        records = allocate(capacity);
+    }
+
+    /**
+     * (package-private) Appends a copy of the passed animal, the animals and resources it refers to are not copied.
+     * @param animal The animal to be copied, of a species of the registry of this population.
+     * @return The index of its record.
+     */
+    int add(Animal animal){
+        var attributes = animal.getAnimalAttributes();
+        int index = add(animal.getSpecies(), attributes.id(), attributes.sightRange(), attributes.x(), attributes.y());
+        int at = index * RECORD_BYTES;
+        records.putFloat(at + VX, attributes.vx()).putFloat(at + VY, attributes.vy());
+        records.putDouble(at + HUNGER, attributes.hunger()).putDouble(at + THIRST, attributes.thirst()).putDouble(at + MATING_URGE, animal.getMatingUrge());
+        records.put(at + STATE, (byte) attributes.state().ordinal());
+        records.put(at + FLAGS, (byte) ((attributes.dead() ? DEAD : 0) | (attributes.eating() ? EATING : 0) | (attributes.drinking() ? DRINKING : 0) | (attributes.objectiveInSight() ? OBJECTIVE_IN_SIGHT : 0)
+                | (attributes.thinking() ? THINKING : 0) | (attributes.mating() ? MATING : 0) | (attributes.pregnant() ? PREGNANT : 0)));
+        return index;
+    }
+
+    /**
+     * (package-private) Appends a newborn standing still, with no needs and in the state {@link AnimalState#NEWBORN}.
+     * @param species The species of the animal, a species of the registry of this population.
+     * @param id The id of the animal.
+     * @param sightRange The sight range of the animal.
+     * @param x The x-position.
+     * @param y The y-position.
+     * @return The index of its record.
+     */
+    int add(Species species, int id, double sightRange, float x, float y){
+        if(species.id() >= registry.size() || registry.get(species.id()) != species) throw new IllegalArgumentException(species.name() + " isn't a species of this population");
+        if(size * RECORD_BYTES == records.capacity()) grow();
+        int at = size * RECORD_BYTES;
+        // the record of a removed animal may still be there
+        for(int offset = 0; offset < RECORD_BYTES; offset += 8) records.putLong(at + offset, 0);
+        records.putInt(at + ID, id).putFloat(at + X, x).putFloat(at + Y, y).putFloat(at + SIGHT_RANGE, (float) sightRange);
+        records.put(at + STATE, (byte) AnimalState.NEWBORN.ordinal()).put(at + SPECIES, (byte) species.id());
+        return size++;
+    }
+
+    /**
+     * (package-private) Simulates one tick of every animal on its own (see class comment) and removes the animals which died.
+     * @param width The width of the ecosystem.
+     * @param height The height of the ecosystem.
+     * @return The number of animals which died.
+     */
+    int tick(int width, int height){
+        int died = 0;
+        for(int i = 0; i < size; i++){
+            int at = i * RECORD_BYTES, flags = records.get(at + FLAGS);
+            boolean thinking = (flags & THINKING) != 0, eating = (flags & EATING) != 0, drinking = (flags & DRINKING) != 0, mating = (flags & MATING) != 0;
+            float x = records.getFloat(at + X), y = records.getFloat(at + Y), vx = records.getFloat(at + VX), vy = records.getFloat(at + VY);
+            double hunger = records.getDouble(at + HUNGER), thirst = records.getDouble(at + THIRST), urge = records.getDouble(at + MATING_URGE);
+            Species species = registry.get(records.get(at + SPECIES) & 0xFF);
+
+            // movement(): position, then thirst, hunger and mating urge
+            if(!thinking){
+                x += vx;
+                y += vy;
+                thirst = AnimalRules.thirst(thirst, species, eating, drinking, mating);
+                hunger = AnimalRules.hunger(hunger, species, eating, drinking, mating);
+                urge = AnimalRules.matingUrge(urge, species, mating);
+            }
+            // wallCollision()
+            vx = AnimalRules.bounce(vx, x, width);
+            vy = AnimalRules.bounce(vy, y, height);
+
+            records.putFloat(at + X, x).putFloat(at + Y, y).putFloat(at + VX, vx).putFloat(at + VY, vy);
+            records.putDouble(at + HUNGER, hunger).putDouble(at + THIRST, thirst).putDouble(at + MATING_URGE, urge);
+            records.put(at + STATE, (byte) AnimalRules.nextState(STATES[records.get(at + STATE)], hunger, thirst).ordinal());
+            if(AnimalRules.dies(hunger, thirst)){
+                records.put(at + FLAGS, (byte) (flags | DEAD));
+                died++;
+            }
+        }
+        if(died > 0) removeDead();
+        tick++;
+        return died;
+    }
+
+    /**
+     * (package-private) Writes the header and every record to the passed file, the records are written straight from the buffer.
+     * @param file The file to write, it is replaced if it exists.
+     * @throws IOException If the file can't be written.
+     */
+    void checkpoint(Path file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(RECORD_BYTES).putInt(size).putLong(tick).flip();
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)){
+            while(header.hasRemaining()) channel.write(header);
+            ByteBuffer used = records.duplicate().position(0).limit(size * RECORD_BYTES);
+            while(used.hasRemaining()) channel.write(used);
+        }
+    }
+
+    /**
+     * (package-private) Reads a population of the standard species written by {@link #checkpoint(Path)}, see {@link #restore(Path, SpeciesRegistry)}.
+     * @param file The file to read.
+     * @return The population of the checkpoint.
+     * @throws IOException If the file can't be read or isn't a checkpoint of this version.
+     */
+    static OffHeapPopulation restore(Path file) throws IOException {return restore(file, SpeciesRegistry.STANDARD);}
+
+    /**
+     * (package-private) Reads a population written by {@link #checkpoint(Path)}, the records are read straight into the buffer.
+     * @param file The file to read.
+     * @param registry The species the population was written with.
+     * @return The population of the checkpoint.
+     * @throws IOException If the file can't be read or isn't a checkpoint of this version.
+     */
+    static OffHeapPopulation restore(Path file, SpeciesRegistry registry) throws IOException {
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            while(header.hasRemaining()) if(channel.read(header) < 0) throw new IOException("The checkpoint ends in its header");
+            header.flip();
+            if(header.getInt() != MAGIC || header.getInt() != VERSION || header.getInt() != RECORD_BYTES) throw new IOException("The file isn't a checkpoint of version " + VERSION);
+            int size = header.getInt();
+
+            var population = new OffHeapPopulation(registry, Math.max(1, size), true);
+            population.tick = header.getLong();
+            ByteBuffer target = population.records.duplicate().position(0).limit(size * RECORD_BYTES);
+            while(target.hasRemaining()) if(channel.read(target) < 0) throw new IOException("The checkpoint ends after " + target.position() / RECORD_BYTES + " of " + size + " animals");
+            population.size = size;
+            return population;
+        }
+    }
+
+    /**
+     * (private) Removes every dead animal by copying the last record into its place.
+     */
+    private void removeDead(){
+        int i = 0;
+        while(i < size){
+            if((records.get(i * RECORD_BYTES + FLAGS) & DEAD) == 0){
+                i++;
+                continue;
+            }
+            size--;
+            // the copied record is checked in the next iteration, since it could be dead as well
+            if(i != size) records.put(i * RECORD_BYTES, records, size * RECORD_BYTES, RECORD_BYTES);
+        }
+    }
+
+    /**
+     * (private) Doubles the capacity of the buffer, the old buffer is freed once the garbage collector collects it.
+     */
+    private void grow(){
+        long capacity = 2L * records.capacity() / RECORD_BYTES;
+        if(capacity * RECORD_BYTES > Integer.MAX_VALUE) capacity = Integer.MAX_VALUE / RECORD_BYTES;
+        if(capacity == size) throw new IllegalStateException("A population can't hold more than " + size + " animals");
+        ByteBuffer grown = allocate((int) capacity);
+        grown.put(0, records, 0, size * RECORD_BYTES);
+        records = grown;
+    }
+
+    private ByteBuffer allocate(int capacity){
+        return (direct ? ByteBuffer.allocateDirect(capacity * RECORD_BYTES) : ByteBuffer.allocate(capacity * RECORD_BYTES)).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    //getters for the record of an animal
+    int getId(int index){return records.getInt(index * RECORD_BYTES + ID);}
+    float getX(int index){return records.getFloat(index * RECORD_BYTES + X);}
+    float getY(int index){return records.getFloat(index * RECORD_BYTES + Y);}
+    float getVx(int index){return records.getFloat(index * RECORD_BYTES + VX);}
+    float getVy(int index){return records.getFloat(index * RECORD_BYTES + VY);}
+    double getHunger(int index){return records.getDouble(index * RECORD_BYTES + HUNGER);}
+    double getThirst(int index){return records.getDouble(index * RECORD_BYTES + THIRST);}
+    double getMatingUrge(int index){return records.getDouble(index * RECORD_BYTES + MATING_URGE);}
+    AnimalState getState(int index){return STATES[records.get(index * RECORD_BYTES + STATE)];}
+    boolean hasFlag(int index, int flag){return (records.get(index * RECORD_BYTES + FLAGS) & flag) != 0;}
+    Species getSpecies(int index){return registry.get(records.get(index * RECORD_BYTES + SPECIES) & 0xFF);}
+
+    //getter for the number of animals
+    int size(){return this.size;}
+    //getter for the number of records the buffer holds before it grows
+    int getCapacity(){return records.capacity() / RECORD_BYTES;}
+    //getter for the number of ticks simulated, restored from a checkpoint
+    long getTick(){return this.tick;}
+    //getter for whether the records are outside of the heap
+    boolean isDirect(){return this.direct;}
+}
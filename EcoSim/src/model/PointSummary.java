@@ -0,0 +1,21 @@
+package model;
+
+/**
+ * Record that represents the summary statistics of all runs made for one grid point by the {@link SweepRunner}.
+ * <p>
+ * The record acts as a data container and is read-only.
+ *
+ * @param point The grid point the runs were started with.
+ * @param runs The number of runs summarized.
+ * @param meanSurvivalTicks Mean number of ticks the runs lasted.
+ * @param extinctionRate Share of runs ended by {@link RunEnd#EXTINCTION}, from '0.0' to '1.0'.
+ * @param meanBunnies Mean of the mean bunny counts of the runs.
+ * @param varianceBunnies Mean of the bunny count variances of the runs.
+ * @param meanFoxes Mean of the mean fox counts of the runs.
+ * @param varianceFoxes Mean of the fox count variances of the runs.
+ * @param meanOscillationPeriod Mean oscillation period in ticks of the runs which oscillated, 0 if none did.
+ *
+ * @author Sleman Kakar
+ */
+public record PointSummary(SweepPoint point, int runs, double meanSurvivalTicks, double extinctionRate, double meanBunnies,
+                           double varianceBunnies, double meanFoxes, double varianceFoxes, double meanOscillationPeriod) {}
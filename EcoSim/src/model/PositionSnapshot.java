@@ -0,0 +1,252 @@
+package model;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Class that holds the positions of every animal after a tick together with their positions after the tick before, so a view drawing at its own frame rate
+ * can move the animals smoothly between two ticks.
+ * <p>
+ * A snapshot never changes after it is created. The simulation thread publishes a new one after every tick (see {@link EcoModel#getPositionSnapshot()}),
+ * so the animals can be drawn without locking the model and without seeing an animal in the middle of its turn.
+ * The drawn position lags one tick behind the simulation: at the fraction 0 an animal is drawn where it was after the tick before, at 1 where it is now.
+ * <p>
+ * Animals can be found by their id in O(1) (see {@link #indexOf(int)}) and by a position through a grid of {@value #GRID_CELL} units (see {@link #indexAt(float, float, float)}),
+ * so a selected animal can be followed and a clicked one found without going through every animal.
+ * <p>
+ * Example usage:
+ * <pre>{@code
+ * PositionSnapshot snapshot = model.getPositionSnapshot();
+ * float fraction = snapshot.fractionAt(System.nanoTime());
+ * for(int i = 0; i < snapshot.size(); i++){
+ *     // draws the animal at its interpolated position
+ *     view.drawBunny(snapshot.getX(i, fraction), snapshot.getY(i, fraction), 1, true);
+ * }
+ * }</pre>
+ * @author Sleman Kakar
+ */
+public final class PositionSnapshot {
+    static final float GRID_CELL = 32;
+    private final long tick, publishedAt, tickNanos;
+    private final int[] ids;
+    private int herbivores;
+    private final float[] previousX, previousY, x, y, vx, vy, hunger, thirst;
+    private final boolean[] herbivore, thinking;
+    // open addressing table from an id to its index, the slots hold index + 1 so 0 marks an empty slot
+    private final int[] idSlots, indexSlots;
+    // the indices of the animals sorted by their grid cell, the animals of a cell start at cellStarts[cell] (built by the first indexAt)
+    private int[] cellStarts, cellIndices;
+    private float gridLeft, gridTop;
+    private int gridColumns, gridRows;
+
+    /**
+     * (package-private) Constructor for a snapshot of the passed animals, the previous positions are taken from the passed snapshot.
+     * <p>
+     * Note: Animals which weren't in the previous snapshot (e.g. newborns) start at their current position.
+     * @param animals The animals in the order they are drawn.
+     * @param tick The number of ticks simulated so far.
+     * @param publishedAt The time of the snapshot (see {@link System#nanoTime()}).
+     * @param previous The snapshot published after the tick before, or null for the first snapshot of a simulation.
+     */
+    PositionSnapshot(List<Animal> animals, long tick, long publishedAt, PositionSnapshot previous){
+        this(animals.size(), tick, publishedAt, previous);
+        for(int i = 0; i < animals.size(); i++){
+            Animal animal = animals.get(i);
+            put(i, animal.getId(), animal.getX(), animal.getY(), animal.getVx(), animal.getVy(), animal.getHunger(), animal.getThirst(), animal.isHerbivore(), animal.isThinking(), previous);
+        }
+    }
+
+    /**
+     * (package-private) Constructor for a snapshot of the entities of the passed world (see {@link EcsModel}), like {@link #PositionSnapshot(List, long, long, PositionSnapshot)}.
+     * @param world The entities in the order they are drawn.
+     * @param tick The number of ticks simulated so far.
+     * @param publishedAt The time of the snapshot (see {@link System#nanoTime()}).
+     * @param previous The snapshot published after the tick before, or null for the first snapshot of a simulation.
+     */
+    PositionSnapshot(EcsWorld world, long tick, long publishedAt, PositionSnapshot previous){
+        this(world.size, tick, publishedAt, previous);
+        for(int i = 0; i < world.size; i++)
+            put(i, world.id[i], world.x[i], world.y[i], world.vx[i], world.vy[i], world.hunger[i], world.thirst[i], world.species[i].grazes(), world.is(i, EcsWorld.THINKING), previous);
+    }
+
+    /**
+     * (private) Constructor for a snapshot with room for the passed number of animals, which are put in with {@link #put}.
+     */
+    private PositionSnapshot(int size, long tick, long publishedAt, PositionSnapshot previous){
+        this.tick = tick;
+        this.publishedAt = publishedAt;
+        // without a previous tick the interpolation is finished immediately
+        this.tickNanos = previous == null ? 0 : Math.max(0, publishedAt - previous.publishedAt);
+        ids = new int[size];
+        previousX = new float[size];
+        previousY = new float[size];
+        x = new float[size];
+        y = new float[size];
+        vx = new float[size];
+        vy = new float[size];
+        hunger = new float[size];
+        thirst = new float[size];
+        herbivore = new boolean[size];
+        thinking = new boolean[size];
+        idSlots = new int[Integer.highestOneBit(Math.max(1, size) * 2) * 2];
+        indexSlots = new int[idSlots.length];
+    }
+
+    /**
+     * (private) Puts the values of the animal at the passed index into the snapshot, its previous position is taken from the passed snapshot.
+     */
+    private void put(int i, int id, float x, float y, float vx, float vy, double hunger, double thirst, boolean herbivore, boolean thinking, PositionSnapshot previous){
+        if(herbivore) herbivores++;
+        ids[i] = id;
+        this.x[i] = x;
+        this.y[i] = y;
+        this.vx[i] = vx;
+        this.vy[i] = vy;
+        this.hunger[i] = (float) hunger;
+        this.thirst[i] = (float) thirst;
+        this.herbivore[i] = herbivore;
+        this.thinking[i] = thinking;
+
+        int before = previous == null ? -1 : previous.indexOf(id);
+        previousX[i] = before < 0 ? x : previous.x[before];
+        previousY[i] = before < 0 ? y : previous.y[before];
+
+        int slot = slotOf(id);
+        idSlots[slot] = id;
+        indexSlots[slot] = i + 1;
+    }
+
+    /**
+     * Returns the fraction of the current tick which has passed at the specified time, assuming the next tick takes as long as the last one.
+     * @param nanoTime The current time (see {@link System#nanoTime()}).
+     * @return A value between 0 (just published) and 1 (the next snapshot is due).
+     */
+    public float fractionAt(long nanoTime){
+        if(tickNanos == 0) return 1;
+        return (float) Math.max(0, Math.min(1, (nanoTime - publishedAt) / (double) tickNanos));
+    }
+
+    /**
+     * Returns the index of the animal with the specified id.
+     * @param id The id of the animal.
+     * @return The index of the animal, or -1 if it isn't in this snapshot.
+     */
+    public int indexOf(int id){
+        int slot = slotOf(id);
+        return indexSlots[slot] - 1;
+    }
+
+    /**
+     * Returns the index of the first animal (in the order of the snapshot) whose current position is within the specified radius of a position,
+     * like going through the animals one by one, but only the animals in the grid cells around the position are compared.
+     * <p>
+     * Note: The grid is built by the first call, so this method should only be called by one thread (e.g. the drawing thread).
+     * @param x The x-position.
+     * @param y The y-position.
+     * @param radius The largest distance to the position. Should be a positive value.
+     * @return The index of the animal, or -1 if no animal is within the radius.
+     */
+    public int indexAt(float x, float y, float radius){
+        if(radius <= 0) throw new IllegalArgumentException("radius needs to be positive");
+        if(ids.length == 0) return -1;
+        if(cellStarts == null) buildGrid();
+
+        int firstColumn = Math.max(0, (int) Math.floor((x - radius - gridLeft) / GRID_CELL)), lastColumn = Math.min(gridColumns - 1, (int) Math.floor((x + radius - gridLeft) / GRID_CELL));
+        int firstRow = Math.max(0, (int) Math.floor((y - radius - gridTop) / GRID_CELL)), lastRow = Math.min(gridRows - 1, (int) Math.floor((y + radius - gridTop) / GRID_CELL));
+        int found = -1;
+        for(int row = firstRow; row <= lastRow; row++){
+            for(int column = firstColumn; column <= lastColumn; column++){
+                int cell = row * gridColumns + column;
+                // the indices within a cell are ascending, so the first hit is the first animal of this cell
+                for(int i = cellStarts[cell]; i < cellStarts[cell + 1]; i++){
+                    int index = cellIndices[i];
+                    if(found >= 0 && index > found) break;
+                    if(Math.hypot(this.x[index] - x, this.y[index] - y) <= radius){
+                        found = index;
+                        break;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * (private) Sorts the indices of the animals by their grid cell with a counting sort, which keeps them ascending within every cell.
+     */
+    private void buildGrid(){
+        float left = Float.MAX_VALUE, top = Float.MAX_VALUE, right = -Float.MAX_VALUE, bottom = -Float.MAX_VALUE;
+        for(int i = 0; i < ids.length; i++){
+            left = Math.min(left, x[i]);
+            top = Math.min(top, y[i]);
+            right = Math.max(right, x[i]);
+            bottom = Math.max(bottom, y[i]);
+        }
+        int columns = (int) ((right - left) / GRID_CELL) + 1, rows = (int) ((bottom - top) / GRID_CELL) + 1;
+
+        int[] cells = new int[ids.length], starts = new int[columns * rows + 1], indices = new int[ids.length];
+        for(int i = 0; i < ids.length; i++){
+            cells[i] = (int) ((y[i] - top) / GRID_CELL) * columns + (int) ((x[i] - left) / GRID_CELL);
+            starts[cells[i] + 1]++;
+        }
+        for(int cell = 0; cell < columns * rows; cell++) starts[cell + 1] += starts[cell];
+        int[] next = Arrays.copyOf(starts, columns * rows);
+        for(int i = 0; i < ids.length; i++) indices[next[cells[i]]++] = i;
+
+        gridLeft = left;
+        gridTop = top;
+        gridColumns = columns;
+        gridRows = rows;
+        cellIndices = indices;
+        cellStarts = starts;
+    }
+
+    /**
+     * (private) Finds the slot of the passed id, which is either the slot holding it or the empty slot it would be put into.
+     */
+    private int slotOf(int id){
+        int mask = idSlots.length - 1;
+        // the ids are consecutive, so a multiplicative hash spreads them over the whole table
+        int slot = (id * 0x9E3779B9 >>> 7) & mask;
+        while(indexSlots[slot] != 0 && idSlots[slot] != id) slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    /**
+     * Returns the x-position of an animal between the tick before and the current tick.
+     * @param index The index of the animal.
+     * @param fraction The fraction of the tick (see {@link #fractionAt(long)}).
+     * @return The interpolated x-position.
+     */
+    public float getX(int index, float fraction){return previousX[index] + (x[index] - previousX[index]) * fraction;}
+    /**
+     * Returns the y-position of an animal between the tick before and the current tick.
+     * @param index The index of the animal.
+     * @param fraction The fraction of the tick (see {@link #fractionAt(long)}).
+     * @return The interpolated y-position.
+     */
+    public float getY(int index, float fraction){return previousY[index] + (y[index] - previousY[index]) * fraction;}
+
+    //getter for the number of animals
+    public int size(){return this.ids.length;}
+    //getter for the number of bunnies (true) or foxes (false), like IEcoModel.getAnimalCountOf but without going through the animals
+    public int getAnimalCountOf(boolean herbivore){return herbivore ? this.herbivores : this.ids.length - this.herbivores;}
+    //getter for the number of ticks simulated before this snapshot
+    public long getTick(){return this.tick;}
+    //getter for the time this snapshot was published
+    public long getPublishedAt(){return this.publishedAt;}
+    //getter for the id of an animal
+    public int getId(int index){return this.ids[index];}
+    //getter for the current x-velocity of an animal
+    public float getVx(int index){return this.vx[index];}
+    //getter for the current y-velocity of an animal
+    public float getVy(int index){return this.vy[index];}
+    //getter for whether an animal is a bunny
+    public boolean isHerbivore(int index){return this.herbivore[index];}
+    //getter for whether an animal is thinking, so it doesn't move
+    public boolean isThinking(int index){return this.thinking[index];}
+    //getter for the current hunger of an animal
+    public float getHunger(int index){return this.hunger[index];}
+    //getter for the current thirst of an animal
+    public float getThirst(int index){return this.thirst[index];}
+}
@@ -0,0 +1,37 @@
+package model;
+
+/**
+ * (package-private) Class that screens positions against a range for the neighbor lists of both engines ({@link NeighborList} and {@link EcsWorld}),
+ * as a loop over primitive arrays (one array per attribute, index i is animal i).
+ * <p>
+ * The loop compares squared distances instead of calling {@link Math#hypot(double, double)}, reads no objects and counts the animals in range without a branch.
+ * Writing the indices in range one after another depends on the count of the previous iteration, so the JIT compiler doesn't turn the loop into SIMD instructions.
+ */
+final class RangeScreen {
+
+    private RangeScreen(){}
+
+    /**
+     * (package-private) Screens the animals from index from (inclusive) to index to (exclusive) against the passed position with squared distances.
+     * @param x The x-positions of the animals.
+     * @param y The y-positions of the animals.
+     * @param from The first index to screen.
+     * @param to The index after the last index to screen.
+     * @param centerX The x-position to screen against.
+     * @param centerY The y-position to screen against.
+     * @param range The range to screen with, compared without taking the root.
+     * @param result Receives the indices of the animals closer than range, starting at index 0. Needs a length of at least to - from.
+     * @return The number of indices written to result.
+     */
+    static int screenInRange(float[] x, float[] y, int from, int to, float centerX, float centerY, float range, int[] result){
+        float squaredRange = range * range;
+        int found = 0;
+        for(int i = from; i < to; i++){
+            float dx = x[i] - centerX, dy = y[i] - centerY;
+            // written unconditionally and only counted when in range, so the loop has no branch to mispredict
+            result[found] = i;
+            found += (dx * dx + dy * dy < squaredRange) ? 1 : 0;
+        }
+        return found;
+    }
+}
@@ -1,6 +1,8 @@
 package model;
 
+import java.nio.ByteBuffer;
 import java.util.Random;
+import java.util.function.Consumer;
 
 
 /**
@@ -17,6 +19,10 @@ public class Resource{
     private final float x, y;
     private double remainingPercentage;
     private boolean regenerating, unusable, currentlyInUse;
+    private ResourceField field;
+    private int index;
+    private Consumer<Resource> onUse;
+    private final ResourceReservation reservation = new ResourceReservation();
 
 
     /**
@@ -25,8 +31,16 @@ public class Resource{
      * @param width Assigns the initial spawn position based on the width.
      * @param height Assigns the initial spawn position on the width.
      */
-    Resource(boolean resourceTypeWater, int width, int height){
-        Random random = new Random();
+    Resource(boolean resourceTypeWater, int width, int height){this(resourceTypeWater, width, height, new Random());}
+
+    /**
+     * (package-private) Constructor for new Resource with specified parameters, placed with the passed source of randomness.
+     * @param resourceTypeWater Assigns water flag to differentiate between water and grass.
+     * @param width Assigns the initial spawn position based on the width.
+     * @param height Assigns the initial spawn position on the width.
+     * @param random The source of randomness used to place the resource, a seeded one makes the placement reproducible.
+     */
+    Resource(boolean resourceTypeWater, int width, int height, Random random){
         this.resourceTypeWater = resourceTypeWater;
         this.remainingPercentage = 100.0;
 
@@ -35,6 +49,19 @@ public class Resource{
         y = random.nextFloat(10, height- 10);
     }
 
+    /**
+     * (package-private) Constructor for a new Resource at the passed position, like a resource another process placed (see {@link WorldPart}).
+     * @param resourceTypeWater Assigns water flag to differentiate between water and grass.
+     * @param x The position on the x-axis.
+     * @param y The position on the y-axis.
+     */
+    Resource(boolean resourceTypeWater, float x, float y){
+        this.resourceTypeWater = resourceTypeWater;
+        this.remainingPercentage = 100.0;
+        this.x = x;
+        this.y = y;
+    }
+
 
     /**
      * (package-private) Checks if this resource is {@link #currentlyInUse}, if it is {@link #remainingPercentage} will be decremented.
@@ -48,6 +75,7 @@ public class Resource{
      * Furthermore, this method lets this resource regenerate if it is not being used.
      */
     void regenerate(){
+        boolean wasUsable = isUsable(), wasReservable = isReservable();
 
         //checks remaining percentage
         if(remainingPercentage <= 100){
@@ -61,8 +89,94 @@ public class Resource{
 
             if(remainingPercentage >= 100) regenerating = unusable = false;
         }
+        reportUsability(wasUsable);
+        reportReservable(wasReservable);
+    }
+
+    /**
+     * (package-private) Writes everything of this resource, which can change during a tick, into the passed buffer (see {@link WorldCodec} for the layout).
+     * @param buffer The buffer to write into.
+     */
+    void writeState(ByteBuffer buffer){
+        buffer.putDouble(remainingPercentage).put((byte) ((regenerating ? 1 : 0) | (unusable ? 2 : 0) | (currentlyInUse ? 4 : 0)));
+        reservation.writeState(buffer);
+    }
+
+    /**
+     * (package-private) Reads what {@link #writeState(ByteBuffer)} wrote.
+     * @param buffer The buffer to read from.
+     */
+    void readState(ByteBuffer buffer){
+        boolean wasUsable = isUsable(), wasReservable = isReservable(), wasIdle = isIdle();
+        remainingPercentage = buffer.getDouble();
+        byte flags = buffer.get();
+        regenerating = (flags & 1) != 0;
+        unusable = (flags & 2) != 0;
+        currentlyInUse = (flags & 4) != 0;
+        reservation.readState(buffer);
+        // the field and the owner learn about the change like about a change of this process
+        reportUsability(wasUsable);
+        reportReservable(wasReservable);
+        if(wasIdle && !isIdle() && onUse != null) onUse.accept(this);
+    }
+
+    /**
+     * (package-private) Lets this resource report every change of its usability to the passed field.
+     * @param field The field to be informed.
+     * @param index The index of this resource within the field.
+     */
+    void watch(ResourceField field, int index){
+        this.field = field;
+        this.index = index;
+    }
+
+    /**
+     * (package-private) Lets this resource report when it is used while being idle (see {@link #isIdle()}), so its owner knows it has to regenerate it again.
+     * @param onUse Receives this resource.
+     */
+    void watchUse(Consumer<Resource> onUse){this.onUse = onUse;}
+
+    /**
+     * (package-private) Checks if this resource is full and not used, which makes {@link #regenerate()} and {@link #usage()} change nothing until it is used again.
+     * @return True if the resource is idle.
+     */
+    boolean isIdle(){return !regenerating && !currentlyInUse && remainingPercentage > 100;}
+
+    /**
+     * (package-private) Lets the passed animal reserve this resource on its way to it: it claims a free resource, or waits in the queue of a resource another animal holds (see {@link ResourceReservation}).
+     * @param animal The id of the animal.
+     * @return True if the animal holds this resource or waits for it, false if it has to look for another resource.
+     */
+    boolean reserve(int animal){
+        boolean wasUsable = isUsable();
+        boolean reserved = reservation.reserve(animal, !unusable && !currentlyInUse);
+        reportUsability(wasUsable);
+        return reserved;
     }
 
+    /**
+     * (package-private) Lets the passed animal give up its claim of this resource, which goes to the first waiting animal, or its place in the queue.
+     * @param animal The id of the animal.
+     */
+    void release(int animal){
+        boolean wasUsable = isUsable(), wasReservable = isReservable();
+        reservation.release(animal);
+        reportUsability(wasUsable);
+        reportReservable(wasReservable);
+    }
+
+    /**
+     * (private) Informs the watching field, if the usability of this resource changed.
+     * @param wasUsable The usability before the change.
+     */
+    private void reportUsability(boolean wasUsable){if(field != null && wasUsable != isUsable()) field.usabilityChanged(index);}
+
+    /**
+     * (private) Informs the watching field, if an animal can reserve this resource again (see {@link ResourceField#becameReservable(int)}).
+     * @param wasReservable Whether an animal could reserve the resource before the change.
+     */
+    private void reportReservable(boolean wasReservable){if(field != null && !wasReservable && isReservable()) field.becameReservable(index);}
+
     /**
      * (package-private) Getter returning resource attributes accessed with:
      * <pre>{@code
@@ -76,5 +190,28 @@ public class Resource{
      */
     ResourceAttributes getResourceAttributes(){return new ResourceAttributes(this.resourceTypeWater, this.x, this.y, this.remainingPercentage, this.unusable, this.currentlyInUse);}
     boolean getUnusable(){return this.unusable;}
-    void setCurrentlyInUse(boolean currentlyInUse){this.currentlyInUse = currentlyInUse;}
+    void setCurrentlyInUse(boolean currentlyInUse){
+        boolean wasUsable = isUsable(), wasReservable = isReservable(), wasIdle = isIdle();
+        this.currentlyInUse = currentlyInUse;
+        reportUsability(wasUsable);
+        reportReservable(wasReservable);
+        if(wasIdle && currentlyInUse && onUse != null) onUse.accept(this);
+    }
+    // a resource can only be chosen by an animal, if it is neither depleted nor used or claimed by another animal
+    boolean isUsable(){return !this.unusable && !this.currentlyInUse && !reservation.isHeld();}
+    boolean isReservedBy(int animal){return reservation.isHeldBy(animal);}
+    boolean isWaiting(int animal){return reservation.isWaiting(animal);}
+    // an animal can only wait for a resource another animal holds, and only if the queue has room
+    boolean canWait(){return reservation.isHeld() && reservation.hasRoom();}
+    // an animal can reserve a resource which is usable, or wait for it if it isn't depleted
+    boolean isReservable(){return isUsable() || !this.unusable && canWait();}
+    //getter for the contention metrics
+    ResourceReservation getReservation(){return this.reservation;}
+    float getX(){return this.x;}
+    float getY(){return this.y;}
+    //getter for the sharded world, the index of this resource within its field
+    int getIndex(){return this.index;}
+    // plain getters for the entity engine (see EcsSystems), which would otherwise create a ResourceAttributes record per access
+    boolean isWater(){return this.resourceTypeWater;}
+    boolean isCurrentlyInUse(){return this.currentlyInUse;}
 }
@@ -0,0 +1,89 @@
+package model;
+
+/**
+ * (package-private) Class that remembers, for one animal, that no resource it could reserve was in its sight, so the next lookups can be skipped (see {@link EcoModel}).
+ * <p>
+ * The cache holds the nearest resource of the looked up type which the animal could reserve (see {@link ResourceField#nearestReservable(boolean, float, float)})
+ * and its squared distance from where it was looked up. Every other such resource is at least as far away, so nothing comes into sight until the animal moved
+ * as far as the candidate was beyond its sight range. A resource which becomes reservable around the animal becomes the candidate, if it is nearer
+ * (see {@link ResourceField#nearestReservableSince(boolean, int, int, float, float)}), which shortens the distance the animal may move.
+ * The cache is dropped when the animal moved further, when it looks for the other type of resource or when it left the region of the lookup.
+ * <p>
+ * Note: While the cache holds, the lookup would only give a resource out of sight, which an animal doesn't handle, so skipping it doesn't change the simulation.
+ * The candidate becoming unusable or used doesn't drop the cache: the other resources are still at least as far away, so nothing can come into sight earlier.
+ */
+final class ResourceCache {
+    // a little less slack than the distances allow, so rounding errors never let a resource slip into sight
+    private static final double MARGIN = 1e-3;
+    private boolean valid, water;
+    private int region, epoch;
+    private float x, y;
+    private Resource candidate;
+    private double distanceSquared, slack;
+
+    /**
+     * (package-private) Checks if no resource of the passed type the animal could reserve is in its sight, like at the last lookup.
+     * @param water True for water, false for grass.
+     * @param animal The animal of this cache.
+     * @param field The field the resource would be looked up in.
+     * @return True if the lookup can be skipped, false if the animal has to look the resource up.
+     */
+    boolean holds(boolean water, Animal animal, ResourceField field){
+        if(!valid || water != this.water || field.regionOf(animal.getX(), animal.getY()) != region) return false;
+        int current = field.epoch(water, region);
+        if(current != epoch){
+            int nearest = field.nearestReservableSince(water, region, epoch, x, y);
+            if(nearest == -2) return false;
+            if(nearest >= 0){
+                Resource changed = field.get(nearest);
+                double dx = changed.getX() - x, dy = changed.getY() - y;
+                if(dx * dx + dy * dy < distanceSquared) setCandidate(changed, animal.getSightRange());
+            }
+            epoch = current;
+        }
+        double dx = animal.getX() - x, dy = animal.getY() - y;
+        return slack >= 0 && dx * dx + dy * dy <= slack * slack;
+    }
+
+    /**
+     * (package-private) Remembers that no resource of the passed type the animal could reserve is in its sight.
+     * @param water True for water, false for grass.
+     * @param animal The animal of this cache, at the position of the lookup.
+     * @param candidate The nearest resource the animal could reserve, or null if there is none in the region.
+     * @param field The field the resource was looked up in.
+     */
+    void store(boolean water, Animal animal, Resource candidate, ResourceField field){
+        this.valid = true;
+        this.water = water;
+        this.x = animal.getX();
+        this.y = animal.getY();
+        this.region = field.regionOf(x, y);
+        this.epoch = field.epoch(water, region);
+        setCandidate(candidate, animal.getSightRange());
+    }
+
+    /**
+     * (private) Sets the nearest resource the animal could reserve and the distance the animal may move before it could come into sight.
+     */
+    private void setCandidate(Resource candidate, double sightRange){
+        this.candidate = candidate;
+        if(candidate == null){
+            distanceSquared = slack = Double.POSITIVE_INFINITY;
+            return;
+        }
+        double dx = candidate.getX() - x, dy = candidate.getY() - y;
+        distanceSquared = dx * dx + dy * dy;
+        // negative if the candidate is in sight, which never holds
+        slack = Math.sqrt(distanceSquared) - sightRange - MARGIN;
+    }
+
+    // forgets the last lookup, e.g. when the animal is recycled
+    void clear(){
+        valid = false;
+        candidate = null;
+    }
+    //getter for tests
+    Resource getCandidate(){return this.candidate;}
+    //getter for tests
+    double getDistanceSquared(){return this.distanceSquared;}
+}
@@ -0,0 +1,299 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * (package-private) Class that precomputes, for every cell of a coarse grid over the ecosystem, the nearest usable water source and the nearest usable grass source.
+ * <p>
+ * Resources never move, so the field only changes when a resource becomes unusable (it is used or depleted) or usable again,
+ * which the resources report themselves (see {@link Resource#watch(ResourceField, int)}). Such a change only updates the cells in range of that resource.
+ * Only resources within {@link #range} of a cell are considered, which covers the largest sight range, so animals can look up their resource in O(1)
+ * instead of comparing themselves with every resource.
+ */
+class ResourceField {
+    /**
+     * The edge length of a cell.
+     */
+    static final float CELL_SIZE = 20;
+    private final List<Resource> resources;
+    private final int columns, rows;
+    private final float range;
+    // index 0 is for grass, index 1 for water
+    private final int[][] nearest = new int[2][];
+    private final float[][] nearestDistance = new float[2][];
+    // the resources of each type sorted into buckets as big as the range, to find the candidates of a cell quickly
+    private final int bucketColumns, bucketRows;
+    private final List<List<List<Integer>>> buckets = List.of(new ArrayList<>(), new ArrayList<>());
+    private final boolean[] usable;
+    // per type and bucket, how often a resource in the bucket or the eight around it became reservable (see ResourceCache), and which of them did last
+    private final int[][] epochs = new int[2][], recent = new int[2][];
+    // the number of changes remembered per bucket, older ones can only be told apart by their epoch
+    private static final int RECENT = 8;
+
+    /**
+     * (package-private) Constructor for a new field over the passed resources, which rasterizes the ecosystem and lets every resource report its changes to this field.
+     * @param resources All resources of the simulation, their indices are used as ids and may not change.
+     * @param width The width of the ecosystem.
+     * @param height The height of the ecosystem.
+     * @param maxSightRange The largest sight range of any animal.
+     */
+    ResourceField(List<Resource> resources, int width, int height, double maxSightRange){
+        this.resources = resources;
+        this.columns = (int) Math.ceil(width / CELL_SIZE) + 1;
+        this.rows = (int) Math.ceil(height / CELL_SIZE) + 1;
+        // the half diagonal of a cell is added, since the cells are looked up by the animals' positions and not by their centers
+        this.range = (float) maxSightRange + CELL_SIZE * 0.7072f;
+        this.bucketColumns = (int) Math.ceil(width / range) + 1;
+        this.bucketRows = (int) Math.ceil(height / range) + 1;
+
+        for(int type = 0; type < 2; type++){
+            nearest[type] = new int[columns * rows];
+            Arrays.fill(nearest[type], -1);
+            nearestDistance[type] = new float[columns * rows];
+            epochs[type] = new int[bucketColumns * bucketRows];
+            recent[type] = new int[bucketColumns * bucketRows * RECENT];
+            for(int i = 0; i < bucketColumns * bucketRows; i++) buckets.get(type).add(new ArrayList<>());
+        }
+
+        usable = new boolean[resources.size()];
+        for(int i = 0; i < resources.size(); i++){
+            Resource resource = resources.get(i);
+            buckets.get(type(resource)).get(bucketOf(resource.getX(), resource.getY())).add(i);
+            resource.watch(this, i);
+            if(resource.isUsable()) becameUsable(i);
+        }
+    }
+
+    /**
+     * (package-private) Looks up the nearest usable resource of the passed type for the passed position.
+     * @param water True to look up water, false to look up grass.
+     * @param x The x-position to look up.
+     * @param y The y-position to look up.
+     * @return The nearest usable resource of the cell containing the position, or null if there is none in range.
+     */
+    Resource nearest(boolean water, float x, float y){
+        int index = nearest[water ? 1 : 0][cellOf(x, y)];
+        return index < 0 ? null : resources.get(index);
+    }
+
+    /**
+     * (package-private) Looks up the nearest resource of the passed type within the passed sight range, which another animal reserved and whose queue has room (see {@link Resource#canWait()}).
+     * <p>
+     * Note: Reserved resources aren't precomputed, so the resources in the nine buckets around the position are compared. Ties are won by the lower index, like in {@link #nearest(boolean, float, float)}.
+     * @param water True to look up water, false to look up grass.
+     * @param x The x-position to look up.
+     * @param y The y-position to look up.
+     * @param sightRange The sight range of the animal, at most the largest sight range the field was built for.
+     * @return The nearest resource to wait for, or null if there is none in sight.
+     */
+    Resource nearestReserved(boolean water, float x, float y, double sightRange){
+        int type = water ? 1 : 0, bucket = bucketOf(x, y), bucketX = bucket % bucketColumns, bucketY = bucket / bucketColumns;
+        Resource nearestResource = null;
+        int nearestIndex = -1;
+        double nearestDistance = 0;
+        for(int dy = -1; dy <= 1; dy++)
+            for(int dx = -1; dx <= 1; dx++){
+                if(bucketX + dx < 0 || bucketX + dx >= bucketColumns || bucketY + dy < 0 || bucketY + dy >= bucketRows) continue;
+                for(int candidate : buckets.get(type).get((bucketY + dy) * bucketColumns + bucketX + dx)){
+                    Resource resource = resources.get(candidate);
+                    if(usable[candidate] || resource.getUnusable() || !resource.canWait()) continue;
+                    double distance = Math.hypot(resource.getX() - x, resource.getY() - y);
+                    if(distance < sightRange && (nearestResource == null || distance < nearestDistance || distance == nearestDistance && candidate < nearestIndex)){
+                        nearestResource = resource;
+                        nearestIndex = candidate;
+                        nearestDistance = distance;
+                    }
+                }
+            }
+        return nearestResource;
+    }
+
+    /**
+     * (package-private) Looks up the nearest resource of the passed type, which an animal could reserve: a usable one, or a reserved one whose queue has room.
+     * Only the resources in the nine buckets around the position are compared, every other resource is further away than the largest sight range.
+     * @param water True to look up water, false to look up grass.
+     * @param x The x-position to look up.
+     * @param y The y-position to look up.
+     * @return The nearest resource, or null if there is none in the nine buckets.
+     */
+    Resource nearestReservable(boolean water, float x, float y){
+        int type = water ? 1 : 0, bucket = bucketOf(x, y), bucketX = bucket % bucketColumns, bucketY = bucket / bucketColumns;
+        Resource nearestResource = null;
+        double nearestDistance = Double.MAX_VALUE;
+        for(int dy = -1; dy <= 1; dy++)
+            for(int dx = -1; dx <= 1; dx++){
+                if(bucketX + dx < 0 || bucketX + dx >= bucketColumns || bucketY + dy < 0 || bucketY + dy >= bucketRows) continue;
+                for(int candidate : buckets.get(type).get((bucketY + dy) * bucketColumns + bucketX + dx)){
+                    Resource resource = resources.get(candidate);
+                    if(!resource.isReservable()) continue;
+                    double distanceX = resource.getX() - x, distanceY = resource.getY() - y, distance = distanceX * distanceX + distanceY * distanceY;
+                    if(distance < nearestDistance){
+                        nearestResource = resource;
+                        nearestDistance = distance;
+                    }
+                }
+            }
+        return nearestResource;
+    }
+
+    /**
+     * (package-private) Gives the region of the passed position, the lookups of {@link #nearestReservable(boolean, float, float)} from one region compare the same resources.
+     * @param x The x-position.
+     * @param y The y-position.
+     * @return The index of the bucket containing the position.
+     */
+    int regionOf(float x, float y){return bucketOf(x, y);}
+
+    /**
+     * (package-private) Gives how often a resource of the passed type, which a lookup from the passed region compares, became reservable.
+     * @param water True for water, false for grass.
+     * @param region The region (see {@link #regionOf(float, float)}).
+     * @return The epoch of the region.
+     */
+    int epoch(boolean water, int region){return epochs[water ? 1 : 0][region];}
+
+    /**
+     * (package-private) Finds the nearest resource of the passed type to the passed position, which became reservable in the passed region after the passed epoch.
+     * @param water True for water, false for grass.
+     * @param region The region (see {@link #regionOf(float, float)}).
+     * @param epoch The epoch of the region when the position was looked up.
+     * @param x The x-position.
+     * @param y The y-position.
+     * @return The index of the resource, -1 if none became reservable or -2 if more resources became reservable than the region remembers.
+     */
+    int nearestReservableSince(boolean water, int region, int epoch, float x, float y){
+        int type = water ? 1 : 0, current = epochs[type][region];
+        if(current - epoch > RECENT) return -2;
+        int nearestIndex = -1;
+        double nearestDistance = Double.MAX_VALUE;
+        for(int change = epoch; change != current; change++){
+            int index = recent[type][region * RECENT + Math.floorMod(change, RECENT)];
+            Resource resource = resources.get(index);
+            double dx = resource.getX() - x, dy = resource.getY() - y;
+            if(dx * dx + dy * dy < nearestDistance){
+                nearestIndex = index;
+                nearestDistance = dx * dx + dy * dy;
+            }
+        }
+        return nearestIndex;
+    }
+
+    //getter for the resource with an index given by the field
+    Resource get(int index){return resources.get(index);}
+
+    /**
+     * (package-private) Updates the field after the passed resource changed its usability.
+     * <p>
+     * Note: The turns of a sharded simulation change resources at the same time (see {@link ShardedWorld}), so the changes are made one after another.
+     * They are made in any order, which gives the same field.
+     * @param index The index of the resource.
+     */
+    synchronized void usabilityChanged(int index){
+        if(resources.get(index).isUsable()) becameUsable(index);
+        else becameUnusable(index);
+    }
+
+    /**
+     * (package-private) Counts that animals can reserve the passed resource again (see {@link Resource#isReservable()}), in every region comparing it.
+     * Only these changes can bring a resource into the sight of an animal which had none, a resource which can't be reserved anymore is only skipped by the next lookup.
+     * @param index The index of the resource.
+     */
+    synchronized void becameReservable(int index){
+        Resource resource = resources.get(index);
+        int type = type(resource), bucket = bucketOf(resource.getX(), resource.getY()), bucketX = bucket % bucketColumns, bucketY = bucket / bucketColumns;
+        for(int dy = -1; dy <= 1; dy++)
+            for(int dx = -1; dx <= 1; dx++)
+                if(bucketX + dx >= 0 && bucketX + dx < bucketColumns && bucketY + dy >= 0 && bucketY + dy < bucketRows){
+                    int region = (bucketY + dy) * bucketColumns + bucketX + dx;
+                    recent[type][region * RECENT + Math.floorMod(epochs[type][region], RECENT)] = index;
+                    epochs[type][region]++;
+                }
+    }
+
+    /**
+     * (private) Lets every cell in range, which is closer to the passed resource than to its current nearest resource, point to the passed resource.
+     * Ties are won by the lower index, so the field doesn't depend on the order of the changes.
+     * @param index The index of the resource which became usable.
+     */
+    private void becameUsable(int index){
+        usable[index] = true;
+        Resource resource = resources.get(index);
+        int type = type(resource);
+
+        forCellsInRange(resource, cell -> {
+            float distance = squaredDistanceToCell(resource, cell);
+            int current = nearest[type][cell];
+            if(distance <= range * range && (current < 0 || distance < nearestDistance[type][cell] || distance == nearestDistance[type][cell] && index < current)){
+                nearest[type][cell] = index;
+                nearestDistance[type][cell] = distance;
+            }
+        });
+    }
+
+    /**
+     * (private) Searches a new nearest resource for every cell which pointed to the passed resource.
+     * @param index The index of the resource which became unusable.
+     */
+    private void becameUnusable(int index){
+        usable[index] = false;
+        Resource resource = resources.get(index);
+        int type = type(resource);
+
+        forCellsInRange(resource, cell -> {
+            if(nearest[type][cell] != index) return;
+            nearest[type][cell] = -1;
+
+            int bucketX = (int) (cellCenter(cell % columns) / range), bucketY = (int) (cellCenter(cell / columns) / range);
+            for(int dx = -1; dx <= 1; dx++)
+                for(int dy = -1; dy <= 1; dy++){
+                    if(bucketX + dx < 0 || bucketX + dx >= bucketColumns || bucketY + dy < 0 || bucketY + dy >= bucketRows) continue;
+                    for(int candidate : buckets.get(type).get((bucketY + dy) * bucketColumns + bucketX + dx)){
+                        if(!usable[candidate]) continue;
+                        float distance = squaredDistanceToCell(resources.get(candidate), cell);
+                        int current = nearest[type][cell];
+                        if(distance <= range * range && (current < 0 || distance < nearestDistance[type][cell] || distance == nearestDistance[type][cell] && candidate < current)){
+                            nearest[type][cell] = candidate;
+                            nearestDistance[type][cell] = distance;
+                        }
+                    }
+                }
+        });
+    }
+
+    /**
+     * (private) Calls the passed action for every cell within range of the passed resource.
+     */
+    private void forCellsInRange(Resource resource, IntConsumer action){
+        int fromX = Math.max(0, (int) ((resource.getX() - range) / CELL_SIZE)), toX = Math.min(columns - 1, (int) ((resource.getX() + range) / CELL_SIZE));
+        int fromY = Math.max(0, (int) ((resource.getY() - range) / CELL_SIZE)), toY = Math.min(rows - 1, (int) ((resource.getY() + range) / CELL_SIZE));
+        for(int cellY = fromY; cellY <= toY; cellY++)
+            for(int cellX = fromX; cellX <= toX; cellX++) action.accept(cellY * columns + cellX);
+    }
+
+    private float squaredDistanceToCell(Resource resource, int cell){
+        float dx = resource.getX() - cellCenter(cell % columns), dy = resource.getY() - cellCenter(cell / columns);
+        return dx * dx + dy * dy;
+    }
+
+    private static float cellCenter(int cellCoordinate){return (cellCoordinate + 0.5f) * CELL_SIZE;}
+
+    /**
+     * (private) Calculates the cell containing the passed position, positions outside the ecosystem are clamped to the border cells.
+     */
+    private int cellOf(float x, float y){
+        int cellX = Math.min(columns - 1, Math.max(0, (int) (x / CELL_SIZE)));
+        int cellY = Math.min(rows - 1, Math.max(0, (int) (y / CELL_SIZE)));
+        return cellY * columns + cellX;
+    }
+
+    private int bucketOf(float x, float y){
+        int bucketX = Math.min(bucketColumns - 1, Math.max(0, (int) (x / range)));
+        int bucketY = Math.min(bucketRows - 1, Math.max(0, (int) (y / range)));
+        return bucketY * bucketColumns + bucketX;
+    }
+
+    private static int type(Resource resource){return resource.getResourceAttributes().resourceTypeWater() ? 1 : 0;}
+}
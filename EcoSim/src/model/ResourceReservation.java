@@ -0,0 +1,124 @@
+package model;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * (package-private) Class that keeps the reservation of one {@link Resource}: the animal which claimed it and a short queue of animals waiting for it.
+ * <p>
+ * An animal claims a resource as soon as it heads for it, instead of finding out on arrival that another animal was faster. A claimed resource isn't usable
+ * for the other animals (see {@link Resource#isUsable()}), so the {@link ResourceField} sends them to the next-nearest free resource. An animal which only finds
+ * claimed resources in sight waits in the queue of the nearest one and gets the claim, once the animals before it released it.
+ * <p>
+ * The claim is a compare-and-set, so two threads reserving a resource at the same time can't both win it.
+ * The queue is only changed while holding the lock of the reservation, which is also where the claim is handed on.
+ * <p>
+ * Note: Every reservation counts its claims, its conflicts (reservations of an animal finding another animal holding the resource) and the turns animals waited in its queue.
+ */
+final class ResourceReservation {
+    // the id of no animal
+    static final int NONE = -1;
+    // the queue only has to bridge the time until the resource is free again, animals finding it full look for another resource
+    static final int QUEUE_LENGTH = 2;
+    private final AtomicInteger holder = new AtomicInteger(NONE);
+    // guarded by this, the animals in the order they get the claim
+    private final int[] queue = new int[QUEUE_LENGTH];
+    private int queued;
+    private final AtomicLong claims = new AtomicLong(), conflicts = new AtomicLong(), waitTicks = new AtomicLong();
+
+    /**
+     * (package-private) Lets the passed animal claim the resource, or wait in its queue if another animal holds it.
+     * @param animal The id of the animal.
+     * @param free True if the resource can be used right away, a resource which is used or depleted can't be claimed (it can only be waited for).
+     * @return True if the animal holds the resource or waits for it, false if the queue is full or nobody would hand the resource on.
+     */
+    boolean reserve(int animal, boolean free){
+        // the usual case needs no lock: a free resource nobody holds
+        if(free && holder.compareAndSet(NONE, animal)){
+            claims.incrementAndGet();
+            return true;
+        }
+        synchronized(this){
+            if(holder.get() == NONE){
+                // used without a reservation (or depleted), so there is nobody to wait for
+                if(!free) return false;
+                // released since the compare-and-set above
+                if(holder.compareAndSet(NONE, animal)){
+                    claims.incrementAndGet();
+                    return true;
+                }
+            }
+            conflicts.incrementAndGet();
+            if(queued == QUEUE_LENGTH) return false;
+            queue[queued++] = animal;
+            return true;
+        }
+    }
+
+    /**
+     * (package-private) Lets the passed animal give up the resource: the claim is handed on to the first waiting animal, a waiting animal leaves the queue.
+     * @param animal The id of the animal.
+     */
+    synchronized void release(int animal){
+        if(holder.get() != animal){
+            leaveQueue(animal);
+            return;
+        }
+        if(queued == 0){
+            holder.set(NONE);
+            return;
+        }
+        int next = queue[0];
+        leaveQueue(next);
+        holder.set(next);
+        claims.incrementAndGet();
+    }
+
+    /**
+     * (private) Removes the passed animal from the queue, the animals behind it move up.
+     */
+    private void leaveQueue(int animal){
+        for(int i = 0; i < queued; i++){
+            if(queue[i] != animal) continue;
+            System.arraycopy(queue, i + 1, queue, i, queued - i - 1);
+            queued--;
+            return;
+        }
+    }
+
+    /**
+     * (package-private) Writes the holder and the queue into the passed buffer, {@value #QUEUE_LENGTH} + 1 ints with {@value #NONE} for the free places.
+     * @param buffer The buffer to write into.
+     */
+    synchronized void writeState(ByteBuffer buffer){
+        buffer.putInt(holder.get());
+        for(int i = 0; i < QUEUE_LENGTH; i++) buffer.putInt(i < queued ? queue[i] : NONE);
+    }
+
+    /**
+     * (package-private) Reads what {@link #writeState(ByteBuffer)} wrote.
+     * @param buffer The buffer to read from.
+     */
+    synchronized void readState(ByteBuffer buffer){
+        holder.set(buffer.getInt());
+        queued = 0;
+        for(int i = 0; i < QUEUE_LENGTH; i++){
+            int waiting = buffer.getInt();
+            if(waiting != NONE) queue[queued++] = waiting;
+        }
+    }
+
+    // counts a turn an animal spent waiting in the queue
+    void waited(){waitTicks.incrementAndGet();}
+    boolean isHeld(){return holder.get() != NONE;}
+    boolean isHeldBy(int animal){return holder.get() == animal;}
+    synchronized boolean hasRoom(){return queued < QUEUE_LENGTH;}
+    synchronized boolean isWaiting(int animal){
+        for(int i = 0; i < queued; i++) if(queue[i] == animal) return true;
+        return false;
+    }
+    long getClaims(){return claims.get();}
+    long getConflicts(){return conflicts.get();}
+    long getWaitTicks(){return waitTicks.get();}
+}
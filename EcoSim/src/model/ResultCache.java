@@ -0,0 +1,302 @@
+package model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Class that stores completed headless runs on disk, so sweeps repeating the same runs don't have to simulate them again.
+ * <p>
+ * The cache is content-addressed: every run is stored in its own file named after the SHA-256 hash of its full scenario
+ * (grid point, seed, tick limit, ecosystem size, {@link EcoModel#ENGINE_VERSION} and the species and switches of the engine),
+ * so changes to the simulation never return stale runs. Lookups memory-map the file. The total size of the directory is capped and the least recently used runs are evicted first.
+ * <p>
+ * Every lookup, store and removal is passed to the listener of the cache as an {@link Event} (see {@link #setListener(Consumer)}), the cache itself doesn't print anything.
+ * <p>
+ * Example usage:
+ * <pre>{@code
+ * // 1. Open (or create) a cache of at most 256 MB.
+ * var cache = new ResultCache(Path.of("sweep-cache"), 256L << 20);
+ *
+ * // 2. Let the sweep runner look up every run in the cache, before simulating it.
+ * new SweepRunner(Runtime.getRuntime().availableProcessors(), cache).run(spec, run -> {}, System.out::println);
+ *
+ * // 3. Check how many runs were taken from the cache.
+ * System.out.println(cache.getHits() + " hits, " + cache.getMisses() + " misses, hit rate " + cache.hitRate());
+ *
+ * // 4. Or watch every event, e.g. the runs which couldn't be stored.
+ * cache.setListener(event -> {if(event.cause() != null) System.err.println(event);});
+ * }</pre>
+ * @author Sleman Kakar
+ */
+public class ResultCache {
+    private static final String SUFFIX = ".run";
+    // "ECOR" in ASCII, followed by the version of the file layout
+    private static final int MAGIC = 0x45434F52, LAYOUT_VERSION = 1;
+    private static final int HEADER_BYTES = 2 * Integer.BYTES + 4 * Integer.BYTES + 2 * Long.BYTES + Integer.BYTES + 4 * Double.BYTES + 2 * Integer.BYTES;
+
+    private final Path directory;
+    private final long maxBytes;
+    // file name to file size, in access order, so the first entry is the least recently used one
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes, hits, misses, stores, evictions;
+    private Consumer<Event> listener = event -> {};
+
+    /**
+     * The kinds of events of a cache.
+     */
+    public enum Kind {
+        /** A run was found. */
+        HIT,
+        /** A run wasn't found. */
+        MISS,
+        /** A run was stored. */
+        STORE,
+        /** A run couldn't be stored, the cause is the reason. */
+        STORE_FAILED,
+        /** The least recently used run was removed, since the cache got too big. */
+        EVICTION,
+        /** An unreadable run was removed, the cause is the reason. */
+        REMOVAL,
+        /** The file of an evicted or removed run couldn't be deleted, the cause is the reason. */
+        DELETE_FAILED
+    }
+
+    /**
+     * Record that represents one event of a cache.
+     * <p>
+     * The record acts as a data container and is read-only.
+     *
+     * @param kind What happened.
+     * @param key The key of the run, see {@link #key(SweepSpec, SweepPoint, long, String)}.
+     * @param cause The exception which caused the event, or null if there is none.
+     */
+    public record Event(Kind kind, String key, Exception cause) {}
+
+    /**
+     * Constructs a new ResultCache in the specified directory, which is created if it doesn't exist.
+     * Runs already stored in the directory are reused, ordered by their last access.
+     * @param directory The directory the runs are stored in.
+     * @param maxBytes The maximum total size of all stored runs in bytes. Should be a positive value.
+     */
+    public ResultCache(Path directory, long maxBytes){
+        if(maxBytes <= 0) throw new IllegalArgumentException("maxBytes needs to be positive");
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+
+        try{
+            Files.createDirectories(directory);
+            try(Stream<Path> files = Files.list(directory)){
+                files.filter(file -> file.getFileName().toString().endsWith(SUFFIX))
+                        .sorted(Comparator.comparing(ResultCache::lastModified))
+                        .forEach(file -> {
+                            long size = file.toFile().length();
+                            entries.put(file.getFileName().toString(), size);
+                            totalBytes += size;
+                        });
+            }
+        }catch (IOException e){
+            throw new UncheckedIOException("The cache directory " + directory + " can't be used", e);
+        }
+        evict();
+    }
+
+    /**
+     * Calculates the key of a run, which is the hex encoded SHA-256 hash of its full scenario.
+     * @param spec The sweep the run belongs to, providing the tick limit and the ecosystem size.
+     * @param point The initial values of the run.
+     * @param seed The seed of the run.
+     * @param engineOptions The species and switches of the engine making the run, see {@link EcoModel#getEngineOptions()}.
+     * @return The key of the run.
+     */
+    public static String key(SweepSpec spec, SweepPoint point, long seed, String engineOptions){
+        String scenario = "engine=" + EcoModel.ENGINE_VERSION + ";" + engineOptions + ";bunnies=" + point.bunnies() + ";foxes=" + point.foxes()
+                + ";water=" + point.waterSources() + ";grass=" + point.grassSources() + ";seed=" + seed
+                + ";maxTicks=" + spec.maxTicks() + ";width=" + spec.width() + ";height=" + spec.height();
+        try{
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(scenario.getBytes(StandardCharsets.UTF_8)));
+        }catch (NoSuchAlgorithmException e){
+            // every java platform has to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Looks up the run with the passed key.
+     * @param key The key of the run, see {@link #key(SweepSpec, SweepPoint, long, String)}.
+     * @return The stored run, or null if the run isn't stored (or its file is unreadable, in which case it is removed).
+     */
+    public synchronized RunRecord get(String key){
+        String name = key + SUFFIX;
+        // get (unlike containsKey) moves the run to the end of the access order
+        if(entries.get(name) == null){
+            misses++;
+            listener.accept(new Event(Kind.MISS, key, null));
+            return null;
+        }
+
+        Path file = directory.resolve(name);
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            RunRecord record = decode(buffer);
+            // keeps the access order when the cache is opened again
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            hits++;
+            listener.accept(new Event(Kind.HIT, key, null));
+            return record;
+        }catch (IOException | RuntimeException e){
+            remove(name);
+            listener.accept(new Event(Kind.REMOVAL, key, e));
+            misses++;
+            listener.accept(new Event(Kind.MISS, key, null));
+            return null;
+        }
+    }
+
+    /**
+     * Stores the passed run under the passed key and evicts the least recently used runs, if the cache got too big.
+     * <p>
+     * Note: A run which can't be written is only passed to the listener, since the cache is an optimization and the sweep can go on without it.
+     * @param key The key of the run, see {@link #key(SweepSpec, SweepPoint, long, String)}.
+     * @param record The run to be stored.
+     */
+    public synchronized void put(String key, RunRecord record){
+        String name = key + SUFFIX;
+        ByteBuffer buffer = encode(record);
+        long size = buffer.remaining();
+        try{
+            // written to a temporary file first, so other processes never see half written runs
+            Path temporary = Files.createTempFile(directory, key, ".tmp");
+            try(FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)){
+                while(buffer.hasRemaining()) channel.write(buffer);
+            }
+            Files.move(temporary, directory.resolve(name), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }catch (IOException e){
+            listener.accept(new Event(Kind.STORE_FAILED, key, e));
+            return;
+        }
+        Long previous = entries.put(name, size);
+        totalBytes += size - (previous == null ? 0 : previous);
+        stores++;
+        listener.accept(new Event(Kind.STORE, key, null));
+        evict();
+    }
+
+    public synchronized long getHits(){return hits;}
+    public synchronized long getMisses(){return misses;}
+    public synchronized long getStores(){return stores;}
+    public synchronized long getEvictions(){return evictions;}
+    public synchronized long getTotalBytes(){return totalBytes;}
+    public synchronized int size(){return entries.size();}
+
+    /**
+     * Sets the listener which is passed every event of this cache, replacing the previous one.
+     * <p>
+     * Note: The listener is called while the cache is locked, so it should return quickly and must not use the cache.
+     * @param listener The listener, by default one which ignores every event.
+     */
+    public synchronized void setListener(Consumer<Event> listener){this.listener = listener;}
+
+    /**
+     * Calculates the share of lookups which were answered by the cache.
+     * @return The hit rate, from '0.0' to '1.0', or 0 if nothing was looked up yet.
+     */
+    public synchronized double hitRate(){return hits + misses == 0 ? 0 : (double) hits / (hits + misses);}
+
+    /**
+     * (private) Removes the least recently used runs, until the total size is within {@link #maxBytes}.
+     */
+    private void evict(){
+        var iterator = entries.entrySet().iterator();
+        while(totalBytes > maxBytes && iterator.hasNext()){
+            Map.Entry<String, Long> eldest = iterator.next();
+            iterator.remove();
+            totalBytes -= eldest.getValue();
+            evictions++;
+            String key = keyOf(eldest.getKey());
+            listener.accept(new Event(Kind.EVICTION, key, null));
+            try{Files.deleteIfExists(directory.resolve(eldest.getKey()));}
+            catch (IOException e){listener.accept(new Event(Kind.DELETE_FAILED, key, e));}
+        }
+    }
+
+    /**
+     * (private) Removes a single run from the cache.
+     * @param name The file name of the run.
+     */
+    private void remove(String name){
+        Long size = entries.remove(name);
+        if(size != null) totalBytes -= size;
+        try{Files.deleteIfExists(directory.resolve(name));}
+        catch (IOException e){listener.accept(new Event(Kind.DELETE_FAILED, keyOf(name), e));}
+    }
+
+    private static String keyOf(String name){return name.substring(0, name.length() - SUFFIX.length());}
+
+    /**
+     * (private) Writes a run in the binary layout of the cache files: a header with the magic number, the layout version and the summary,
+     * followed by the number of samples and both time series.
+     * @param record The run to be written.
+     * @return A buffer containing the written run, ready to be read.
+     */
+    private static ByteBuffer encode(RunRecord record){
+        RunSummary summary = record.summary();
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + 2 * record.bunnySeries().length * Integer.BYTES);
+        buffer.putInt(MAGIC).putInt(LAYOUT_VERSION)
+                .putInt(summary.point().bunnies()).putInt(summary.point().foxes()).putInt(summary.point().waterSources()).putInt(summary.point().grassSources())
+                .putLong(summary.seed()).putLong(summary.ticks()).putInt(summary.end().ordinal())
+                .putDouble(summary.meanBunnies()).putDouble(summary.varianceBunnies()).putDouble(summary.meanFoxes()).putDouble(summary.varianceFoxes())
+                .putInt(summary.oscillationPeriod())
+                .putInt(record.bunnySeries().length);
+        for(int count : record.bunnySeries()) buffer.putInt(count);
+        for(int count : record.foxSeries()) buffer.putInt(count);
+        return buffer.flip();
+    }
+
+    /**
+     * (private) Reads a run written by {@link #encode(RunRecord)}.
+     * @param buffer The buffer to read from.
+     * @return The read run.
+     * @throws IllegalStateException If the buffer doesn't contain a run of the current layout.
+     */
+    private static RunRecord decode(ByteBuffer buffer){
+        if(buffer.getInt() != MAGIC || buffer.getInt() != LAYOUT_VERSION) throw new IllegalStateException("not a cached run of the current layout");
+
+        var point = new SweepPoint(buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt());
+        var summary = new RunSummary(point, buffer.getLong(), buffer.getLong(), RunEnd.values()[buffer.getInt()],
+                buffer.getDouble(), buffer.getDouble(), buffer.getDouble(), buffer.getDouble(), buffer.getInt());
+
+        int samples = buffer.getInt();
+        int[] bunnySeries = new int[samples], foxSeries = new int[samples];
+        buffer.asIntBuffer().get(bunnySeries);
+        buffer.position(buffer.position() + samples * Integer.BYTES);
+        buffer.asIntBuffer().get(foxSeries);
+        return new RunRecord(summary, bunnySeries, foxSeries);
+    }
+
+    /**
+     * (private) Reads the last modification time of a file, which is used as its last access time.
+     * @param file The file to read the time from.
+     * @return The last modification time, or the earliest time if it can't be read.
+     */
+    private static FileTime lastModified(Path file){
+        try{return Files.getLastModifiedTime(file);}
+        catch (IOException e){return FileTime.fromMillis(0);}
+    }
+}
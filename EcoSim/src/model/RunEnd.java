@@ -0,0 +1,14 @@
+package model;
+
+/**
+ * Enumeration that represents the reasons a headless run of the {@link SweepRunner} can end.
+ * <ul>
+ *     <li>EXTINCTION: The bunnies or the foxes died out.</li>
+ *     <li>STEADY_STATE: Both populations stayed unchanged for a whole detection window.</li>
+ *     <li>CYCLE: The bunny population repeats itself with a stable oscillation period.</li>
+ *     <li>TICK_LIMIT: The run reached the maximum number of ticks of its {@link SweepSpec}.</li>
+ * </ul>
+ *
+ * @author Sleman Kakar
+ */
+public enum RunEnd {EXTINCTION, STEADY_STATE, CYCLE, TICK_LIMIT}
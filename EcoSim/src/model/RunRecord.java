@@ -0,0 +1,14 @@
+package model;
+
+/**
+ * Record that represents a completed headless run together with its sampled population time series, as it is stored by the {@link ResultCache}.
+ * <p>
+ * The record acts as a data container and is read-only.
+ *
+ * @param summary The outcome of the run.
+ * @param bunnySeries The count of bunnies, sampled every {@link RunStatistics#SAMPLE_INTERVAL} ticks.
+ * @param foxSeries The count of foxes, sampled every {@link RunStatistics#SAMPLE_INTERVAL} ticks.
+ *
+ * @author Sleman Kakar
+ */
+public record RunRecord(RunSummary summary, int[] bunnySeries, int[] foxSeries) {}
@@ -0,0 +1,115 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * (package-private) Class that collects the population counts of a single headless run and decides if the run can be ended early.
+ * <p>
+ * The counts are sampled every {@link #SAMPLE_INTERVAL} ticks. Mean and variance are updated with Welford's algorithm,
+ * steady states are found by counting unchanged samples and cycles are found with the autocorrelation of the bunny counts.
+ */
+class RunStatistics {
+    /**
+     * Number of ticks between two samples.
+     */
+    static final int SAMPLE_INTERVAL = 10;
+    // 50 unchanged samples, so 500 ticks without any birth or death
+    private static final int STEADY_SAMPLES = 50;
+    // the cycle detection looks at the last 300 samples (3000 ticks) and is repeated every 25 samples
+    private static final int CYCLE_WINDOW = 300, CYCLE_CHECK_INTERVAL = 25, MIN_LAG = 5;
+    private static final double CYCLE_CORRELATION = 0.8, OSCILLATION_CORRELATION = 0.3;
+
+    private int[] bunnySeries = new int[64], foxSeries = new int[64];
+    private int samples, unchangedSamples, cyclePeriod;
+    private double bunnyMean, bunnyM2, foxMean, foxM2;
+
+    /**
+     * (package-private) Adds a sample of both population counts and updates the statistics and the early termination checks.
+     * @param bunnies The current count of bunnies.
+     * @param foxes The current count of foxes.
+     */
+    void sample(int bunnies, int foxes){
+        if(samples == bunnySeries.length){
+            bunnySeries = Arrays.copyOf(bunnySeries, samples * 2);
+            foxSeries = Arrays.copyOf(foxSeries, samples * 2);
+        }
+        if(samples > 0 && bunnySeries[samples - 1] == bunnies && foxSeries[samples - 1] == foxes) unchangedSamples++;
+        else unchangedSamples = 0;
+
+        bunnySeries[samples] = bunnies;
+        foxSeries[samples] = foxes;
+        samples++;
+
+        double bunnyDelta = bunnies - bunnyMean;
+        bunnyMean += bunnyDelta / samples;
+        bunnyM2 += bunnyDelta * (bunnies - bunnyMean);
+
+        double foxDelta = foxes - foxMean;
+        foxMean += foxDelta / samples;
+        foxM2 += foxDelta * (foxes - foxMean);
+
+        if(samples >= CYCLE_WINDOW && samples % CYCLE_CHECK_INTERVAL == 0) cyclePeriod = dominantLag(CYCLE_WINDOW, CYCLE_CORRELATION);
+    }
+
+    /**
+     * (package-private) Checks if both populations stayed the same for the whole steady state window.
+     * @return True if a steady state was reached, false otherwise.
+     */
+    boolean steadyState(){return unchangedSamples >= STEADY_SAMPLES;}
+
+    /**
+     * (package-private) Checks if the last cycle detection found a strongly repeating bunny population.
+     * @return True if a cycle was found, false otherwise.
+     */
+    boolean cycleDetected(){return cyclePeriod > 0;}
+
+    /**
+     * (package-private) Calculates the dominant oscillation period of the bunny population over the whole run.
+     * @return The period in ticks, 0 if the population doesn't oscillate.
+     */
+    int oscillationPeriod(){return (cyclePeriod > 0 ? cyclePeriod : dominantLag(Math.min(samples, 10 * CYCLE_WINDOW), OSCILLATION_CORRELATION)) * SAMPLE_INTERVAL;}
+
+    double meanBunnies(){return bunnyMean;}
+    double varianceBunnies(){return samples > 1 ? bunnyM2 / (samples - 1) : 0;}
+    double meanFoxes(){return foxMean;}
+    double varianceFoxes(){return samples > 1 ? foxM2 / (samples - 1) : 0;}
+    int getSamples(){return samples;}
+    int[] getBunnySeries(){return Arrays.copyOf(bunnySeries, samples);}
+    int[] getFoxSeries(){return Arrays.copyOf(foxSeries, samples);}
+
+    /**
+     * (private) Searches the first peak of the autocorrelation of the last bunny samples, after the autocorrelation dropped below zero once.
+     * <p>
+     * Note: Waiting for the first negative value skips the high correlation of neighbouring samples, which every slowly changing population has.
+     * @param window The number of last samples to look at.
+     * @param minCorrelation The correlation the peak needs to reach.
+     * @return The lag of the peak in samples, 0 if there is no peak reaching minCorrelation.
+     */
+    private int dominantLag(int window, double minCorrelation){
+        int start = samples - window;
+        if(window < 3 * MIN_LAG) return 0;
+
+        double mean = 0;
+        for(int i = start; i < samples; i++) mean += bunnySeries[i];
+        mean /= window;
+
+        double variance = 0;
+        for(int i = start; i < samples; i++) variance += (bunnySeries[i] - mean) * (bunnySeries[i] - mean);
+        if(variance == 0) return 0;
+
+        boolean droppedBelowZero = false;
+        double previous = 1;
+        // at least three periods need to fit into the window
+        for(int lag = 1; lag <= window / 3; lag++){
+            double covariance = 0;
+            for(int i = start; i < samples - lag; i++) covariance += (bunnySeries[i] - mean) * (bunnySeries[i + lag] - mean);
+            double correlation = covariance / variance;
+
+            if(correlation < 0) droppedBelowZero = true;
+            // the previous lag was a peak, if the correlation goes down again
+            else if(droppedBelowZero && correlation < previous && lag - 1 >= MIN_LAG) return previous >= minCorrelation ? lag - 1 : 0;
+            previous = correlation;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,21 @@
+package model;
+
+/**
+ * Record that represents the outcome of a single headless run made by the {@link SweepRunner}.
+ * <p>
+ * The record acts as a data container and is read-only.
+ *
+ * @param point The grid point the run was started with.
+ * @param seed The seed of the run.
+ * @param ticks The number of ticks the run lasted, for {@link RunEnd#EXTINCTION} this is the survival time.
+ * @param end The reason the run ended.
+ * @param meanBunnies Mean count of bunnies over all samples of the run.
+ * @param varianceBunnies Variance of the count of bunnies over all samples of the run.
+ * @param meanFoxes Mean count of foxes over all samples of the run.
+ * @param varianceFoxes Variance of the count of foxes over all samples of the run.
+ * @param oscillationPeriod Dominant oscillation period of the bunny population in ticks, 0 if no oscillation was found.
+ *
+ * @author Sleman Kakar
+ */
+public record RunSummary(SweepPoint point, long seed, long ticks, RunEnd end, double meanBunnies, double varianceBunnies,
+                         double meanFoxes, double varianceFoxes, int oscillationPeriod) {}
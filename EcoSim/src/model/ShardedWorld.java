@@ -0,0 +1,532 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * (package-private) Class that lets the animals of a batch (see {@link AnimalPool}) take their turns on a pool of workers at the same time,
+ * with the same result as taking them one after another in the order of the animal list. So a sharded run is the same as the unsharded run with the same seed.
+ * <p>
+ * Before the turns of a batch are taken, every turn claims what it could read or change, which is all near the position its animal starts from:
+ * <ul>
+ *     <li>the animal itself and its mate,</li>
+ *     <li>for a hunter every prey within its sight range and its step, and the prey it already chases, since it could catch any of them,</li>
+ *     <li>for an animal handling its hunger or thirst the resources it could reserve (within its sight range and its step) and the resource it uses, which it changes,
+ *         and the resources deciding the cell of the {@link ResourceField} it looks up, which it only reads.</li>
+ * </ul>
+ * A turn waits for every earlier turn of the batch claiming one of its animals or resources, unless both of them only read that resource.
+ * Turns without such a claim can't see each other's changes, so they are taken at the same time in any order.
+ * <p>
+ * The step of an animal is its velocity at the start of the batch, because it moves first in its turn and earlier turns can only stop it or send it off one unit along each axis.
+ * So the distance at which turns stop claiming each other's animals (their halo) grows with the fastest animal, instead of every animal being slowed down to a fixed step.
+ * <p>
+ * With a {@link Partition} only some of the turns are taken in this process, and the others by other processes (see {@link DistributedWorker}).
+ */
+class ShardedWorld {
+    /**
+     * (package-private) Interface for the turn of a single animal, which is given by the owner of the world.
+     */
+    interface Turn {
+        /**
+         * (package-private) Lets the passed animal take its turn.
+         * @param animal The animal taking its turn.
+         * @param others The animals of the species the animal hunts or fears, which could be in sight of it, ordered by their index.
+         * @return True if the animal is pregnant, its newborns are added after the batch.
+         */
+        boolean take(Animal animal, List<Animal> others);
+    }
+
+    /**
+     * (package-private) Interface for taking only some of the turns of a batch in this process, while other processes take the rest (see {@link DistributedWorker}).
+     */
+    interface Partition {
+        /**
+         * (package-private) Checks if this process takes the turn of the passed animal.
+         * @param animal The animal, at the position it starts its turn from.
+         * @return True if this process takes its turn.
+         */
+        boolean simulates(Animal animal);
+
+        /**
+         * (package-private) Is called whenever this process has to wait for turns of the other processes, and after its last turn of a batch.
+         * It sends the turns this process took since the last call and receives the turns the other processes took, whose changes it brings up to date.
+         * @param local The turns this process took since the last call.
+         * @param remote Receives the turns the other processes took since the last call.
+         * @return True if every process took all of its turns of the batch.
+         */
+        boolean exchange(Round local, Round remote);
+    }
+
+    /**
+     * (package-private) The turns a process took between two exchanges (see {@link Partition#exchange(Round, Round)}) and what they could have changed.
+     */
+    static final class Round {
+        final ArrayList<Animal> taken = new ArrayList<>(), mothers = new ArrayList<>();
+        final LinkedHashSet<Animal> animals = new LinkedHashSet<>();
+        final LinkedHashSet<Resource> resources = new LinkedHashSet<>();
+        boolean finished;
+
+        void clear(){
+            taken.clear();
+            mothers.clear();
+            animals.clear();
+            resources.clear();
+            finished = false;
+        }
+    }
+
+    // an earlier turn of the batch can only stop an animal or send it off one unit along each axis, which is a step of less than this
+    private static final float MIN_STEP = 1.5f;
+    // positions are floats, so the ranges of the claims get one unit more than the distances the turns compare
+    private static final float MARGIN = 1;
+
+    private final int workers;
+    private final ExecutorService executor;
+    private final Cells animalCells, resourceCells;
+    private List<Resource> resources = List.of();
+    private float[] resourceX = new float[0], resourceY = new float[0];
+    // the distance from a position to the farthest resource deciding the field cell containing it
+    private final float fieldReach;
+    private Partition partition;
+
+    // the batch which is taken: its animals, their positions at its start and the claims of its turns (the keys of turn k are at [start[k], start[k + 1]))
+    private List<Animal> animals = List.of();
+    private int from, count;
+    private float[] x = new float[0], y = new float[0], step = new float[0];
+    private final Keys animalKeys = new Keys(), writtenResources = new Keys(), readResources = new Keys();
+    // the earlier turn which last claimed an animal or resource, valid if its stamp is the current batch, and the turns reading a resource since then (linked lists)
+    private int batch;
+    private int[] animalStamp = new int[0], lastAnimalTurn = new int[0];
+    private int[] resourceStamp = new int[0], lastWritingTurn = new int[0], firstReader = new int[0];
+    private final Keys readers = new Keys();
+    // the dependencies: the number of earlier turns each turn waits for and the later turns waiting for it (at [dependentStart[k], dependentStart[k + 1]))
+    private int[] waitsFor = new int[0], lastDependent = new int[0], dependentStart = new int[1], dependents = new int[0];
+    private final Keys edges = new Keys();
+    private boolean[] pregnant = new boolean[0];
+
+    /**
+     * (package-private) Constructor for a new world of the passed size, whose turns are taken by the passed number of workers.
+     * @param width The width of the ecosystem.
+     * @param height The height of the ecosystem.
+     * @param maxSightRange The largest sight range of any animal.
+     * @param workers The number of threads taking turns at the same time. Should be a positive value, 1 takes every turn in the calling thread.
+     */
+    ShardedWorld(int width, int height, double maxSightRange, int workers){
+        if(workers <= 0) throw new IllegalArgumentException("workers needs to be positive");
+        this.workers = workers;
+        // cells as big as the sight range, the claims reaching further only look at more cells
+        float cellSize = (float) Math.max(maxSightRange, ResourceField.CELL_SIZE);
+        this.animalCells = new Cells(width, height, cellSize);
+        this.resourceCells = new Cells(width, height, cellSize);
+        this.fieldReach = fieldReach(maxSightRange);
+
+        this.executor = workers == 1 ? null : Executors.newFixedThreadPool(workers, runnable -> {
+            var thread = new Thread(runnable, "shard-worker");
+            // the workers shouldn't keep the application alive
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * (package-private) Gives the distance from the position a turn starts at to the farthest animal or resource it claims, apart from the partners of its animal
+     * (its mate, its prey and the resource it uses), which can be anywhere.
+     * @param maxSightRange The largest sight range of any animal.
+     * @param step The step of the fastest animal (see class comment).
+     * @return The largest distance of a claim.
+     */
+    static float halo(double maxSightRange, float step){return fieldReach(maxSightRange) + Math.max(MIN_STEP, step) + MARGIN;}
+
+    /**
+     * (private) Gives the distance from a position to the farthest resource deciding the field cell containing it, which is further than the sight range.
+     */
+    private static float fieldReach(double maxSightRange){return (float) maxSightRange + 2 * ResourceField.CELL_SIZE * 0.7072f;}
+
+    /**
+     * (package-private) Sorts the resources into the grid. The resources may not move or change their order until the next start.
+     * @param resources The resources of the simulation, in the order of the {@link ResourceField}.
+     */
+    void start(List<Resource> resources){
+        this.resources = resources;
+        resourceX = new float[resources.size()];
+        resourceY = new float[resources.size()];
+        for(int i = 0; i < resources.size(); i++){
+            resourceX[i] = resources.get(i).getX();
+            resourceY[i] = resources.get(i).getY();
+        }
+        resourceCells.fill(resources.size(), resourceX, resourceY, i -> true);
+        resourceStamp = new int[resources.size()];
+        lastWritingTurn = new int[resources.size()];
+        firstReader = new int[resources.size()];
+    }
+
+    /**
+     * (package-private) Lets the living animals between the passed indices take their turns, which all have to be of one species.
+     * @param animals The animal list of the simulation, which doesn't change during the batch.
+     * @param from The index of the first animal of the batch.
+     * @param to The index behind the last animal of the batch.
+     * @param turn The turn every living animal takes.
+     * @return The animals which are pregnant after their turn, in the order of the animal list.
+     */
+    List<Animal> takeTurns(List<Animal> animals, int from, int to, Turn turn){
+        this.animals = animals;
+        this.from = from;
+        this.count = to - from;
+        batch++;
+        remember(animals);
+        if(pregnant.length < count) pregnant = new boolean[count];
+        Arrays.fill(pregnant, 0, count, false);
+
+        if(executor == null && partition == null){
+            // one after another, the claims aren't needed
+            for(int k = 0; k < count; k++) take(k, turn);
+        }else{
+            claim();
+            link();
+            if(partition != null) takePartitioned(turn);
+            else takeParallel(turn);
+        }
+
+        var mothers = new ArrayList<Animal>();
+        for(int k = 0; k < count; k++) if(pregnant[k]) mothers.add(animals.get(from + k));
+        return mothers;
+    }
+
+    /**
+     * (package-private) Lets this process only take some of the turns, the others are taken by other processes and brought up to date by the partition.
+     * @param partition The part of the turns taken by this process, or null to take all turns.
+     */
+    void setPartition(Partition partition){this.partition = partition;}
+
+    /**
+     * (package-private) Stops the workers, afterwards no turns can be taken anymore.
+     */
+    void close(){if(executor != null) executor.shutdownNow();}
+
+    //getter for tests and benchmarks
+    int getWorkers(){return this.workers;}
+
+    /**
+     * (private) Remembers the positions and steps of the animals at the start of the batch and sorts the animals the batch hunts or fears into the grid.
+     */
+    private void remember(List<Animal> animals){
+        int size = animals.size();
+        if(x.length < size){
+            x = new float[size];
+            y = new float[size];
+            step = new float[size];
+            animalStamp = new int[size];
+            lastAnimalTurn = new int[size];
+        }
+        for(int i = 0; i < size; i++){
+            Animal animal = animals.get(i);
+            x[i] = animal.getX();
+            y[i] = animal.getY();
+            step[i] = (float) Math.max(MIN_STEP, Math.hypot(animal.getAnimalAttributes().vx(), animal.getAnimalAttributes().vy()));
+        }
+        Species species = count == 0 ? null : animals.get(from).getSpecies();
+        long seen = species == null ? 0 : species.prey() | species.predators();
+        animalCells.fill(size, x, y, i -> (seen & 1L << animals.get(i).getSpecies().id()) != 0);
+    }
+
+    /**
+     * (private) Lets the animal of the passed turn take it, if it is alive.
+     */
+    private void take(int k, Turn turn){
+        Animal animal = animals.get(from + k);
+        if(animal.isDead()) return;
+        int i = from + k;
+        var found = new ArrayList<Integer>();
+        animalCells.near(x[i], y[i], (float) animal.getSightRange() + step[i] + MARGIN, x, y, found::add);
+        found.sort(null);
+        var others = new ArrayList<Animal>(found.size());
+        for(int other : found) others.add(animals.get(other));
+        pregnant[k] = turn.take(animal, others);
+    }
+
+    /**
+     * (private) Collects the animals and resources every turn of the batch claims (see class comment).
+     */
+    private void claim(){
+        animalKeys.clear();
+        writtenResources.clear();
+        readResources.clear();
+        for(int k = 0; k < count; k++){
+            animalKeys.startNext();
+            writtenResources.startNext();
+            readResources.startNext();
+            int i = from + k;
+            Animal animal = animals.get(i);
+            if(animal.isDead()) continue;
+            float sight = (float) animal.getSightRange() + step[i] + MARGIN;
+
+            animalKeys.add(i);
+            if(animal.getUsingThisMate() != null) animalKeys.add(animal.getUsingThisMate().getIndex());
+            long prey = animal.getSpecies().prey();
+            if(animal instanceof Fox fox && fox.getUsingThisPrey() != null) animalKeys.add(fox.getUsingThisPrey().getIndex());
+            if(prey != 0) animalCells.near(x[i], y[i], sight, x, y, other -> {if((prey & 1L << animals.get(other).getSpecies().id()) != 0) animalKeys.add(other);});
+
+            Resource used = animal.getUsingThisResource();
+            if(used != null) writtenResources.add(used.getIndex());
+            AnimalState state = animal.getState();
+            boolean hungry = state == AnimalState.HUNGRY && animal.getSpecies().grazes(), thirsty = state == AnimalState.THIRSTY;
+            if(used == null && (hungry || thirsty)){
+                // only the resources of the needed type are looked up
+                resourceCells.near(x[i], y[i], sight, resourceX, resourceY, resource -> {if(resources.get(resource).isWater() == thirsty) writtenResources.add(resource);});
+                resourceCells.near(x[i], y[i], fieldReach + step[i] + MARGIN, resourceX, resourceY, resource -> {if(resources.get(resource).isWater() == thirsty) readResources.add(resource);});
+            }
+        }
+        animalKeys.startNext();
+        writtenResources.startNext();
+        readResources.startNext();
+    }
+
+    /**
+     * (private) Lets every turn wait for the earlier turns claiming the same animals or resources (see class comment).
+     */
+    private void link(){
+        if(waitsFor.length < count){
+            waitsFor = new int[count];
+            lastDependent = new int[count];
+            dependentStart = new int[count + 1];
+        }
+        Arrays.fill(waitsFor, 0, count, 0);
+        Arrays.fill(lastDependent, 0, count, -1);
+        edges.clear();
+        readers.clear();
+
+        for(int k = 0; k < count; k++){
+            for(int key = animalKeys.start(k); key < animalKeys.start(k + 1); key++){
+                int animal = animalKeys.get(key);
+                if(animalStamp[animal] == batch) dependOn(lastAnimalTurn[animal], k);
+                animalStamp[animal] = batch;
+                lastAnimalTurn[animal] = k;
+            }
+            for(int key = writtenResources.start(k); key < writtenResources.start(k + 1); key++){
+                int resource = writtenResources.get(key);
+                if(resourceStamp[resource] == batch){
+                    if(lastWritingTurn[resource] >= 0) dependOn(lastWritingTurn[resource], k);
+                    for(int reader = firstReader[resource]; reader >= 0; reader = readers.get(reader + 1)) dependOn(readers.get(reader), k);
+                }
+                resourceStamp[resource] = batch;
+                lastWritingTurn[resource] = k;
+                firstReader[resource] = -1;
+            }
+            for(int key = readResources.start(k); key < readResources.start(k + 1); key++){
+                int resource = readResources.get(key);
+                if(resourceStamp[resource] != batch){
+                    resourceStamp[resource] = batch;
+                    lastWritingTurn[resource] = -1;
+                    firstReader[resource] = -1;
+                }
+                if(lastWritingTurn[resource] == k) continue;
+                if(lastWritingTurn[resource] >= 0) dependOn(lastWritingTurn[resource], k);
+                // a reader is a pair of the turn and the next reader
+                int reader = readers.size();
+                readers.add(k);
+                readers.add(firstReader[resource]);
+                firstReader[resource] = reader;
+            }
+        }
+
+        // the later turns waiting for each turn, sorted by the turn they wait for (counting sort)
+        Arrays.fill(dependentStart, 0, count + 1, 0);
+        for(int edge = 0; edge < edges.size(); edge += 2) dependentStart[edges.get(edge) + 1]++;
+        for(int k = 0; k < count; k++) dependentStart[k + 1] += dependentStart[k];
+        if(dependents.length < edges.size() / 2) dependents = new int[edges.size()];
+        int[] next = Arrays.copyOf(dependentStart, count + 1);
+        for(int edge = 0; edge < edges.size(); edge += 2) dependents[next[edges.get(edge)]++] = edges.get(edge + 1);
+    }
+
+    /**
+     * (private) Lets the turn k wait for the earlier turn j, once.
+     */
+    private void dependOn(int j, int k){
+        if(j == k || lastDependent[j] == k) return;
+        lastDependent[j] = k;
+        edges.add(j);
+        edges.add(k);
+        waitsFor[k]++;
+    }
+
+    /**
+     * (private) Takes the turns on the workers, a turn is taken as soon as every turn it waits for is done.
+     * A worker goes on with a turn it freed itself, so a chain of turns mostly stays on one worker.
+     */
+    private void takeParallel(Turn turn){
+        var waiting = new AtomicIntegerArray(Arrays.copyOf(waitsFor, count));
+        var ready = new ConcurrentLinkedQueue<Integer>();
+        for(int k = 0; k < count; k++) if(waitsFor[k] == 0) ready.add(k);
+        var done = new AtomicInteger();
+        // a failed turn stops the other workers, which would wait for it forever
+        var failed = new AtomicBoolean();
+
+        var tasks = new ArrayList<Callable<Void>>();
+        for(int worker = 0; worker < workers; worker++) tasks.add(() -> {
+            try {
+                while(done.get() < count && !failed.get()){
+                    Integer next = ready.poll();
+                    if(next == null){
+                        // the turn freeing the next ones is still taken, possibly on a thread waiting for a processor
+                        Thread.yield();
+                        continue;
+                    }
+                    for(int k = next; k >= 0; ){
+                        take(k, turn);
+                        int freed = -1;
+                        for(int edge = dependentStart[k]; edge < dependentStart[k + 1]; edge++){
+                            if(waiting.decrementAndGet(dependents[edge]) != 0) continue;
+                            if(freed < 0) freed = dependents[edge];
+                            else ready.add(dependents[edge]);
+                        }
+                        done.incrementAndGet();
+                        k = freed;
+                    }
+                }
+                return null;
+            } catch (RuntimeException e) {
+                failed.set(true);
+                throw e;
+            }
+        });
+        try {
+            for(Future<Void> future : executor.invokeAll(tasks)) future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("The sharded batch was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A turn couldn't be taken: " + e.getCause(), e.getCause());
+        }
+    }
+
+    /**
+     * (private) Takes the turns of this process as soon as every turn they wait for is done, and exchanges the turns with the other processes whenever none is ready.
+     */
+    private void takePartitioned(Turn turn){
+        int[] waiting = Arrays.copyOf(waitsFor, count);
+        boolean[] local = new boolean[count];
+        var ready = new Keys();
+        int localTurns = 0, taken = 0;
+        for(int k = 0; k < count; k++){
+            local[k] = partition.simulates(animals.get(from + k));
+            if(local[k]) localTurns++;
+            if(local[k] && waiting[k] == 0) ready.add(k);
+        }
+
+        var round = new Round();
+        var remote = new Round();
+        IntConsumer done = k -> {
+            for(int edge = dependentStart[k]; edge < dependentStart[k + 1]; edge++) if(--waiting[dependents[edge]] == 0 && local[dependents[edge]]) ready.add(dependents[edge]);
+        };
+        while(true){
+            while(ready.size() > 0){
+                int k = ready.removeLast();
+                take(k, turn);
+                taken++;
+                done.accept(k);
+                round.taken.add(animals.get(from + k));
+                if(pregnant[k]) round.mothers.add(animals.get(from + k));
+                for(int key = animalKeys.start(k); key < animalKeys.start(k + 1); key++) round.animals.add(animals.get(animalKeys.get(key)));
+                for(int key = writtenResources.start(k); key < writtenResources.start(k + 1); key++) round.resources.add(resources.get(writtenResources.get(key)));
+            }
+            round.finished = taken == localTurns;
+            remote.clear();
+            boolean finished = partition.exchange(round, remote);
+            round.clear();
+            for(Animal animal : remote.taken) done.accept(animal.getIndex() - from);
+            for(Animal mother : remote.mothers) pregnant[mother.getIndex() - from] = true;
+            if(finished) return;
+        }
+    }
+
+    /**
+     * (private) A growable list of ints, split into the keys of consecutive turns.
+     */
+    private static final class Keys {
+        private int[] values = new int[64], starts = new int[64];
+        private int size, turns;
+
+        void add(int value){
+            if(size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+        // the keys added from now on belong to the next turn
+        void startNext(){
+            if(turns == starts.length) starts = Arrays.copyOf(starts, turns * 2);
+            starts[turns++] = size;
+        }
+        int start(int turn){return starts[turn];}
+        int get(int index){return values[index];}
+        int removeLast(){return values[--size];}
+        int size(){return size;}
+        void clear(){size = turns = 0;}
+    }
+
+    /**
+     * (private) A uniform grid over the ecosystem, whose cells hold the indices of the items standing on them (counting sort).
+     */
+    private static final class Cells {
+        private final float size;
+        private final int columns, rows;
+        private final int[] start;
+        private int[] items = new int[0], cells = new int[0];
+
+        private Cells(int width, int height, float size){
+            this.size = size;
+            this.columns = (int) Math.ceil(width / size) + 1;
+            this.rows = (int) Math.ceil(height / size) + 1;
+            this.start = new int[columns * rows + 1];
+        }
+
+        /**
+         * (private) Sorts the items which pass the filter into the cells of their positions.
+         */
+        private void fill(int count, float[] x, float[] y, IntPredicate filter){
+            if(cells.length < count){
+                cells = new int[count];
+                items = new int[count];
+            }
+            Arrays.fill(start, 0);
+            for(int i = 0; i < count; i++){
+                cells[i] = filter.test(i) ? cellOf(x[i], y[i]) : -1;
+                if(cells[i] >= 0) start[cells[i] + 1]++;
+            }
+            for(int cell = 0; cell < start.length - 1; cell++) start[cell + 1] += start[cell];
+            int[] next = Arrays.copyOf(start, start.length);
+            for(int i = 0; i < count; i++) if(cells[i] >= 0) items[next[cells[i]]++] = i;
+        }
+
+        /**
+         * (private) Passes every item within the passed range of the passed position to the consumer, in no particular order.
+         */
+        private void near(float x, float y, float range, float[] itemX, float[] itemY, IntConsumer found){
+            int fromColumn = column(x - range), toColumn = column(x + range), fromRow = row(y - range), toRow = row(y + range);
+            for(int row = fromRow; row <= toRow; row++)
+                for(int column = fromColumn; column <= toColumn; column++){
+                    int cell = row * columns + column;
+                    for(int i = start[cell]; i < start[cell + 1]; i++){
+                        int item = items[i];
+                        float dx = itemX[item] - x, dy = itemY[item] - y;
+                        if(dx * dx + dy * dy <= range * range) found.accept(item);
+                    }
+                }
+        }
+
+        private int cellOf(float x, float y){return row(y) * columns + column(x);}
+        private int column(float x){return Math.max(0, Math.min(columns - 1, (int) Math.floor(x / size)));}
+        private int row(float y){return Math.max(0, Math.min(rows - 1, (int) Math.floor(y / size)));}
+    }
+}
@@ -0,0 +1,45 @@
+package model;
+
+import java.util.Random;
+
+/**
+ * (package-private) Class that is a {@link Random} whose state can be read and set again, so an animal can look ahead at its coming random decisions and take them back.
+ * <p>
+ * It uses the same linear congruential generator as {@link Random}, so a SimRandom and a Random created with the same seed give the same values.
+ * Every method of {@link Random} used by the simulation draws its values from {@link #next(int)}.
+ */
+final class SimRandom extends Random {
+    // Random is serializable, a SimRandom is only kept in memory but gets a version like every serializable class
+    private static final long serialVersionUID = 1L;
+    private static final long MULTIPLIER = 0x5DEECE66DL, ADDEND = 0xBL, MASK = (1L << 48) - 1;
+    // not initialized here, since the constructor of Random already sets it through setSeed
+    private long state;
+
+    /**
+     * (package-private) Constructor for a new SimRandom, which gives the same values as a {@link Random} with the same seed.
+     * @param seed The initial seed.
+     */
+    SimRandom(long seed){super(seed);}
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void setSeed(long seed){
+        super.setSeed(seed);
+        state = (seed ^ MULTIPLIER) & MASK;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected int next(int bits){
+        state = (state * MULTIPLIER + ADDEND) & MASK;
+        return (int) (state >>> (48 - bits));
+    }
+
+    // getter and setter to look ahead and go back
+    long getState(){return this.state;}
+    void setState(long state){this.state = state;}
+}
@@ -0,0 +1,59 @@
+package model;
+
+/**
+ * (package-private) Record that describes a species as data: what it eats, who hunts it, how fast its needs grow and how it gives birth.
+ * <p>
+ * A species eats grass if its prey set is empty, like a bunny, and is simulated as a {@link Bunny}. Otherwise it hunts the species in its prey set, like a fox,
+ * and is simulated as a {@link Fox}. So every species is one of two classes and a new species doesn't add a new class to the simulation loop.
+ * The prey and predator sets are bit masks over the ids of the species in their {@link SpeciesRegistry}, which checks that both sets agree with each other.
+ * <p>
+ * The record acts as a data container and is read-only.
+ *
+ * @param id The index of the species in its registry, which is its bit in the prey and predator sets.
+ * @param name The name of the species.
+ * @param sightRange The sight range of every animal of the species. Should be a positive value.
+ * @param prey The species it hunts (bit {@code 1L << id} per species), 0 for a species eating grass.
+ * @param predators The species hunting it.
+ * @param hungerRate How much the hunger grows per tick while it moves.
+ * @param eatingRate How much the hunger drops per tick while it eats.
+ * @param thirstRate How much the thirst grows per tick while it moves.
+ * @param drinkingRate How much the thirst drops per tick while it drinks.
+ * @param matingUrgeRate How much the mating urge grows per tick while it moves.
+ * @param matingRate How much the mating urge drops per tick while it mates.
+ * @param litterSize How many newborns a pregnant animal gives birth to. Should be a positive value.
+ */
+record Species(int id, String name, double sightRange, long prey, long predators, double hungerRate, double eatingRate,
+               double thirstRate, double drinkingRate, double matingUrgeRate, double matingRate, int litterSize) {
+    // the rates every animal had before species were data
+    static final Species BUNNY = new Species(0, "bunny", 100, 0, 1L << 1, 0.05, 0.1, 0.1, 0.1, 0.3, 0.5, 1);
+    static final Species FOX = new Species(1, "fox", 150, 1L, 0, 0.05, 0.1, 0.1, 0.1, 0.3, 0.5, 1);
+
+    /**
+     * (package-private) Checks the passed values, the sets are checked against the other species by the {@link SpeciesRegistry}.
+     */
+    Species {
+        if(id < 0 || id >= Long.SIZE) throw new IllegalArgumentException("id needs to be between 0 and 63");
+        if(sightRange <= 0 || litterSize <= 0) throw new IllegalArgumentException("sightRange and litterSize need to be positive");
+        if(eatingRate <= 0 || drinkingRate <= 0 || matingRate <= 0) throw new IllegalArgumentException("eatingRate, drinkingRate and matingRate need to be positive");
+        if((prey & 1L << id) != 0) throw new IllegalArgumentException("a species can't hunt itself");
+    }
+
+    /**
+     * (package-private) Creates a copy of this species with another id and other sets, e.g. to put it into a registry with more species.
+     * @param id The id of the copy.
+     * @param name The name of the copy.
+     * @param prey The species the copy hunts.
+     * @param predators The species hunting the copy.
+     * @return The copy.
+     */
+    Species as(int id, String name, long prey, long predators){
+        return new Species(id, name, sightRange, prey, predators, hungerRate, eatingRate, thirstRate, drinkingRate, matingUrgeRate, matingRate, litterSize);
+    }
+
+    //getter for whether the species eats grass instead of hunting
+    boolean grazes(){return prey == 0;}
+    //getter for whether the species hunts the passed species
+    boolean hunts(Species other){return (prey & 1L << other.id) != 0;}
+    //getter for whether the passed species hunts this species
+    boolean fears(Species other){return (predators & 1L << other.id) != 0;}
+}
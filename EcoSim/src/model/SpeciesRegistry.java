@@ -0,0 +1,50 @@
+package model;
+
+import java.util.List;
+
+/**
+ * (package-private) Class that holds the species of a simulation, in the order of their ids.
+ * <p>
+ * The animal list of a simulation is split into one batch per species in this order (see {@link AnimalPool}), which is also the order of the turns:
+ * all animals of the first species take their turns, then all animals of the second species and so on.
+ * <p>
+ * Example usage:
+ * <pre>{@code
+ * // a third species which hunts bunnies and is hunted by foxes is not possible, since hunters can't be prey,
+ * // but a second grazer, which foxes hunt as well, is
+ * var hare = Species.BUNNY.as(2, "hare", 0, 1L << 1);
+ * var registry = new SpeciesRegistry(List.of(Species.BUNNY, Species.FOX.as(1, "fox", 1L | 1L << 2, 0), hare));
+ * model.setSpecies(registry);
+ * model.startNewSim(new int[]{25, 5, 25}, 100, 100);
+ * }</pre>
+ */
+final class SpeciesRegistry {
+    // bunnies and foxes, like before species were data
+    static final SpeciesRegistry STANDARD = new SpeciesRegistry(List.of(Species.BUNNY, Species.FOX));
+    private final Species[] species;
+
+    /**
+     * (package-private) Constructor for a registry of the passed species, after checking that they fit together.
+     * @param species The species, the species at index i needs the id i. Should contain at most 64 species.
+     */
+    SpeciesRegistry(List<Species> species){
+        if(species.isEmpty()) throw new IllegalArgumentException("a registry needs at least one species");
+        this.species = species.toArray(new Species[0]);
+        long all = this.species.length == Long.SIZE ? -1L : (1L << this.species.length) - 1;
+        for(int i = 0; i < this.species.length; i++){
+            Species one = this.species[i];
+            if(one.id() != i) throw new IllegalArgumentException("the species at index " + i + " needs the id " + i);
+            if(((one.prey() | one.predators()) & ~all) != 0) throw new IllegalArgumentException(one.name() + " refers to a species which isn't registered");
+            for(Species other : this.species){
+                // a hunter only hunts grazers, so a Fox only ever hunts a Bunny
+                if(one.hunts(other) && !other.grazes()) throw new IllegalArgumentException(one.name() + " can't hunt " + other.name() + ", since hunters can't be prey");
+                if(one.hunts(other) != other.fears(one)) throw new IllegalArgumentException("the prey of " + one.name() + " and the predators of " + other.name() + " don't agree");
+            }
+        }
+    }
+
+    //getter for the species with the passed id
+    Species get(int id){return this.species[id];}
+    //getter for the number of species
+    int size(){return this.species.length;}
+}
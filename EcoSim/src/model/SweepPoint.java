@@ -0,0 +1,15 @@
+package model;
+
+/**
+ * Record that represents one grid point of a parameter sweep, so the initial values passed to {@link EcoModel#startNewSim(int, int, int, int)}.
+ * <p>
+ * The record acts as a data container and is read-only.
+ *
+ * @param bunnies Initial count of bunnies.
+ * @param foxes Initial count of foxes.
+ * @param waterSources Initial count of water sources.
+ * @param grassSources Initial count of grass sources.
+ *
+ * @author Sleman Kakar
+ */
+public record SweepPoint(int bunnies, int foxes, int waterSources, int grassSources) {}
@@ -0,0 +1,202 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Class that runs parameter sweeps of the simulation without the GUI.
+ * Every grid point of a {@link SweepSpec} is run once per seed, the runs are spread across a fixed pool of threads
+ * (by default one per available core) and each run is a headless {@link EcoModel} which is advanced tick by tick.
+ * <p>
+ * A run is ended early if one of the species died out, if both populations reached a steady state or if the bunny population
+ * repeats itself in a stable cycle (see {@link RunEnd}). The results are streamed as they complete, so long sweeps can be watched while running.
+ * If a {@link ResultCache} is passed, runs which were already made are taken from it instead of being simulated again.
+ * <p>
+ * Example usage:
+ * <pre>{@code
+ * // 1. Describe the sweep: 3 x 2 grid points, 8 seeds per point, at most 20000 ticks per run on a 1000x1000 ecosystem.
+ * var spec = new SweepSpec(List.of(10, 30, 50), List.of(2, 5), List.of(45), List.of(40), 8, 1L, 20000, 1000, 1000);
+ *
+ * // 2. Run it on all cores, printing every run and every finished grid point.
+ * List<PointSummary> summaries = new SweepRunner().run(spec, System.out::println, System.out::println);
+ * }</pre>
+ * @author Sleman Kakar
+ */
+public class SweepRunner {
+    private final int threads;
+    private final ResultCache cache;
+    private final Consumer<EcoModel> engine;
+
+    /**
+     * Constructs a new SweepRunner using one thread per available core and no cache.
+     */
+    public SweepRunner(){this(Runtime.getRuntime().availableProcessors());}
+
+    /**
+     * Constructs a new SweepRunner using the specified number of threads and no cache.
+     * @param threads The number of runs made at the same time. Should be a positive value.
+     */
+    public SweepRunner(int threads){this(threads, null);}
+
+    /**
+     * Constructs a new SweepRunner using the specified number of threads and cache.
+     * @param threads The number of runs made at the same time. Should be a positive value.
+     * @param cache The cache runs are looked up in and stored to, or null to always simulate.
+     */
+    public SweepRunner(int threads, ResultCache cache){this(threads, cache, model -> {});}
+
+    /**
+     * (package-private) Constructs a new SweepRunner using the specified number of threads and cache, whose models are switched by the passed engine before they start.
+     * Runs are only taken from the cache for models switched the same way (see {@link EcoModel#getEngineOptions()}).
+     * @param threads The number of runs made at the same time. Should be a positive value.
+     * @param cache The cache runs are looked up in and stored to, or null to always simulate.
+     * @param engine Switches every new model, before the simulation is started (e.g. {@code model -> model.setShards(4)}).
+     */
+    SweepRunner(int threads, ResultCache cache, Consumer<EcoModel> engine){
+        if(threads <= 0) throw new IllegalArgumentException("threads needs to be positive");
+        this.threads = threads;
+        this.cache = cache;
+        this.engine = engine;
+    }
+
+    /**
+     * Runs every grid point of the passed spec once per seed and blocks until all runs are done.
+     * <p>
+     * Note: Both consumers are only called from the thread calling this method, so they don't need to be thread-safe.
+     * @param spec The sweep to run.
+     * @param onRun Receives every run as soon as it is done.
+     * @param onPoint Receives the summary of a grid point as soon as all of its runs are done.
+     * @return The summaries of all grid points, in the order of {@link SweepSpec#points()}.
+     */
+    public List<PointSummary> run(SweepSpec spec, Consumer<RunSummary> onRun, Consumer<PointSummary> onPoint){
+        List<SweepPoint> points = spec.points();
+        var runsOfPoint = new HashMap<SweepPoint, List<RunSummary>>();
+        var summaries = new HashMap<SweepPoint, PointSummary>();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try{
+            var completion = new ExecutorCompletionService<RunSummary>(executor);
+            for(SweepPoint point : points)
+                for(int i = 0; i < spec.seedsPerPoint(); i++){
+                    long seed = spec.baseSeed() + i;
+                    completion.submit(() -> runSingle(spec, point, seed));
+                }
+
+            for(int i = 0; i < points.size() * spec.seedsPerPoint(); i++){
+                RunSummary run = completion.take().get();
+                onRun.accept(run);
+
+                List<RunSummary> runs = runsOfPoint.computeIfAbsent(run.point(), point -> new ArrayList<>());
+                runs.add(run);
+                if(runs.size() == spec.seedsPerPoint()){
+                    PointSummary summary = summarize(run.point(), runs);
+                    summaries.put(run.point(), summary);
+                    onPoint.accept(summary);
+                }
+            }
+        }catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("The sweep was interrupted", e);
+        }catch (ExecutionException e){
+            throw new IllegalStateException("A run of the sweep failed", e.getCause());
+        }finally {
+            executor.shutdownNow();
+        }
+        return points.stream().map(summaries::get).toList();
+    }
+
+    /**
+     * (package-private) Takes a single run from the cache, or simulates (and caches) it, if it isn't cached yet.
+     * @param spec The sweep the run belongs to, providing the size and the tick limit.
+     * @param point The initial values of the run.
+     * @param seed The seed of the run.
+     * @return The outcome of the run.
+     */
+    RunSummary runSingle(SweepSpec spec, SweepPoint point, long seed){
+        var model = new EcoModel(spec.width(), spec.height(), seed);
+        engine.accept(model);
+        if(cache == null) return simulate(model, spec, point, seed).summary();
+
+        String key = ResultCache.key(spec, point, seed, model.getEngineOptions());
+        RunRecord record = cache.get(key);
+        if(record == null){
+            record = simulate(model, spec, point, seed);
+            cache.put(key, record);
+        }
+        return record.summary();
+    }
+
+    /**
+     * (package-private) Runs a single headless simulation until one of the {@link RunEnd} conditions is met.
+     * @param model The model to run, which wasn't started yet.
+     * @param spec The sweep the run belongs to, providing the size and the tick limit.
+     * @param point The initial values of the run.
+     * @param seed The seed of the run.
+     * @return The outcome of the run together with its sampled time series.
+     */
+    RunRecord simulate(EcoModel model, SweepSpec spec, SweepPoint point, long seed){
+        model.startNewSim(point.bunnies(), point.foxes(), point.waterSources(), point.grassSources());
+
+        var statistics = new RunStatistics();
+        RunEnd end = RunEnd.TICK_LIMIT;
+        statistics.sample(model.getAnimalCountOf(true), model.getAnimalCountOf(false));
+
+        while(model.getTick() < spec.maxTicks()){
+            model.simulateTick();
+
+            int bunnies = model.getAnimalCountOf(true);
+            int foxes = model.getAnimalCountOf(false);
+            if(bunnies == 0 || foxes == 0){
+                end = RunEnd.EXTINCTION;
+                statistics.sample(bunnies, foxes);
+                break;
+            }
+            if(model.getTick() % RunStatistics.SAMPLE_INTERVAL == 0){
+                statistics.sample(bunnies, foxes);
+                if(statistics.steadyState()){
+                    end = RunEnd.STEADY_STATE;
+                    break;
+                }
+                if(statistics.cycleDetected()){
+                    end = RunEnd.CYCLE;
+                    break;
+                }
+            }
+        }
+        var summary = new RunSummary(point, seed, model.getTick(), end, statistics.meanBunnies(), statistics.varianceBunnies(),
+                statistics.meanFoxes(), statistics.varianceFoxes(), statistics.oscillationPeriod());
+        return new RunRecord(summary, statistics.getBunnySeries(), statistics.getFoxSeries());
+    }
+
+    /**
+     * (package-private) Summarizes the runs of one grid point.
+     * @param point The grid point the runs were started with.
+     * @param runs The runs to summarize, at least one.
+     * @return The summary statistics of the runs.
+     */
+    static PointSummary summarize(SweepPoint point, List<RunSummary> runs){
+        double survival = 0, extinctions = 0, meanBunnies = 0, varianceBunnies = 0, meanFoxes = 0, varianceFoxes = 0, period = 0;
+        int oscillating = 0;
+        for(RunSummary run : runs){
+            survival += run.ticks();
+            if(run.end() == RunEnd.EXTINCTION) extinctions++;
+            meanBunnies += run.meanBunnies();
+            varianceBunnies += run.varianceBunnies();
+            meanFoxes += run.meanFoxes();
+            varianceFoxes += run.varianceFoxes();
+            if(run.oscillationPeriod() > 0){
+                period += run.oscillationPeriod();
+                oscillating++;
+            }
+        }
+        int count = runs.size();
+        return new PointSummary(point, count, survival / count, extinctions / count, meanBunnies / count, varianceBunnies / count,
+                meanFoxes / count, varianceFoxes / count, oscillating > 0 ? period / oscillating : 0);
+    }
+}
@@ -0,0 +1,54 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Record that describes a parameter sweep for the {@link SweepRunner}.
+ * The grid is the cartesian product of the four value lists and every grid point is run once per seed.
+ * Repeated values are dropped (the first one is kept), so every grid point is unique.
+ * <p>
+ * The record acts as a data container and is read-only.
+ *
+ * @param bunnies Initial bunny counts to sweep over.
+ * @param foxes Initial fox counts to sweep over.
+ * @param waterSources Initial water source counts to sweep over.
+ * @param grassSources Initial grass source counts to sweep over.
+ * @param seedsPerPoint How many runs, with the seeds {@code baseSeed} to {@code baseSeed + seedsPerPoint - 1}, are made for each grid point.
+ * @param baseSeed The first seed, every grid point uses the same seeds, so the points are compared under the same randomness.
+ * @param maxTicks The maximum number of ticks of a single run.
+ * @param width The width of the simulated ecosystems.
+ * @param height The height of the simulated ecosystems.
+ *
+ * @author Sleman Kakar
+ */
+public record SweepSpec(List<Integer> bunnies, List<Integer> foxes, List<Integer> waterSources, List<Integer> grassSources,
+                        int seedsPerPoint, long baseSeed, int maxTicks, int width, int height) {
+
+    /**
+     * Checks the passed values and copies the lists without repeated values, so the spec can't be changed from the outside.
+     */
+    public SweepSpec {
+        if(seedsPerPoint <= 0 || maxTicks <= 0) throw new IllegalArgumentException("seedsPerPoint and maxTicks need to be positive");
+        // the animals are spawned between 10 and size - 10
+        if(width <= 20 || height <= 20) throw new IllegalArgumentException("width and height need to be greater than 20");
+        bunnies = List.copyOf(new LinkedHashSet<>(bunnies));
+        foxes = List.copyOf(new LinkedHashSet<>(foxes));
+        waterSources = List.copyOf(new LinkedHashSet<>(waterSources));
+        grassSources = List.copyOf(new LinkedHashSet<>(grassSources));
+    }
+
+    /**
+     * Expands the value lists to every grid point of this sweep.
+     * @return The grid points, ordered by bunnies, then foxes, then water sources and then grass sources.
+     */
+    public List<SweepPoint> points(){
+        var points = new ArrayList<SweepPoint>();
+        for(int bunny : bunnies)
+            for(int fox : foxes)
+                for(int water : waterSources)
+                    for(int grass : grassSources) points.add(new SweepPoint(bunny, fox, water, grass));
+        return points;
+    }
+}
@@ -0,0 +1,51 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * (package-private) Class that keeps the durations of the last ticks of the simulation thread in a ring, so percentiles of the tick time can be read from another thread.
+ * <p>
+ * Only the simulation thread records durations. A reader copies the ring without locking it, so a copy taken during a tick may mix in a duration
+ * of the current tick, which is negligible for percentiles over hundreds of ticks.
+ */
+class TickTimes {
+    private final long[] nanos;
+    // written by the simulation thread only, volatile so readers see the durations recorded before it
+    private volatile long count;
+
+    /**
+     * (package-private) Constructor for an empty ring of the passed capacity.
+     * @param capacity The number of ticks the percentiles are taken over. Should be a positive value.
+     */
+    TickTimes(int capacity){
+        if(capacity <= 0) throw new IllegalArgumentException("capacity needs to be positive");
+        this.nanos = new long[capacity];
+    }
+
+    /**
+     * (package-private) Records the duration of a tick, replacing the oldest one once the ring is full.
+     * @param duration The duration of the tick in nanoseconds.
+     */
+    void record(long duration){
+        nanos[(int) (count % nanos.length)] = duration;
+        count = count + 1;
+    }
+
+    /**
+     * (package-private) Returns the passed percentile of the recorded tick times.
+     * @param percentile The percentile between 0 and 100 (e.g. 99 for the time 99% of the ticks stay below).
+     * @return The percentile in milliseconds, or 0 if no tick was recorded.
+     */
+    double percentileMillis(double percentile){
+        if(percentile < 0 || percentile > 100) throw new IllegalArgumentException("percentile needs to be between 0 and 100");
+        int size = (int) Math.min(count, nanos.length);
+        if(size == 0) return 0;
+        long[] sorted = Arrays.copyOf(nanos, size);
+        Arrays.sort(sorted);
+        int index = Math.max(0, (int) Math.ceil(percentile / 100 * size) - 1);
+        return sorted[index] / 1e6;
+    }
+
+    //getter for the number of ticks recorded so far
+    long getCount(){return this.count;}
+}
@@ -0,0 +1,91 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * (package-private) Class that schedules items for future ticks in a hierarchical timing wheel, so waiting items cost nothing until their tick comes.
+ * <p>
+ * The near wheel has one slot per tick of the current block of 256 ticks, the far wheel one slot per block of the current 65536 ticks,
+ * and everything later waits in an overflow list. Whenever a block starts, the items of its far slot are moved into the near wheel
+ * (and every 65536 ticks the overflow is distributed again), so scheduling and advancing cost O(1) per item.
+ * <p>
+ * Note: Items can't be cancelled, the owner has to ignore items which are no longer waiting for the tick they are returned for.
+ * @param <T> The type of the scheduled items.
+ */
+class TimingWheel<T> {
+    private static final int BITS = 8, SLOTS = 1 << BITS, MASK = SLOTS - 1;
+    private final ArrayList<ArrayList<Entry<T>>> near = new ArrayList<>(), far = new ArrayList<>();
+    private final ArrayList<Entry<T>> overflow = new ArrayList<>();
+    private long now;
+    private int size;
+
+    /**
+     * (private) An item and the tick it is scheduled for.
+     */
+    private record Entry<T>(T item, long tick){}
+
+    /**
+     * (package-private) Constructor for an empty wheel, which starts at the passed tick.
+     * @param now The current tick, items can only be scheduled for later ticks.
+     */
+    TimingWheel(long now){
+        this.now = now;
+        for(int i = 0; i < SLOTS; i++){
+            near.add(new ArrayList<>());
+            far.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * (package-private) Schedules the passed item for the passed tick.
+     * @param item The item to be returned in that tick.
+     * @param tick The tick, which has to be later than the current tick.
+     */
+    void schedule(T item, long tick){
+        if(tick <= now) throw new IllegalArgumentException("tick " + tick + " is not after the current tick " + now);
+        place(new Entry<>(item, tick));
+        size++;
+    }
+
+    /**
+     * (package-private) Advances the wheel tick by tick up to the passed tick and collects every item scheduled for these ticks.
+     * @param tick The tick to advance to.
+     * @return The items which are due, in the order of their ticks.
+     */
+    List<T> advance(long tick){
+        var due = new ArrayList<T>();
+        while(now < tick){
+            now++;
+            if((now & ((long) SLOTS * SLOTS - 1)) == 0){
+                var later = new ArrayList<>(overflow);
+                overflow.clear();
+                later.forEach(this::place);
+            }
+            if((now & MASK) == 0){
+                var block = far.get((int) ((now >> BITS) & MASK));
+                var entries = new ArrayList<>(block);
+                block.clear();
+                entries.forEach(this::place);
+            }
+            var slot = near.get((int) (now & MASK));
+            for(Entry<T> entry : slot) due.add(entry.item());
+            size -= slot.size();
+            slot.clear();
+        }
+        return due;
+    }
+
+    //getter for tests and benchmarks
+    int size(){return this.size;}
+
+    /**
+     * (private) Puts an entry into the slot of the finest wheel which covers its tick.
+     */
+    private void place(Entry<T> entry){
+        long tick = entry.tick();
+        if((tick >> BITS) == (now >> BITS)) near.get((int) (tick & MASK)).add(entry);
+        else if((tick >> 2 * BITS) == (now >> 2 * BITS)) far.get((int) ((tick >> BITS) & MASK)).add(entry);
+        else overflow.add(entry);
+    }
+}
@@ -0,0 +1,87 @@
+package model;
+
+/**
+ * (package-private) Class that splits the ecosystem of a distributed simulation into one strip of columns per worker (see {@link DistributedWorker})
+ * and gives how far around its strip every worker has to know the world.
+ * <p>
+ * A worker takes the turns of the animals standing in its strip at the start of a batch. Every turn only claims what is within its halo (see {@link ShardedWorld})
+ * or what its animal refers to, and the halo covers both. So a turn of another worker can only wait for a turn of this strip, or be waited for by one,
+ * if it starts within two halos of the strip, and the animals and resources those turns refer to are within another halo:
+ * <pre>
+ *        margin (ghosts)           strip           margin (ghosts)
+ * |  halo  |  halo  |  halo  |                |  halo  |  halo  |  halo  |
+ *          |<- turns which can depend on ->|                    |
+ * </pre>
+ * Every worker holds the animals and resources within three halos of its strip, the ones outside of its strip are its ghosts.
+ * <p>
+ * The halo grows with the step of the fastest animal and the farthest partner of an animal, in steps of {@value #HALO_STEP} units, and never shrinks,
+ * so the margins rarely change and a ghost never leaves a margin because the margin got smaller.
+ */
+final class WorkerStrips {
+    private static final float HALO_STEP = 32;
+    private final int workers;
+    private final float width;
+    private final double maxSightRange;
+    private float halo;
+
+    /**
+     * (package-private) Constructor for the strips of an ecosystem of the passed width, whose halo is grown by {@link #grow(float, float)}.
+     * @param width The width of the ecosystem.
+     * @param workers The number of workers. Should be a positive value.
+     * @param maxSightRange The largest sight range of any animal.
+     */
+    WorkerStrips(int width, int workers, double maxSightRange){
+        if(workers <= 0) throw new IllegalArgumentException("workers needs to be positive");
+        this.width = width;
+        this.workers = workers;
+        this.maxSightRange = maxSightRange;
+    }
+
+    /**
+     * (package-private) Gives the worker whose strip contains the passed position, positions outside of the ecosystem belong to the nearest strip.
+     * @param x The position along the x-axis.
+     * @return The number of the worker.
+     */
+    int owner(float x){return Math.max(0, Math.min(workers - 1, (int) Math.floor(x * workers / width)));}
+
+    /**
+     * (package-private) Checks if the passed worker holds what stands at the passed position, because it is in its strip or its margin.
+     * @param worker The number of the worker.
+     * @param x The position along the x-axis.
+     * @return True if the position is within three halos of the strip.
+     */
+    boolean holds(int worker, float x){return near(worker, x, 3 * halo);}
+
+    /**
+     * (package-private) Checks if a turn starting at the passed position, or something it changed there, can matter to a turn of the passed worker.
+     * @param worker The number of the worker.
+     * @param x The position along the x-axis.
+     * @return True if the position is within two halos of the strip.
+     */
+    boolean reaches(int worker, float x){return near(worker, x, 2 * halo);}
+
+    /**
+     * (private) Checks if the passed position is within the passed distance of the strip of the passed worker, the outer strips reach beyond the ecosystem.
+     */
+    private boolean near(int worker, float x, float distance){
+        return (worker == 0 || x >= worker * width / workers - distance) && (worker == workers - 1 || x < (worker + 1) * width / workers + distance);
+    }
+
+    /**
+     * (package-private) Grows the halo, if the animals of the next tick could claim something further away.
+     * @param maxStep The step of the fastest animal at the start of the tick.
+     * @param maxPartner The distance from any animal to the farthest animal or resource it refers to at the start of the tick.
+     * @return True if the halo grew, which lets every worker hold more ghosts.
+     */
+    boolean grow(float maxStep, float maxPartner){
+        // the partners of an animal can move away within the tick, and the animal from them
+        float needed = Math.max(ShardedWorld.halo(maxSightRange, maxStep), maxPartner + 2 * maxStep + 2);
+        float grown = (float) Math.ceil(needed / HALO_STEP) * HALO_STEP;
+        if(grown <= halo) return false;
+        halo = grown;
+        return true;
+    }
+
+    //getter for tests and benchmarks
+    float getHalo(){return this.halo;}
+}
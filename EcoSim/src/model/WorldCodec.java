@@ -0,0 +1,185 @@
+package model;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * (package-private) Class that writes and reads the state of animals and resources in a compact binary layout, in which processes exchange them (see {@link DistributedCoordinator}).
+ * <p>
+ * All values are big-endian, the default of {@link ByteBuffer}. Animals are referred to by their id and resources by their index in the resource list, -1 stands for none.
+ * <pre>
+ * animal (62 bytes, a bunny 8 bytes more and a fox 4 bytes more)
+ *   int    id
+ *   float  x, y, vx, vy
+ *   double hunger, thirst, matingUrge
+ *   byte   state, the ordinal of its AnimalState
+ *   byte   flags: 1 dead, 2 eating, 4 drinking, 8 objectiveInSight, 16 thinking, 32 mating, 64 pregnant
+ *   int    resource it uses, mate
+ *   long   state of its SimRandom
+ *   bunny: int ponder, fox it runs away from
+ *   fox:   int prey
+ * resource (21 bytes)
+ *   double remainingPercentage
+ *   byte   flags: 1 regenerating, 2 unusable, 4 currentlyInUse
+ *   int    id of the animal holding its reservation, ids of the animals waiting for it (see {@link ResourceReservation})
+ * </pre>
+ * The species and sight range of an animal and the type and the position of a resource never change, so they are not written.
+ * A process which doesn't hold an animal or resource yet gets it with them (see {@link #writeNew(ByteBuffer, int, Animal)}):
+ * <pre>
+ * new animal:   int index in the animal list, byte species id, double sightRange, animal
+ * new resource: int index in the resource list, byte 1 for water, float x, y, resource
+ * </pre>
+ */
+final class WorldCodec {
+    static final int RESOURCE_BYTES = 9 + 4 * (1 + ResourceReservation.QUEUE_LENGTH), NEW_RESOURCE_BYTES = 13 + RESOURCE_BYTES;
+    private static final int MAX_ANIMAL_BYTES = 70;
+    private final IntFunction<Resource> resources;
+    private final ToIntFunction<Resource> resourceIndices;
+    private final int resourceCount;
+
+    /**
+     * (package-private) Constructor for a new codec of a world with the passed resources.
+     * @param resources The resources of the world, their indices are written instead of references.
+     */
+    WorldCodec(List<Resource> resources){
+        var indices = new IdentityHashMap<Resource, Integer>();
+        for(int i = 0; i < resources.size(); i++) indices.put(resources.get(i), i);
+        this.resources = resources::get;
+        this.resourceIndices = indices::get;
+        this.resourceCount = resources.size();
+    }
+
+    /**
+     * (package-private) Constructor for a new codec of a part of a world, which only holds some of its resources (see {@link WorldPart}).
+     * @param resources Gives the resource with an index of the whole resource list, or null if it isn't held.
+     * @param resourceIndices Gives the index of a held resource in the whole resource list.
+     */
+    WorldCodec(IntFunction<Resource> resources, ToIntFunction<Resource> resourceIndices){
+        this.resources = resources;
+        this.resourceIndices = resourceIndices;
+        this.resourceCount = -1;
+    }
+
+    /**
+     * (package-private) Gives the number of bytes an animal of the passed species is written in, a bunny needs more than a fox (see class comment).
+     * @param species The species of the animal.
+     * @return The number of bytes, without the values of a new animal.
+     */
+    static int animalBytes(Species species){return species.grazes() ? 70 : 66;}
+
+    /**
+     * (package-private) Writes the passed animals one after another.
+     * @param animals The animals to write.
+     * @param offsets Receives where every animal starts, and at the last index where the last one ends. Needs one element more than there are animals.
+     * @return The written bytes.
+     */
+    byte[] writeAnimals(List<Animal> animals, int[] offsets){
+        ByteBuffer buffer = ByteBuffer.allocate(animals.size() * MAX_ANIMAL_BYTES);
+        for(int i = 0; i < animals.size(); i++){
+            offsets[i] = buffer.position();
+            animals.get(i).writeState(buffer, resourceIndices);
+        }
+        offsets[animals.size()] = buffer.position();
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    /**
+     * (package-private) Writes every resource, in the order of the resource list.
+     * @return The written bytes, {@value #RESOURCE_BYTES} per resource.
+     */
+    byte[] writeResources(){
+        if(resourceCount < 0) throw new IllegalStateException("a part of a world doesn't hold every resource");
+        ByteBuffer buffer = ByteBuffer.allocate(resourceCount * RESOURCE_BYTES);
+        for(int i = 0; i < resourceCount; i++) resources.apply(i).writeState(buffer);
+        return buffer.array();
+    }
+
+    /**
+     * (package-private) Writes the passed animal with everything a process needs to create it (see class comment).
+     * @param buffer The buffer to write into, with room for {@link #animalBytes(Species)} and 13 more bytes.
+     * @param index The index of the animal in the animal list.
+     * @param animal The animal to write.
+     */
+    void writeNew(ByteBuffer buffer, int index, Animal animal){
+        buffer.putInt(index).put((byte) animal.getSpecies().id()).putDouble(animal.getSightRange());
+        animal.writeState(buffer, resourceIndices);
+    }
+
+    /**
+     * (package-private) Writes the passed resource with everything a process needs to create it (see class comment).
+     * @param buffer The buffer to write into, with room for {@value #NEW_RESOURCE_BYTES} bytes.
+     * @param resource The resource to write.
+     */
+    void writeNew(ByteBuffer buffer, Resource resource){
+        buffer.putInt(resourceIndices.applyAsInt(resource)).put((byte) (resource.isWater() ? 1 : 0)).putFloat(resource.getX()).putFloat(resource.getY());
+        resource.writeState(buffer);
+    }
+
+    /**
+     * (package-private) Reads an animal from the passed buffer and updates the animal with the read id.
+     * @param buffer The buffer to read from.
+     * @param animals Gives the animal with an id.
+     */
+    void readAnimal(ByteBuffer buffer, IntFunction<Animal> animals){readAnimal(buffer, animals.apply(buffer.getInt()), animals);}
+
+    /**
+     * (package-private) Reads an animal from the passed buffer into the passed animal, after its id was read. The animals and resources it refers to which aren't held become none.
+     * @param buffer The buffer to read from.
+     * @param animal The animal with the read id.
+     * @param animals Gives the animal with an id, or null if it isn't held.
+     */
+    void readAnimal(ByteBuffer buffer, Animal animal, IntFunction<Animal> animals){animal.readState(buffer, animals, resources);}
+
+    /**
+     * (package-private) Reads a resource from the passed buffer and updates the resource with the passed index.
+     * @param buffer The buffer to read from.
+     * @param index The index of the resource.
+     */
+    void readResource(ByteBuffer buffer, int index){resources.apply(index).readState(buffer);}
+
+    /**
+     * (package-private) Computes a checksum of the passed animals and of every resource, so processes can check that they hold the same world.
+     * @param animals The animals, ordered by id.
+     * @return The 64-bit FNV-1a hash of the written animals and resources.
+     */
+    long checksum(List<Animal> animals){
+        long hash = 0xCBF29CE484222325L;
+        for(byte[] bytes : new byte[][]{writeAnimals(animals, new int[animals.size() + 1]), writeResources()})
+            for(byte b : bytes) hash = (hash ^ (b & 0xFF)) * 0x100000001B3L;
+        return hash;
+    }
+
+    /**
+     * (package-private) Computes a checksum of the passed animals and resources which doesn't depend on their order, the sum of the hashes of every animal and resource.
+     * So the checksums of the parts of a world held by several processes add up to the checksum of the whole world, if every animal and resource is in one part.
+     * @param animals The animals.
+     * @param resources The resources, which are hashed together with their index.
+     * @return The sum of the 64-bit FNV-1a hashes of the written animals and resources.
+     */
+    long sumChecksum(Iterable<Animal> animals, Iterable<Resource> resources){
+        long sum = 0;
+        ByteBuffer buffer = ByteBuffer.allocate(Math.max(MAX_ANIMAL_BYTES, 4 + RESOURCE_BYTES));
+        for(Animal animal : animals){
+            animal.writeState(buffer.clear(), resourceIndices);
+            sum += hash(buffer.flip());
+        }
+        for(Resource resource : resources){
+            resource.writeState(buffer.clear().putInt(resourceIndices.applyAsInt(resource)));
+            sum += hash(buffer.flip());
+        }
+        return sum;
+    }
+
+    /**
+     * (private) Hashes the bytes between the position and the limit of the passed buffer.
+     */
+    private static long hash(ByteBuffer buffer){
+        long hash = 0xCBF29CE484222325L;
+        while(buffer.hasRemaining()) hash = (hash ^ (buffer.get() & 0xFF)) * 0x100000001B3L;
+        return hash;
+    }
+}
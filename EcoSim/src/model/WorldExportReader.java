@@ -0,0 +1,149 @@
+package model;
+
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Class that reads the frames a running simulation exports into a memory-mapped file (see {@link EcoModel#exportTo(Path)}), from another process or thread.
+ * <p>
+ * A frame is copied between two reads of the sequence number in the header. If the simulation wrote in between, the copy is thrown away
+ * and taken again, so a returned frame always holds the animals of a single tick. The simulation is never locked or slowed down by readers.
+ * <p>
+ * Example usage:
+ * <pre>{@code
+ * // prints the last frame of a simulation started with -Decosim.export=world.bin
+ * java model.WorldExportReader world.bin
+ *
+ * try(var reader = new WorldExportReader(Path.of("world.bin"))){
+ *     WorldExportReader.Frame frame = reader.read();
+ *     System.out.println(frame.tick() + ": " + frame.size() + " animals");
+ * }
+ * }</pre>
+ * @author Sleman Kakar
+ */
+public final class WorldExportReader implements AutoCloseable {
+    // a writer holds the sequence number odd only for one frame, so this many attempts fail only if the writer stopped in the middle of a frame
+    private static final int MAX_ATTEMPTS = 100_000;
+    // after this many attempts the reader gives up its processor, a writer which was descheduled within a frame can only finish it then
+    private static final int SPINS = 100;
+    private final FileChannel channel;
+    private MappedByteBuffer mapping;
+
+    /**
+     * A consistent copy of the animals of one tick, animal i is at index i of every array.
+     * @param tick The tick of the frame.
+     * @param width The width of the ecosystem.
+     * @param height The height of the ecosystem.
+     * @param ids The ids of the animals.
+     * @param x The x-positions.
+     * @param y The y-positions.
+     * @param states The ordinals of the {@link AnimalState} of the animals.
+     * @param flags The flags of the animals (1 herbivore, 2 dead, 4 eating, 8 drinking, 16 mating, 32 pregnant).
+     * @param hunger The hunger of the animals.
+     * @param thirst The thirst of the animals.
+     */
+    public record Frame(long tick, int width, int height, int[] ids, float[] x, float[] y, byte[] states, byte[] flags, float[] hunger, float[] thirst){
+        //getter for the number of animals
+        public int size(){return ids.length;}
+        //getter for whether an animal is a bunny
+        public boolean isHerbivore(int index){return (flags[index] & WorldExporter.HERBIVORE) != 0;}
+    }
+
+    /**
+     * Constructs a new reader of the specified export file.
+     * @param path The file the simulation exports to.
+     * @throws IOException If the file can't be opened or isn't an export of the supported layout.
+     */
+    public WorldExportReader(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        map();
+        if(mapping.getInt(0) != WorldExporter.MAGIC || mapping.getInt(4) != WorldExporter.VERSION) {
+            channel.close();
+            throw new IOException("The file isn't an export of layout version " + WorldExporter.VERSION);
+        }
+    }
+
+    /**
+     * Copies the latest complete frame.
+     * @return The frame.
+     * @throws IOException If the file grew and can't be mapped again.
+     * @throws IllegalStateException If no complete frame could be copied, because the writer stopped while writing one.
+     */
+    public Frame read() throws IOException {
+        for(int attempt = 0; attempt < MAX_ATTEMPTS; attempt++){
+            long before = (long) WorldExporter.LONGS.getAcquire(mapping, WorldExporter.SEQUENCE);
+            if((before & 1) != 0){
+                if(attempt < SPINS) Thread.onSpinWait();
+                else Thread.yield();
+                continue;
+            }
+            int count = mapping.getInt(WorldExporter.COUNT);
+            if(WorldExporter.HEADER_BYTES + (long) count * WorldExporter.RECORD_BYTES > mapping.capacity()){
+                // the writer grew the file since it was mapped
+                map();
+                continue;
+            }
+            Frame frame = copy(count);
+            // the copy has to be finished before the sequence number is read again
+            VarHandle.loadLoadFence();
+            if((long) WorldExporter.LONGS.getAcquire(mapping, WorldExporter.SEQUENCE) == before) return frame;
+        }
+        throw new IllegalStateException("No complete frame after " + MAX_ATTEMPTS + " attempts, the writer seems to have stopped within a frame");
+    }
+
+    /**
+     * Closes the file.
+     * @throws IOException If the file can't be closed.
+     */
+    @Override
+    public void close() throws IOException {channel.close();}
+
+    /**
+     * Prints a summary of the latest frame of the export file passed as argument.
+     * @param args The path of the export file.
+     * @throws IOException If the file can't be read.
+     */
+    public static void main(String[] args) throws IOException {
+        if(args.length != 1) throw new IllegalArgumentException("Usage: java model.WorldExportReader <file>");
+        try(var reader = new WorldExportReader(Path.of(args[0]))){
+            Frame frame = reader.read();
+            int bunnies = 0;
+            for(int i = 0; i < frame.size(); i++) if(frame.isHerbivore(i)) bunnies++;
+            System.out.println("tick " + frame.tick() + ": " + bunnies + " bunnies, " + (frame.size() - bunnies) + " foxes in " + frame.width() + " x " + frame.height());
+        }
+    }
+
+    /**
+     * (private) Copies the header and the passed number of animals, the values may be torn if the writer writes at the same time.
+     */
+    private Frame copy(int count){
+        ByteBuffer records = mapping.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int[] ids = new int[count];
+        float[] x = new float[count], y = new float[count], hunger = new float[count], thirst = new float[count];
+        byte[] states = new byte[count], flags = new byte[count];
+        for(int i = 0, at = WorldExporter.HEADER_BYTES; i < count; i++, at += WorldExporter.RECORD_BYTES){
+            ids[i] = records.getInt(at);
+            x[i] = records.getFloat(at + 4);
+            y[i] = records.getFloat(at + 8);
+            states[i] = records.get(at + 12);
+            flags[i] = records.get(at + 13);
+            hunger[i] = records.getFloat(at + 16);
+            thirst[i] = records.getFloat(at + 20);
+        }
+        return new Frame(records.getLong(WorldExporter.TICK), records.getInt(WorldExporter.WIDTH), records.getInt(WorldExporter.HEIGHT), ids, x, y, states, flags, hunger, thirst);
+    }
+
+    /**
+     * (private) Maps the whole file as it is now.
+     */
+    private void map() throws IOException {
+        mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        mapping.order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
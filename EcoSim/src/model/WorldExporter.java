@@ -0,0 +1,122 @@
+package model;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * (package-private) Class that mirrors the animals after every tick into a memory-mapped file, so other processes (e.g. analysis scripts or dashboards)
+ * can read the live world without a network protocol and without locking the simulation.
+ * <p>
+ * The header holds a sequence number, which is odd while a frame is written (seqlock). A reader copies the frame between two reads of the sequence number
+ * and keeps the copy if both reads gave the same even number (see {@link WorldExportReader}). The writer never waits for readers, it only writes the animals
+ * one after another into the mapping. All values are little-endian:
+ * <pre>
+ * header ({@value #HEADER_BYTES} bytes)
+ *   0  int    magic {@value #MAGIC}
+ *   4  int    layout version {@value #VERSION}
+ *   8  long   sequence number, odd while a frame is written
+ *   16 long   tick of the frame
+ *   24 int    number of animals in the frame
+ *   28 int    number of animals the file has room for, the file grows (and has to be mapped again) when it is exceeded
+ *   32 int    width, height of the ecosystem
+ *   40 int    record size {@value #RECORD_BYTES}
+ *   44 (20 bytes reserved)
+ * animal ({@value #RECORD_BYTES} bytes), starting at byte {@value #HEADER_BYTES}
+ *   0  int    id
+ *   4  float  x, y
+ *   12 byte   state, the ordinal of its AnimalState (0 NEWBORN, 1 IDLE, 2 HUNGRY, 3 THIRSTY, 4 HUNTED)
+ *   13 byte   flags: 1 herbivore, 2 dead, 4 eating, 8 drinking, 16 mating, 32 pregnant
+ *   14 (2 bytes padding)
+ *   16 float  hunger, thirst
+ * </pre>
+ * In Python the header reads as {@code struct.unpack_from("<iiqqiiiii", data)} and an animal as {@code struct.unpack_from("<iffbbxxff", data, 64 + 24 * i)}.
+ * <p>
+ * Note: The sequence number is written with release and read with acquire semantics, which orders the frame against it for readers in the JVM
+ * and on processors which keep the order of stores (e.g. x86). Readers in other languages have to read the sequence number with acquire semantics on other processors.
+ */
+final class WorldExporter implements AutoCloseable {
+    static final int MAGIC = 0x45434F58, VERSION = 1, HEADER_BYTES = 64, RECORD_BYTES = 24;
+    static final int SEQUENCE = 8, TICK = 16, COUNT = 24, CAPACITY = 28, WIDTH = 32, HEIGHT = 36, RECORD_SIZE = 40;
+    static final int HERBIVORE = 1, DEAD = 2, EATING = 4, DRINKING = 8, MATING = 16, PREGNANT = 32;
+    // reads and writes the sequence number with memory ordering, the buffer has to be direct and the offset aligned
+    static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private final RandomAccessFile file;
+    private final int width, height;
+    private MappedByteBuffer mapping;
+    private int capacity;
+    private long sequence;
+
+    /**
+     * (package-private) Constructor for an exporter writing into the passed file, which is created or replaced.
+     * @param path The file to write.
+     * @param width The width of the ecosystem.
+     * @param height The height of the ecosystem.
+     * @param capacity The number of animals the file has room for at first. Should be a positive value.
+     * @throws IOException If the file can't be created or mapped.
+     */
+    WorldExporter(Path path, int width, int height, int capacity) throws IOException {
+        if(capacity <= 0) throw new IllegalArgumentException("capacity needs to be positive");
+        this.file = new RandomAccessFile(path.toFile(), "rw");
+        this.width = width;
+        this.height = height;
+        file.setLength(0);
+        map(capacity);
+    }
+
+    /**
+     * (package-private) Writes the passed animals as the frame of the passed tick, the file grows if they don't fit.
+     * @param animals The animals after the tick.
+     * @param tick The number of ticks simulated so far.
+     * @throws IOException If the file can't grow.
+     */
+    void write(List<Animal> animals, long tick) throws IOException {
+        if(animals.size() > capacity) map(Math.max(animals.size(), 2 * capacity));
+
+        // odd: readers which started before this store retry, the fence keeps the frame behind it
+        LONGS.setOpaque(mapping, SEQUENCE, ++sequence);
+        VarHandle.storeStoreFence();
+        mapping.putLong(TICK, tick).putInt(COUNT, animals.size());
+        int at = HEADER_BYTES;
+        for(Animal animal : animals){
+            mapping.putInt(at, animal.getId()).putFloat(at + 4, animal.getX()).putFloat(at + 8, animal.getY());
+            mapping.put(at + 12, (byte) animal.getState().ordinal()).put(at + 13, flagsOf(animal));
+            mapping.putFloat(at + 16, (float) animal.getHunger()).putFloat(at + 20, (float) animal.getThirst());
+            at += RECORD_BYTES;
+        }
+        // even: the frame is complete
+        LONGS.setRelease(mapping, SEQUENCE, ++sequence);
+    }
+
+    /**
+     * (package-private) Closes the file, the last frame stays readable.
+     * @throws IOException If the file can't be closed.
+     */
+    @Override
+    public void close() throws IOException {file.close();}
+
+    /**
+     * (private) Grows the file to the passed number of animals and maps it again. Readers notice the new capacity in the header and map the file again as well.
+     */
+    private void map(int capacity) throws IOException {
+        long bytes = HEADER_BYTES + (long) capacity * RECORD_BYTES;
+        file.setLength(bytes);
+        mapping = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+        mapping.order(ByteOrder.LITTLE_ENDIAN);
+        this.capacity = capacity;
+        mapping.putInt(0, MAGIC).putInt(4, VERSION).putInt(CAPACITY, capacity).putInt(WIDTH, width).putInt(HEIGHT, height).putInt(RECORD_SIZE, RECORD_BYTES);
+        LONGS.setRelease(mapping, SEQUENCE, sequence);
+    }
+
+    // plain getters instead of getAnimalAttributes(), so writing a frame creates no objects
+    private static byte flagsOf(Animal animal){
+        return (byte) ((animal.isHerbivore() ? HERBIVORE : 0) | (animal.isDead() ? DEAD : 0) | (animal.isEating() ? EATING : 0)
+                | (animal.isDrinking() ? DRINKING : 0) | (animal.isMating() ? MATING : 0) | (animal.isPregnant() ? PREGNANT : 0));
+    }
+}
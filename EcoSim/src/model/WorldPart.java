@@ -0,0 +1,573 @@
+package model;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * (package-private) Class that holds the part of a distributed simulation one {@link DistributedWorker} knows: the animals and resources of its strip and the ghosts around it (see {@link WorkerStrips}).
+ * <p>
+ * The worker takes the turns of the animals of its strip (see {@link ShardedWorld.Partition}) in the order of the whole animal list, although it only holds a part of it.
+ * It knows the index of every animal it holds and where every batch ends, and replays how the list changes from what the workers tell each other:
+ * <ul>
+ *     <li>at the start of a tick, the dead animals of every strip are taken out and the newborns of the last tick are added like {@link AnimalPool} does,</li>
+ *     <li>every {@value EcoModel#REORDER_INTERVAL} ticks, the positions of every strip decide if the list is sorted along a Z-order curve like in {@link EcoModel},</li>
+ *     <li>the animals ready to mate of every strip are paired like in {@link EcoModel}, and the mothers of every strip give their newborns the next ids after every batch.</li>
+ * </ul>
+ * While a batch is taken, a worker sends the turns it took and what they changed only to the workers it can matter to. After every batch, the owner of every animal and resource
+ * sends it to the workers which hold it if it changed, or came into their margin, so every worker knows its margin again.
+ * <p>
+ * Note: A ghost further than two halos away from the strip isn't needed by any turn of the strip, so the animals and resources it refers to can be missing.
+ */
+final class WorldPart implements ShardedWorld.Partition {
+    /**
+     * (package-private) Interface that sends a round to the other workers and waits for theirs, every worker has to take part in every round.
+     */
+    interface Exchange {
+        /**
+         * (package-private) Sends what this worker tells every worker and the parts for single workers, and receives what the other workers sent.
+         * @param finished True if this worker took all of its turns of the batch.
+         * @param gathered What every worker gets.
+         * @param parts The part for every worker, null for none.
+         * @return What the workers sent.
+         */
+        Received round(boolean finished, ByteBuffer gathered, ByteBuffer[] parts);
+    }
+
+    /**
+     * (package-private) What the workers sent in a round.
+     * @param finished True if every worker took all of its turns of the batch.
+     * @param gathered What every worker sent to every worker, by worker.
+     * @param parts The part every worker sent to this worker, by worker, null for none.
+     */
+    record Received(boolean finished, ByteBuffer[] gathered, ByteBuffer[] parts){}
+
+    private final SpeciesRegistry registry = SpeciesRegistry.STANDARD;
+    private final int worker, workers;
+    private final double maxSightRange;
+    private final boolean worldHasResources;
+    private final EcoModel model;
+    private final AnimalPool pool;
+    private final WorkerStrips strips;
+    private final ShardedWorld shards;
+    private final WorldCodec codec;
+    private final Exchange exchange;
+
+    // the end of every batch of the whole animal list, the held animals by their index in it and by their id (also the newborns which aren't in it yet)
+    private final int[] ends;
+    private final TreeMap<Integer, Animal> byIndex = new TreeMap<>();
+    private final HashMap<Integer, Animal> byId = new HashMap<>();
+    // the index in the whole animal list of every animal of the local animal list
+    private int[] indices = new int[0];
+    // the held resources by their index in the whole resource list, and the other way round
+    private final TreeMap<Integer, Resource> resources = new TreeMap<>();
+    private final IdentityHashMap<Resource, Integer> resourceIndices = new IdentityHashMap<>();
+    // the species of every newborn of the last tick in the order of their ids, and the newborn if this worker holds it
+    private final ArrayList<Species> newbornSpecies = new ArrayList<>();
+    private final ArrayList<Animal> newborns = new ArrayList<>();
+    private int nextId;
+    private long tick;
+    private double sortedGap = -1;
+
+    // the animals of the strip, and the position every turn of the batch started from
+    private final Set<Animal> owned = Collections.newSetFromMap(new IdentityHashMap<>());
+    private float[] turnX = new float[0];
+    // the animals and resources of the strip which changed since they were last sent, and the ids (indices for resources) every other worker holds of them
+    private final LinkedHashSet<Animal> changedAnimals = new LinkedHashSet<>();
+    private final LinkedHashSet<Resource> changedResources = new LinkedHashSet<>();
+    private final List<HashSet<Integer>> heldAnimals = new ArrayList<>(), heldResources = new ArrayList<>();
+
+    /**
+     * (package-private) Constructor for the part of the world sent by the coordinator (see {@link DistributedProtocol} for CONFIG).
+     * @param config The payload of the CONFIG message.
+     * @param exchange Sends the rounds to the other workers.
+     */
+    WorldPart(ByteBuffer config, Exchange exchange){
+        this.exchange = exchange;
+        worker = config.getInt();
+        workers = config.getInt();
+        int width = config.getInt(), height = config.getInt();
+        long seed = config.getLong();
+        maxSightRange = config.getDouble();
+        worldHasResources = config.getInt() > 0;
+        nextId = config.getInt();
+        ends = new int[config.getInt()];
+        if(ends.length != registry.size()) throw new IllegalArgumentException("The world has " + ends.length + " species instead of " + registry.size());
+        for(int species = 0; species < ends.length; species++) ends[species] = config.getInt();
+
+        model = new EcoModel(width, height, seed);
+        // the cached resources are kept per animal and aren't sent, so every worker finds the resources anew (which gives the same simulation)
+        model.setUseResourceCache(false);
+        pool = model.getPool();
+        strips = new WorkerStrips(width, workers, maxSightRange);
+        codec = new WorldCodec(resources::get, resourceIndices::get);
+        shards = new ShardedWorld(width, height, maxSightRange, 1);
+        shards.setPartition(this);
+        for(int other = 0; other < workers; other++){
+            heldAnimals.add(new HashSet<>());
+            heldResources.add(new HashSet<>());
+        }
+
+        read(config, true);
+        updateOwners();
+        rebuild();
+        startResources();
+    }
+
+    /**
+     * (package-private) Simulates one tick together with the other workers, like {@link EcoModel#simulateTick()}.
+     */
+    void tick(){
+        // every worker tells the others which animals of its strip died and how far its animals reach
+        float maxStep = 0, maxPartner = 0;
+        var dead = new ArrayList<Integer>();
+        for(Animal animal : pool.animals()){
+            if(!owned.contains(animal)) continue;
+            if(animal.isDead()){
+                dead.add(indices[animal.getIndex()]);
+                continue;
+            }
+            maxStep = Math.max(maxStep, (float) Math.hypot(animal.getAnimalAttributes().vx(), animal.getAnimalAttributes().vy()));
+            maxPartner = Math.max(maxPartner, partnerDistance(animal));
+        }
+        ByteBuffer reach = ByteBuffer.allocate(12 + 4 * dead.size()).putFloat(maxStep).putFloat(maxPartner).putInt(dead.size());
+        for(int index : dead) reach.putInt(index);
+        var allDead = new TreeSet<Integer>();
+        for(ByteBuffer gathered : exchange.round(true, reach.flip(), new ByteBuffer[workers]).gathered()){
+            maxStep = Math.max(maxStep, gathered.getFloat());
+            maxPartner = Math.max(maxPartner, gathered.getFloat());
+            for(int count = gathered.getInt(); count > 0; count--) allDead.add(gathered.getInt());
+        }
+        boolean grown = strips.grow(maxStep, maxPartner);
+
+        addNewborns(allDead);
+        removeDead(allDead);
+        rebuild();
+        if(grown){
+            // the margins got wider, so every owner sends everything the other workers hold now
+            heldAnimals.forEach(Set::clear);
+            heldResources.forEach(Set::clear);
+            refresh(exchange.round(true, ByteBuffer.allocate(0), changes()));
+        }
+        model.forgetGonePartners();
+        if(tick % EcoModel.REORDER_INTERVAL == 0) reorder();
+        pairMates();
+
+        for(int species = 0; species < registry.size(); species++) takeTurns(species);
+        model.regenerateResources();
+        tick++;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean simulates(Animal animal){
+        turnX[animal.getIndex()] = animal.getX();
+        return owned.contains(animal);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean exchange(ShardedWorld.Round local, ShardedWorld.Round remote){
+        for(Animal animal : local.animals) if(owned.contains(animal)) changedAnimals.add(animal);
+        for(Resource resource : local.resources) if(owns(resource)) changedResources.add(resource);
+
+        // a worker only gets the turns its turns could wait for, and what they changed within its reach
+        var parts = new ByteBuffer[workers];
+        for(int other = 0; other < workers; other++){
+            if(other == worker) continue;
+            int to = other;
+            var taken = local.taken.stream().filter(animal -> strips.reaches(to, turnX[animal.getIndex()])).toList();
+            var animals = local.animals.stream().filter(animal -> strips.reaches(to, animal.getX())).toList();
+            var changed = local.resources.stream().filter(resource -> strips.reaches(to, resource.getX())).toList();
+            if(!taken.isEmpty() || !animals.isEmpty() || !changed.isEmpty()) parts[other] = write(taken, animals, changed);
+        }
+
+        Received received = exchange.round(local.finished, ByteBuffer.allocate(0), parts);
+        for(ByteBuffer part : received.parts()){
+            if(part == null) continue;
+            for(int count = part.getInt(); count > 0; count--){
+                int id = part.getInt();
+                Animal animal = byId.get(id);
+                if(animal == null) throw new IllegalStateException("Animal " + id + " took a turn worker " + worker + " waits for, but isn't held by it");
+                remote.taken.add(animal);
+            }
+            read(part, false);
+        }
+        return received.finished();
+    }
+
+    /**
+     * (package-private) Computes the checksum of the animals and resources of the strip (see {@link WorldCodec#sumChecksum(Iterable, Iterable)}).
+     * @return The checksum, the checksums of all workers add up to the checksum of the whole world.
+     */
+    long checksum(){
+        var ownAnimals = pool.animals().stream().filter(owned::contains).toList();
+        var ownResources = resources.values().stream().filter(this::owns).toList();
+        return codec.sumChecksum(ownAnimals, ownResources);
+    }
+
+    /**
+     * (private) Takes the turns of the batch of the passed species, and brings the margins up to date and creates the newborns afterwards.
+     */
+    private void takeTurns(int species){
+        List<Animal> animals = pool.animals();
+        if(turnX.length < animals.size()) turnX = new float[animals.size()];
+        List<Animal> mothers = shards.takeTurns(animals, pool.start(species), pool.end(species), model::takeShardedTurn);
+
+        ByteBuffer born = ByteBuffer.allocate(4 + 12 * mothers.size()).putInt(mothers.size());
+        for(Animal mother : mothers) born.putInt(indices[mother.getIndex()]).putFloat(mother.getX()).putFloat(mother.getY());
+        Received received = exchange.round(true, born.flip(), changes());
+        bear(registry.get(species), received.gathered());
+        refresh(received);
+    }
+
+    /**
+     * (private) Writes the animals and resources of the strip every other worker needs to know its margin: the ones which changed or came into its margin,
+     * and the ones which left it, so it lets them go.
+     */
+    private ByteBuffer[] changes(){
+        var parts = new ByteBuffer[workers];
+        for(int other = 0; other < workers; other++){
+            if(other == worker) continue;
+            HashSet<Integer> animalsHeld = heldAnimals.get(other), resourcesHeld = heldResources.get(other);
+            var animals = new ArrayList<Animal>();
+            for(Animal animal : pool.animals()){
+                if(!owned.contains(animal)) continue;
+                // the set is always updated, so the add isn't short-circuited
+                boolean send = strips.holds(other, animal.getX()) ? animalsHeld.add(animal.getId()) | changedAnimals.contains(animal) : animalsHeld.remove(animal.getId());
+                if(send) animals.add(animal);
+            }
+            var changed = new ArrayList<Resource>();
+            for(var entry : resources.entrySet()){
+                Resource resource = entry.getValue();
+                if(!owns(resource)) continue;
+                boolean send = strips.holds(other, resource.getX()) ? resourcesHeld.add(entry.getKey()) | changedResources.contains(resource) : resourcesHeld.remove(entry.getKey());
+                if(send) changed.add(resource);
+            }
+            if(!animals.isEmpty() || !changed.isEmpty()) parts[other] = write(List.of(), animals, changed);
+        }
+        changedAnimals.clear();
+        changedResources.clear();
+        return parts;
+    }
+
+    /**
+     * (private) Reads what the owners sent after a batch, lets the ghosts which left the margin go and takes over the animals which came into the strip.
+     */
+    private void refresh(Received received){
+        boolean added = false;
+        for(ByteBuffer part : received.parts()){
+            if(part == null) continue;
+            part.getInt();
+            added |= read(part, true);
+        }
+        byIndex.values().removeIf(animal -> {
+            boolean gone = !owned.contains(animal) && !strips.holds(worker, animal.getX());
+            if(gone) byId.remove(animal.getId());
+            return gone;
+        });
+        updateOwners();
+        rebuild();
+        if(added) startResources();
+    }
+
+    /**
+     * (private) Reads the animals and resources of a part, the held ones are brought up to date. The others are created if they are within the margin and create is true, otherwise skipped.
+     * @return True if a resource was created.
+     */
+    private boolean read(ByteBuffer part, boolean create){
+        int animals = part.getInt(), start = part.position();
+        // every animal is created before any is read, since they refer to each other
+        for(int i = 0; i < animals; i++){
+            int index = part.getInt();
+            Species species = registry.get(part.get());
+            double sightRange = part.getDouble();
+            int at = part.position(), id = part.getInt(at);
+            float x = part.getFloat(at + 4), y = part.getFloat(at + 8);
+            part.position(at + WorldCodec.animalBytes(species));
+            if(!create || byId.containsKey(id) || !strips.holds(worker, x)) continue;
+            Animal animal = pool.animal(species, id, sightRange, x, y, 0);
+            byId.put(id, animal);
+            if(byIndex.put(index, animal) != null) throw new IllegalStateException("Animal " + id + " takes the index of another animal held by worker " + worker);
+        }
+        part.position(start);
+        for(int i = 0; i < animals; i++){
+            part.getInt();
+            Species species = registry.get(part.get());
+            part.getDouble();
+            Animal animal = byId.get(part.getInt());
+            if(animal == null){
+                part.position(part.position() + WorldCodec.animalBytes(species) - 4);
+                continue;
+            }
+            codec.readAnimal(part, animal, byId::get);
+            if(owned.contains(animal)) changedAnimals.add(animal);
+        }
+
+        boolean added = false;
+        for(int count = part.getInt(); count > 0; count--){
+            int index = part.getInt();
+            boolean water = part.get() != 0;
+            float x = part.getFloat(), y = part.getFloat();
+            Resource resource = resources.get(index);
+            if(resource == null && create && strips.holds(worker, x)){
+                resource = new Resource(water, x, y);
+                resources.put(index, resource);
+                resourceIndices.put(resource, index);
+                added = true;
+            }
+            if(resource == null){
+                part.position(part.position() + WorldCodec.RESOURCE_BYTES);
+                continue;
+            }
+            resource.readState(part);
+            if(owns(resource)) changedResources.add(resource);
+        }
+        return added;
+    }
+
+    /**
+     * (private) Writes the passed turns, animals and resources as a part for another worker: int turns, the id of every animal which took one, int animals, the new animals, int resources, the new resources.
+     */
+    private ByteBuffer write(List<Animal> taken, Collection<Animal> animals, Collection<Resource> changed){
+        int bytes = 12 + 4 * taken.size() + changed.size() * WorldCodec.NEW_RESOURCE_BYTES;
+        for(Animal animal : animals) bytes += 13 + WorldCodec.animalBytes(animal.getSpecies());
+        ByteBuffer part = ByteBuffer.allocate(bytes).putInt(taken.size());
+        for(Animal animal : taken) part.putInt(animal.getId());
+        part.putInt(animals.size());
+        for(Animal animal : animals) codec.writeNew(part, indices[animal.getIndex()], animal);
+        part.putInt(changed.size());
+        for(Resource resource : changed) codec.writeNew(part, resource);
+        return part.flip();
+    }
+
+    /**
+     * (private) Gives the newborns of the passed mothers of every strip the next ids in the order of the whole animal list, this worker only creates the ones within its margin.
+     */
+    private void bear(Species species, ByteBuffer[] gathered){
+        var mothers = new TreeMap<Integer, float[]>();
+        for(ByteBuffer born : gathered) for(int count = born.getInt(); count > 0; count--) mothers.put(born.getInt(), new float[]{born.getFloat(), born.getFloat()});
+        for(float[] mother : mothers.values()){
+            for(int i = 0; i < species.litterSize(); i++){
+                Animal newborn = null;
+                if(strips.holds(worker, mother[0])){
+                    newborn = model.newborn(species, nextId, mother[0], mother[1]);
+                    byId.put(nextId, newborn);
+                    if(strips.owner(mother[0]) == worker) share(newborn);
+                }
+                newbornSpecies.add(species);
+                newborns.add(newborn);
+                nextId++;
+            }
+        }
+    }
+
+    /**
+     * (private) Adds the newborns of the last tick to the whole animal list like {@link AnimalPool} does, the indices of the passed dead animals move with them.
+     */
+    private void addNewborns(TreeSet<Integer> dead){
+        for(int n = 0; n < newbornSpecies.size(); n++){
+            int species = newbornSpecies.get(n).id(), free = ends[ends.length - 1];
+            for(int later = ends.length - 1; later > species; later--){
+                int first = ends[later - 1];
+                if(first < ends[later]){
+                    move(first, free, dead);
+                    free = first;
+                }
+                ends[later]++;
+            }
+            Animal newborn = newborns.get(n);
+            if(newborn != null){
+                byIndex.put(free, newborn);
+                if(strips.owner(newborn.getX()) == worker) owned.add(newborn);
+            }
+            ends[species]++;
+        }
+        newbornSpecies.clear();
+        newborns.clear();
+    }
+
+    /**
+     * (private) Removes the passed dead animals from the whole animal list like {@link AnimalPool} does, the held ones give up their resources first.
+     */
+    private void removeDead(TreeSet<Integer> dead){
+        while(!dead.isEmpty()){
+            int free = dead.pollFirst();
+            Animal animal = byIndex.remove(free);
+            int species = 0;
+            while(ends[species] <= free) species++;
+            if(animal != null){
+                animal.leaveResource();
+                byId.remove(animal.getId());
+                owned.remove(animal);
+                for(Set<Integer> held : heldAnimals) held.remove(animal.getId());
+            }
+            for(; species < ends.length; species++){
+                int last = --ends[species];
+                if(last != free) move(last, free, dead);
+                free = last;
+            }
+        }
+    }
+
+    /**
+     * (private) Moves the animal at the passed index of the whole animal list to another index, a dead animal is still taken out later.
+     */
+    private void move(int from, int to, TreeSet<Integer> dead){
+        Animal animal = byIndex.remove(from);
+        if(animal != null) byIndex.put(to, animal);
+        if(dead.remove(from)) dead.add(to);
+    }
+
+    /**
+     * (private) Sorts the whole animal list along a Z-order curve like {@link EcoModel} does, from the positions of the animals of every strip.
+     */
+    private void reorder(){
+        ByteBuffer positions = ByteBuffer.allocate(4 + 12 * owned.size()).putInt(owned.size());
+        for(Animal animal : pool.animals()) if(owned.contains(animal)) positions.putInt(indices[animal.getIndex()]).putFloat(animal.getX()).putFloat(animal.getY());
+        int size = ends[ends.length - 1];
+        float[] x = new float[size], y = new float[size];
+        for(ByteBuffer gathered : exchange.round(true, positions.flip(), new ByteBuffer[workers]).gathered()){
+            for(int count = gathered.getInt(); count > 0; count--){
+                int index = gathered.getInt();
+                x[index] = gathered.getFloat();
+                y[index] = gathered.getFloat();
+            }
+        }
+        if(sortedGap >= 0 && AnimalPool.meanGap(x, y) <= EcoModel.REORDER_GROWTH * sortedGap) return;
+
+        long[] keys = new long[size];
+        for(int i = 0; i < size; i++) keys[i] = AnimalPool.mortonKey(x[i], y[i], EcoModel.MORTON_CELL, i);
+        for(int species = 0; species < ends.length; species++) Arrays.sort(keys, species == 0 ? 0 : ends[species - 1], ends[species]);
+        var before = new TreeMap<>(byIndex);
+        byIndex.clear();
+        float[] sortedX = new float[size], sortedY = new float[size];
+        for(int i = 0; i < size; i++){
+            int index = (int) keys[i];
+            Animal animal = before.get(index);
+            if(animal != null) byIndex.put(i, animal);
+            sortedX[i] = x[index];
+            sortedY[i] = y[index];
+        }
+        sortedGap = AnimalPool.meanGap(sortedX, sortedY);
+        rebuild();
+    }
+
+    /**
+     * (private) Pairs the animals which are ready to mate like {@link EcoModel} does, from the candidates of every strip. A pair is within sight, so the owner of either animal holds both.
+     */
+    private void pairMates(){
+        var candidates = model.mateCandidates();
+        candidates.removeIf(candidate -> !owned.contains(candidate));
+        ByteBuffer own = ByteBuffer.allocate(4 + 24 * candidates.size()).putInt(candidates.size());
+        for(Animal candidate : candidates)
+            own.putInt(indices[candidate.getIndex()]).putInt(candidate.getSpecies().id()).putFloat(candidate.getX()).putFloat(candidate.getY()).putDouble(candidate.getSightRange());
+        // the candidates by their index in the whole animal list, each as its position in the gathered buffer
+        var all = new TreeMap<Integer, ByteBuffer>();
+        for(ByteBuffer gathered : exchange.round(true, own.flip(), new ByteBuffer[workers]).gathered()){
+            for(int count = gathered.getInt(); count > 0; count--){
+                all.put(gathered.getInt(), gathered.slice(gathered.position(), 20));
+                gathered.position(gathered.position() + 20);
+            }
+        }
+
+        int count = all.size();
+        int[] index = new int[count], species = new int[count];
+        float[] x = new float[count], y = new float[count];
+        double[] sightRange = new double[count];
+        int i = 0;
+        for(var entry : all.entrySet()){
+            ByteBuffer candidate = entry.getValue();
+            index[i] = entry.getKey();
+            species[i] = candidate.getInt();
+            x[i] = candidate.getFloat();
+            y[i] = candidate.getFloat();
+            sightRange[i++] = candidate.getDouble();
+        }
+        int[] partner = MatePairing.match(count, species, x, y, sightRange);
+        for(i = 0; i < count; i++){
+            if(partner[i] <= i) continue;
+            Animal animal = byIndex.get(index[i]), mate = byIndex.get(index[partner[i]]);
+            if(animal != null && mate != null) animal.pairWith(mate);
+        }
+    }
+
+    /**
+     * (private) Takes over the animals which came into the strip and hands over the ones which left it.
+     * The worker taking over an animal knows which workers hold it, since the worker handing it over just sent it to every worker whose margin it is in.
+     */
+    private void updateOwners(){
+        for(Animal animal : byIndex.values()){
+            boolean own = strips.owner(animal.getX()) == worker;
+            if(own == owned.contains(animal)) continue;
+            if(own){
+                owned.add(animal);
+                share(animal);
+            }else{
+                owned.remove(animal);
+                for(Set<Integer> held : heldAnimals) held.remove(animal.getId());
+            }
+        }
+    }
+
+    /**
+     * (private) Remembers that every other worker whose margin contains the passed animal holds it.
+     */
+    private void share(Animal animal){
+        for(int other = 0; other < workers; other++) if(other != worker && strips.holds(other, animal.getX())) heldAnimals.get(other).add(animal.getId());
+    }
+
+    /**
+     * (private) Puts the held animals into the animal list of the model, in the order of the whole animal list.
+     */
+    private void rebuild(){
+        pool.replace(new ArrayList<>(byIndex.values()));
+        indices = byIndex.keySet().stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * (private) Lets the model and the claims of the turns use the held resources.
+     */
+    private void startResources(){
+        var held = new ArrayList<>(resources.values());
+        model.setPartResources(held, maxSightRange, worldHasResources);
+        shards.start(held);
+    }
+
+    /**
+     * (private) Checks if the passed resource is in the strip, resources never move.
+     */
+    private boolean owns(Resource resource){return strips.owner(resource.getX()) == worker;}
+
+    /**
+     * (private) Measures the distance to the farthest animal or resource the passed animal refers to.
+     */
+    private static float partnerDistance(Animal animal){
+        float distance = 0;
+        Resource resource = animal.getUsingThisResource();
+        if(resource != null) distance = (float) Math.hypot(resource.getX() - animal.getX(), resource.getY() - animal.getY());
+        Animal mate = animal.getUsingThisMate();
+        Animal other = animal instanceof Fox fox ? fox.getUsingThisPrey() : animal instanceof Bunny bunny ? bunny.getRunningAwayFromThisFox() : null;
+        for(Animal partner : new Animal[]{mate, other})
+            if(partner != null) distance = Math.max(distance, (float) Math.hypot(partner.getX() - animal.getX(), partner.getY() - animal.getY()));
+        return distance;
+    }
+
+    //getter for tests and benchmarks
+    int getOwnAnimals(){return this.owned.size();}
+    int getHeldAnimals(){return this.byIndex.size();}
+}
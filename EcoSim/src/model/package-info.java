@@ -5,10 +5,17 @@
  *
  * <ul>Class summary:
  *     <li>{@link model.EcoModel}</li>
+ *     <li>{@link model.EcsModel}</li> class simulating the same ecosystem with an entity-component-system engine.
  *     <li>{@link model.Animal}</li>
  *     <li>{@link model.Fox}</li> class representing foxes and their functionalities.
  *     <li>{@link model.Bunny}</li> class representing bunnies and their functionalities.
  *     <li>{@link model.Resource}</li>
+ *     <li>{@link model.SweepRunner}</li> class running parameter sweeps of headless simulations.
+ *     <li>{@link model.ResultCache}</li> class storing completed headless runs on disk.
+ *     <li>{@link model.DistributedCoordinator}</li> class running one simulation spread across several processes.
+ *     <li>{@link model.DistributedWorker}</li> class simulating a part of a simulation spread across several processes.
+ *     <li>{@link model.PositionSnapshot}</li> class holding the positions of the animals after the last two ticks, for drawing between them.
+ *     <li>{@link model.WorldExportReader}</li> class reading the world a running simulation exports into a memory-mapped file.
  * </ul>
  *
  *
@@ -18,11 +25,17 @@
  *
  * <ul>Enum summary:
  *     <li>{@link model.AnimalState}</li> enum representing different sates an animal can be in.
+ *     <li>{@link model.RunEnd}</li> enum representing the reasons a headless run can end.
  * </ul>
  *
  * <ul>Record summary:
  *     <li>{@link model.AnimalAttributes}</li>
  *     <li>{@link model.ResourceAttributes}</li>
+ *     <li>{@link model.SweepSpec}</li>
+ *     <li>{@link model.SweepPoint}</li>
+ *     <li>{@link model.RunSummary}</li>
+ *     <li>{@link model.PointSummary}</li>
+ *     <li>{@link model.RunRecord}</li>
  * </ul>
  */
 package model;
\ No newline at end of file
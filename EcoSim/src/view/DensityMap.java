@@ -0,0 +1,80 @@
+package view;
+
+import processing.core.PImage;
+
+import java.util.Arrays;
+
+import static processing.core.PConstants.ARGB;
+
+/**
+ * (package-private) Class that counts the bunnies and foxes in a coarse grid and turns the counts into an image with one pixel per cell,
+ * which is stretched over the window with a single image call.
+ * <p>
+ * Every cell is coloured by the share of foxes among its animals, from the colour of bunnies to the colour of foxes. Its alpha value grows
+ * with the logarithm of its number of animals, relative to the fullest cell, so sparse cells stay visible next to crowded ones.
+ */
+class DensityMap {
+    static final int CELL_SIZE = 8;
+    static final int BUNNY_COLOR = 0xF5F5F5, FOX_COLOR = 0xE6781E;
+    private final PImage image;
+    private final int columns, rows;
+    private final int[] bunnies, foxes;
+
+    /**
+     * (package-private) Constructor for a new density map covering a window of the passed size.
+     * @param width The width of the window.
+     * @param height The height of the window.
+     */
+    DensityMap(int width, int height){
+        this.columns = (width + CELL_SIZE - 1) / CELL_SIZE;
+        this.rows = (height + CELL_SIZE - 1) / CELL_SIZE;
+        this.image = new PImage(columns, rows, ARGB);
+        this.bunnies = new int[columns * rows];
+        this.foxes = new int[columns * rows];
+    }
+
+    /**
+     * (package-private) Counts the passed animals and returns the image of their density, animals outside the window are not counted.
+     * @param x The x-positions of the animals.
+     * @param y The y-positions of the animals.
+     * @param herbivore True for every bunny, false for every fox.
+     * @param count The number of animals, the arrays may be longer.
+     * @return The image with one pixel per cell, it is reused by the next call.
+     */
+    PImage update(float[] x, float[] y, boolean[] herbivore, int count){
+        Arrays.fill(bunnies, 0);
+        Arrays.fill(foxes, 0);
+        for(int i = 0; i < count; i++){
+            int column = (int) (x[i] / CELL_SIZE), row = (int) (y[i] / CELL_SIZE);
+            if(x[i] < 0 || y[i] < 0 || column >= columns || row >= rows) continue;
+            if(herbivore[i]) bunnies[row * columns + column]++;
+            else foxes[row * columns + column]++;
+        }
+
+        int most = 0;
+        for(int cell = 0; cell < bunnies.length; cell++) most = Math.max(most, bunnies[cell] + foxes[cell]);
+        double scale = most == 0 ? 0 : 1 / Math.log1p(most);
+
+        image.loadPixels();
+        for(int cell = 0; cell < bunnies.length; cell++){
+            int animals = bunnies[cell] + foxes[cell];
+            if(animals == 0){
+                image.pixels[cell] = 0;
+                continue;
+            }
+            float share = foxes[cell] / (float) animals;
+            int alpha = 60 + (int) (195 * Math.log1p(animals) * scale);
+            image.pixels[cell] = alpha << 24 | mix(BUNNY_COLOR >> 16, FOX_COLOR >> 16, share) << 16
+                    | mix(BUNNY_COLOR >> 8, FOX_COLOR >> 8, share) << 8 | mix(BUNNY_COLOR, FOX_COLOR, share);
+        }
+        image.updatePixels();
+        return image;
+    }
+
+    /**
+     * (private) Mixes the lowest byte of two colours, share 0 returns the first and share 1 the second.
+     */
+    private static int mix(int from, int to, float share){
+        return Math.round((from & 0xFF) + ((to & 0xFF) - (from & 0xFF)) * share);
+    }
+}
@@ -43,9 +43,12 @@ public class EcoView extends PApplet implements IEcoView {
     private PFont mcFont;
     private ControlP5 cp5;
     private Button setupButton, startButton, readMeButton;
-    private Button pauseButton, playButton, homeButton;
-    private Slider speedSlider;
+    private Button pauseButton, playButton, homeButton, statsButton;
+    private Slider speedSlider, spriteLimitSlider, pointLimitSlider;
     private Slider initialBunniesSlider, initialFoxesSlider, initialWaterSourcesSlider, initialGrassSourcesSlider;
+    private ResourceLayer resourceLayer;
+    private DensityMap densityMap;
+    private PerformanceHud performanceHud;
 
 
     /**
@@ -79,11 +82,11 @@ public class EcoView extends PApplet implements IEcoView {
     }
 
     /**
-     * The draw method from processing is iteratively, it is used to actually "draw", in this example a background is being drawn
-     * to reset previous drawings, furthermore the draw "logic" is being outsourced to the controller to handle
+     * The draw method from processing is iteratively, it is used to actually "draw", in this example the draw "logic" is being outsourced to the controller to handle.
+     * <p>
+     * Note: Every screen draws its own background, the running simulation draws the cached {@link ResourceLayer}, so previous drawings don't have to be reset here.
      */
     public void draw(){
-        background(75,139,59);
         controller.nextFrame();
     }
 
@@ -302,6 +305,17 @@ public class EcoView extends PApplet implements IEcoView {
 
 
 
+        statsButton = cp5.addButton("statsButton");
+        statsButton.setPosition(homeButton.getPosition()[0] + homeButton.getWidth() + 10, homeButton.getPosition()[1])
+                .setSize(width/18, height/28)
+                .setLabel("Stats")
+                .setColorBackground(color(80))
+                .setColorForeground(color(120))
+                .setColorActive(color(200))
+                .getCaptionLabel().setFont(mcFont);
+
+        statsButton.addListenerFor(ACTION_RELEASE, callbackEvent -> controller.togglePerformanceHud());
+
         pauseButton = cp5.addButton("pauseButton");
         pauseButton.setPosition(10, height - pauseButton.getHeight() * 3)
                 .setSize(110, 50)
@@ -366,6 +380,29 @@ public class EcoView extends PApplet implements IEcoView {
 
         speedSlider.addListener(controlEvent -> controller.setSimulationSpeed((int) speedSlider.getValue()));
 
+        //Sliders for the populations up to which animals are drawn as sprites and as points (see drawAnimals)
+        spriteLimitSlider = cp5.addSlider("spriteLimitSlider");
+        spriteLimitSlider.setPosition(speedSlider.getPosition()[0] + speedSlider.getWidth() + 40, speedSlider.getPosition()[1])
+                .setSize(110, 20)
+                .setLabel("")
+                .setRange(0, 20000)
+                .setValue(2000)
+                .setColorBackground(color(80))
+                .setColorForeground(color(160))
+                .setColorActive(color(200))
+                .setColorValue(color(255, 0));
+
+        pointLimitSlider = cp5.addSlider("pointLimitSlider");
+        pointLimitSlider.setPosition(spriteLimitSlider.getPosition()[0] + spriteLimitSlider.getWidth() + 40, spriteLimitSlider.getPosition()[1])
+                .setSize(110, 20)
+                .setLabel("")
+                .setRange(0, 500000)
+                .setValue(50000)
+                .setColorBackground(color(80))
+                .setColorForeground(color(160))
+                .setColorActive(color(200))
+                .setColorValue(color(255, 0));
+
         // initially hide all UI-elements
         hideCp5();
     }
@@ -380,7 +417,10 @@ public class EcoView extends PApplet implements IEcoView {
         pauseButton.hide();
         playButton.hide();
         homeButton.hide();
+        statsButton.hide();
         speedSlider.hide();
+        spriteLimitSlider.hide();
+        pointLimitSlider.hide();
         initialBunniesSlider.hide();
         initialFoxesSlider.hide();
         initialWaterSourcesSlider.hide();
@@ -393,6 +433,8 @@ public class EcoView extends PApplet implements IEcoView {
      */
     private void resetCp5Sliders(){
         speedSlider.setValue(10);
+        spriteLimitSlider.setValue(2000);
+        pointLimitSlider.setValue(50000);
         initialBunniesSlider.setValue(30);
         initialFoxesSlider.setValue(5);
         initialWaterSourcesSlider.setValue(45);
@@ -424,7 +466,10 @@ public class EcoView extends PApplet implements IEcoView {
         pauseButton.show();
         playButton.show();
         homeButton.show();
+        statsButton.show();
         speedSlider.show();
+        spriteLimitSlider.show();
+        pointLimitSlider.show();
     }
 
 
@@ -535,9 +580,34 @@ public class EcoView extends PApplet implements IEcoView {
         textSize(15);
         fill(255);
         text("current speed: x" + shownSpeed, speedSlider.getPosition()[0], speedSlider.getPosition()[1] - 5);
+        text("sprites up to: " + (int) spriteLimitSlider.getValue(), spriteLimitSlider.getPosition()[0], spriteLimitSlider.getPosition()[1] - 5);
+        text("points up to: " + (int) pointLimitSlider.getValue(), pointLimitSlider.getPosition()[0], pointLimitSlider.getPosition()[1] - 5);
         noFill();
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * In this implementation the overlay is drawn into the offscreen layer of a {@link PerformanceHud}, which is created with the first update.
+     */
+    @Override
+    public void updatePerformanceHud(String[] lines, float[] frameMillis){
+        if(performanceHud == null) performanceHud = new PerformanceHud(createGraphics(PerformanceHud.WIDTH, PerformanceHud.height(lines.length)), mcFont, lines.length);
+        performanceHud.update(lines, frameMillis);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * In this implementation the overlay is shown below the home button.
+     */
+    @Override
+    public void drawPerformanceHud(){
+        if(performanceHud == null) return;
+        imageMode(CORNER);
+        image(performanceHud.getLayer(), homeButton.getPosition()[0], homeButton.getPosition()[1] + homeButton.getHeight() + 10);
+    }
+
     /**
      * {@inheritDoc}
      * <p>
@@ -608,6 +678,50 @@ public class EcoView extends PApplet implements IEcoView {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * In this implementation the level of detail depends on the number of animals and the two limits set on the running screen:
+     * <ul>
+     *     <li>Up to the sprite limit every animal is drawn as an animated sprite (see {@link #drawBunny(float, float, int, boolean)}), bunnies below foxes.</li>
+     *     <li>Up to the point limit every animal is a small coloured point written straight into the pixels of the window.</li>
+     *     <li>Above it the animals are shown as the density of bunnies and foxes in a coarse grid (see {@link DensityMap}).</li>
+     * </ul>
+     */
+    @Override
+    public void drawAnimals(float[] x, float[] y, int[] direction, boolean[] herbivore, boolean[] inMotion, int count){
+        if(count <= spriteLimitSlider.getValue()){
+            for(int i = 0; i < count; i++) if(herbivore[i]) drawBunny(x[i], y[i], direction[i], inMotion[i]);
+            for(int i = 0; i < count; i++) if(!herbivore[i]) drawFox(x[i], y[i], direction[i], inMotion[i]);
+        }else if(count <= pointLimitSlider.getValue()){
+            drawAnimalPoints(x, y, herbivore, count);
+        }else{
+            if(densityMap == null) densityMap = new DensityMap(width, height);
+            imageMode(CORNER);
+            image(densityMap.update(x, y, herbivore, count), 0, 0, width, height);
+        }
+    }
+
+    /**
+     * (private) Writes every animal as a point of 3x3 pixels straight into the pixels of the window, foxes over bunnies.
+     */
+    private void drawAnimalPoints(float[] x, float[] y, boolean[] herbivore, int count){
+        loadPixels();
+        int density = pixelWidth / width;
+        for(int pass = 0; pass < 2; pass++){
+            // the first pass writes the bunnies, the second the foxes
+            int color = pass == 0 ? 0xFF000000 | DensityMap.BUNNY_COLOR : 0xFF000000 | DensityMap.FOX_COLOR;
+            for(int i = 0; i < count; i++){
+                if(herbivore[i] != (pass == 0)) continue;
+                int pointX = (int) x[i] * density, pointY = (int) y[i] * density;
+                for(int row = Math.max(0, pointY - density); row <= Math.min(pixelHeight - 1, pointY + density); row++)
+                    for(int column = Math.max(0, pointX - density); column <= Math.min(pixelWidth - 1, pointX + density); column++)
+                        pixels[row * pixelWidth + column] = color;
+            }
+        }
+        updatePixels();
+    }
+
     /**
      * Defines how parameters are being drawn on the display based on the data input.
      * @param hungerBar defines how much hunger the image should display.
@@ -693,6 +807,31 @@ public class EcoView extends PApplet implements IEcoView {
         noFill();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void updateResource(int index, float x, float y, boolean water, double remainingPercentage) {
+        if(resourceLayer == null) clearResourceLayer();
+        resourceLayer.update(index, x, y, water, remainingPercentage);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void drawResourceLayer() {
+        if(resourceLayer == null) clearResourceLayer();
+        imageMode(CORNER);
+        image(resourceLayer.draw(), 0, 0);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clearResourceLayer() {resourceLayer = new ResourceLayer(createGraphics(width, height), grassSmall);}
+
     /**
      * The method is called once after every time a mouse button is pressed. It invokes a controller function, which handles the data generated by the click.
      * @param event Processing {@link MouseEvent}, which provides the x and y position of the mouse click for the controller.
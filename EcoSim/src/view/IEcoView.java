@@ -29,6 +29,18 @@ public interface IEcoView {
      */
     void drawFox(float x, float y, int direction, boolean inMotion);
 
+    /**
+     * Defines how every bunny and fox is being drawn on the display based on the data input, the implementation can choose a level of detail fitting the number of animals.
+     * Every array holds the animals in the same order, only its first count entries are read.
+     * @param x defines the x-positions of the animals.
+     * @param y defines the y-positions of the animals.
+     * @param direction defines the directions the animals should be facing towards (1 for right or 0 for left, like in {@link #drawBunny(float, float, int, boolean)}).
+     * @param herbivore defines which animals are bunnies (true) or foxes (false).
+     * @param inMotion defines which animals should be animated.
+     * @param count defines the number of animals.
+     */
+    void drawAnimals(float[] x, float[] y, int[] direction, boolean[] herbivore, boolean[] inMotion, int count);
+
     /**
      * Defines how fox parameters are being drawn on the display based on the data input.
      * @param hungerBar defines how much hunger the image should display.
@@ -67,6 +79,27 @@ public interface IEcoView {
      */
     void drawWater(float x, float y, double remainingPercentage);
 
+    /**
+     * Defines how a resource is shown in the cached layer of the background and the resources, which is only drawn again where a resource changed visibly.
+     * Resources have to be passed in the order of the resource list, their position and type are only read the first time.
+     * @param index defines the index of the resource in the resource list.
+     * @param x defines the x-position of the resource.
+     * @param y defines the y-position of the resource.
+     * @param water defines if the resource is drawn as water (true) or grass (false).
+     * @param remainingPercentage defines the alpha value of the resource.
+     */
+    void updateResource(int index, float x, float y, boolean water, double remainingPercentage);
+
+    /**
+     * Defines how the cached layer of the background and the resources is drawn, it replaces drawing a background and every resource on its own.
+     */
+    void drawResourceLayer();
+
+    /**
+     * Removes every resource from the cached layer, so the resources of a new simulation can be passed.
+     */
+    void clearResourceLayer();
+
     /**
      * Defines how the start menu should look. Including a background, welcome text and buttons for further action.
      */
@@ -92,6 +125,18 @@ public interface IEcoView {
      */
     void drawAnimalCounter(int foxCount, int bunnyCount);
 
+    /**
+     * Defines how the performance overlay is drawn again with new values, this should only happen about once per second.
+     * @param lines defines the lines of text to show.
+     * @param frameMillis defines the durations of the last frames in milliseconds (the oldest first), shown as a sparkline.
+     */
+    void updatePerformanceHud(String[] lines, float[] frameMillis);
+
+    /**
+     * Defines how the performance overlay is drawn on the display every frame, with the values of the last update.
+     */
+    void drawPerformanceHud();
+
     /**
      * Simple infotext message which can be shown by the controller in certain situations.
      */
@@ -0,0 +1,79 @@
+package view;
+
+import processing.core.PFont;
+import processing.core.PGraphics;
+
+import static processing.core.PConstants.LEFT;
+import static processing.core.PConstants.TOP;
+
+/**
+ * (package-private) Class that keeps the performance overlay in an offscreen layer, which is only drawn again when new values are passed (about once per second)
+ * and otherwise drawn onto the window with a single image call.
+ * <p>
+ * The layer shows the passed lines of text and below them a sparkline of the last frame times, with a line marking the time of a frame at 60 fps.
+ */
+class PerformanceHud {
+    static final int WIDTH = 260, LINE_HEIGHT = 18, SPARKLINE_HEIGHT = 40, PADDING = 8;
+    // the time of a frame at the frame rate processing aims for
+    static final float TARGET_FRAME_MILLIS = 1000f / 60;
+    private final PGraphics layer;
+    private final PFont font;
+    private final int lines;
+
+    /**
+     * (package-private) Constructor for an empty overlay.
+     * @param layer The offscreen graphics to draw into, it has to be big enough for the lines and the sparkline (see {@link #height(int)}).
+     * @param font The font of the text.
+     * @param lines The number of lines of text.
+     */
+    PerformanceHud(PGraphics layer, PFont font, int lines){
+        this.layer = layer;
+        this.font = font;
+        this.lines = lines;
+    }
+
+    /**
+     * (package-private) Returns the height of the layer needed for the passed number of lines.
+     * @param lines The number of lines of text.
+     * @return The height in pixels.
+     */
+    static int height(int lines){return 3 * PADDING + lines * LINE_HEIGHT + SPARKLINE_HEIGHT;}
+
+    /**
+     * (package-private) Draws the layer again with the passed values.
+     * @param text The lines of text, only the first lines passed to the constructor are shown.
+     * @param frameMillis The durations of the last frames in milliseconds, the oldest first.
+     */
+    void update(String[] text, float[] frameMillis){
+        layer.beginDraw();
+        layer.clear();
+        layer.noStroke();
+        layer.fill(30, 180);
+        layer.rect(0, 0, layer.width, layer.height);
+
+        layer.textFont(font);
+        layer.textSize(15);
+        layer.textAlign(LEFT, TOP);
+        layer.fill(255);
+        for(int line = 0; line < Math.min(lines, text.length); line++) layer.text(text[line], PADDING, PADDING + line * LINE_HEIGHT);
+
+        // the sparkline is scaled to its slowest frame, but never below twice the target, so a smooth run stays in the lower half
+        float top = 2 * PADDING + lines * LINE_HEIGHT, bottom = top + SPARKLINE_HEIGHT, right = layer.width - PADDING;
+        float highest = 2 * TARGET_FRAME_MILLIS;
+        for(float millis : frameMillis) highest = Math.max(highest, millis);
+        layer.stroke(120);
+        layer.strokeWeight(1);
+        float target = bottom - TARGET_FRAME_MILLIS / highest * SPARKLINE_HEIGHT;
+        layer.line(PADDING, target, right, target);
+        layer.stroke(120, 220, 120);
+        float step = frameMillis.length > 1 ? (right - PADDING) / (frameMillis.length - 1) : 0;
+        for(int i = 1; i < frameMillis.length; i++){
+            layer.line(PADDING + (i - 1) * step, bottom - frameMillis[i - 1] / highest * SPARKLINE_HEIGHT,
+                    PADDING + i * step, bottom - frameMillis[i] / highest * SPARKLINE_HEIGHT);
+        }
+        layer.endDraw();
+    }
+
+    //getter for the layer, to draw it onto the window
+    PGraphics getLayer(){return this.layer;}
+}
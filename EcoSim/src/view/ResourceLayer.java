@@ -0,0 +1,152 @@
+package view;
+
+import processing.core.PGraphics;
+import processing.core.PImage;
+
+import java.util.ArrayList;
+import java.util.function.IntConsumer;
+
+import static processing.core.PConstants.CENTER;
+import static processing.core.PConstants.CORNER;
+
+/**
+ * (package-private) Class that keeps the background and the resources in an offscreen layer, which is drawn onto the window with a single image call.
+ * <p>
+ * Resources never move and their alpha value changes slowly, so the alpha is quantized into {@value #ALPHA_LEVELS} levels and a resource only has to be drawn again
+ * when its level changes. The layer is split into tiles of {@value #TILE_SIZE} pixels and only the tiles containing such a resource are drawn again,
+ * every other tile keeps its pixels from the frames before.
+ */
+class ResourceLayer {
+    static final int TILE_SIZE = 64, ALPHA_LEVELS = 32;
+    private final PGraphics layer;
+    private final PImage grass;
+    private final int columns, rows;
+    // the resources overlapping every tile, by their index in ascending order, so overlapping resources are drawn in the order of the resource list
+    private final ArrayList<ArrayList<Integer>> tileResources = new ArrayList<>();
+    private final ArrayList<Shown> resources = new ArrayList<>();
+    private final boolean[] dirty;
+    private final ArrayList<Integer> dirtyTiles = new ArrayList<>();
+
+    /**
+     * (private) A resource as it is currently shown in the layer.
+     */
+    private static final class Shown {
+        private final float x, y;
+        private final boolean water;
+        private int level;
+
+        private Shown(float x, float y, boolean water, int level){
+            this.x = x;
+            this.y = y;
+            this.water = water;
+            this.level = level;
+        }
+    }
+
+    /**
+     * (package-private) Constructor for a new layer, which only shows the background until resources are added.
+     * @param layer The offscreen graphics to draw into, as big as the window.
+     * @param grass The image drawn for grass resources.
+     */
+    ResourceLayer(PGraphics layer, PImage grass){
+        this.layer = layer;
+        this.grass = grass;
+        this.columns = (layer.width + TILE_SIZE - 1) / TILE_SIZE;
+        this.rows = (layer.height + TILE_SIZE - 1) / TILE_SIZE;
+        this.dirty = new boolean[columns * rows];
+        for(int tile = 0; tile < columns * rows; tile++){
+            tileResources.add(new ArrayList<>());
+            markDirty(tile);
+        }
+    }
+
+    /**
+     * (package-private) Adds the resource with the passed index or updates its alpha value. Only a change of its quantized level lets its tiles be drawn again.
+     * <p>
+     * Note: The position and type of a resource are only read when it is added, since resources never move.
+     * @param index The index of the resource, new resources have to be added in the order of their indices.
+     * @param x The x-position of the resource.
+     * @param y The y-position of the resource.
+     * @param water True for water, false for grass.
+     * @param alpha The alpha value the resource should be drawn with (0 to 255).
+     */
+    void update(int index, float x, float y, boolean water, double alpha){
+        int level = (int) Math.round(Math.max(0, Math.min(255, alpha)) / 255 * (ALPHA_LEVELS - 1));
+        if(index == resources.size()){
+            resources.add(new Shown(x, y, water, level));
+            forEachTile(resources.get(index), tile -> {
+                tileResources.get(tile).add(index);
+                markDirty(tile);
+            });
+            return;
+        }
+        Shown resource = resources.get(index);
+        if(resource.level == level) return;
+        resource.level = level;
+        forEachTile(resource, this::markDirty);
+    }
+
+    /**
+     * (package-private) Draws every dirty tile again and returns the layer, so it can be drawn onto the window.
+     * @return The up-to-date layer.
+     */
+    PGraphics draw(){
+        if(dirtyTiles.isEmpty()) return layer;
+        layer.beginDraw();
+        for(int tile : dirtyTiles){
+            float tileX = tile % columns * TILE_SIZE, tileY = tile / columns * TILE_SIZE;
+            // clip reads its rectangle like images, so the image mode has to be CORNER
+            layer.imageMode(CORNER);
+            layer.clip(tileX, tileY, TILE_SIZE, TILE_SIZE);
+            layer.noStroke();
+            layer.fill(75, 139, 59);
+            layer.rect(tileX, tileY, TILE_SIZE, TILE_SIZE);
+            layer.imageMode(CENTER);
+            for(int index : tileResources.get(tile)) drawResource(resources.get(index));
+            layer.noClip();
+            dirty[tile] = false;
+        }
+        layer.endDraw();
+        dirtyTiles.clear();
+        return layer;
+    }
+
+    /**
+     * (private) Draws a single resource, like {@link EcoView#drawGrass(float, float, double)} and {@link EcoView#drawWater(float, float, double)} but with its quantized alpha value.
+     */
+    private void drawResource(Shown resource){
+        float alpha = resource.level * 255f / (ALPHA_LEVELS - 1);
+        if(resource.water){
+            layer.stroke(0);
+            layer.strokeWeight(1);
+            layer.fill(0, 0, 255, alpha);
+            layer.rect(resource.x, resource.y, 10, 10);
+        }else{
+            layer.tint(255, alpha);
+            layer.image(grass, resource.x, resource.y);
+            layer.noTint();
+        }
+    }
+
+    /**
+     * (private) Calls the passed action for every tile the drawn resource overlaps.
+     */
+    private void forEachTile(Shown resource, IntConsumer action){
+        // grass is drawn centered, water from its corner with a stroke around it
+        float left = resource.water ? resource.x - 1 : resource.x - grass.width / 2f, top = resource.water ? resource.y - 1 : resource.y - grass.height / 2f;
+        float right = resource.water ? resource.x + 11 : resource.x + grass.width / 2f, bottom = resource.water ? resource.y + 11 : resource.y + grass.height / 2f;
+        int firstColumn = Math.max(0, (int) Math.floor(left / TILE_SIZE)), lastColumn = Math.min(columns - 1, (int) Math.floor(right / TILE_SIZE));
+        int firstRow = Math.max(0, (int) Math.floor(top / TILE_SIZE)), lastRow = Math.min(rows - 1, (int) Math.floor(bottom / TILE_SIZE));
+        for(int row = firstRow; row <= lastRow; row++)
+            for(int column = firstColumn; column <= lastColumn; column++) action.accept(row * columns + column);
+    }
+
+    /**
+     * (private) Marks the passed tile to be drawn again in the next {@link #draw()}.
+     */
+    private void markDirty(int tile){
+        if(dirty[tile]) return;
+        dirty[tile] = true;
+        dirtyTiles.add(tile);
+    }
+}
@@ -0,0 +1,594 @@
+package model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Benchmarks of the simulation loop. They are no unit tests, since their results depend on the machine, and are run with the main method:
+ * <pre>{@code
+ * // runs every benchmark
+ * java model.ModelBenchmark
+ * // runs only the named benchmarks
+ * java model.ModelBenchmark neighbors
+ * }</pre>
+ */
+class ModelBenchmark {
+    private static final Map<String, Runnable> BENCHMARKS = new LinkedHashMap<>();
+
+    static {
+        BENCHMARKS.put("neighbors", ModelBenchmark::neighborLists);
+        BENCHMARKS.put("resources", ModelBenchmark::resourceField);
+        BENCHMARKS.put("screening", ModelBenchmark::rangeScreen);
+        BENCHMARKS.put("parking", ModelBenchmark::parking);
+        BENCHMARKS.put("shards", ModelBenchmark::shards);
+        BENCHMARKS.put("distributed", ModelBenchmark::distributed);
+        BENCHMARKS.put("selection", ModelBenchmark::selection);
+        BENCHMARKS.put("recycling", ModelBenchmark::recycling);
+        BENCHMARKS.put("morton", ModelBenchmark::morton);
+        BENCHMARKS.put("offheap", ModelBenchmark::offHeap);
+        BENCHMARKS.put("species", ModelBenchmark::species);
+        BENCHMARKS.put("ecs", ModelBenchmark::ecs);
+        BENCHMARKS.put("prey", ModelBenchmark::prey);
+        BENCHMARKS.put("predators", ModelBenchmark::predators);
+        BENCHMARKS.put("reservations", ModelBenchmark::reservations);
+        BENCHMARKS.put("cache", ModelBenchmark::resourceCache);
+        BENCHMARKS.put("stages", ModelBenchmark::stages);
+    }
+
+    public static void main(String[] args){
+        if(args.length == 0) BENCHMARKS.values().forEach(Runnable::run);
+        for(String name : args) BENCHMARKS.get(name).run();
+    }
+
+    /**
+     * Compares comparing every animal with every other animal against the neighbor lists, in tick time and list rebuilds.
+     */
+    private static void neighborLists(){
+        System.out.println("neighbors: animals | full scan ms/tick | neighbor lists ms/tick | rebuilds");
+        for(int animals : new int[]{250, 500, 1000, 2000}){
+            double fullScan = millisPerTick(createModel(animals, false), 100);
+            EcoModel model = createModel(animals, true);
+            double neighborLists = millisPerTick(model, 100);
+            System.out.printf("neighbors: %7d | %17.3f | %22.3f | %d%n", animals, fullScan, neighborLists, model.getNeighborListRebuilds());
+        }
+    }
+
+    /**
+     * Compares comparing every animal with every resource against looking the resources up in the resource field, with many resources per animal.
+     * <p>
+     * Note: Every resource which isn't idle regenerates once per tick, so neither variant has a part which grows with animals times resources in use.
+     */
+    private static void resourceField(){
+        System.out.println("resources: animals | resources | full scan ms/tick | field ms/tick");
+        for(int resources : new int[]{1000, 4000, 16000}){
+            int animals = 200;
+            int size = (int) Math.sqrt(resources * 100.0);
+            double[] millis = new double[2];
+            for(int variant = 0; variant < 2; variant++){
+                var model = new EcoModel(size, size, 1);
+                model.setUseResourceField(variant == 1);
+                model.startNewSim(animals * 9 / 10, animals / 10, resources / 2, resources / 2);
+                millis[variant] = millisPerTick(model, 50);
+            }
+            System.out.printf("resources: %7d | %9d | %17.3f | %13.3f%n", animals, resources, millis[0], millis[1]);
+        }
+    }
+
+    /**
+     * Compares screening positions against a range with {@link Math#hypot(double, double)} against {@link RangeScreen#screenInRange}.
+     */
+    private static void rangeScreen(){
+        System.out.println("screening: animals | hypot ns/animal | squared ns/animal");
+        var random = new java.util.Random(1);
+        for(int count : new int[]{10_000, 100_000, 1_000_000}){
+            float[] x = new float[count], y = new float[count];
+            int[] inRange = new int[count];
+            for(int i = 0; i < count; i++){
+                x[i] = random.nextFloat() * 1000;
+                y[i] = random.nextFloat() * 1000;
+            }
+
+            int rounds = 50_000_000 / count;
+            double[] nanos = new double[2];
+            for(int variant = 0; variant < 2; variant++){
+                for(int warmup = 0; warmup < 2; warmup++){
+                    long start = System.nanoTime();
+                    for(int round = 0; round < rounds; round++){
+                        if(variant == 0){
+                            int found = 0;
+                            for(int i = 0; i < count; i++) if(Math.hypot(x[i] - 500, y[i] - 500) < 200) inRange[found++] = i;
+                        }
+                        else RangeScreen.screenInRange(x, y, 0, count, 500, 500, 200, inRange);
+                    }
+                    nanos[variant] = (System.nanoTime() - start) / (double) rounds / count;
+                }
+            }
+            System.out.printf("screening: %7d | %15.3f | %17.3f%n", count, nanos[0], nanos[1]);
+        }
+    }
+
+    /**
+     * Compares letting every animal take every turn against parking resting animals in the timing wheel, on a population of bunnies without foxes.
+     */
+    private static void parking(){
+        // the skipped turns are replayed when the animals are read, so the last variant pays for them by publishing a snapshot every tick, like the view does
+        System.out.println("parking: animals | every turn ms/tick | parked ms/tick | parked + snapshots ms/tick | parked animals");
+        for(int animals : new int[]{500, 1000, 2000}){
+            int size = (int) Math.sqrt(animals * 2000.0);
+            double[] millis = new double[3];
+            int parkedAnimals = 0;
+            for(int variant = 0; variant < 3; variant++){
+                var model = new EcoModel(size, size, 1);
+                model.setUseTimingWheel(variant > 0);
+                model.startNewSim(animals, 0, animals / 10, animals / 10);
+                // the animals need some ticks until they get hungry, thirsty or want to mate
+                for(int i = 0; i < 500; i++) model.simulateTick();
+                if(variant < 2) millis[variant] = millisPerTick(model, 200);
+                else{
+                    long start = System.nanoTime();
+                    for(int i = 0; i < 200; i++){
+                        model.simulateTick();
+                        model.publishSnapshot();
+                    }
+                    millis[variant] = (System.nanoTime() - start) / 1e6 / 200;
+                }
+                if(variant == 1) parkedAnimals = model.getParkedAnimals();
+            }
+            System.out.printf("parking: %7d | %18.3f | %14.3f | %25.3f | %d%n", animals, millis[0], millis[1], millis[2], parkedAnimals);
+        }
+    }
+
+    /**
+     * Measures the sharded simulation with a growing number of workers (strong scaling), the speedup is relative to one worker.
+     * The workers are capped at the available processors, since more workers than processors only share them.
+     * <p>
+     * Note: The population is given as argument -Dshards.animals (default 20000), since large populations need a machine with many processors to be measured in reasonable time.
+     */
+    private static void shards(){
+        int animals = Integer.getInteger("shards.animals", 20000), processors = Runtime.getRuntime().availableProcessors();
+        System.out.println("shards: animals | workers | ms/tick | speedup (" + processors + " processors)");
+        double single = 0;
+        for(int workers = 1; workers <= processors; workers *= 2){
+            int size = (int) Math.sqrt(animals * 2000.0);
+            var model = new EcoModel(size, size, 1);
+            model.setShards(workers);
+            model.startNewSim(animals * 9 / 10, animals / 10, animals / 10, animals / 10);
+            double millis = millisPerTick(model, 50);
+            if(workers == 1) single = millis;
+            System.out.printf("shards: %7d | %7d | %7.3f | %.2f%n", animals, workers, millis, single / millis);
+        }
+    }
+
+    /**
+     * Spreads the sharded simulation across worker JVMs on this machine and reports the bytes the coordinator exchanges per tick,
+     * and the most animals a worker held, then checks that the workers simulated the same run as a single process.
+     * <p>
+     * Note: The population is given as argument -Ddistributed.animals (default 5000).
+     */
+    private static void distributed(){
+        int animals = Integer.getInteger("distributed.animals", 5000), size = (int) Math.sqrt(animals * 2000.0), ticks = 100;
+        System.out.println("distributed: animals | workers | ms/tick | mean kB/tick | max kB/tick | bytes/animal/tick | max held");
+        for(int workers : new int[]{2, 4}){
+            var processes = new ArrayList<Process>();
+            try(var coordinator = new DistributedCoordinator(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), workers)){
+                String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+                for(int i = 0; i < workers; i++)
+                    processes.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), DistributedWorker.class.getName(), "localhost", String.valueOf(coordinator.getPort())).inheritIO().start());
+                coordinator.start(size, size, 1, animals * 9 / 10, animals / 10, animals / 10, animals / 10);
+
+                long total = 0, most = 0, start = System.nanoTime();
+                for(int tick = 0; tick < ticks; tick++){
+                    long bytes = coordinator.tick();
+                    total += bytes;
+                    most = Math.max(most, bytes);
+                }
+                double millis = (System.nanoTime() - start) / 1e6 / ticks;
+
+                var single = new EcoModel(size, size, 1);
+                single.startNewSim(animals * 9 / 10, animals / 10, animals / 10, animals / 10);
+                for(int tick = 0; tick < ticks; tick++) single.simulateTick();
+                boolean same = new WorldCodec(single.getResourceList()).sumChecksum(single.getAnimalList(), single.getResourceList()) == coordinator.getChecksum();
+
+                System.out.printf("distributed: %7d | %7d | %7.3f | %12.1f | %11.1f | %17.1f | %8d%s%n", animals, workers, millis, total / 1024.0 / ticks, most / 1024.0,
+                        (double) total / ticks / coordinator.getAnimalCount(), coordinator.getHeldAnimals(), same ? "" : " (differs from a single process!)");
+            }catch (IOException e){
+                throw new UncheckedIOException(e);
+            }finally {
+                processes.forEach(Process::destroy);
+            }
+        }
+    }
+
+    /**
+     * Compares finding a clicked animal and following the selected one by going through a copy of the animal list (like the controller did before)
+     * against the grid and the id lookup of the {@link PositionSnapshot}, per frame. The snapshot time includes building the grid once.
+     */
+    private static void selection(){
+        System.out.println("selection: animals | list scan ms/frame | snapshot ms/frame");
+        for(int animals : new int[]{10000, 100000}){
+            EcoModel model = createModel(animals, true);
+            model.publishSnapshot();
+            var random = new java.util.Random(1);
+            int frames = 50;
+            float[] clicks = new float[2 * frames];
+            for(int i = 0; i < clicks.length; i++) clicks[i] = random.nextFloat() * model.getWidth();
+            int selectedId = animals / 2;
+
+            long start = System.nanoTime(), found = 0;
+            for(int frame = 0; frame < frames; frame++){
+                var list = model.getAnimalList();
+                for(Animal animal : list) if(Math.hypot(animal.getX() - clicks[2 * frame], animal.getY() - clicks[2 * frame + 1]) <= 20){found++; break;}
+                for(Animal animal : model.getAnimalList()) if(animal.getId() == selectedId){found++; break;}
+            }
+            double scan = (System.nanoTime() - start) / 1e6 / frames;
+
+            start = System.nanoTime();
+            for(int frame = 0; frame < frames; frame++){
+                var snapshot = model.getPositionSnapshot();
+                if(snapshot.indexAt(clicks[2 * frame], clicks[2 * frame + 1], 20) >= 0) found--;
+                if(snapshot.indexOf(selectedId) >= 0) found--;
+            }
+            double snapshot = (System.nanoTime() - start) / 1e6 / frames;
+            System.out.printf("selection: %7d | %18.3f | %16.4f%s%n", animals, scan, snapshot, found == 0 ? "" : " (found different animals!)");
+        }
+    }
+
+    /**
+     * Counts how many newborns reused a dead animal of the {@link AnimalPool} instead of creating a new object, over a long run with many births and deaths.
+     */
+    private static void recycling(){
+        System.out.println("recycling: animals | ticks | animals created | recycled | ms/tick");
+        for(int animals : new int[]{1000, 10000}){
+            EcoModel model = createModel(animals, true);
+            int ticks = 1000;
+            double millis = millisPerTick(model, ticks);
+            var pool = model.getPool();
+            System.out.printf("recycling: %7d | %5d | %15d | %8d | %7.3f%n", animals, ticks, pool.getSlots(), pool.getRecycled(), millis);
+        }
+    }
+
+    /**
+     * Compares the tick time with the animal list in the order of births and deaths against the list sorted along a Z-order curve, where the turns of animals
+     * following each other touch the same neighbors and cache lines. Both runs start from the same animals, which are created in random order.
+     */
+    private static void morton(){
+        System.out.println("morton: animals | unsorted ms/tick | sorted ms/tick | mean gap unsorted | mean gap sorted");
+        for(int animals : new int[]{10000, 100000, 200000}){
+            int ticks = animals > 100000 ? 10 : 30;
+            EcoModel unsorted = createModel(animals, true);
+            unsorted.setUseReordering(false);
+            double unsortedMillis = millisPerTick(unsorted, ticks);
+            double unsortedGap = unsorted.getPool().meanGap();
+            unsorted = null;
+            EcoModel sorted = createModel(animals, true);
+            double sortedMillis = millisPerTick(sorted, ticks);
+            System.out.printf("morton: %7d | %16.2f | %14.2f | %17.1f | %15.1f%n", animals, unsortedMillis, sortedMillis, unsortedGap, sorted.getPool().meanGap());
+        }
+    }
+
+    /**
+     * Compares the same state of every animal and the same per-animal tick (see {@link OffHeapPopulation}) in four layouts, in the garbage collections while creating
+     * and ticking the population, the pause of a full collection with the population alive and the resident memory of the process:
+     * <ul>
+     *     <li>animals: the {@link Bunny} objects of {@link EcoModel}, which hold far more than the record (their randomness, links and lists), for reference only</li>
+     *     <li>objects: one plain object per animal with exactly the fields of a record</li>
+     *     <li>heap: the records of an {@link OffHeapPopulation} in a heap buffer</li>
+     *     <li>off-heap: the records of an {@link OffHeapPopulation} in a direct buffer</li>
+     * </ul>
+     * Objects against heap shows the cost of one object per animal, heap against off-heap the cost of keeping the records on the heap.
+     * Every variant runs in its own JVM with the same heap limit, so the resident memory isn't shared.
+     */
+    private static void offHeap(){
+        System.out.println("offheap: animals | layout   | ms/tick | gc count | gc ms | full gc ms | heap MB | rss MB");
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        for(int animals : new int[]{1_000_000, 5_000_000})
+            for(String layout : new String[]{"animals", "objects", "heap", "off-heap"}){
+                try {
+                    var process = new ProcessBuilder(java, "-Xmx3g", "-XX:MaxDirectMemorySize=2g", "-cp", System.getProperty("java.class.path"),
+                            Footprint.class.getName(), layout, String.valueOf(animals)).inheritIO().start();
+                    process.waitFor();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+    }
+
+    /**
+     * One variant of {@link #offHeap()}, run in its own JVM with the layout and the number of animals as arguments.
+     */
+    static final class Footprint {
+        public static void main(String[] args) throws IOException {
+            String layout = args[0];
+            int animals = Integer.parseInt(args[1]), size = 10_000, ticks = 20;
+            var random = new java.util.Random(1);
+            var bunnies = new ArrayList<Animal>();
+            var objects = new ArrayList<AnimalRecord>();
+            var population = new OffHeapPopulation(SpeciesRegistry.STANDARD, 1024, layout.equals("off-heap"));
+
+            for(int i = 0; i < animals; i++){
+                float x = random.nextFloat() * size, y = random.nextFloat() * size;
+                switch(layout){
+                    case "animals" -> bunnies.add(new Bunny(i, 100, x, y, new SimRandom(i)));
+                    case "objects" -> objects.add(new AnimalRecord(i, x, y));
+                    default -> population.add(Species.BUNNY, i, 100, x, y);
+                }
+            }
+            long start = System.nanoTime();
+            for(int tick = 0; tick < ticks; tick++){
+                switch(layout){
+                    case "animals" -> {
+                        for(Animal animal : bunnies){
+                            animal.movement();
+                            animal.wallCollision(size, size);
+                            animal.decideState();
+                        }
+                        bunnies.removeIf(Animal::isDead);
+                    }
+                    case "objects" -> {
+                        for(AnimalRecord animal : objects) animal.tick(size, size);
+                        objects.removeIf(animal -> animal.dead);
+                    }
+                    default -> population.tick(size, size);
+                }
+            }
+            double millis = (System.nanoTime() - start) / 1e6 / ticks;
+
+            long fullStart = System.nanoTime();
+            System.gc();
+            double fullGc = (System.nanoTime() - fullStart) / 1e6;
+            long collections = 0, collectionMillis = 0;
+            for(GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()){
+                collections += collector.getCollectionCount();
+                collectionMillis += collector.getCollectionTime();
+            }
+            long heapBytes = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+            System.out.printf("offheap: %7d | %-8s | %7.2f | %8d | %5d | %10.1f | %7d | %s%n", animals, layout, millis, collections, collectionMillis, fullGc, heapBytes >> 20, residentMegabytes());
+            // keeps every population alive during the collection above
+            java.lang.ref.Reference.reachabilityFence(bunnies);
+            java.lang.ref.Reference.reachabilityFence(objects);
+            java.lang.ref.Reference.reachabilityFence(population);
+        }
+
+        /**
+         * (private) The fields of a record of {@link OffHeapPopulation} as one object, ticked like {@link OffHeapPopulation#tick(int, int)}.
+         */
+        private static final class AnimalRecord {
+            final int id;
+            final float sightRange = 100;
+            float x, y, vx, vy;
+            double hunger, thirst, matingUrge;
+            AnimalState state = AnimalState.NEWBORN;
+            boolean dead, eating, drinking, thinking, mating;
+
+            AnimalRecord(int id, float x, float y){
+                this.id = id;
+                this.x = x;
+                this.y = y;
+            }
+
+            void tick(int width, int height){
+                if(!thinking){
+                    x += vx;
+                    y += vy;
+                    thirst = AnimalRules.thirst(thirst, Species.BUNNY, eating, drinking, mating);
+                    hunger = AnimalRules.hunger(hunger, Species.BUNNY, eating, drinking, mating);
+                    matingUrge = AnimalRules.matingUrge(matingUrge, Species.BUNNY, mating);
+                }
+                vx = AnimalRules.bounce(vx, x, width);
+                vy = AnimalRules.bounce(vy, y, height);
+                state = AnimalRules.nextState(state, hunger, thirst);
+                dead = AnimalRules.dies(hunger, thirst);
+            }
+        }
+
+        /**
+         * (private) Reads the resident memory of this process on Linux.
+         */
+        private static String residentMegabytes() throws IOException {
+            Path status = Path.of("/proc/self/status");
+            if(!Files.exists(status)) return "n/a";
+            for(String line : Files.readAllLines(status))
+                if(line.startsWith("VmRSS:")) return String.valueOf(Long.parseLong(line.replaceAll("\\D", "")) >> 10);
+            return "n/a";
+        }
+    }
+
+    /**
+     * Compares simulations of the same number of animals split into more species, the grazers share 90% and the hunters, which hunt every grazer, 10% of the animals.
+     * The species only differ in their data, so the time per turn should stay the same.
+     */
+    private static void species(){
+        System.out.println("species: species | grazers | hunters | animals | ms/tick | ns/turn");
+        for(int count : new int[]{2, 5, 10}){
+            int hunters = Math.max(1, count / 5), grazers = count - hunters, animals = 20000;
+            long grazerBits = (1L << grazers) - 1, hunterBits = ((1L << count) - 1) & ~grazerBits;
+            var species = new ArrayList<Species>();
+            int[] initial = new int[count];
+            for(int id = 0; id < count; id++){
+                species.add(id < grazers ? Species.BUNNY.as(id, "grazer " + id, 0, hunterBits) : Species.FOX.as(id, "hunter " + id, grazerBits, 0));
+                initial[id] = id < grazers ? animals * 9 / 10 / grazers : animals / 10 / hunters;
+            }
+
+            int size = (int) Math.sqrt(animals * 2000.0);
+            var model = new EcoModel(size, size, 1);
+            model.setSpecies(new SpeciesRegistry(species));
+            model.startNewSim(initial, animals / 10, animals / 10);
+            double millis = millisPerTick(model, 50);
+            System.out.printf("species: %7d | %7d | %7d | %7d | %7.2f | %7.0f%n", count, grazers, hunters, model.getAnimalList().size(), millis, millis * 1e6 / model.getAnimalList().size());
+        }
+    }
+
+    /**
+     * Compares the object engine against the entity-component-system engine ({@link EcsModel}) on the same seed, which simulate the same run.
+     * The engines are measured one after another in the same JVM, so the second one has a warmer JIT compiler for the shared classes (e.g. {@link Resource}).
+     */
+    private static void ecs(){
+        System.out.println("ecs: animals | objects ms/tick | entities ms/tick | speedup");
+        for(int animals : new int[]{10000, 50000, 100000}){
+            int ticks = animals > 50000 ? 20 : 50, size = (int) Math.sqrt(animals * 2000.0);
+            double objectMillis = millisPerTick(createModel(animals, true), ticks);
+
+            var entities = new EcsModel(size, size, 1);
+            entities.startNewSim(animals * 9 / 10, animals / 10, animals / 10, animals / 10);
+            for(int i = 0; i < 20; i++) entities.simulateTick();
+            long start = System.nanoTime();
+            for(int i = 0; i < ticks; i++) entities.simulateTick();
+            double entityMillis = (System.nanoTime() - start) / 1e6 / ticks;
+            System.out.printf("ecs: %7d | %15.2f | %16.2f | %6.2fx%n", animals, objectMillis, entityMillis, objectMillis / entityMillis);
+        }
+    }
+
+    /**
+     * Compares every hungry fox looking through the animals around it for its nearest bunny against one query of the prey index ({@link NearestIndex}),
+     * in a predator-heavy ecosystem where every fox is hungry from the start.
+     * Both give the same run, the bunnies dodging the foxes take most of a tick either way.
+     */
+    private static void prey(){
+        System.out.println("prey: foxes | bunnies | scan ms/tick | index ms/tick | ticks/s | bunnies compared per query");
+        for(int bunnies : new int[]{10000, 50000}){
+            double scan = 0, index = 0;
+            double compared = 0;
+            for(boolean usePreyIndex : new boolean[]{false, true}){
+                var model = new EcoModel(3000, 3000, 1);
+                model.setUsePreyIndex(usePreyIndex);
+                model.startNewSim(bunnies, 1000, 1000, 1000);
+                for(Animal animal : model.getAnimalList()) if(!animal.getSpecies().grazes()) animal.setHunger(60);
+                double millis = millisPerTick(model, 20);
+                if(usePreyIndex) index = millis;
+                else scan = millis;
+                if(usePreyIndex) compared = (double) model.getPreyVisits() / model.getPreyQueries();
+            }
+            System.out.printf("prey: %5d | %7d | %12.2f | %13.2f | %7.1f | %.1f%n", 1000, bunnies, scan, index, 1000 / index, compared);
+        }
+    }
+
+    /**
+     * Compares every bunny looking through the animals around it for its nearest fox against looking at the predator index ({@link NearestIndex}),
+     * in the predator-heavy ecosystem of {@link #prey()}, with both indices in use for the foxes.
+     */
+    private static void predators(){
+        System.out.println("predators: foxes | bunnies | scan ms/tick | index ms/tick | ticks/s | foxes compared per bunny turn");
+        for(int bunnies : new int[]{10000, 50000}){
+            double scan = 0, index = 0, compared = 0;
+            for(boolean usePredatorIndex : new boolean[]{false, true}){
+                var model = new EcoModel(3000, 3000, 1);
+                model.setUsePredatorIndex(usePredatorIndex);
+                model.startNewSim(bunnies, 1000, 1000, 1000);
+                for(Animal animal : model.getAnimalList()) if(!animal.getSpecies().grazes()) animal.setHunger(60);
+                double millis = millisPerTick(model, 20);
+                if(usePredatorIndex) index = millis;
+                else scan = millis;
+                if(usePredatorIndex) compared = model.getPredatorVisits() / (40.0 * bunnies);
+            }
+            System.out.printf("predators: %5d | %7d | %12.2f | %13.2f | %7.1f | %.2f%n", 1000, bunnies, scan, index, 1000 / index, compared);
+        }
+    }
+
+    /**
+     * Reports the contention for resources ({@link ResourceReservation}) in ecosystems with fewer resources per animal, unsharded and with the turns taken by four workers.
+     * A conflict is a reservation which found another animal holding the resource, the animals then wait in its queue or look for another resource.
+     */
+    private static void reservations(){
+        System.out.println("reservations: workers | animals | resources | ms/tick | claims/tick | conflicts/tick | wait ticks/tick");
+        for(int workers : new int[]{0, 4})
+            for(int resources : new int[]{400, 100, 25}){
+                var model = new EcoModel(1500, 1500, 1);
+                model.setShards(workers);
+                model.startNewSim(1800, 200, resources / 2, resources / 2);
+                // the animals get thirsty and hungry after some hundred ticks
+                double millis = millisPerTick(model, 2000);
+                double ticks = 2020;
+                System.out.printf("reservations: %7d | %7d | %9d | %7.3f | %11.2f | %14.2f | %15.2f%n", workers, 2000, resources, millis,
+                                  model.getResourceClaims() / ticks, model.getResourceConflicts() / ticks, model.getResourceWaitTicks() / ticks);
+                if(model.getShards() != null) model.getShards().close();
+            }
+    }
+
+    /**
+     * Compares looking up the resource of every hungry or thirsty animal without a resource in every turn against the {@link ResourceCache} of the animals,
+     * in lookups of the resource field per tick. Both give the same run.
+     */
+    private static void resourceCache(){
+        System.out.println("cache: animals | resources | lookups/tick | cached lookups/tick | hit rate | ms/tick | cached ms/tick");
+        for(int resources : new int[]{400, 100, 25}){
+            double[] lookups = new double[2], millis = new double[2];
+            double hitRate = 0;
+            for(int variant = 0; variant < 2; variant++){
+                var model = new EcoModel(1500, 1500, 1);
+                model.setUseResourceCache(variant == 1);
+                model.startNewSim(1800, 200, resources / 2, resources / 2);
+                // the animals get thirsty and hungry after some hundred ticks
+                millis[variant] = millisPerTick(model, 2000);
+                lookups[variant] = model.getResourceLookups() / 2020.0;
+                if(variant == 1) hitRate = (double) model.getResourceCacheHits() / (model.getResourceCacheHits() + model.getResourceLookups());
+            }
+            System.out.printf("cache: %7d | %9d | %12.1f | %19.1f | %7.1f%% | %7.3f | %14.3f%n", 2000, resources, lookups[0], lookups[1], hitRate * 100, millis[0], millis[1]);
+        }
+    }
+
+    /**
+     * Counts the work of the stages which run once per tick, against the work the resources and the full scan did when they ran once per turn or once per resource,
+     * and measures the tick time with the resource field and with the full scan.
+     * <p>
+     * Note: The per-turn numbers are what the old loop would have done in the same run: every turn regenerated every resource which wasn't idle,
+     * and the full scan decided the state of an animal once for every resource.
+     */
+    private static void stages(){
+        System.out.println("stages: animals | resources | turns/tick | updates/tick | per-turn updates/tick | per-resource states/tick | field ms/tick | full scan ms/tick");
+        for(int animals : new int[]{500, 2000}){
+            int resources = 200, ticks = 1000;
+            var model = new EcoModel(1000, 1000, 1);
+            model.startNewSim(animals * 9 / 10, animals / 10, resources / 2, resources / 2);
+            long perTurnUpdates = 0;
+            for(int tick = 0; tick < ticks; tick++){
+                long busy = model.getResourceList().stream().filter(resource -> !resource.isIdle()).count(), turns = model.getTurns();
+                model.simulateTick();
+                perTurnUpdates += (model.getTurns() - turns) * busy;
+            }
+            double turns = (double) model.getTurns() / ticks;
+
+            double[] millis = new double[2];
+            for(int variant = 0; variant < 2; variant++){
+                var timed = new EcoModel(1000, 1000, 1);
+                timed.setUseResourceField(variant == 0);
+                timed.startNewSim(animals * 9 / 10, animals / 10, resources / 2, resources / 2);
+                millis[variant] = millisPerTick(timed, ticks);
+            }
+            System.out.printf("stages: %7d | %9d | %10.1f | %12.1f | %21.1f | %24.1f | %13.3f | %17.3f%n", animals, resources, turns,
+                    (double) model.getResourceUpdates() / ticks, (double) perTurnUpdates / ticks, turns * resources, millis[0], millis[1]);
+        }
+    }
+
+    /**
+     * (private) Creates a seeded model with 9 bunnies per fox on an ecosystem, which grows with the population, so the density stays the same.
+     */
+    private static EcoModel createModel(int animals, boolean useNeighborLists){
+        int size = (int) Math.sqrt(animals * 2000.0);
+        var model = new EcoModel(size, size, 1);
+        model.setUseNeighborLists(useNeighborLists);
+        model.startNewSim(animals * 9 / 10, animals / 10, animals / 10, animals / 10);
+        return model;
+    }
+
+    /**
+     * (private) Measures the mean time of a tick, after some ticks to warm up.
+     */
+    private static double millisPerTick(EcoModel model, int ticks){
+        for(int i = 0; i < 20; i++) model.simulateTick();
+        long start = System.nanoTime();
+        for(int i = 0; i < ticks; i++) model.simulateTick();
+        return (System.nanoTime() - start) / 1e6 / ticks;
+    }
+}
@@ -3,6 +3,18 @@ package model;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class ModelTest {
@@ -12,6 +24,9 @@ class ModelTest {
     Fox testFox;
     Resource testWater;
     Resource testGrass;
+    // a new directory for every test, deleted after it
+    @TempDir
+    Path temporary;
 
     @BeforeEach
     void setUp(){
@@ -272,7 +287,7 @@ class ModelTest {
     }
 
     @Test
-    void animal_ShouldFindPartner_BasedOn_CurrentState_WhenCalling_MatingHelper(){
+    void animal_ShouldMateWithPartner_AfterBeingPairedWithIt(){
         // setup animal mating state
         // since I spawned the bunny directly on to "testBunny" it will be easier, so
         // I don't have to move them together with a loop
@@ -281,8 +296,12 @@ class ModelTest {
         testBunny.setState(AnimalState.IDLE);
         other.setMatingUrge(100);
         testBunny.setMatingUrge(100);
+        assertTrue(testBunny.canPair() && other.canPair());
+
+        testBunny.pairWith(other);
+        assertFalse(testBunny.canPair() || other.canPair());
 
-        testBunny.matingHelper(other);
+        testBunny.courtMate();
 
         assertNotNull(testBunny.getAnimalAttributes().usingThisMate());
         assertNotNull(other.getAnimalAttributes().usingThisMate());
@@ -291,25 +310,25 @@ class ModelTest {
     }
 
     @Test
-    void animal_ShouldResetPartner_IfPartnerAlreadyHasOtherPartner(){
+    void animal_ShouldLeaveMate_IfMateAlreadyHasOtherPartner(){
         Bunny other = new Bunny(150, 150, 100, 100);
         Bunny other2 = new Bunny(150, 150, 100, 100);
-        other.setState(AnimalState.IDLE);
-        testBunny.setState(AnimalState.IDLE);
-        other.setMatingUrge(100);
-        testBunny.setMatingUrge(100);
-        other2.setState(AnimalState.IDLE);
-        other2.setMatingUrge(100);
 
-        //give other animal different mate
-        other.setUsingThisMate(other2);
-        testBunny.matingHelper(other);
+        testBunny.pairWith(other);
+        // the mate was paired with a different animal, e.g. after running away from a fox
+        other.pairWith(other2);
+        assertTrue(testBunny.hasOneSidedMate());
+        assertFalse(other.hasOneSidedMate());
 
-        assertNotNull(other.getAnimalAttributes().usingThisMate());
+        // a one-sided mate is never courted
+        testBunny.courtMate();
+        assertFalse(testBunny.getAnimalAttributes().mating());
+        assertFalse(testBunny.getAnimalAttributes().objectiveInSight());
 
-        testBunny.matingHelper(other);
+        testBunny.leaveMate();
         assertNull(testBunny.getAnimalAttributes().usingThisMate());
-        assertFalse(testBunny.getAnimalAttributes().objectiveInSight());
+        assertFalse(testBunny.hasOneSidedMate());
+        assertEquals(other2, other.getAnimalAttributes().usingThisMate());
     }
 
     @Test
@@ -320,9 +339,10 @@ class ModelTest {
         other.setMatingUrge(100);
         testBunny.setMatingUrge(100);
 
-        testBunny.matingHelper(other);
+        testBunny.pairWith(other);
+        testBunny.courtMate();
 
-        // check if matingHelper did its job
+        // check if the pair started mating
         assertNotNull(testBunny.getAnimalAttributes().usingThisMate());
         assertNotNull(other.getAnimalAttributes().usingThisMate());
 
@@ -336,6 +356,51 @@ class ModelTest {
         assertNull(other.getAnimalAttributes().usingThisMate());
     }
 
+    @Test
+    void matePairing_ShouldPairNearestCandidatesFirst_WithinSightOfBoth(){
+        // A-B are nearer than B-C, so C is left for D, which is 35 away
+        int[] species = {0, 0, 0, 0};
+        float[] x = {0, 10, 25, 60}, y = new float[4];
+        double[] sightRange = {100, 100, 100, 100};
+        assertArrayEquals(new int[]{1, 0, 3, 2}, MatePairing.match(4, species, x, y, sightRange));
+
+        // D only sees 30 far, so C can't pair with it
+        sightRange[3] = 30;
+        assertArrayEquals(new int[]{1, 0, -1, -1}, MatePairing.match(4, species, x, y, sightRange));
+
+        // candidates of different species are never paired
+        species[1] = 1;
+        assertArrayEquals(new int[]{2, -1, 0, -1}, MatePairing.match(4, species, x, y, sightRange));
+    }
+
+    @Test
+    void matePairing_ShouldFindTheStableMatching_LikeComparingEveryPair(){
+        var random = new Random(5);
+        int count = 400;
+        int[] species = new int[count];
+        float[] x = new float[count], y = new float[count];
+        double[] sightRange = new double[count];
+        for(int i = 0; i < count; i++){
+            species[i] = random.nextInt(2);
+            x[i] = random.nextFloat() * 1000;
+            y[i] = random.nextFloat() * 1000;
+            sightRange[i] = 30 + random.nextInt(50);
+        }
+        int[] partner = MatePairing.match(count, species, x, y, sightRange);
+
+        for(int i = 0; i < count; i++){
+            if(partner[i] >= 0) assertEquals(i, partner[partner[i]]);
+            for(int j = i + 1; j < count; j++){
+                double distance = Math.hypot(x[j] - x[i], y[j] - y[i]);
+                if(species[i] != species[j] || distance >= sightRange[i] || distance >= sightRange[j]) continue;
+                // no pair which could pair prefers each other to their partners
+                boolean iPrefers = partner[i] < 0 || distance < Math.hypot(x[partner[i]] - x[i], y[partner[i]] - y[i]);
+                boolean jPrefers = partner[j] < 0 || distance < Math.hypot(x[partner[j]] - x[j], y[partner[j]] - y[j]);
+                assertFalse(iPrefers && jPrefers, i + " and " + j + " should be paired with each other");
+            }
+        }
+    }
+
     @Test
     void animal_ShouldSetBooleanDeadTrue(){
         assertFalse(testBunny.getAnimalAttributes().dead());
@@ -451,17 +516,16 @@ class ModelTest {
         testFox.setState(AnimalState.IDLE);
         testFox.setMatingUrge(100);
 
-        testBunny.handleMating(testFox);
-        assertNull(testBunny.getAnimalAttributes().usingThisMate());
+        // the fox is first and stands on the bunny, but only animals of the same species are paired
+        pairAll(testFox, testBunny, otherBunny);
         assertNull(testFox.getAnimalAttributes().usingThisMate());
-        assertFalse(testBunny.getAnimalAttributes().mating());
-        assertFalse(testFox.getAnimalAttributes().mating());
+        assertEquals(otherBunny, testBunny.getAnimalAttributes().usingThisMate());
+        assertEquals(testBunny, otherBunny.getAnimalAttributes().usingThisMate());
 
-        testBunny.handleMating(otherBunny);
-        assertNotNull(testBunny.getAnimalAttributes().usingThisMate());
-        assertNotNull(otherBunny.getAnimalAttributes().usingThisMate());
+        testBunny.courtMate();
         assertTrue(testBunny.getAnimalAttributes().mating());
         assertTrue(otherBunny.getAnimalAttributes().mating());
+        assertFalse(testFox.getAnimalAttributes().mating());
     }
 
     @Test
@@ -510,6 +574,20 @@ class ModelTest {
         assertNotEquals(AnimalState.HUNTED, testBunny.getAnimalAttributes().state());
     }
 
+    @Test
+    void bunny_ShouldRunAwayFromTheNearestFox_InsteadOfARandomDirection(){
+        Bunny bunny = new Bunny(1, 100, 130, 110);
+        Fox farther = new Fox(2, 150, 30, 110);
+        assertSame(testFox, bunny.nearestOf(List.of(farther, bunny, testFox), bunny.getSpecies().predators()));
+
+        // the fox is to the left of the bunny, which runs to the right
+        bunny.dodgeFox(testFox);
+        assertEquals(AnimalState.HUNTED, bunny.getAnimalAttributes().state());
+        assertEquals(testFox, bunny.getRunningAwayFromThisFox());
+        assertEquals(1, bunny.getAnimalAttributes().vx());
+        assertEquals(0.33333334f, bunny.getAnimalAttributes().vy(), 1e-6);
+    }
+
     @Test
     void fox_ShouldRegisterBunnyToHuntAndSetObjectiveInSightTrue_BasedOnInputBunnyInSightRange(){
         assertFalse(testFox.getAnimalAttributes().objectiveInSight() && testFox.getAnimalAttributes().eating());
@@ -557,6 +635,24 @@ class ModelTest {
         assertNull(testFox.getUsingThisPrey());
     }
 
+    @Test
+    void fox_ShouldDropPreyCaughtByAnotherFox_AndHuntTheNearestLivingBunny(){
+        Bunny farther = new Bunny(100,100, 130,130);
+        testFox.handleHunger(testBunny);
+        assertSame(testBunny, testFox.getUsingThisPrey());
+
+        // another fox caught the bunny, so the nearest living bunny is hunted, although it is farther away
+        Fox otherFox = new Fox(2,150, 100, 100);
+        testFox.setEating(false);
+        otherFox.handleHunger(testBunny);
+        assertTrue(testBunny.isDead());
+        assertNull(testFox.nearestOf(List.of(testFox, testBunny, otherFox), testFox.getSpecies().prey()));
+        assertSame(farther, testFox.nearestOf(List.of(testFox, testBunny, otherFox, farther), testFox.getSpecies().prey()));
+
+        testFox.handleHunger(farther);
+        assertSame(farther, testFox.getUsingThisPrey());
+    }
+
     @Test
     void fox_ShouldSetValuesAfterHunt_BasedOnFoxesStateAndHunger(){
         testFox.setEating(true);
@@ -581,17 +677,30 @@ class ModelTest {
         testBunny.setState(AnimalState.IDLE);
         testBunny.setMatingUrge(100);
 
-        testFox.handleMating(testBunny);
+        pairAll(testBunny, testFox, otherFox);
         assertNull(testBunny.getAnimalAttributes().usingThisMate());
-        assertNull(testFox.getAnimalAttributes().usingThisMate());
-        assertFalse(testBunny.getAnimalAttributes().mating());
-        assertFalse(testFox.getAnimalAttributes().mating());
+        assertEquals(otherFox, testFox.getAnimalAttributes().usingThisMate());
 
-        testFox.handleMating(otherFox);
-        assertNotNull(testFox.getAnimalAttributes().usingThisMate());
-        assertNotNull(otherFox.getAnimalAttributes().usingThisMate());
+        testFox.courtMate();
         assertTrue(testFox.getAnimalAttributes().mating());
         assertTrue(otherFox.getAnimalAttributes().mating());
+        assertFalse(testBunny.getAnimalAttributes().mating());
+    }
+
+    // pairs the passed animals like EcoModel does before the turns
+    private static void pairAll(Animal... animals){
+        int count = animals.length;
+        int[] species = new int[count];
+        float[] x = new float[count], y = new float[count];
+        double[] sightRange = new double[count];
+        for(int i = 0; i < count; i++){
+            species[i] = animals[i].getSpecies().id();
+            x[i] = animals[i].getX();
+            y[i] = animals[i].getY();
+            sightRange[i] = animals[i].getSightRange();
+        }
+        int[] partner = MatePairing.match(count, species, x, y, sightRange);
+        for(int i = 0; i < count; i++) if(partner[i] > i) animals[i].pairWith(animals[partner[i]]);
     }
 
     @Test
@@ -758,4 +867,1010 @@ class ModelTest {
 
         assertTrue(1 <= grassGet.remainingPercentage());
     }
-}
\ No newline at end of file
+
+    @Test
+    void ecoModel_ShouldReachSameState_WhenCalling_SimulateTick_WithSameSeed(){
+        var firstModel = new EcoModel(500, 500, 42);
+        var secondModel = new EcoModel(500, 500, 42);
+        firstModel.startNewSim(20, 3, 10, 10);
+        secondModel.startNewSim(20, 3, 10, 10);
+
+        for (int i = 0; i < 300; i++) {
+            firstModel.simulateTick();
+            secondModel.simulateTick();
+        }
+
+        assertEquals(300, firstModel.getTick());
+        assertEquals(firstModel.getAnimalList().size(), secondModel.getAnimalList().size());
+        for (int i = 0; i < firstModel.getAnimalList().size(); i++) {
+            var first = firstModel.getAnimalList().get(i).getAnimalAttributes();
+            var second = secondModel.getAnimalList().get(i).getAnimalAttributes();
+
+            assertEquals(first.id(), second.id());
+            assertEquals(first.x(), second.x());
+            assertEquals(first.y(), second.y());
+            assertEquals(first.hunger(), second.hunger());
+        }
+    }
+
+    @Test
+    void sweepRunner_ShouldEndRunWithExtinction_WhenNoFoxesAreSpawned(){
+        var spec = new SweepSpec(List.of(5), List.of(0), List.of(1), List.of(1), 1, 7, 1000, 500, 500);
+
+        var run = new SweepRunner(1).runSingle(spec, spec.points().get(0), 7);
+
+        assertEquals(RunEnd.EXTINCTION, run.end());
+        assertEquals(1, run.ticks());
+    }
+
+    @Test
+    void sweepRunner_ShouldStreamEveryRunAndSummarizeEveryPoint(){
+        // 2 grid points with 3 seeds each
+        var spec = new SweepSpec(List.of(10), List.of(1, 2), List.of(5), List.of(5), 3, 1, 200, 400, 400);
+        var runs = new ArrayList<RunSummary>();
+        var points = new ArrayList<PointSummary>();
+
+        var summaries = new SweepRunner(2).run(spec, runs::add, points::add);
+
+        assertEquals(6, runs.size());
+        assertEquals(2, points.size());
+        assertEquals(spec.points(), summaries.stream().map(PointSummary::point).toList());
+        summaries.forEach(summary -> {
+            assertEquals(3, summary.runs());
+            assertTrue(summary.meanSurvivalTicks() <= 200);
+        });
+    }
+
+    @Test
+    void sweepRunner_ShouldSummarizeEveryPoint_WhenTheGridRepeatsAValue(){
+        // the repeated 10 and 2 would give equal points, whose runs can't be told apart
+        var spec = new SweepSpec(List.of(10, 10), List.of(2, 1, 2), List.of(5), List.of(5), 2, 1, 100, 400, 400);
+        assertEquals(List.of(new SweepPoint(10, 2, 5, 5), new SweepPoint(10, 1, 5, 5)), spec.points());
+
+        var points = new ArrayList<PointSummary>();
+        var summaries = new SweepRunner(2).run(spec, run -> {}, points::add);
+
+        assertEquals(2, points.size());
+        assertEquals(spec.points(), summaries.stream().map(PointSummary::point).toList());
+        summaries.forEach(summary -> assertEquals(2, summary.runs()));
+    }
+
+    @Test
+    void engineVersion_ShouldBeIncreased_WhenTheSameSeedGivesADifferentRun(){
+        // a change of the rules changes the run and with it the checksum: increase EcoModel.ENGINE_VERSION and put the new checksum here
+        var model = new EcoModel(600, 600, 17);
+        model.startNewSim(150, 15, 20, 20);
+        for (int tick = 0; tick < 1500; tick++) model.simulateTick();
+        var animals = model.getAnimalList();
+        animals.sort(java.util.Comparator.comparingInt(Animal::getId));
+        assertEquals(10, EcoModel.ENGINE_VERSION);
+        assertEquals(6542992372181107587L, new WorldCodec(model.getResourceList()).checksum(animals));
+    }
+
+    @Test
+    void resultCache_ShouldReturnStoredRun_AndCountHitsAndMisses() throws Exception {
+        var cache = new ResultCache(temporary, 1 << 20);
+        var events = new ArrayList<ResultCache.Kind>();
+        cache.setListener(event -> events.add(event.kind()));
+        var spec = new SweepSpec(List.of(10), List.of(2), List.of(5), List.of(5), 1, 3, 100, 400, 400);
+        var runner = new SweepRunner(1, cache);
+
+        var firstRun = runner.runSingle(spec, spec.points().get(0), 3);
+        var secondRun = runner.runSingle(spec, spec.points().get(0), 3);
+
+        // the first lookup misses and stores the run, the second one is answered from the file
+        assertEquals(firstRun, secondRun);
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getHits());
+        assertEquals(List.of(ResultCache.Kind.MISS, ResultCache.Kind.STORE, ResultCache.Kind.HIT), events);
+        assertEquals(1, new ResultCache(temporary, 1 << 20).size());
+
+        // a differently switched engine never gets the run of another one
+        new SweepRunner(1, cache, model -> model.setUseReordering(false)).runSingle(spec, spec.points().get(0), 3);
+        assertEquals(2, cache.getMisses());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void resultCache_ShouldEvictLeastRecentlyUsedRun_WhenSizeCapIsReached() throws Exception {
+        var summary = new RunSummary(new SweepPoint(1, 1, 1, 1), 1, 10, RunEnd.TICK_LIMIT, 1, 0, 1, 0, 0);
+        var record = new RunRecord(summary, new int[100], new int[100]);
+        // each run takes a little more than 800 bytes, so only two of them fit
+        var cache = new ResultCache(temporary, 2000);
+        var evicted = new ArrayList<String>();
+        cache.setListener(event -> {if(event.kind() == ResultCache.Kind.EVICTION) evicted.add(event.key());});
+
+        cache.put("first", record);
+        cache.put("second", record);
+        // using the first run makes the second one the least recently used
+        assertNotNull(cache.get("first"));
+        cache.put("third", record);
+
+        assertEquals(1, cache.getEvictions());
+        assertEquals(List.of("second"), evicted);
+        assertNotNull(cache.get("first"));
+        assertNull(cache.get("second"));
+        assertArrayEquals(new int[100], cache.get("third").bunnySeries());
+    }
+
+    @Test
+    void neighborList_ShouldContainAnimalsInSight_AndFollowBirthsAndDeaths(){
+        var neighborList = new NeighborList(20);
+        var farBunny = new Bunny(1, 100, 900, 900);
+        var pool = new AnimalPool();
+        List.of(testBunny, testFox, farBunny).forEach(pool::add);
+        var animals = pool.animals();
+
+        neighborList.rebuild(animals);
+
+        // the list contains the animal itself and is ordered like the animal list, where the bunnies come before the foxes
+        assertEquals(List.of(testBunny, testFox), neighborList.of(testFox));
+        assertEquals(List.of(farBunny), neighborList.of(farBunny));
+
+        // a newborn standing on its mother's position gets the neighbors of its mother, it is added behind the bunnies and the fox moves
+        var newborn = new Bunny(200, 100, 100, 100);
+        pool.add(newborn, neighborList::moved);
+        assertTrue(neighborList.addNewborn(newborn, testBunny));
+        assertEquals(List.of(testBunny, newborn, testFox), neighborList.of(newborn));
+        assertEquals(List.of(testBunny, newborn, testFox), neighborList.of(testFox));
+
+        // dead animals are removed from the lists of their neighbors, the last animal of each batch from there on closes the gap
+        testBunny.setDead();
+        pool.removeDead(neighborList::remove, neighborList::moved);
+        assertFalse(neighborList.of(testFox).contains(testBunny));
+        assertEquals(List.of(newborn, testFox), neighborList.of(testFox));
+        assertEquals(List.of(newborn, testFox), neighborList.of(newborn));
+
+        // moving less than half the skin keeps the lists, moving further builds them again
+        testFox.setVxAndVy(1, 0);
+        for (int i = 0; i < 5; i++) testFox.movement();
+        neighborList.update(animals);
+        assertEquals(1, neighborList.getRebuilds());
+        for (int i = 0; i < 10; i++) testFox.movement();
+        neighborList.update(animals);
+        assertEquals(2, neighborList.getRebuilds());
+    }
+
+    @Test
+    void resourceField_ShouldPointToNearestUsableResource_AfterResourcesAreUsedAndReleased(){
+        var random = new Random(5);
+        var resources = new ArrayList<Resource>();
+        for (int i = 0; i < 40; i++) resources.add(new Resource(i % 2 == 0, 500, 500, random));
+        var field = new ResourceField(resources, 500, 500, 150);
+
+        // using a resource makes it unusable, so the field has to point somewhere else
+        for (int i = 0; i < 40; i += 3) resources.get(i).setCurrentlyInUse(true);
+        resources.get(3).setCurrentlyInUse(false);
+        resources.get(9).setCurrentlyInUse(false);
+
+        for (float x = 5; x < 500; x += 35) {
+            for (float y = 5; y < 500; y += 35) {
+                // the field is built for the centers of its cells
+                float centerX = ((int) (x / ResourceField.CELL_SIZE) + 0.5f) * ResourceField.CELL_SIZE;
+                float centerY = ((int) (y / ResourceField.CELL_SIZE) + 0.5f) * ResourceField.CELL_SIZE;
+                for (boolean water : new boolean[]{true, false}) {
+                    Resource expected = null;
+                    double expectedDistance = Double.MAX_VALUE;
+                    for (Resource resource : resources) {
+                        double distance = Math.hypot(resource.getX() - centerX, resource.getY() - centerY);
+                        if (resource.isUsable() && resource.getResourceAttributes().resourceTypeWater() == water && distance < expectedDistance && distance <= 150 + ResourceField.CELL_SIZE * 0.7072) {
+                            expected = resource;
+                            expectedDistance = distance;
+                        }
+                    }
+                    assertSame(expected, field.nearest(water, x, y));
+                }
+            }
+        }
+    }
+
+    @Test
+    void resourceReservation_ShouldGiveTheResourceToTheWaitingAnimals_InTheOrderTheyCame(){
+        testWater = new Resource(true, 100, 100);
+        var first = new Bunny(1, 500, 50, 50);
+        var second = new Bunny(2, 500, 60, 60);
+        var third = new Bunny(3, 500, 70, 70);
+        var fourth = new Bunny(4, 500, 80, 80);
+
+        // the first bunny claims the water on its way, the others wait for it until the queue is full
+        first.handleThirst(testWater);
+        assertTrue(testWater.isReservedBy(1));
+        assertFalse(testWater.isUsable());
+        second.handleThirst(testWater);
+        third.handleThirst(testWater);
+        fourth.handleThirst(testWater);
+        assertTrue(testWater.isWaiting(2) && testWater.isWaiting(3));
+        assertNull(fourth.getUsingThisResource());
+        assertEquals(1, testWater.getReservation().getClaims());
+        assertEquals(3, testWater.getReservation().getConflicts());
+
+        // the waiting bunny stops at the water, but only the first one drinks
+        for (int i = 0; i < 500; i++) {
+            for (Bunny bunny : new Bunny[]{first, second}) {
+                bunny.handleThirst(testWater);
+                bunny.movement();
+                bunny.setThirst(0);
+                bunny.setHunger(0);
+            }
+        }
+        assertTrue(first.getAnimalAttributes().drinking());
+        assertFalse(second.getAnimalAttributes().drinking());
+        assertEquals(0, second.getAnimalAttributes().vx());
+        assertEquals(0, second.getAnimalAttributes().vy());
+        assertTrue(testWater.getReservation().getWaitTicks() > 0);
+
+        // the claim is handed to the next bunny in the queue, which drinks right away
+        first.setState(AnimalState.THIRSTY);
+        first.stopUsingResource();
+        assertTrue(testWater.isReservedBy(2) && testWater.isWaiting(3));
+        second.handleThirst(testWater);
+        assertTrue(second.getAnimalAttributes().drinking() && testWater.getResourceAttributes().currentlyInUse());
+        assertEquals(2, testWater.getReservation().getClaims());
+
+        // a dead bunny gives its resource up, before it is recycled
+        second.setDead();
+        second.leaveResource();
+        assertTrue(testWater.isReservedBy(3));
+        assertFalse(testWater.getResourceAttributes().currentlyInUse());
+        third.leaveResource();
+        assertTrue(testWater.isUsable());
+    }
+
+    @Test
+    void resourceField_ShouldSendAnimalsToTheNextFreeResource_AndLetThemWaitIfNoneIsLeft(){
+        var random = new Random(3);
+        var resources = new ArrayList<Resource>();
+        for (int i = 0; i < 2; i++) resources.add(new Resource(true, 100, 100, random));
+        var field = new ResourceField(resources, 100, 100, 150);
+        Resource claimed = resources.get(0), other = resources.get(1);
+
+        assertTrue(claimed.reserve(1));
+        assertSame(other, field.nearest(true, claimed.getX(), claimed.getY()));
+        assertSame(claimed, field.nearestReserved(true, claimed.getX(), claimed.getY(), 150));
+
+        assertTrue(other.reserve(2));
+        assertNull(field.nearest(true, claimed.getX(), claimed.getY()));
+        assertTrue(claimed.reserve(3) && claimed.reserve(4));
+        // the queue of the claimed resource is full, so only the other one can be waited for
+        assertSame(other, field.nearestReserved(true, claimed.getX(), claimed.getY(), 150));
+        assertNull(field.nearestReserved(true, claimed.getX(), claimed.getY(), 0));
+
+        claimed.release(1);
+        claimed.release(3);
+        claimed.release(4);
+        assertSame(claimed, field.nearest(true, claimed.getX(), claimed.getY()));
+    }
+
+    @Test
+    void screenInRange_ShouldKeepExactlyTheAnimals_CloserThanTheRange(){
+        var random = new Random(11);
+        int count = 500;
+        float[] x = new float[count], y = new float[count];
+        for (int i = 0; i < count; i++) {
+            x[i] = random.nextFloat() * 520 - 10;
+            y[i] = random.nextFloat() * 520 - 10;
+        }
+
+        int[] inRange = new int[count];
+        int found = RangeScreen.screenInRange(x, y, 0, count, 250, 250, 100, inRange);
+        int expected = 0;
+        for (int i = 0; i < count; i++) if (Math.hypot(x[i] - 250, y[i] - 250) < 100) assertEquals(i, inRange[expected++]);
+        assertEquals(expected, found);
+    }
+
+    @Test
+    void timingWheel_ShouldReturnItemsInTheirTick_AcrossAllWheels(){
+        var wheel = new TimingWheel<Long>(3);
+        long[] ticks = {4, 200, 256, 257, 511, 40_000, 65_536, 70_000, 300_000};
+        for (int i = ticks.length - 1; i >= 0; i--) wheel.schedule(ticks[i], ticks[i]);
+        assertThrows(IllegalArgumentException.class, () -> wheel.schedule(0L, 3));
+
+        long now = 3;
+        for (long tick : ticks) {
+            // nothing comes before its tick
+            assertEquals(List.of(), wheel.advance(tick - 1));
+            assertEquals(List.of(tick), wheel.advance(tick));
+            now = tick;
+        }
+        assertEquals(0, wheel.size());
+        assertEquals(List.of(), wheel.advance(now + 100_000));
+    }
+
+    @Test
+    void timingWheel_ShouldNotChangeTheSimulation_WhenAnimalsAreParked(){
+        // a SimRandom has to give the values of a Random, so the animals decide the same
+        var simRandom = new SimRandom(42);
+        var random = new Random(42);
+        for (int i = 0; i < 100; i++) assertEquals(random.nextInt(200, 250), simRandom.nextInt(200, 250));
+
+        var parking = new EcoModel(800, 800, 9);
+        var notParking = new EcoModel(800, 800, 9);
+        notParking.setUseTimingWheel(false);
+        parking.startNewSim(150, 8, 30, 30);
+        notParking.startNewSim(150, 8, 30, 30);
+
+        int mostParked = 0, behind = 0;
+        for (int tick = 0; tick < 1000; tick++) {
+            parking.simulateTick();
+            notParking.simulateTick();
+            mostParked = Math.max(mostParked, parking.getParkedAnimals());
+            // the skipped turns are only replayed when the animals are read, so they pile up in between
+            if (tick % 37 != 0) continue;
+
+            for (Animal animal : parking.getPool().animals()) if (animal.getSkippedTurns() > 0) behind++;
+
+            var parkingAnimals = parking.getAnimalList();
+            var animals = notParking.getAnimalList();
+            assertEquals(animals.size(), parkingAnimals.size());
+            for (Animal animal : parkingAnimals) assertEquals(0, animal.getSkippedTurns());
+            for (int i = 0; i < animals.size(); i++) {
+                // reading the animal list brings the parked animals up to date
+                var expected = animals.get(i).getAnimalAttributes();
+                var actual = parkingAnimals.get(i).getAnimalAttributes();
+                assertEquals(expected.x(), actual.x());
+                assertEquals(expected.y(), actual.y());
+                assertEquals(expected.hunger(), actual.hunger());
+                assertEquals(expected.thirst(), actual.thirst());
+                assertEquals(parkingAnimals.get(i).getMatingUrge(), animals.get(i).getMatingUrge());
+                assertEquals(expected.state(), actual.state());
+            }
+            // the snapshots drawn by the view show the same needs
+            parking.publishSnapshot();
+            notParking.publishSnapshot();
+            for (int i = 0; i < animals.size(); i++) {
+                assertEquals(notParking.getPositionSnapshot().getHunger(i), parking.getPositionSnapshot().getHunger(i));
+                assertEquals(notParking.getPositionSnapshot().getThirst(i), parking.getPositionSnapshot().getThirst(i));
+            }
+        }
+        assertTrue(mostParked > 0);
+        assertTrue(behind > 0);
+    }
+
+    @Test
+    void nearestIndex_ShouldFindTheNearestAnimal_LikeComparingEveryAnimal(){
+        var random = new Random(9);
+        var index = new NearestIndex(400, 300, 25);
+        int count = 2000;
+        int[] ids = new int[count];
+        float[] x = new float[count], y = new float[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = i * 2;
+            // some prey stand a bit outside the ecosystem, like animals bouncing off a wall
+            x[i] = random.nextFloat() * 420 - 10;
+            y[i] = random.nextFloat() * 320 - 10;
+        }
+        index.build(count, ids, x, y);
+        assertEquals(count, index.size());
+
+        for (int query = 0; query < 500; query++) {
+            float hunterX = random.nextFloat() * 440 - 20, hunterY = random.nextFloat() * 340 - 20;
+            double range = random.nextInt(3) == 0 ? 5 : 150;
+            int expected = -1;
+            double expectedDistance = range * range;
+            for (int i = 0; i < count; i++) {
+                // every third prey was caught since the build
+                if (ids[i] % 3 == 0) continue;
+                double dx = x[i] - hunterX, dy = y[i] - hunterY;
+                if (dx * dx + dy * dy < expectedDistance || (dx * dx + dy * dy == expectedDistance && expected < 0)) {
+                    expected = ids[i];
+                    expectedDistance = dx * dx + dy * dy;
+                }
+            }
+            assertEquals(expected, index.nearest(hunterX, hunterY, range, id -> id % 3 == 0));
+        }
+
+        // cells as big as the range only need the number of animals around a position to rule out every animal
+        var coarse = new NearestIndex(900, 600, 150);
+        coarse.build(2, new int[]{0, 1}, new float[]{10, 890}, new float[]{10, 590});
+        assertEquals(1, coarse.count(200, 20));
+        assertEquals(1, coarse.count(750, 500));
+        assertEquals(0, coarse.count(450, 300));
+        assertEquals(-1, coarse.nearest(450, 300, 150, id -> false));
+        assertEquals(-1, coarse.nearest(200, 20, 150, id -> false));
+        assertEquals(0, coarse.nearest(20, 20, 150, id -> false));
+    }
+
+    @Test
+    void nearestIndices_ShouldNotChangeTheSimulation_ComparedToLookingThroughTheNeighbors(){
+        var indexed = new EcoModel(600, 600, 13);
+        var scanning = new EcoModel(600, 600, 13);
+        scanning.setUsePreyIndex(false);
+        scanning.setUsePredatorIndex(false);
+        indexed.startNewSim(200, 25, 80, 80);
+        scanning.startNewSim(200, 25, 80, 80);
+
+        // the foxes get hungry after about 1500 ticks
+        for (int tick = 0; tick < 2000; tick++) {
+            indexed.simulateTick();
+            scanning.simulateTick();
+        }
+        var expected = scanning.getAnimalList();
+        var actual = indexed.getAnimalList();
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getId(), actual.get(i).getId());
+            assertEquals(expected.get(i).getX(), actual.get(i).getX());
+            assertEquals(expected.get(i).getY(), actual.get(i).getY());
+        }
+        assertTrue(indexed.getPreyVisits() > 0 && indexed.getPredatorVisits() > 0);
+        assertEquals(0, scanning.getPreyVisits() + scanning.getPredatorVisits());
+    }
+
+    @Test
+    void shardedWorld_ShouldSimulateTheSameRun_ForEveryNumberOfWorkers(){
+        var unsharded = new EcoModel(1200, 1000, 5);
+        var oneWorker = new EcoModel(1200, 1000, 5);
+        var fourWorkers = new EcoModel(1200, 1000, 5);
+        oneWorker.setShards(1);
+        fourWorkers.setShards(4);
+        unsharded.startNewSim(400, 30, 30, 30);
+        oneWorker.startNewSim(400, 30, 30, 30);
+        fourWorkers.startNewSim(400, 30, 30, 30);
+        assertEquals(4, fourWorkers.getShards().getWorkers());
+
+        for (int tick = 1; tick <= 300; tick++) {
+            unsharded.simulateTick();
+            oneWorker.simulateTick();
+            fourWorkers.simulateTick();
+            if (tick % 20 != 0) continue;
+
+            // the sharded runs take the same turns as the unsharded run with the same seed
+            var expected = unsharded.getAnimalList();
+            for (var sharded : List.of(oneWorker, fourWorkers)) {
+                var actual = sharded.getAnimalList();
+                assertEquals(expected.size(), actual.size());
+                for (int i = 0; i < expected.size(); i++) {
+                    assertEquals(expected.get(i).getId(), actual.get(i).getId());
+                    assertEquals(expected.get(i).getX(), actual.get(i).getX());
+                    assertEquals(expected.get(i).getY(), actual.get(i).getY());
+                    assertEquals(expected.get(i).getAnimalAttributes().state(), actual.get(i).getAnimalAttributes().state());
+                }
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> oneWorker.setShards(-1));
+        fourWorkers.getShards().close();
+    }
+
+    @Test
+    void distributedCoordinator_ShouldSimulateTheSameRun_AsASingleProcess_WithWorkersHoldingTheirStrips() throws Exception {
+        // three strips of 1200 columns, so the outer strips never matter to each other
+        var single = new EcoModel(3600, 800, 11);
+        single.startNewSim(450, 40, 40, 40);
+        var codec = new WorldCodec(single.getResourceList());
+
+        var processes = new ArrayList<Process>();
+        try (var coordinator = new DistributedCoordinator(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 3)) {
+            String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+            for (int i = 0; i < 3; i++)
+                processes.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), DistributedWorker.class.getName(), "localhost", String.valueOf(coordinator.getPort())).inheritIO().start());
+            coordinator.start(3600, 800, 11, 450, 40, 40, 40);
+
+            // past the first reordering of the animal list at tick 100
+            for (int tick = 0; tick < 120; tick++) {
+                assertTrue(coordinator.tick() > 0);
+                single.simulateTick();
+                assertEquals(codec.sumChecksum(single.getAnimalList(), single.getResourceList()), coordinator.getChecksum(), "tick " + tick);
+                assertEquals(single.getAnimalList().size(), coordinator.getAnimalCount());
+            }
+            assertTrue(coordinator.getHeldAnimals() < coordinator.getAnimalCount());
+            assertTrue(coordinator.getRoutedBytes(0, 1) > 0);
+            assertEquals(0, coordinator.getRoutedBytes(0, 2));
+            assertEquals(0, coordinator.getRoutedBytes(2, 0));
+        } finally {
+            processes.forEach(Process::destroy);
+        }
+    }
+
+    @Test
+    void positionSnapshot_ShouldInterpolate_BetweenTheLastTwoTicks(){
+        var model = new EcoModel(1000, 1000, 3);
+        model.startNewSim(200, 20, 20, 20);
+        var first = model.getPositionSnapshot();
+        assertEquals(220, first.size());
+        // without a tick before, every animal is drawn where it is
+        assertEquals(1, first.fractionAt(first.getPublishedAt()));
+
+        model.simulateTick();
+        // headless ticks don't publish snapshots
+        assertSame(first, model.getPositionSnapshot());
+        model.publishSnapshot();
+        var second = model.getPositionSnapshot();
+        assertEquals(1, second.getTick());
+
+        long tickNanos = second.getPublishedAt() - first.getPublishedAt();
+        assertEquals(0, second.fractionAt(second.getPublishedAt()));
+        assertEquals(1, second.fractionAt(second.getPublishedAt() + 2 * tickNanos));
+
+        var after = model.getAnimalList();
+        for (Animal animal : after) {
+            int index = second.indexOf(animal.getId());
+            assertEquals(animal.getId(), second.getId(index));
+            assertEquals(animal.getX(), second.getX(index, 1));
+            assertEquals(animal.getY(), second.getY(index, 1));
+            // the start of the interpolation is the end of the one before
+            assertEquals(first.getX(first.indexOf(animal.getId()), 1), second.getX(index, 0));
+            assertEquals(first.getY(first.indexOf(animal.getId()), 1), second.getY(index, 0));
+            assertEquals(animal.isHerbivore(), second.isHerbivore(index));
+        }
+        assertEquals(-1, second.indexOf(10_000));
+
+        model.clearOldSim();
+        assertNull(model.getPositionSnapshot());
+    }
+
+    @Test
+    void tickTimes_ShouldReturnPercentiles_OfTheLastTicks(){
+        var tickTimes = new TickTimes(100);
+        assertEquals(0, tickTimes.percentileMillis(99));
+
+        // the first 50 ticks are pushed out of the ring by the next 100
+        for (int i = 0; i < 50; i++) tickTimes.record(1_000_000_000L);
+        for (int i = 1; i <= 100; i++) tickTimes.record(i * 1_000_000L);
+        assertEquals(150, tickTimes.getCount());
+        assertEquals(99, tickTimes.percentileMillis(99));
+        assertEquals(50, tickTimes.percentileMillis(50));
+        assertEquals(1, tickTimes.percentileMillis(0));
+        assertEquals(100, tickTimes.percentileMillis(100));
+        assertThrows(IllegalArgumentException.class, () -> tickTimes.percentileMillis(101));
+        assertThrows(IllegalArgumentException.class, () -> new TickTimes(0));
+    }
+
+    @Test
+    void positionSnapshot_ShouldFindTheFirstAnimalAtAPosition_LikeGoingThroughEveryAnimal(){
+        var model = new EcoModel(1000, 1000, 8);
+        model.startNewSim(2000, 200, 20, 20);
+        for (int tick = 0; tick < 20; tick++) model.simulateTick();
+        model.publishSnapshot();
+        var snapshot = model.getPositionSnapshot();
+        var animals = model.getAnimalList();
+
+        var random = new Random(8);
+        for (int query = 0; query < 500; query++) {
+            float x = random.nextFloat() * 1100 - 50, y = random.nextFloat() * 1100 - 50, radius = query % 2 == 0 ? 20 : 70;
+            int expected = -1;
+            for (int i = 0; i < animals.size(); i++) {
+                if (Math.hypot(animals.get(i).getX() - x, animals.get(i).getY() - y) <= radius) {
+                    expected = i;
+                    break;
+                }
+            }
+            assertEquals(expected, snapshot.indexAt(x, y, radius));
+        }
+        assertEquals(model.getAnimalCountOf(true), snapshot.getAnimalCountOf(true));
+        assertEquals(model.getAnimalCountOf(false), snapshot.getAnimalCountOf(false));
+
+        var selected = animals.get(1234);
+        int index = snapshot.indexOf(selected.getId());
+        assertEquals((float) selected.getAnimalAttributes().hunger(), snapshot.getHunger(index));
+        assertEquals((float) selected.getAnimalAttributes().thirst(), snapshot.getThirst(index));
+        assertThrows(IllegalArgumentException.class, () -> snapshot.indexAt(0, 0, 0));
+    }
+
+    @Test
+    void animalPool_ShouldRecycleDeadAnimals_AndMakeTheirHandlesStale(){
+        var pool = new AnimalPool();
+        for (int i = 0; i < 4; i++) pool.add(pool.bunny(i, 100, 100 + i, 100, i));
+        var fox = pool.fox(4, 150, 100, 100, 4);
+        pool.add(fox);
+        var animals = List.copyOf(pool.animals());
+        var prey = (Bunny) animals.get(1);
+        var mate = animals.get(2);
+
+        mate.setUsingThisMate(prey);
+        fox.setState(AnimalState.HUNGRY);
+        fox.handleHunger(prey);
+        assertSame(prey, fox.getUsingThisPrey());
+        long handle = prey.getHandle();
+
+        // the last bunny takes the place of the dead one and the fox moves to the start of its batch
+        prey.setDead();
+        var removed = new ArrayList<Animal>();
+        var moved = new ArrayList<Animal>();
+        pool.removeDead(removed::add, moved::add);
+        assertEquals(List.of(prey), removed);
+        assertEquals(List.of(animals.get(3), fox), moved);
+        assertEquals(List.of(animals.get(0), animals.get(3), animals.get(2), fox), pool.animals());
+        assertEquals(3, pool.start(1));
+        for (int i = 0; i < pool.animals().size(); i++) assertEquals(i, pool.animals().get(i).getIndex());
+
+        // the references to the dead bunny are recognized as gone
+        assertNotEquals(handle, prey.getHandle());
+        assertNull(mate.getUsingThisMate());
+        assertNull(fox.getUsingThisPrey());
+        assertTrue(fox.hasGonePartner());
+        fox.forgetGonePartners();
+        assertFalse(fox.hasGonePartner());
+
+        // a newborn reuses the dead bunny and is the same as a new bunny, but old references stay gone
+        var newborn = pool.bunny(5, 100, 300, 300, 5);
+        var expected = new Bunny(5, 100, 300, 300, new SimRandom(5));
+        assertSame(prey, newborn);
+        assertEquals(5, pool.getSlots());
+        assertEquals(1, pool.getRecycled());
+        assertEquals(expected.getAnimalAttributes(), newborn.getAnimalAttributes());
+        assertEquals(expected.getRandom().nextLong(), newborn.getRandom().nextLong());
+        assertTrue(mate.hasGonePartner());
+        assertNull(mate.getUsingThisMate());
+
+        // a simulation recycles the animals which died
+        var model = new EcoModel(800, 800, 4);
+        model.startNewSim(300, 30, 30, 30);
+        for (int tick = 0; tick < 1500; tick++) model.simulateTick();
+        assertTrue(model.getPool().getRecycled() > 0);
+        var list = model.getAnimalList();
+        for (int i = 0; i < list.size(); i++) {
+            assertEquals(i, list.get(i).getIndex());
+            assertFalse(list.get(i).hasGonePartner());
+        }
+    }
+
+    @Test
+    void animalPool_ShouldSortAlongAZOrderCurve_AndKeepHandlesAndIds(){
+        assertEquals(0, AnimalPool.morton(0, 0));
+        assertEquals(1, AnimalPool.morton(1, 0));
+        assertEquals(2, AnimalPool.morton(0, 1));
+        assertEquals(4, AnimalPool.morton(2, 0));
+        assertEquals(0x3FFFFFFF, AnimalPool.morton(0x7FFF, 0x7FFF));
+
+        var random = new Random(6);
+        var pool = new AnimalPool();
+        for (int i = 0; i < 1000; i++) pool.add(pool.bunny(i, 100, random.nextFloat() * 1000, random.nextFloat() * 1000, i));
+        var handles = new java.util.IdentityHashMap<Animal, Long>();
+        pool.animals().forEach(animal -> handles.put(animal, animal.getHandle()));
+        double gap = pool.meanGap();
+
+        pool.sortByMorton(8);
+        assertEquals(1000, pool.animals().size());
+        assertTrue(pool.meanGap() < gap / 5);
+        int previous = -1;
+        for (int i = 0; i < pool.animals().size(); i++) {
+            var animal = pool.animals().get(i);
+            assertEquals(i, animal.getIndex());
+            assertEquals(handles.get(animal), animal.getHandle());
+            int code = AnimalPool.morton((int) (animal.getX() / 8), (int) (animal.getY() / 8));
+            assertTrue(code >= previous);
+            previous = code;
+        }
+        assertThrows(IllegalArgumentException.class, () -> pool.sortByMorton(0));
+
+        // the neighbor lists keep their animals and follow the new order
+        var neighborList = new NeighborList(20);
+        var shuffled = new ArrayList<>(pool.animals());
+        java.util.Collections.shuffle(shuffled, random);
+        var unsorted = new AnimalPool();
+        shuffled.forEach(unsorted::add);
+        neighborList.rebuild(unsorted.animals());
+        var before = new java.util.IdentityHashMap<Animal, java.util.Set<Animal>>();
+        for (Animal animal : unsorted.animals()) before.put(animal, java.util.Collections.newSetFromMap(new java.util.IdentityHashMap<>()));
+        for (Animal animal : unsorted.animals()) before.get(animal).addAll(neighborList.of(animal));
+        unsorted.sortByMorton(8);
+        neighborList.reordered();
+        for (Animal animal : unsorted.animals()) {
+            var neighbors = neighborList.of(animal);
+            assertEquals(before.get(animal).size(), neighbors.size());
+            assertTrue(before.get(animal).containsAll(neighbors));
+            for (int i = 1; i < neighbors.size(); i++) assertTrue(neighbors.get(i - 1).getIndex() < neighbors.get(i).getIndex());
+        }
+
+        // a simulation sorts its animals at the start and again once they drifted apart
+        var model = new EcoModel(700, 700, 2);
+        model.startNewSim(250, 20, 20, 20);
+        model.simulateTick();
+        assertEquals(1, model.getReorders());
+    }
+
+    @Test
+    void offHeapPopulation_ShouldGiveSameValues_AsAnimalMethods_AndSurviveACheckpoint() throws Exception {
+        var random = new Random(12);
+        var animals = new ArrayList<Animal>();
+        // hares grow hungry and want to mate faster, so the rates have to come from the species
+        var hare = new Species(2, "hare", 80, 0, 1L << 1, 0.08, 0.1, 0.12, 0.1, 0.4, 0.5, 2);
+        var registry = new SpeciesRegistry(List.of(Species.BUNNY, Species.FOX.as(1, "fox", 1L | 1L << 2, 0), hare));
+        // starts with a single record, so the buffer has to grow
+        var population = new OffHeapPopulation(registry, 1, true);
+        // the same records on the heap
+        var heap = new OffHeapPopulation(registry, 1, false);
+        for (int i = 0; i < 300; i++) {
+            float x = random.nextFloat() * 520 - 10, y = random.nextFloat() * 520 - 10;
+            Animal animal = i % 5 == 0 ? new Fox(registry.get(1), i, 150, x, y, random)
+                          : i % 5 == 1 ? new Bunny(hare, i, 80, x, y, random)
+                                       : new Bunny(i, 100, x, y, random);
+            animal.setVxAndVy(random.nextFloat() * 2 - 1, random.nextFloat() * 2 - 1);
+            animal.setHunger(random.nextDouble() * 95);
+            animal.setThirst(random.nextDouble() * 95);
+            animal.setMatingUrge(random.nextDouble() * 110 - 5);
+            if (i % 3 == 1) animal.setThinking(true);
+            if (i % 7 == 2) animal.setEating(true);
+            animals.add(animal);
+            population.add(animal);
+            heap.add(animal);
+        }
+        assertTrue(population.getCapacity() >= 300);
+        assertTrue(population.isDirect());
+        assertFalse(heap.isDirect());
+
+        for (int tick = 0; tick < 400; tick++) {
+            for (Animal animal : animals) {
+                animal.movement();
+                animal.wallCollision(500, 500);
+                animal.decideState();
+            }
+            animals.removeIf(Animal::isDead);
+            population.tick(500, 500);
+            heap.tick(500, 500);
+            assertEquals(animals.size(), population.size());
+        }
+        assertTrue(animals.size() < 300);
+
+        // the dead are swapped out, so the records are compared by id
+        var byId = new java.util.HashMap<Integer, Integer>();
+        for (int i = 0; i < population.size(); i++) byId.put(population.getId(i), i);
+        for (Animal animal : animals) {
+            int i = byId.get(animal.getId());
+            var attributes = animal.getAnimalAttributes();
+            assertEquals(attributes.x(), population.getX(i));
+            assertEquals(attributes.y(), population.getY(i));
+            assertEquals(attributes.vx(), population.getVx(i));
+            assertEquals(attributes.hunger(), population.getHunger(i));
+            assertEquals(attributes.thirst(), population.getThirst(i));
+            assertEquals(animal.getMatingUrge(), population.getMatingUrge(i));
+            assertEquals(attributes.state(), population.getState(i));
+            assertSame(animal.getSpecies(), population.getSpecies(i));
+        }
+        assertEquals(population.size(), heap.size());
+        for (int i = 0; i < population.size(); i++) {
+            assertEquals(population.getId(i), heap.getId(i));
+            assertEquals(population.getX(i), heap.getX(i));
+            assertEquals(population.getHunger(i), heap.getHunger(i));
+            assertEquals(population.getState(i), heap.getState(i));
+        }
+
+        var file = temporary.resolve("population.bin");
+        population.checkpoint(file);
+        assertEquals(OffHeapPopulation.HEADER_BYTES + population.size() * OffHeapPopulation.RECORD_BYTES, Files.size(file));
+        var restored = OffHeapPopulation.restore(file, registry);
+        assertEquals(population.size(), restored.size());
+        assertEquals(400, restored.getTick());
+        for (int i = 0; i < population.size(); i++) {
+            assertEquals(population.getId(i), restored.getId(i));
+            assertEquals(population.getX(i), restored.getX(i));
+            assertEquals(population.getThirst(i), restored.getThirst(i));
+            assertSame(population.getSpecies(i), restored.getSpecies(i));
+        }
+        Files.write(file, new byte[10]);
+        assertThrows(IOException.class, () -> OffHeapPopulation.restore(file));
+        assertThrows(IllegalArgumentException.class, () -> new OffHeapPopulation(0));
+        assertThrows(IllegalArgumentException.class, () -> new OffHeapPopulation(1).add(hare, 0, 80, 0, 0));
+    }
+
+    @Test
+    void worldExport_ShouldMirrorTheAnimalsEveryTick_AndOnlyGiveReadersCompleteFrames() throws Exception {
+        var file = temporary.resolve("world.bin");
+        var model = new EcoModel(500, 500, 21);
+        model.startNewSim(40, 8, 10, 10);
+        model.exportTo(file);
+        try (var reader = new WorldExportReader(file)) {
+            assertEquals(0, reader.read().tick());
+            for (int tick = 0; tick < 50; tick++) model.simulateTick();
+
+            var frame = reader.read();
+            var animals = model.getPool().animals();
+            assertEquals(50, frame.tick());
+            assertEquals(500, frame.width());
+            assertEquals(animals.size(), frame.size());
+            for (int i = 0; i < frame.size(); i++) {
+                assertEquals(animals.get(i).getId(), frame.ids()[i]);
+                assertEquals(animals.get(i).getX(), frame.x()[i]);
+                assertEquals(animals.get(i).getY(), frame.y()[i]);
+                assertEquals(animals.get(i).getState().ordinal(), frame.states()[i]);
+                assertEquals(animals.get(i).isHerbivore(), frame.isHerbivore(i));
+                assertEquals((float) animals.get(i).getThirst(), frame.thirst()[i]);
+            }
+        }
+        model.stopExport();
+
+        // every frame gives all animals the tick as hunger, a torn frame would mix two of them, and the file grows past its first capacity while it is read
+        var exporter = new WorldExporter(file, 100, 100, 1);
+        var frames = new ArrayList<List<Animal>>();
+        for (int size = 1; size <= 2000; size *= 3) {
+            var frameAnimals = new ArrayList<Animal>();
+            for (int i = 0; i < size; i++) frameAnimals.add(new Bunny(i, 100, 0, 0));
+            frames.add(frameAnimals);
+        }
+        var writer = new Thread(() -> {
+            try {
+                for (int tick = 1; tick <= 20000; tick++) {
+                    var frameAnimals = frames.get(Math.min(frames.size() - 1, tick / 1000));
+                    for (Animal animal : frameAnimals) animal.setHunger(tick);
+                    exporter.write(frameAnimals, tick);
+                }
+            } catch (IOException e) {throw new UncheckedIOException(e);}
+        });
+        try (var reader = new WorldExportReader(file)) {
+            writer.start();
+            long lastTick = 0;
+            while (writer.isAlive() || lastTick < 20000) {
+                var frame = reader.read();
+                assertTrue(frame.tick() >= lastTick);
+                for (int i = 0; i < frame.size(); i++) assertEquals(frame.tick(), frame.hunger()[i]);
+                lastTick = frame.tick();
+            }
+            assertEquals(frames.get(frames.size() - 1).size(), reader.read().size());
+        } finally {
+            writer.join();
+            exporter.close();
+        }
+        Files.write(file, new byte[64]);
+        assertThrows(IOException.class, () -> new WorldExportReader(file));
+        assertThrows(IllegalArgumentException.class, () -> new WorldExporter(file, 100, 100, 0));
+    }
+
+    @Test
+    void worldExport_ShouldExportTheNeedsOfParkedAnimals_LikeTheNeedsOfAnimalsTakingEveryTurn() throws Exception {
+        var parking = new EcoModel(800, 800, 9);
+        var notParking = new EcoModel(800, 800, 9);
+        notParking.setUseTimingWheel(false);
+        parking.startNewSim(150, 8, 30, 30);
+        notParking.startNewSim(150, 8, 30, 30);
+        parking.exportTo(temporary.resolve("parking.bin"));
+        notParking.exportTo(temporary.resolve("notParking.bin"));
+
+        int parkedFrames = 0;
+        try (var parkingReader = new WorldExportReader(temporary.resolve("parking.bin"));
+             var reader = new WorldExportReader(temporary.resolve("notParking.bin"))) {
+            for (int tick = 0; tick < 600; tick++) {
+                parking.simulateTick();
+                notParking.simulateTick();
+                var expected = reader.read();
+                var actual = parkingReader.read();
+                assertEquals(expected.size(), actual.size());
+                for (int i = 0; i < expected.size(); i++) {
+                    assertEquals(expected.ids()[i], actual.ids()[i]);
+                    assertEquals(expected.hunger()[i], actual.hunger()[i]);
+                    assertEquals(expected.thirst()[i], actual.thirst()[i]);
+                    assertEquals(expected.states()[i], actual.states()[i]);
+                }
+                if (parking.getParkedAnimals() > 0) parkedFrames++;
+            }
+        } finally {
+            parking.stopExport();
+            notParking.stopExport();
+        }
+        assertTrue(parkedFrames > 0);
+    }
+
+    @Test
+    void speciesRegistry_ShouldKeepEverySpeciesInItsOwnBatch_AndDriveBehaviorByData() {
+        // foxes hunt bunnies and hares, hares grow hungry faster and have twins
+        var hare = new Species(2, "hare", 80, 0, 1L << 1, 0.08, 0.1, 0.1, 0.1, 0.4, 0.5, 2);
+        var fox = Species.FOX.as(1, "fox", 1L | 1L << 2, 0);
+        var registry = new SpeciesRegistry(List.of(Species.BUNNY, fox, hare));
+        assertTrue(fox.hunts(hare));
+        assertTrue(hare.fears(fox));
+        assertFalse(Species.BUNNY.fears(hare));
+
+        // the prey and predator sets have to agree, and hunters can't be prey
+        assertThrows(IllegalArgumentException.class, () -> new SpeciesRegistry(List.of(Species.BUNNY, Species.FOX, hare)));
+        assertThrows(IllegalArgumentException.class, () -> new SpeciesRegistry(List.of(Species.BUNNY, Species.FOX.as(1, "fox", 1L | 1L << 2, 1L << 2), Species.FOX.as(2, "wolf", 1L << 1, 0))));
+        assertThrows(IllegalArgumentException.class, () -> new SpeciesRegistry(List.of(Species.FOX, Species.BUNNY)));
+        assertThrows(IllegalArgumentException.class, () -> Species.BUNNY.as(0, "cannibal", 1L, 0));
+
+        // adding and removing at random keeps every animal in the batch of its species
+        var pool = new AnimalPool();
+        pool.setSpeciesCount(3);
+        var random = new Random(3);
+        for (int i = 0; i < 3000; i++) {
+            if (random.nextInt(3) > 0 || pool.animals().isEmpty()) pool.add(pool.animal(registry.get(random.nextInt(3)), i, 100, 0, 0, i));
+            else pool.animals().get(random.nextInt(pool.animals().size())).setDead();
+            if (i % 10 == 0) pool.removeDead(animal -> {}, animal -> {});
+            for (int index = 0; index < pool.animals().size(); index++) {
+                Animal animal = pool.animals().get(index);
+                assertEquals(index, animal.getIndex());
+                assertTrue(pool.start(animal.getSpecies().id()) <= index && index < pool.end(animal.getSpecies().id()));
+            }
+        }
+        assertThrows(IllegalStateException.class, () -> pool.setSpeciesCount(2));
+
+        var first = new EcoModel(600, 600, 17);
+        var second = new EcoModel(600, 600, 17);
+        for (EcoModel model : List.of(first, second)) {
+            model.setSpecies(registry);
+            model.startNewSim(new int[]{60, 6, 60}, 20, 20);
+            for (int tick = 0; tick < 1500; tick++) model.simulateTick();
+        }
+        var animals = first.getPool().animals();
+        assertEquals(animals.size(), second.getPool().animals().size());
+        for (int i = 0; i < animals.size(); i++) {
+            assertEquals(animals.get(i).getId(), second.getPool().animals().get(i).getId());
+            assertEquals(animals.get(i).getX(), second.getPool().animals().get(i).getX());
+            assertEquals(animals.get(i).getHunger(), second.getPool().animals().get(i).getHunger());
+        }
+
+        int hares = (int) animals.stream().filter(animal -> animal.getSpecies() == hare).count();
+        assertEquals(hares, first.getAnimalCountOf(hare));
+        assertEquals(animals.stream().filter(Animal::isHerbivore).count(), first.getAnimalCountOf(true));
+        // the hares had twins, so their ids grew past the initial animals in pairs of the same species
+        assertTrue(animals.stream().anyMatch(animal -> animal.getSpecies() == hare && animal.getId() >= 126));
+        for (int i = 0; i < animals.size(); i++) assertEquals(hare == animals.get(i).getSpecies(), i >= first.getPool().start(2));
+        assertThrows(IllegalArgumentException.class, () -> first.startNewSim(new int[]{1, 1}, 0, 0));
+    }
+
+    @Test
+    void ecsModel_ShouldSimulateExactlyLikeEcoModel_WithTheSameSeed() {
+        // a crowded world, so every rule (hunting, fleeing, mating, births, deaths and reordering) is used many times
+        var objects = new EcoModel(500, 500, 23);
+        var entities = new EcsModel(500, 500, 23);
+        objects.startNewSim(120, 15, 30, 30);
+        entities.startNewSim(120, 15, 30, 30);
+        var objectResources = objects.getResourceList();
+        var entityResources = entities.getResourceList();
+        boolean born = false, died = false;
+        for (int tick = 0; tick <= 3000; tick++) {
+            // the animal list brings the parked animals up to date
+            var animals = objects.getAnimalList();
+            EcsWorld world = entities.getWorld();
+            assertEquals(animals.size(), world.size, "tick " + tick);
+            for (int i = 0; i < animals.size(); i++) {
+                Animal animal = animals.get(i);
+                String at = "tick " + tick + ", index " + i;
+                assertEquals(animal.getId(), world.id[i], at);
+                assertEquals(animal.getX(), world.x[i], at);
+                assertEquals(animal.getY(), world.y[i], at);
+                assertEquals(animal.getVx(), world.vx[i], at);
+                assertEquals(animal.getVy(), world.vy[i], at);
+                assertEquals(animal.getHunger(), world.hunger[i], at);
+                assertEquals(animal.getThirst(), world.thirst[i], at);
+                assertEquals(animal.getMatingUrge(), world.matingUrge[i], at);
+                assertEquals(animal.getState(), world.state[i], at);
+                assertEquals(animal.isDead(), world.is(i, EcsWorld.DEAD), at);
+                assertEquals(animal.isThinking(), world.is(i, EcsWorld.THINKING), at);
+                assertEquals(animal.isPregnant(), world.is(i, EcsWorld.PREGNANT), at);
+                assertEquals(objectResources.indexOf(animal.getUsingThisResource()), entityResources.indexOf(world.resource[i]), at);
+                born |= animal.getId() >= 135;
+                died |= animal.isDead();
+            }
+            objects.simulateTick();
+            entities.simulateTick();
+        }
+        assertTrue(born && died);
+        assertEquals(objects.getAnimalCountOf(true), entities.getAnimalCountOf(true));
+        assertEquals(objects.getAnimalCountOf(false), entities.getAnimalCountOf(false));
+
+        // the copies of the entities hold the same values as the animals
+        Animal animal = objects.getAnimalList().get(0), copy = entities.getAnimalList().get(0);
+        assertEquals(animal.getAnimalAttributes().x(), copy.getAnimalAttributes().x());
+        assertEquals(animal.getAnimalAttributes().hunger(), copy.getAnimalAttributes().hunger());
+        assertEquals(animal.getAnimalAttributes().state(), copy.getAnimalAttributes().state());
+        // and draw the same random values next
+        assertEquals(animal.getRandom().nextDouble(), copy.getRandom().nextDouble());
+        entities.publishSnapshot();
+        assertEquals(entities.getWorld().size, entities.getPositionSnapshot().size());
+    }
+
+    @Test
+    void resourceCache_ShouldNotChangeTheSimulation_ComparedToLookingUpEveryResource(){
+        var cached = new EcoModel(800, 800, 31);
+        var uncached = new EcoModel(800, 800, 31);
+        uncached.setUseResourceCache(false);
+        cached.startNewSim(300, 20, 40, 40);
+        uncached.startNewSim(300, 20, 40, 40);
+
+        for (int tick = 0; tick < 2000; tick++) {
+            cached.simulateTick();
+            uncached.simulateTick();
+        }
+        var expected = uncached.getAnimalList();
+        var actual = cached.getAnimalList();
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getId(), actual.get(i).getId());
+            assertEquals(expected.get(i).getX(), actual.get(i).getX());
+            assertEquals(expected.get(i).getY(), actual.get(i).getY());
+            assertEquals(expected.get(i).getState(), actual.get(i).getState());
+        }
+        // most lookups of the wandering animals are skipped, the others are the same lookups the uncached model did
+        assertTrue(cached.getResourceCacheHits() > cached.getResourceLookups());
+        assertEquals(uncached.getResourceLookups(), cached.getResourceLookups() + cached.getResourceCacheHits());
+        assertEquals(0, uncached.getResourceCacheHits());
+    }
+}